@@ -4,6 +4,7 @@ import 'dart:typed_data';
 
 import 'package:flutter/foundation.dart';
 import 'package:flutter_sound_lite/flutter_sound.dart';
+import 'package:vosk_dart/feed_status.dart';
 import 'package:vosk_dart/transcript_event.dart';
 import 'package:vosk_dart/vosk_dart.dart';
 
@@ -22,6 +23,13 @@ class StreamTranscriber with FutureInitializer<StreamTranscriber> {
   /// True if transcriber is currently transcribing a file.
   bool get active => _transcript.path.isNotEmpty;
 
+  /// The audio fed to Vosk and not yet transcribed, as of the last feed.
+  Duration get lag => _lag;
+
+  /// The total bytes of audio Vosk discarded from the current transcript
+  /// because transcription fell behind.
+  int get droppedBytes => _droppedBytes;
+
   /// Stream of [TranscriptEvents] from the ongoing transcription.
   ///
   /// Will only show events where the transcript path of the event matches that
@@ -44,11 +52,17 @@ class StreamTranscriber with FutureInitializer<StreamTranscriber> {
 
   File _transcript = File('');
 
+  Duration _lag = Duration.zero;
+
+  int _droppedBytes = 0;
+
   StreamTranscriber(this._modelDirectory);
 
   /// Starts a new [_transcript] file.
   ///
   /// If there is a transcript in progress, then nothing happens.
+  /// Audio arriving while transcription is behind is merged with the audio
+  /// still waiting, so recording is never held up.
   Future<void> start({
     @required Stream<Food> audioStream,
     @required String tempLocation,
@@ -57,9 +71,12 @@ class StreamTranscriber with FutureInitializer<StreamTranscriber> {
     if (active) return;
 
     _transcript = File(tempLocation);
+    _lag = Duration.zero;
+    _droppedBytes = 0;
     await _voskInstance.startNewTranscript(
       _transcript.path,
       audio_constants.sample_rate,
+      overflowPolicy: OverflowPolicy.merge,
     );
 
     _audioSub = audioStream.listen(_onAudioData);
@@ -95,7 +112,7 @@ class StreamTranscriber with FutureInitializer<StreamTranscriber> {
 
     await _audioSub.cancel();
 
-    await _voskInstance.feedBuffer(
+    await _voskInstance.feedAudio(
       _internalBuffer.takeBytes(),
     ); // Feed any remaining data.
     await _voskInstance.finishTranscript();
@@ -134,10 +151,29 @@ class StreamTranscriber with FutureInitializer<StreamTranscriber> {
     if (food is FoodData) {
       _internalBuffer.add(food.data);
       if (_internalBuffer.length >= buffer_threshold) {
-        _voskInstance.feedBuffer(_internalBuffer.takeBytes());
+        _voskInstance
+            .feedAudio(_internalBuffer.takeBytes())
+            .then(_onFeedStatus);
       }
     }
   }
+
+  /// Called with the state of the queue of Vosk once fed audio is queued.
+  ///
+  /// Notes how far behind transcription is, and reports audio Vosk had to
+  /// discard to keep up.
+  void _onFeedStatus(FeedStatus status) {
+    if (status == null) return;
+
+    _lag = status.lag;
+    if (status.droppedBytes > _droppedBytes) {
+      debugPrint(
+        'Transcription fell behind, '
+        '${status.droppedBytes - _droppedBytes} bytes of audio dropped.',
+      );
+      _droppedBytes = status.droppedBytes;
+    }
+  }
 }
 
 class NoTranscriptStarted implements Exception {
@@ -0,0 +1,274 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.Arrays;
+
+// Converts interleaved PCM audio of any channel count, sample size, and sample rate into mono 16
+// bit audio at the sample rate of a recognizer, a buffer at a time.
+//
+// Channels are averaged, then resampled by a polyphase windowed sinc filter whose cutoff lies just
+// below the Nyquist frequency of the lower rate, so downsampling does not alias. Output sample n
+// lies exactly at input time n * inputRate / outputRate, with the fraction picking one of up to
+// MAX_PHASES precomputed filters. The filters only look as far ahead as their half length, and the
+// samples they still need are kept for the next buffer, as are bytes of an unfinished frame.
+// Buffers are only allocated when a larger buffer than before is given. Not thread safe.
+class AudioConverter {
+    private static final int ZERO_CROSSINGS = 8; // Of the sinc on each side of a filter.
+    private static final double ROLLOFF = 0.9; // Cutoff as a part of the lower Nyquist frequency.
+    private static final int MAX_PHASES = 256;
+
+    private static final int OUTPUT_BYTES_PER_SAMPLE = 2;
+
+    private final int channelCount;
+    private final int bytesPerSample;
+    private final int blockAlign; // Bytes in a frame of samples across all channels.
+
+    private final boolean resampling;
+    private final int upFactor; // Output rate over their greatest common divisor.
+    private final int downFactor; // Input rate over their greatest common divisor.
+    private final int halfLength; // Input samples on each side of an output sample in its filter.
+    private final int taps;
+    private final int phaseCount;
+    private final float[] filters; // Taps of each phase, one phase after another.
+
+    private final byte[] partialFrame; // Bytes given after the last whole frame.
+    private int partialLength = 0;
+
+    private float[] samples; // Downmixed input samples still needed, oldest first.
+    private int sampleCount;
+    private int position; // Index in samples of the last input sample at or before the next output.
+    private int phase; // Time of the next output past position, in 1 / upFactor input samples.
+
+    private byte[] output = new byte[0]; // Output of the last call.
+    private int outputLength = 0;
+
+    public AudioConverter(int inputRate, int channelCount, int bitsPerSample, int outputRate) {
+        this.channelCount = channelCount;
+        this.bytesPerSample = bitsPerSample / 8;
+        this.blockAlign = channelCount * bytesPerSample;
+        partialFrame = new byte[blockAlign];
+
+        int divisor = greatestCommonDivisor(inputRate, outputRate);
+        upFactor = outputRate / divisor;
+        downFactor = inputRate / divisor;
+        resampling = inputRate != outputRate;
+
+        double cutoff = ROLLOFF * 0.5 * Math.min(1.0, (double) outputRate / inputRate);
+        halfLength = resampling ? (int) Math.ceil(ZERO_CROSSINGS / (2 * cutoff)) : 1;
+        taps = 2 * halfLength;
+        phaseCount = Math.min(upFactor, MAX_PHASES);
+        filters = resampling ? designFilters(cutoff) : new float[0];
+
+        samples = new float[taps];
+        reset();
+    }
+
+    // Returns true if audio in the given format must be converted to be fed at the given rate.
+    public static boolean isNeeded(
+            int inputRate, int channelCount, int bitsPerSample, int outputRate
+    ) {
+        return inputRate != outputRate || channelCount != 1 || bitsPerSample != 16;
+    }
+
+    // Returns true if samples of the given size can be converted.
+    public static boolean supports(int bitsPerSample) {
+        return bitsPerSample == 8 ||
+                bitsPerSample == 16 ||
+                bitsPerSample == 24 ||
+                bitsPerSample == 32;
+    }
+
+    // Returns the sample of the given size at the given offset, scaled to 16 bits. Samples of 8
+    // bits are unsigned, larger ones are signed and little endian.
+    public static int sampleAt(byte[] audio, int offset, int bytesPerSample) {
+        switch (bytesPerSample) {
+            case 1:
+                return ((audio[offset] & 0xFF) - 128) << 8;
+            case 2:
+                return (short) ((audio[offset] & 0xFF) | (audio[offset + 1] << 8));
+            case 3:
+                return (short) ((audio[offset + 1] & 0xFF) | (audio[offset + 2] << 8));
+            default:
+                return (short) ((audio[offset + 2] & 0xFF) | (audio[offset + 3] << 8));
+        }
+    }
+
+    // Converts the first length bytes of the given audio, returning the number of bytes output.
+    //
+    // The output is read through getOutput, and is only valid until the next call.
+    public int convert(byte[] audio, int length) {
+        int frameCount = (partialLength + length) / blockAlign;
+        ensureSamples(sampleCount + frameCount);
+
+        int offset = 0;
+
+        if (partialLength > 0) {
+            offset = Math.min(blockAlign - partialLength, length);
+            System.arraycopy(audio, 0, partialFrame, partialLength, offset);
+            partialLength += offset;
+
+            if (partialLength == blockAlign) {
+                samples[sampleCount++] = downmix(partialFrame, 0);
+                partialLength = 0;
+            }
+        }
+
+        for (; offset + blockAlign <= length; offset += blockAlign) {
+            samples[sampleCount++] = downmix(audio, offset);
+        }
+
+        partialLength += length - offset;
+        System.arraycopy(audio, offset, partialFrame, 0, length - offset);
+
+        return resample();
+    }
+
+    // Outputs what remains of the audio given so far and starts over, returning the number of
+    // bytes output. Called once no more audio is given.
+    public int flush() {
+        if (resampling) {
+            ensureSamples(sampleCount + halfLength);
+
+            for (int i = 0; i < halfLength; i++) { // Silence for the filters to look ahead into.
+                samples[sampleCount++] = 0.0f;
+            }
+        }
+
+        int length = resample();
+        reset();
+        return length;
+    }
+
+    public byte[] getOutput() {
+        return output;
+    }
+
+    // Outputs every sample whose filter has all the input it needs, then drops the input samples
+    // that are no longer needed.
+    private int resample() {
+        outputLength = 0;
+
+        if (!resampling) {
+            ensureOutput(sampleCount - position);
+
+            for (; position < sampleCount; position++) {
+                putSample(samples[position]);
+            }
+        }
+        else {
+            long maxOutputs = ((long) (sampleCount - position) * upFactor) / downFactor + 1;
+            ensureOutput((int) maxOutputs);
+
+            while (position + halfLength < sampleCount) {
+                int filter = (int) ((long) phase * phaseCount / upFactor) * taps;
+                int first = position - halfLength + 1;
+                float sum = 0.0f;
+
+                for (int tap = 0; tap < taps; tap++) {
+                    sum += samples[first + tap] * filters[filter + tap];
+                }
+                putSample(sum);
+
+                phase += downFactor;
+                position += phase / upFactor;
+                phase %= upFactor;
+            }
+        }
+
+        int unneeded = Math.min(position - halfLength + 1, sampleCount);
+        if (unneeded > 0) {
+            System.arraycopy(samples, unneeded, samples, 0, sampleCount - unneeded);
+            sampleCount -= unneeded;
+            position -= unneeded;
+        }
+
+        return outputLength;
+    }
+
+    // Returns the average of the samples of all channels of the frame at the given offset.
+    private float downmix(byte[] audio, int offset) {
+        if (channelCount == 1) {
+            return sampleAt(audio, offset, bytesPerSample);
+        }
+
+        int sum = 0;
+        for (int channel = 0; channel < channelCount; channel++) {
+            sum += sampleAt(audio, offset + channel * bytesPerSample, bytesPerSample);
+        }
+        return (float) sum / channelCount;
+    }
+
+    private void putSample(float sample) {
+        int rounded = Math.round(sample);
+        rounded = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded));
+
+        output[outputLength++] = (byte) rounded;
+        output[outputLength++] = (byte) (rounded >> 8);
+    }
+
+    // Returns the taps of each phase of a low pass filter with the given cutoff in cycles per
+    // input sample. Each phase is normalized to unit gain.
+    private float[] designFilters(double cutoff) {
+        float[] filters = new float[phaseCount * taps];
+
+        for (int phase = 0; phase < phaseCount; phase++) {
+            double fraction = (double) phase / phaseCount;
+            double sum = 0.0;
+
+            for (int tap = 0; tap < taps; tap++) {
+                double distance = tap - halfLength + 1 - fraction; // From the output, in samples.
+                double value = sinc(2 * cutoff * distance) * blackman(distance / halfLength);
+
+                filters[phase * taps + tap] = (float) value;
+                sum += value;
+            }
+
+            for (int tap = 0; tap < taps; tap++) {
+                filters[phase * taps + tap] /= sum;
+            }
+        }
+
+        return filters;
+    }
+
+    private static double sinc(double x) {
+        return x == 0.0 ? 1.0 : Math.sin(Math.PI * x) / (Math.PI * x);
+    }
+
+    // Blackman window over -1 to 1.
+    private static double blackman(double x) {
+        if (Math.abs(x) >= 1.0) {
+            return 0.0;
+        }
+        return 0.42 + 0.5 * Math.cos(Math.PI * x) + 0.08 * Math.cos(2 * Math.PI * x);
+    }
+
+    // Starts over with silence before the first sample, so the first output lies at its time.
+    private void reset() {
+        partialLength = 0;
+        sampleCount = halfLength - 1;
+        Arrays.fill(samples, 0, sampleCount, 0.0f);
+        position = sampleCount;
+        phase = 0;
+    }
+
+    private void ensureSamples(int count) {
+        if (samples.length < count) {
+            samples = Arrays.copyOf(samples, Math.max(count, samples.length * 2));
+        }
+    }
+
+    private void ensureOutput(int sampleCount) {
+        if (output.length < sampleCount * OUTPUT_BYTES_PER_SAMPLE) {
+            output = new byte[sampleCount * OUTPUT_BYTES_PER_SAMPLE];
+        }
+    }
+
+    private static int greatestCommonDivisor(int a, int b) {
+        while (b != 0) {
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,29 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Decodes an audio file into interleaved little endian PCM samples, as they are stored in a wav
+// file, so compressed files can be fed without first being expanded to a wav file.
+//
+// Samples of 8 bits are unsigned, larger ones signed. Decoding streams through the file, and the
+// read position is measured in bytes of the file itself, which for compressed files is not the
+// number of audio bytes decoded.
+interface AudioDecoder extends Closeable {
+    int getChannelCount();
+
+    int getSampleRate();
+
+    int getBitsPerSample();
+
+    // Bytes of the file holding audio.
+    long getInputLength();
+
+    // Bytes of the file holding audio read so far.
+    long getInputPosition();
+
+    // Decodes up to length bytes of audio into the given buffer at offset.
+    //
+    // Returns the number of bytes decoded, or -1 if the end of the audio was reached.
+    int read(byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,36 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Opens audio files with the decoder for their format.
+final class AudioDecoders {
+    private AudioDecoders() {
+    }
+
+    // Opens the audio file at the given filePath, choosing the decoder by the first bytes of the
+    // file. FLAC files, optionally tagged with ID3, are decoded by FlacDecoder, any other file is
+    // read as a wav file.
+    //
+    // Throws an IOException if the file cannot be read or is neither a FLAC nor a wav file.
+    static AudioDecoder open(String filePath) throws IOException {
+        byte[] magic = new byte[4];
+        int length = 0;
+
+        try (InputStream input = new FileInputStream(filePath)) {
+            int count;
+            while (length < magic.length &&
+                    (count = input.read(magic, length, magic.length - length)) != -1) {
+                length += count;
+            }
+        }
+
+        String start = new String(magic, 0, length, "ISO-8859-1");
+
+        if (start.equals("fLaC") || start.startsWith("ID3")) {
+            return new FlacDecoder(filePath);
+        }
+        return new WavReader(filePath);
+    }
+}
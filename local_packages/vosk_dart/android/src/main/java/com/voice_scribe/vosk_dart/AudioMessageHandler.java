@@ -0,0 +1,44 @@
+package com.voice_scribe.vosk_dart;
+
+import io.flutter.plugin.common.BinaryMessenger.BinaryMessageHandler;
+import io.flutter.plugin.common.BinaryMessenger.BinaryReply;
+import io.flutter.plugin.common.StandardMethodCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+// Handles raw audio sent from dart over the audio channel. Delegates to its Vosk instance.
+//
+// Each message is the PCM audio of a buffer, fed without being decoded by a method codec. The
+// reply is the status of the feed queue once the buffer is queued, encoded as a standard method
+// success envelope, or an error envelope if no transcript is in progress. A message without audio
+// gets no reply.
+class AudioMessageHandler implements BinaryMessageHandler {
+    private final VoskInstance voskInstance;
+
+    public AudioMessageHandler(VoskInstance voskInstance) {
+        this.voskInstance = voskInstance;
+    }
+
+    @Override
+    public void onMessage(ByteBuffer message, final BinaryReply reply) {
+        if (message == null) {
+            reply.reply(null);
+            return;
+        }
+
+        // The message is copied before returning, as it may be reused afterwards.
+        boolean fed = voskInstance.feedBuffer(message, true, new FeedQueue.AcceptListener() {
+            @Override
+            public void onAccepted(Map<String, Object> status) {
+                reply.reply(StandardMethodCodec.INSTANCE.encodeSuccessEnvelope(status));
+            }
+        });
+
+        if (!fed) {
+            reply.reply(StandardMethodCodec.INSTANCE.encodeErrorEnvelope(
+                    "TranscriptError", "No transcript in progress", null
+            ));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.vosk.Model;
+
+// Files transcribed in the background into transcripts of their own, reported on as a whole.
+//
+// Each job runs on its own lane of the given priority. At most as many jobs run at once as there
+// are threads in the task scheduler, less one left free for instance lanes. The batch holds its
+// own reference to the model until its jobs have ended, so the instance may close its model in the
+// meantime. Aggregate progress is posted to the given bridge every percent and whenever a job ends,
+// along with the metrics of all jobs together.
+class Batch {
+    private final long id;
+    private final BatchJob[] jobs;
+    private final ModelCache modelCache;
+    private final String modelPath; // Path of the model acquired from the model cache.
+    private final TaskScheduler taskScheduler;
+    private final int priority;
+    private final boolean skipSilence; // Whether jobs drop long silences before decoding.
+    private final Bridge bridge;
+    private final Handler mainHandler;
+    private final Runnable endListener; // Run in the main thread once all jobs have ended.
+    private final Metrics metrics = new Metrics(); // Stages of all jobs, apart from the instance.
+
+    private int nextJob = 0; // Index of the next job to start.
+    private int runningJobs = 0;
+    private volatile int completedJobs = 0;
+    private volatile int failedJobs = 0;
+    private volatile int skippedJobs = 0;
+    private volatile boolean cancelled = false;
+    private volatile boolean ended = false;
+
+    private final AtomicInteger postedPercent = new AtomicInteger(-1);
+
+    // Creates a batch transcribing each of the given filePaths into the transcript at the same
+    // index of the given transcriptPaths, with the model at the given modelPath, whose recognizers
+    // are taken from the given recognizerPool at the sample rate of the model.
+    public Batch(
+            long id,
+            List<String> filePaths,
+            List<String> transcriptPaths,
+            ModelCache modelCache,
+            RecognizerPool recognizerPool,
+            String modelPath,
+            TaskScheduler taskScheduler,
+            int priority,
+            boolean skipSilence,
+            Bridge bridge,
+            Handler mainHandler,
+            Runnable endListener
+    ) {
+        this.id = id;
+        this.modelCache = modelCache;
+        this.modelPath = modelPath;
+        this.taskScheduler = taskScheduler;
+        this.priority = priority;
+        this.skipSilence = skipSilence;
+        this.bridge = bridge;
+        this.mainHandler = mainHandler;
+        this.endListener = endListener;
+
+        Future<Model> modelFuture = modelCache.acquire(modelPath);
+        metrics.startTranscript();
+
+        jobs = new BatchJob[filePaths.size()];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = new BatchJob(
+                    this,
+                    filePaths.get(i),
+                    transcriptPaths.get(i),
+                    modelFuture,
+                    recognizerPool,
+                    skipSilence,
+                    metrics
+            );
+        }
+    }
+
+    // Starts as many jobs as may run at once.
+    public synchronized void start() {
+        startJobs();
+        endIfDone();
+    }
+
+    // Stops all jobs, saving checkpoints so that a batch of the same jobs resumes from them.
+    public synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+
+        for (int i = 0; i < nextJob; i++) {
+            jobs[i].cancel();
+        }
+        endIfDone();
+    }
+
+    // Posts the progress if it has grown by a percent since last posted. Called by jobs.
+    public void reportProgress() {
+        int percent = (int) (progress() * 100);
+        int lastPercent = postedPercent.get();
+
+        if (percent > lastPercent && postedPercent.compareAndSet(lastPercent, percent)) {
+            postProgress();
+        }
+    }
+
+    // Called by a job once it has ended with the given BatchJob status.
+    public synchronized void jobEnded(int status) {
+        runningJobs--;
+
+        if (status == BatchJob.COMPLETED) {
+            completedJobs++;
+        }
+        else if (status == BatchJob.FAILED) {
+            failedJobs++;
+        }
+        else if (status == BatchJob.SKIPPED) {
+            skippedJobs++;
+        }
+
+        if (!cancelled) {
+            startJobs();
+        }
+        if (!endIfDone()) {
+            postProgress();
+        }
+    }
+
+    private void startJobs() {
+        int maxRunningJobs = Math.max(1, taskScheduler.getThreadCount() - 1);
+
+        while (runningJobs < maxRunningJobs && nextJob < jobs.length) {
+            runningJobs++;
+            jobs[nextJob++].start(taskScheduler.newLane(null, priority));
+        }
+    }
+
+    // Releases the model, posts the final progress, and tells the end listener once no job is
+    // left to run. Returns true if the batch ended now.
+    private boolean endIfDone() {
+        if (ended || runningJobs > 0 || (!cancelled && nextJob < jobs.length)) {
+            return false;
+        }
+        ended = true;
+
+        modelCache.release(modelPath);
+        postProgress();
+        mainHandler.post(endListener);
+        return true;
+    }
+
+    // Fraction of all jobs transcribed.
+    private double progress() {
+        if (jobs.length == 0) {
+            return 1.0;
+        }
+
+        double progress = 0.0;
+        for (BatchJob job : jobs) {
+            progress += job.getProgress();
+        }
+        return progress / jobs.length;
+    }
+
+    private void postProgress() {
+        HashMap<String, Object> batchProgress = new HashMap<String, Object>();
+        batchProgress.put("batchId", id);
+        batchProgress.put("jobCount", jobs.length);
+        batchProgress.put("completedJobs", completedJobs);
+        batchProgress.put("failedJobs", failedJobs);
+        batchProgress.put("skippedJobs", skippedJobs);
+        batchProgress.put("progress", progress());
+        batchProgress.put("cancelled", cancelled);
+        batchProgress.put("ended", ended);
+        batchProgress.put("metrics", metrics.toMap());
+
+        HashMap<String, Object> event = new HashMap<String, Object>();
+        event.put("batch", batchProgress);
+        bridge.post(event);
+    }
+}
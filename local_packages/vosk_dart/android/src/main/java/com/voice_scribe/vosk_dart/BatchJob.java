@@ -0,0 +1,316 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.json.JSONException;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// Transcribes the file at the given filePath into the transcript at the given transcriptPath, as
+// one job of the given batch, on a lane of its own.
+//
+// The file is fed a slice at a time, each slice being a separate task of the lane, so threads are
+// handed to lanes of higher priority between slices. Once CHECKPOINT_INTERVAL has passed since the
+// last checkpoint, the transcript is committed and a checkpoint saved right after a result, which
+// is also done when the job is cancelled. A job started over a checkpoint resumes from the end of
+// the last word it holds, feeding again any audio after it that had reached the recognizer, with
+// a recognizer reset by the given recognizerPool, to which it is released once the job ends. A
+// job whose transcript exists without a checkpoint is skipped, as it was either completed earlier
+// or is another file, and is reported as such rather than as completed. If
+// skipSilence, long silences are dropped before decoding. The file must be a PCM wav file of 8,
+// 16, 24, or 32 bit samples, which is converted to mono audio at the sample rate of the model
+// unless already so.
+// Audio passes through the same stages as in other transcription tasks, timed into the given
+// metrics.
+class BatchJob extends TranscribeTask {
+    // Ways in which a job ends.
+    static final int COMPLETED = 0;
+    static final int FAILED = 1;
+    static final int CANCELLED = 2;
+    static final int SKIPPED = 3; // The transcript existed without a checkpoint.
+
+    private static final int BUFFER_SIZE = 6400;
+    private static final int BUFFERS_PER_SLICE = 10;
+    private static final long CHECKPOINT_INTERVAL = 5000; // In milliseconds.
+
+    private final Batch batch; // Told of progress and once the job ends.
+    private final String filePath;
+    private final String transcriptPath;
+    private final String checkpointPath;
+    private final Future<Model> modelFuture;
+    private final RecognizerPool recognizerPool;
+    private final boolean skipSilence;
+
+    private Lane lane;
+
+    private WavReader wavReader;
+    private Recognizer recognizer;
+    private AudioConverter audioConverter; // Null if the file is already mono at the model rate.
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int readSize; // Whole frames that fit in the buffer, so checkpoints fall between them.
+
+    private double offsetSeconds = 0.0; // Position in the file at which the recognizer started.
+    private long resultOffset = 0; // Position in the audio data of the end of the last word.
+    private long lastCheckpointTime;
+
+    private volatile double progress = 0.0;
+    private volatile boolean cancelled = false;
+    private boolean ended = false; // Guarded by this.
+
+    public BatchJob(
+            Batch batch,
+            String filePath,
+            String transcriptPath,
+            Future<Model> modelFuture,
+            RecognizerPool recognizerPool,
+            boolean skipSilence,
+            Metrics metrics
+    ) {
+        super(null, null, null, new ResultParser(), metrics); // Jobs run in separate threads.
+        this.batch = batch;
+        this.filePath = filePath;
+        this.transcriptPath = transcriptPath;
+        this.checkpointPath = Checkpoint.pathOf(transcriptPath);
+        this.modelFuture = modelFuture;
+        this.recognizerPool = recognizerPool;
+        this.skipSilence = skipSilence;
+    }
+
+    // Starts transcribing on the given lane, which is used by this job alone.
+    public void start(Lane lane) {
+        this.lane = lane;
+        lane.execute(this);
+    }
+
+    // Stops transcribing, saving a checkpoint to resume from. The batch is told once stopped.
+    //
+    // The running slice stops at its next buffer. It is not interrupted, as that would close the
+    // channels of the file and transcript.
+    public void cancel() {
+        cancelled = true;
+        lane.shutdown();
+        lane.whenTerminated(new Runnable() {
+            @Override
+            public void run() {
+                if (transcriptWriter != null) {
+                    try {
+                        checkpoint();
+                    }
+                    catch (IOException e) {
+                        System.out.println("IO error, could not save batch job checkpoint.");
+                    }
+                }
+                close();
+                end(CANCELLED);
+            }
+        });
+    }
+
+    // Fraction of the file transcribed.
+    public double getProgress() {
+        return progress;
+    }
+
+    // Transcribes the next slice of the file, then queues the following one unless done.
+    @Override
+    public void run() {
+        try {
+            if (wavReader == null && !open()) {
+                end(SKIPPED);
+                lane.shutdown();
+                return;
+            }
+
+            if (transcribeSlice()) {
+                finish();
+                end(COMPLETED);
+                lane.shutdown();
+            }
+            else {
+                lane.execute(this);
+            }
+        }
+        catch (RejectedExecutionException e) {
+            // Cancelled, the job is stopped once the lane terminates.
+        }
+        catch (ExecutionException | InterruptedException e) {
+            fail("Unable to finish opening the given model.");
+        }
+        catch (IOException e) {
+            fail("IO error, could not transcribe batch job.");
+        }
+        catch (JSONException e) {
+            fail("Invalid JSON string given.");
+        }
+    }
+
+    // Opens the file, the transcript, and a recognizer, resuming from any checkpoint. Returns false
+    // if the transcript exists without a checkpoint, so the job is skipped.
+    private boolean open() throws ExecutionException, InterruptedException, IOException {
+        Checkpoint checkpoint = Checkpoint.read(checkpointPath);
+
+        if (checkpoint == null && new File(transcriptPath).exists()) {
+            return false;
+        }
+        if (checkpoint == null) {
+            checkpoint = new Checkpoint(0, 0);
+            checkpoint.write(checkpointPath); // Marks the transcript as unfinished.
+        }
+
+        wavReader = new WavReader(filePath);
+        if (!AudioConverter.supports(wavReader.getBitsPerSample())) {
+            throw new IOException("Unsupported wav file, expected 8, 16, 24, or 32 bit audio.");
+        }
+
+        readSize = BUFFER_SIZE - BUFFER_SIZE % wavReader.getBlockAlign();
+        wavReader.seek(checkpoint.audioOffset);
+        resultOffset = checkpoint.audioOffset;
+        offsetSeconds = (double) checkpoint.audioOffset /
+                ((long) wavReader.getSampleRate() * wavReader.getBlockAlign());
+
+        transcriptWriter = TranscriptWriter.resume(
+                transcriptPath, "UTF-8", FlushPolicy.ON_FINISH, checkpoint.transcriptLength
+        );
+
+        Model model = modelFuture.get();
+        int recognizerRate = ModelCache.sampleRateOf(model);
+        recognizer = recognizerPool.acquire(model, recognizerRate);
+        metrics.setSampleRate(recognizerRate);
+
+        if (skipSilence) {
+            silenceFilter = new SilenceFilter(recognizerRate);
+        }
+
+        if (AudioConverter.isNeeded(
+                wavReader.getSampleRate(),
+                wavReader.getChannelCount(),
+                wavReader.getBitsPerSample(),
+                recognizerRate
+        )) {
+            audioConverter = new AudioConverter(
+                    wavReader.getSampleRate(),
+                    wavReader.getChannelCount(),
+                    wavReader.getBitsPerSample(),
+                    recognizerRate
+            );
+        }
+        lastCheckpointTime = System.currentTimeMillis();
+        return true;
+    }
+
+    // Feeds the next slice of the file to the recognizer. Returns true once the whole file is fed.
+    private boolean transcribeSlice() throws IOException, JSONException {
+        for (int i = 0; i < BUFFERS_PER_SLICE; i++) {
+            if (cancelled) {
+                return false; // The next slice is rejected by the lane.
+            }
+
+            int bytesRead = wavReader.read(buffer, 0, readSize);
+
+            if (bytesRead == -1) {
+                return true;
+            }
+
+            if (accept(recognizer, audioConverter, buffer, bytesRead)) {
+                writeResult(recognizer.getResult());
+
+                if (System.currentTimeMillis() - lastCheckpointTime >= CHECKPOINT_INTERVAL) {
+                    checkpoint();
+                }
+            }
+        }
+
+        progress = (double) wavReader.getPosition() / wavReader.getDataLength();
+        batch.reportProgress();
+        return false;
+    }
+
+    // Writes the final result and closes the transcript, which no longer needs a checkpoint. Audio
+    // held by the converter and filter is fed first.
+    private void finish() throws IOException, JSONException {
+        if (flushAudioConverter(recognizer, audioConverter)) {
+            writeResult(recognizer.getResult());
+        }
+        if (flushSilenceFilter(recognizer)) {
+            writeResult(recognizer.getResult());
+        }
+
+        writeResult(recognizer.getFinalResult());
+        transcriptWriter.close();
+        Checkpoint.delete(checkpointPath);
+        close();
+    }
+
+    // Writes the given recognizer result with timestamps relative to the start of the file, and
+    // moves the offset to resume from to the end of its last word.
+    //
+    // Audio after that word may already have been fed, or still be held by the converter or
+    // filter, without having made a result yet, so a job resumed from the read position would lose
+    // it.
+    private void writeResult(String json) throws IOException, JSONException {
+        WordResults result = parse(recognizer, json);
+        result.shift(offsetSeconds);
+        write(result);
+
+        if (!result.isEmpty()) {
+            long frame = (long) (result.getEnd(result.size() - 1) * wavReader.getSampleRate());
+            long offset = Math.min(frame * wavReader.getBlockAlign(), wavReader.getPosition());
+            resultOffset = Math.max(resultOffset, offset);
+        }
+    }
+
+    // Commits the transcript up to the last result and saves where it ends.
+    private void checkpoint() throws IOException {
+        new Checkpoint(resultOffset, transcriptWriter.commit()).write(checkpointPath);
+        lastCheckpointTime = System.currentTimeMillis();
+    }
+
+    private void fail(String message) {
+        System.out.println(message);
+        close();
+        end(FAILED);
+        lane.shutdown();
+    }
+
+    // Closes whatever the job has open. The transcript is left as is past the last checkpoint.
+    private void close() {
+        if (recognizer != null) {
+            recognizerPool.release(recognizer);
+            recognizer = null;
+        }
+
+        try {
+            if (transcriptWriter != null) {
+                transcriptWriter.close();
+            }
+            if (wavReader != null) {
+                wavReader.close();
+            }
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not close batch job.");
+        }
+
+        transcriptWriter = null;
+        wavReader = null;
+    }
+
+    // Tells the batch the job has ended in the given way, only the first time.
+    private void end(int status) {
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+        }
+
+        if (status != CANCELLED) {
+            progress = 1.0;
+        }
+        batch.jobEnded(status);
+    }
+}
@@ -1,23 +1,39 @@
 package com.voice_scribe.vosk_dart;
 
+import android.os.Handler;
+
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.EventChannel;
-import io.flutter.plugin.common.EventChannel.EventSink;
 import io.flutter.plugin.common.MethodChannel;
 
-// Object that connects a VoskInstance to method and event channels.
-class Bridge {
+import java.util.Map;
+
+// Object that connects a VoskInstance to method, event, and audio channels.
+class Bridge implements EventPoster {
     private static final String BASE_METHOD_CHANNEL_NAME = "vosk_method_";
     private static final String BASE_EVENT_CHANNEL_NAME = "vosk_event_";
+    private static final String BASE_AUDIO_CHANNEL_NAME = "vosk_audio_";
 
     private final MethodChannel methodChannel; // The channel from which method calls are exchanged.
     private final EventChannel eventChannel; // The channel in which java sends events to dart.
+    private final BinaryMessenger binaryMessenger; // Receives raw audio on the audio channel.
+    private final String audioChannelName;
 
     private final VoskMethodCallHandler voskMethodCallHandler;
     private final VoskStreamHandler voskStreamHandler;
+    private final EventBatcher eventBatcher; // Groups events before they are sent.
 
     // Creates connections between the instance and the dart side via channels with the given id.
-    public Bridge(VoskInstance voskInstance, BinaryMessenger binaryMessenger, long id) {
+    //
+    // Events are sent to dart in the thread of the given mainHandler, recording the time from
+    // post until sent in the given postLatency.
+    public Bridge(
+            VoskInstance voskInstance,
+            BinaryMessenger binaryMessenger,
+            long id,
+            Handler mainHandler,
+            LatencyHistogram postLatency
+    ) {
         methodChannel = new MethodChannel(
                 binaryMessenger,
                 BASE_METHOD_CHANNEL_NAME + String.valueOf(id)
@@ -27,25 +43,48 @@ class Bridge {
                 BASE_EVENT_CHANNEL_NAME + String.valueOf(id)
         );
 
+        this.binaryMessenger = binaryMessenger;
+        audioChannelName = BASE_AUDIO_CHANNEL_NAME + String.valueOf(id);
+
         voskMethodCallHandler = new VoskMethodCallHandler(voskInstance);
         voskStreamHandler = new VoskStreamHandler();
+        eventBatcher = new EventBatcher(mainHandler, voskStreamHandler, postLatency);
 
         methodChannel.setMethodCallHandler(voskMethodCallHandler);
         eventChannel.setStreamHandler(voskStreamHandler);
+        binaryMessenger.setMessageHandler(audioChannelName, new AudioMessageHandler(voskInstance));
     }
 
     // Close connections.
     public void close() {
         methodChannel.setMethodCallHandler(null);
         eventChannel.setStreamHandler(null);
+        binaryMessenger.setMessageHandler(audioChannelName, null);
+        eventBatcher.clear();
+    }
+
+    // Sets the longest time in milliseconds an event may wait, and the most events in a batch.
+    public void configureEvents(long maxLatency, int maxBatchSize) {
+        eventBatcher.configure(maxLatency, maxBatchSize);
+    }
+
+    // Returns true if dart is listening to the events posted. May be called from any thread.
+    @Override
+    public boolean hasListeners() {
+        return voskStreamHandler.hasListeners();
     }
 
-    // Post events to the dart side.
-    public void post(Object result) {
-        EventSink eventSink = voskStreamHandler.getEventSink();
+    // Forgets the partial results of the terminated transcript at the given transcriptPath. Called
+    // in the main thread.
+    public void forgetPartials(String transcriptPath) {
+        eventBatcher.forget(transcriptPath);
+    }
 
-        if (eventSink != null) {
-            eventSink.success(result);
-        }
+    // Post events to the dart side. May be called from any thread.
+    //
+    // Events are sent in batches, as a list of events.
+    @Override
+    public void post(Map<String, Object> event) {
+        eventBatcher.add(event);
     }
 }
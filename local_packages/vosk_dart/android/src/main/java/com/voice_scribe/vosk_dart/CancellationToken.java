@@ -0,0 +1,60 @@
+package com.voice_scribe.vosk_dart;
+
+// Lets a single fed task be cancelled, paused, and resumed from another thread.
+//
+// The task checks the token between buffers. A cancelled task stops feeding at its next buffer,
+// keeping the results it already has, or returns at once if it has not started yet. A paused task
+// suspends its lane with a continuation, so it holds no thread until resumed, and the tasks queued
+// behind it in the lane wait as well. Cancelling also resumes a paused task, so that it can stop.
+class CancellationToken {
+    private boolean cancelled = false;
+    private boolean paused = false;
+    private boolean ended = false;
+    private Lane suspendedLane; // Lane suspended by the paused task, if any.
+
+    public synchronized void cancel() {
+        cancelled = true;
+        resumeLane();
+    }
+
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        resumeLane();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Marks the task as ended, after which the token does nothing. Called by the task.
+    public synchronized void end() {
+        ended = true;
+    }
+
+    public synchronized boolean hasEnded() {
+        return ended;
+    }
+
+    // Suspends the given lane with the given continuation if paused, returning true if so, in
+    // which case the task must return. Called by the task between buffers.
+    public synchronized boolean suspendIfPaused(Lane lane, Runnable continuation) {
+        if (!paused || cancelled) {
+            return false;
+        }
+
+        lane.continueWith(continuation, true);
+        suspendedLane = lane;
+        return true;
+    }
+
+    private void resumeLane() {
+        if (suspendedLane != null) {
+            suspendedLane.resume();
+            suspendedLane = null;
+        }
+    }
+}
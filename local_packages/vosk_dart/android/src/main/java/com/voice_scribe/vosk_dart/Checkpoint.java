@@ -0,0 +1,91 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Progress of a batch job, saved beside its transcript so the job can resume where it left off.
+//
+// Holds the offset in the audio data up to which results were written, and the length of the
+// transcript made up by those results. The file is written to a temporary file that is renamed
+// over the previous one, so a checkpoint is never seen half written:
+//     int magic, long audio offset, long transcript length
+class Checkpoint {
+    static final String EXTENSION = ".ckpt";
+
+    private static final int MAGIC = 0x5653434B; // "VSCK"
+
+    final long audioOffset; // Bytes of audio data transcribed.
+    final long transcriptLength; // Bytes of the transcript holding their results.
+
+    Checkpoint(long audioOffset, long transcriptLength) {
+        this.audioOffset = audioOffset;
+        this.transcriptLength = transcriptLength;
+    }
+
+    // Returns the path of the checkpoint kept for the transcript at the given path.
+    static String pathOf(String transcriptPath) {
+        return transcriptPath + EXTENSION;
+    }
+
+    // Reads the checkpoint at the given path, or returns null if there is none.
+    //
+    // Throws an IOException if the checkpoint cannot be read or is not a checkpoint.
+    static Checkpoint read(String checkpointPath) throws IOException {
+        DataInputStream input;
+
+        try {
+            input = new DataInputStream(new FileInputStream(checkpointPath));
+        }
+        catch (FileNotFoundException e) {
+            return null;
+        }
+
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a checkpoint file.");
+            }
+            return new Checkpoint(input.readLong(), input.readLong());
+        }
+        catch (EOFException e) {
+            throw new IOException("Checkpoint file ended unexpectedly.");
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    // Replaces the checkpoint at the given path with this one.
+    //
+    // Throws an IOException if the checkpoint could not be written.
+    void write(String checkpointPath) throws IOException {
+        File temporary = new File(checkpointPath + ".tmp");
+        FileOutputStream output = new FileOutputStream(temporary);
+
+        try {
+            DataOutputStream data = new DataOutputStream(output);
+            data.writeInt(MAGIC);
+            data.writeLong(audioOffset);
+            data.writeLong(transcriptLength);
+            data.flush();
+            output.getFD().sync();
+        }
+        finally {
+            output.close();
+        }
+
+        if (!temporary.renameTo(new File(checkpointPath))) {
+            throw new IOException("Could not replace checkpoint file.");
+        }
+    }
+
+    // Deletes the checkpoint at the given path, if any.
+    static void delete(String checkpointPath) {
+        new File(checkpointPath).delete();
+    }
+}
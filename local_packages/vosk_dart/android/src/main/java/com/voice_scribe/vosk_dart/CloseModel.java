@@ -1,25 +1,21 @@
 package com.voice_scribe.vosk_dart;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-
 import org.vosk.Model;
 
-// A task that is given to a thread. It closes the given model future.
+// A task that is given to a thread. It closes the given model, after closing the idle recognizers
+// the given recognizer pool keeps of it.
 class CloseModel implements Runnable {
-    private final Future<Model> modelFuture;
+    private final RecognizerPool recognizerPool;
+    private final Model model;
 
-    public CloseModel(Future<Model> modelFuture) {
-        this.modelFuture = modelFuture;
+    public CloseModel(RecognizerPool recognizerPool, Model model) {
+        this.recognizerPool = recognizerPool;
+        this.model = model;
     }
 
     @Override
     public void run() {
-        try {
-            modelFuture.get().close();
-        }
-        catch (ExecutionException | InterruptedException e) {
-            System.out.println("Unable to finish opening the given model.");
-        }
+        recognizerPool.evict(model);
+        model.close();
     }
 }
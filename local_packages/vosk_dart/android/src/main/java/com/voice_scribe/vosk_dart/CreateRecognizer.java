@@ -7,23 +7,49 @@ import java.util.concurrent.Future;
 import org.vosk.Model;
 import org.vosk.Recognizer;
 
-// A task that is given to a thread. It opens a new recognizer from the given
-// model future and sample rate.
+// A task that is given to a thread. It acquires a recognizer of the given model future, at the
+// sample rate of the model, from the given recognizer pool, which reuses an idle one if it can.
+// The recognizer is restricted to the given grammar unless it is null, and gives word results if
+// words is true. The given transcriptAudio, unless null, is then set up for that rate.
 class CreateRecognizer implements Callable<Recognizer> {
+    private final RecognizerPool recognizerPool;
     private final Future<Model> modelFuture;
-    private final int sampleRate;
+    private final TranscriptAudio transcriptAudio;
+    private final String grammar; // JSON array of phrases, or null for the full vocabulary.
+    private final boolean words;
 
-    public CreateRecognizer(Future<Model> modelFuture, int sampleRate) {
+    public CreateRecognizer(RecognizerPool recognizerPool, Future<Model> modelFuture) {
+        this(recognizerPool, modelFuture, null, null, true);
+    }
+
+    public CreateRecognizer(
+            RecognizerPool recognizerPool,
+            Future<Model> modelFuture,
+            TranscriptAudio transcriptAudio,
+            String grammar,
+            boolean words
+    ) {
+        this.recognizerPool = recognizerPool;
         this.modelFuture = modelFuture;
-        this.sampleRate = sampleRate;
+        this.transcriptAudio = transcriptAudio;
+        this.grammar = grammar;
+        this.words = words;
     }
 
     @Override
     public Recognizer call() {
         try {
-            Recognizer recognizer = new Recognizer(modelFuture.get(), sampleRate);
-            recognizer.setWords(true);
-            return recognizer;
+            Model model = modelFuture.get();
+
+            if (model == null) {
+                return null;
+            }
+
+            int sampleRate = ModelCache.sampleRateOf(model);
+            if (transcriptAudio != null) {
+                transcriptAudio.setUp(sampleRate);
+            }
+            return recognizerPool.acquire(model, sampleRate, grammar, words);
         }
         catch (ExecutionException | InterruptedException e) {
             System.out.println("Unable to finish opening the given model.");
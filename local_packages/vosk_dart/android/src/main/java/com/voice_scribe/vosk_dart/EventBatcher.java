@@ -0,0 +1,163 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+
+import io.flutter.plugin.common.EventChannel.EventSink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+// Collects events posted from any thread and sends them to the dart side in batches.
+//
+// A batch is sent from the main thread once it holds maxBatchSize events or once its oldest event
+// has waited maxLatency milliseconds. Consecutive partial results of the same transcript are
+// merged, as only the latest one matters, and partial results are sent as differences from the
+// last one sent.
+class EventBatcher {
+    private static final long DEFAULT_MAX_LATENCY = 50;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 32;
+
+    private final Handler mainHandler;
+    private final VoskStreamHandler voskStreamHandler; // Provides the sink events are sent to.
+    private final LatencyHistogram postLatency; // Time from add until sent, of each event.
+    private final PartialDiffer partialDiffer = new PartialDiffer(); // Used in the main thread.
+
+    private long maxLatency = DEFAULT_MAX_LATENCY; // In milliseconds.
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    private ArrayList<Map<String, Object>> pending = new ArrayList<Map<String, Object>>();
+    private long[] addTimes = new long[DEFAULT_MAX_BATCH_SIZE]; // Of each pending event.
+    private boolean flushScheduled = false;
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public EventBatcher(
+            Handler mainHandler,
+            VoskStreamHandler voskStreamHandler,
+            LatencyHistogram postLatency
+    ) {
+        this.mainHandler = mainHandler;
+        this.voskStreamHandler = voskStreamHandler;
+        this.postLatency = postLatency;
+    }
+
+    // Sets the longest time in milliseconds an event may wait, and the most events in a batch.
+    //
+    // A maxBatchSize of 1 sends every event on its own as soon as possible.
+    public synchronized void configure(long maxLatency, int maxBatchSize) {
+        this.maxLatency = Math.max(maxLatency, 0);
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+    }
+
+    // Adds the given event to the pending batch.
+    public synchronized void add(Map<String, Object> event) {
+        int last = pending.size() - 1;
+
+        if (last >= 0 && isPartialOfSameTranscript(pending.get(last), event)) {
+            pending.set(last, event);
+        }
+        else {
+            pending.add(event);
+            last++;
+        }
+
+        if (last == addTimes.length) {
+            addTimes = Arrays.copyOf(addTimes, addTimes.length * 2);
+        }
+        addTimes[last] = System.nanoTime();
+
+        if (pending.size() >= maxBatchSize) {
+            mainHandler.removeCallbacks(flush);
+            mainHandler.post(flush);
+            flushScheduled = true;
+        }
+        else if (!flushScheduled) {
+            mainHandler.postDelayed(flush, maxLatency);
+            flushScheduled = true;
+        }
+    }
+
+    // Drops any pending events.
+    public synchronized void clear() {
+        mainHandler.removeCallbacks(flush);
+        pending.clear();
+        flushScheduled = false;
+    }
+
+    // Forgets the partial results of the terminated transcript at the given transcriptPath, dropping
+    // those still pending, so none are kept for a transcript that gets no final result. Partial
+    // results posted later are sent whole. Called in the main thread.
+    public synchronized void forget(Object transcriptPath) {
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Map<String, Object> event = pending.get(i);
+
+            if (isPartial(event) && transcriptPath.equals(event.get("transcriptPath"))) {
+                pending.remove(i);
+                System.arraycopy(addTimes, i + 1, addTimes, i, pending.size() - i);
+            }
+        }
+
+        partialDiffer.forget(transcriptPath);
+    }
+
+    // Sends the pending batch as a single list. Called in the main thread.
+    private void flush() {
+        ArrayList<Map<String, Object>> batch;
+        long now = System.nanoTime();
+
+        synchronized (this) {
+            flushScheduled = false;
+
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            batch = pending;
+            pending = new ArrayList<Map<String, Object>>(batch.size());
+
+            for (int i = 0; i < batch.size(); i++) {
+                postLatency.record(now - addTimes[i]);
+            }
+        }
+
+        EventSink eventSink = voskStreamHandler.getEventSink();
+
+        if (eventSink == null) {
+            partialDiffer.reset(); // Dart did not get these, so later partials are sent whole.
+            return;
+        }
+
+        Iterator<Map<String, Object>> events = batch.iterator();
+
+        while (events.hasNext()) {
+            if (!partialDiffer.encode(events.next())) {
+                events.remove();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            eventSink.success(batch);
+        }
+    }
+
+    private static boolean isPartialOfSameTranscript(
+            Map<String, Object> previous, Map<String, Object> next
+    ) {
+        return isPartial(previous) &&
+                isPartial(next) &&
+                previous.get("transcriptPath").equals(next.get("transcriptPath"));
+    }
+
+    // Events without a result type, such as metrics, are never partial.
+    private static boolean isPartial(Map<String, Object> event) {
+        Object resultType = event.get("resultType");
+        return resultType != null && resultType.equals(TranscribeTask.PARTIAL);
+    }
+}
@@ -0,0 +1,12 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.Map;
+
+// Where transcription tasks post their events to be sent to dart.
+interface EventPoster {
+    // Posts the given event. May be called from any thread.
+    void post(Map<String, Object> event);
+
+    // Returns true if dart is listening to the events posted. May be called from any thread.
+    boolean hasListeners();
+}
@@ -0,0 +1,292 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Bounded queue of live audio buffers waiting to be fed to the recognizer of a transcript.
+//
+// Buffers are offered from the main thread and taken by a single drain task in the transcript
+// thread. Each offered buffer is copied once into a ring of pooled slots. Taking a buffer swaps
+// the array of its slot with the array last taken, which is fed to the recognizer directly, so
+// steady streaming allocates nothing. Once capacity buffers are queued, the overflow policy
+// decides what happens to the next one: BLOCK holds it back and delays its acceptance until there
+// is room, DROP_OLDEST discards the oldest queued buffer, and MERGE appends it to the newest
+// queued buffer. BLOCK holds back at most capacity buffers, beyond which the oldest queued buffer
+// is discarded as under DROP_OLDEST, so callers not waiting for acceptance cannot use up memory.
+class FeedQueue {
+    public static final int BLOCK = 0;
+    public static final int DROP_OLDEST = 1;
+    public static final int MERGE = 2;
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    // Largest buffer MERGE builds before falling back to dropping the oldest buffer.
+    private static final int MAX_MERGED_SIZE = 1024 * 1024;
+
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    // Told once an offered buffer has been queued, along with the status of the queue.
+    interface AcceptListener {
+        void onAccepted(Map<String, Object> status);
+    }
+
+    // A buffer held back under BLOCK until there is room in the ring.
+    private static class WaitingBuffer {
+        final byte[] buffer;
+        final boolean post;
+        final long offerTime;
+        final AcceptListener acceptListener;
+
+        WaitingBuffer(
+                byte[] buffer, boolean post, long offerTime, AcceptListener acceptListener
+        ) {
+            this.buffer = buffer;
+            this.post = post;
+            this.offerTime = offerTime;
+            this.acceptListener = acceptListener;
+        }
+    }
+
+    private final Handler mainHandler; // Used to accept waiting buffers on the main thread.
+    private final int capacity;
+    private final int overflowPolicy;
+    private final int sampleRate;
+    private final int channelCount;
+
+    private final byte[][] slots; // Reused arrays, grown to the largest buffer they held.
+    private final int[] lengths; // Bytes of audio in each slot.
+    private final boolean[] posts; // Whether results of each slot should be posted.
+    private final long[] offerTimes; // Time the oldest buffer in each slot was offered.
+    private int head = 0; // Slot of the oldest queued buffer.
+    private int count = 0; // Number of queued buffers.
+
+    private byte[] taken; // Array being fed by the drain task, swapped with a slot on each take.
+    private int takenLength = 0;
+    private boolean takenPost = false;
+    private long takenOfferTime = 0;
+
+    private final ArrayDeque<WaitingBuffer> waitingBuffers = new ArrayDeque<WaitingBuffer>();
+
+    private long queuedBytes = 0; // Bytes in queued and waiting buffers.
+    private long droppedBytes = 0;
+    private boolean draining = false; // True while a drain task is scheduled or running.
+
+    public FeedQueue(
+            Handler mainHandler, int capacity, int overflowPolicy, int sampleRate, int channelCount
+    ) {
+        this.mainHandler = mainHandler;
+        this.capacity = Math.max(capacity, 1);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+
+        slots = new byte[this.capacity][];
+        lengths = new int[this.capacity];
+        posts = new boolean[this.capacity];
+        offerTimes = new long[this.capacity];
+    }
+
+    // Copies the remaining bytes of the given buffer into the queue. Called in the main thread.
+    //
+    // The given acceptListener is told in the main thread once the buffer is queued, which is
+    // immediately unless the queue is full under BLOCK. The given buffer is not used after this
+    // returns. Returns true if a drain task must be scheduled.
+    public synchronized boolean offer(
+            ByteBuffer buffer, boolean post, AcceptListener acceptListener
+    ) {
+        int length = buffer.remaining();
+        long offerTime = System.nanoTime();
+        queuedBytes += length;
+
+        if (!waitingBuffers.isEmpty() || count >= capacity) {
+            if (overflowPolicy == BLOCK) {
+                if (waitingBuffers.size() >= capacity) {
+                    dropOldest();
+                    acceptWaitingBuffers();
+                }
+
+                byte[] copy = new byte[length];
+                buffer.get(copy);
+                waitingBuffers.add(new WaitingBuffer(copy, post, offerTime, acceptListener));
+                return startDraining();
+            }
+            else if (overflowPolicy == MERGE && canMerge(slotAt(count - 1), length)) {
+                append(slotAt(count - 1), buffer, post);
+                acceptListener.onAccepted(getStatus());
+                return startDraining();
+            }
+            else {
+                dropOldest();
+            }
+        }
+
+        int slot = slotAt(count++);
+        lengths[slot] = 0;
+        posts[slot] = false;
+        offerTimes[slot] = offerTime;
+        append(slot, buffer, post);
+
+        acceptListener.onAccepted(getStatus());
+        return startDraining();
+    }
+
+    // Takes the next buffer to feed, or returns false if the queue is empty.
+    //
+    // Called by the drain task, which must stop once false is returned. Under MERGE all queued
+    // buffers are taken at once. The taken buffer is read through getBuffer and getLength, and is
+    // only valid until the next call.
+    public synchronized boolean take() {
+        if (count == 0) {
+            draining = false;
+            return false;
+        }
+
+        byte[] spare = taken;
+        taken = slots[head];
+        takenLength = lengths[head];
+        takenPost = posts[head];
+        takenOfferTime = offerTimes[head];
+        slots[head] = spare;
+        head = next(head);
+        count--;
+
+        if (overflowPolicy == MERGE) {
+            while (count > 0 && takenLength + lengths[head] <= MAX_MERGED_SIZE) {
+                taken = grow(taken, takenLength, takenLength + lengths[head]);
+                System.arraycopy(slots[head], 0, taken, takenLength, lengths[head]);
+                takenLength += lengths[head];
+                takenPost = takenPost || posts[head];
+                head = next(head);
+                count--;
+            }
+        }
+
+        queuedBytes -= takenLength;
+        acceptWaitingBuffers();
+        return true;
+    }
+
+    public synchronized byte[] getBuffer() {
+        return taken;
+    }
+
+    public synchronized int getLength() {
+        return takenLength;
+    }
+
+    public synchronized boolean shouldPost() {
+        return takenPost;
+    }
+
+    // Time in nanoseconds at which the oldest part of the taken buffer was offered.
+    public synchronized long getOfferTime() {
+        return takenOfferTime;
+    }
+
+    // Drops all queued buffers, accepting any that are waiting so their callers are not left
+    // hanging. The drain task, if any, stops at its next take.
+    public synchronized void clear() {
+        count = 0;
+        queuedBytes = 0;
+
+        while (!waitingBuffers.isEmpty()) {
+            acceptLater(waitingBuffers.poll().acceptListener);
+        }
+    }
+
+    // Returns the number of queued buffers, the seconds of audio they hold, and the number of
+    // bytes dropped so far.
+    public synchronized Map<String, Object> getStatus() {
+        HashMap<String, Object> status = new HashMap<String, Object>();
+        status.put("queueDepth", count + waitingBuffers.size());
+        status.put(
+                "lag", (double) queuedBytes / (sampleRate * channelCount * BYTES_PER_SAMPLE)
+        );
+        status.put("droppedBytes", droppedBytes);
+        return status;
+    }
+
+    // Marks the queue as draining. Returns true if it was not already.
+    private boolean startDraining() {
+        if (draining) {
+            return false;
+        }
+        draining = true;
+        return true;
+    }
+
+    // Discards the oldest queued buffer.
+    private void dropOldest() {
+        queuedBytes -= lengths[head];
+        droppedBytes += lengths[head];
+        head = next(head);
+        count--;
+    }
+
+    // Moves waiting buffers into the ring while there is room.
+    private void acceptWaitingBuffers() {
+        while (!waitingBuffers.isEmpty() && count < capacity) {
+            WaitingBuffer waitingBuffer = waitingBuffers.poll();
+
+            int slot = slotAt(count++);
+            lengths[slot] = 0;
+            posts[slot] = false;
+            offerTimes[slot] = waitingBuffer.offerTime;
+            append(slot, ByteBuffer.wrap(waitingBuffer.buffer), waitingBuffer.post);
+
+            acceptLater(waitingBuffer.acceptListener);
+        }
+    }
+
+    // Tells the given acceptListener in the main thread.
+    private void acceptLater(final AcceptListener acceptListener) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                acceptListener.onAccepted(getStatus());
+            }
+        });
+    }
+
+    // Returns the slot of the queued buffer at the given index, counting from the oldest.
+    private int slotAt(int index) {
+        return (head + index) % slots.length;
+    }
+
+    private int next(int slot) {
+        return (slot + 1) % slots.length;
+    }
+
+    private boolean canMerge(int slot, int length) {
+        return lengths[slot] + length <= MAX_MERGED_SIZE;
+    }
+
+    // Copies the remaining bytes of the given buffer to the end of the given slot, growing its
+    // array if needed.
+    private void append(int slot, ByteBuffer buffer, boolean post) {
+        int length = lengths[slot] + buffer.remaining();
+
+        slots[slot] = grow(slots[slot], lengths[slot], length);
+        buffer.get(slots[slot], lengths[slot], buffer.remaining());
+        lengths[slot] = length;
+        posts[slot] = posts[slot] || post;
+    }
+
+    // Returns the given array if it holds at least length bytes, otherwise a larger copy of the
+    // first used bytes of it.
+    private static byte[] grow(byte[] array, int used, int length) {
+        if (array != null && array.length >= length) {
+            return array;
+        }
+
+        byte[] grown = new byte[Math.max(length, Math.min(used * 2, MAX_MERGED_SIZE))];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, used);
+        }
+        return grown;
+    }
+}
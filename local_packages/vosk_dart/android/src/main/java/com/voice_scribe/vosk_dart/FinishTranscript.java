@@ -1,39 +1,62 @@
 package com.voice_scribe.vosk_dart;
 
-import android.os.Handler;
-
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.vosk.Recognizer;
 
 // Writes and posts the final result for the given recognizer to the
 // given transcriptWriter and bridge.
 //
-// recognizer and transcriptWriter are closed afterwards.
+// Audio still held by the stages of the given transcriptAudio is fed first. Afterwards the
+// recognizer is released to the given recognizerPool, and transcriptWriter is closed, even if the
+// results could not be written. If the transcript is indexed and complete, it
+// is then added to the given searchIndex, unless null.
 class FinishTranscript extends TranscribeTask {
+    private final RecognizerPool recognizerPool;
+    private final SearchIndex searchIndex;
+    private final TranscriptAudio transcriptAudio;
+
     public FinishTranscript(
+            RecognizerPool recognizerPool,
+            SearchIndex searchIndex,
+            TranscriptAudio transcriptAudio,
             Future<Recognizer> recognizerFuture,
             TranscriptWriter transcriptWriter,
-            Bridge bridge,
-            Handler mainHandler
+            EventPoster bridge,
+            ResultParser resultParser,
+            Metrics metrics
     ) {
-        super(recognizerFuture, transcriptWriter, bridge, mainHandler);
+        super(recognizerFuture, transcriptWriter, bridge, resultParser, metrics);
+        this.recognizerPool = recognizerPool;
+        this.searchIndex = searchIndex;
+        this.transcriptAudio = transcriptAudio;
     }
 
     @Override
     public void run() {
+        recordQueueWait();
+
+        Recognizer recognizer = null;
+        boolean complete = false; // Whether all results were written.
+
         try {
-            Recognizer recognizer = recognizerFuture.get();
+            recognizer = recognizerFuture.get();
+            silenceFilter = transcriptAudio.getSilenceFilter();
 
-            JSONObject finalResult = new JSONObject(recognizer.getFinalResult());
-            transcriptWriter.writeResult(finalResult);
-            post(finalResult, FINAL_RESULT, NONE, 1.0);
+            if (flushAudioConverter(recognizer, transcriptAudio.getBufferConverter())) {
+                writeResult(recognizer);
+            }
+            if (flushSilenceFilter(recognizer)) {
+                writeResult(recognizer);
+            }
 
-            recognizer.close();
-            transcriptWriter.close();
+            WordResults finalResult = parse(recognizer, recognizer.getFinalResult());
+            write(finalResult);
+            post(finalResult, FINAL_RESULT, NONE, 1.0);
+            complete = true;
         }
         catch (ExecutionException | InterruptedException e) {
             System.out.println("Could not retrieve recognizer.");
@@ -41,5 +64,40 @@ class FinishTranscript extends TranscribeTask {
         catch (JSONException e) {
             System.out.println("Could not get valid JSON.");
         }
+        catch (IOException e) {
+            System.out.println("IO error, could not write to transcript.");
+        }
+        finally {
+            if (recognizer != null) {
+                recognizerPool.release(recognizer);
+            }
+            if (!closeTranscript()) {
+                complete = false;
+            }
+        }
+
+        SearchDocument searchDocument = transcriptWriter.getSearchDocument();
+        if (complete && searchIndex != null && searchDocument != null) {
+            searchIndex.add(searchDocument);
+        }
+    }
+
+    // Closes the transcriptWriter, returning false if it could not write out its results.
+    private boolean closeTranscript() {
+        try {
+            transcriptWriter.close();
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not write to transcript.");
+            return false;
+        }
+    }
+
+    // Writes and posts the result the recognizer completed on silence.
+    private void writeResult(Recognizer recognizer) throws JSONException, IOException {
+        WordResults result = parse(recognizer, recognizer.getResult());
+        write(result);
+        post(result, RESULT, NONE, 1.0);
     }
-}
\ No newline at end of file
+}
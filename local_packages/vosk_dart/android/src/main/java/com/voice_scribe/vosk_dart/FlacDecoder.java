@@ -0,0 +1,628 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Decodes a FLAC file frame by frame.
+//
+// Each frame is decoded into reused per channel sample arrays, which reads hand out as
+// interleaved PCM, so only a single frame of audio is held at a time. Metadata other than the
+// stream info, such as pictures and comments, is skipped, as is an ID3v2 tag in front of the file.
+// Samples of 12 and 20 bits are widened to 16 and 24 bits.
+//
+// Frame headers are checked against their CRC-8, and a frame header that does not match is
+// searched past for the next one. The CRC-16 of frames is not checked. Sample sizes over 24 bits
+// are not supported.
+class FlacDecoder implements AudioDecoder {
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BITS_PER_SAMPLE = 24;
+
+    private static final int STREAM_INFO = 0; // Metadata block type.
+
+    // Channel assignments beyond independent channels.
+    private static final int LEFT_SIDE = 8;
+    private static final int SIDE_RIGHT = 9;
+    private static final int MID_SIDE = 10;
+
+    private static final int[] CRC_8 = crc8Table();
+
+    private final FileInputStream input;
+    private final long inputLength;
+    private final byte[] inputBuffer = new byte[INPUT_BUFFER_SIZE];
+    private int inputBufferPosition = 0;
+    private int inputBufferLimit = 0;
+    private long inputPosition = 0; // Bytes of the file moved into the bit cache.
+    private long audioOffset; // Offset in the file of the first frame.
+
+    private long cache; // Bits read ahead, the lowest cacheBits of which are unread.
+    private int cacheBits = 0;
+
+    private int channelCount;
+    private int sampleRate;
+    private int bitsPerSample; // As stored in the file.
+    private int outputBitsPerSample; // As handed out, a whole number of bytes.
+
+    private int[][] samples; // Samples of the current frame, per channel.
+    private int blockSize = 0; // Samples per channel in the current frame.
+    private int blockPosition = 0; // Samples per channel of the current frame handed out.
+    private boolean ended = false;
+
+    private int crc; // CRC-8 of the frame header being read.
+
+    // Opens the FLAC file at the given filePath and reads its stream info.
+    //
+    // Throws an IOException if the file cannot be read, is not a FLAC file, or holds samples of
+    // more than 24 bits.
+    public FlacDecoder(String filePath) throws IOException {
+        input = new FileInputStream(filePath);
+        inputLength = input.getChannel().size();
+
+        try {
+            readMetadata();
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getBitsPerSample() {
+        return outputBitsPerSample;
+    }
+
+    @Override
+    public long getInputLength() {
+        return inputLength - audioOffset;
+    }
+
+    @Override
+    public long getInputPosition() {
+        return inputPosition - cacheBits / 8 - audioOffset;
+    }
+
+    // Decodes whole sample frames across all channels, so fewer bytes than length may be decoded.
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int bytesPerSample = outputBitsPerSample / 8;
+        int frameBytes = bytesPerSample * channelCount;
+        int shift = outputBitsPerSample - bitsPerSample;
+        int bytesRead = 0;
+
+        while (length - bytesRead >= frameBytes) {
+            if (blockPosition == blockSize && !decodeFrame()) {
+                break;
+            }
+
+            int frames = Math.min((length - bytesRead) / frameBytes, blockSize - blockPosition);
+            int position = offset + bytesRead;
+
+            for (int i = blockPosition; i < blockPosition + frames; i++) {
+                for (int channel = 0; channel < channelCount; channel++) {
+                    int sample = samples[channel][i] << shift;
+
+                    if (bytesPerSample == 1) {
+                        buffer[position++] = (byte) (sample + 128);
+                        continue;
+                    }
+
+                    buffer[position++] = (byte) sample;
+                    buffer[position++] = (byte) (sample >> 8);
+                    if (bytesPerSample == 3) {
+                        buffer[position++] = (byte) (sample >> 16);
+                    }
+                }
+            }
+
+            blockPosition += frames;
+            bytesRead += frames * frameBytes;
+        }
+
+        return bytesRead == 0 && ended ? -1 : bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    // Skips any ID3v2 tag, checks the FLAC marker, and reads the metadata blocks up to the first
+    // frame.
+    private void readMetadata() throws IOException {
+        int marker = readBits(32);
+
+        if ((marker >>> 8) == 0x494433) { // "ID3", followed by the major version.
+            int flags = readBits(16) & 0xFF; // Revision, then flags.
+            long size = 0;
+            for (int i = 0; i < 4; i++) {
+                size = size << 7 | readBits(8) & 0x7F;
+            }
+            skipBytes((flags & 0x10) != 0 ? size + 10 : size); // With a footer, if flagged.
+            marker = readBits(32);
+        }
+
+        if (marker != 0x664C6143) { // "fLaC"
+            throw new IOException("Not a FLAC file.");
+        }
+
+        boolean last = false;
+        boolean hasStreamInfo = false;
+
+        while (!last) {
+            int header = readBits(32);
+            last = (header & 0x80000000) != 0;
+            int type = (header >>> 24) & 0x7F;
+            int length = header & 0xFFFFFF;
+
+            if (type == STREAM_INFO) {
+                readStreamInfo(length);
+                hasStreamInfo = true;
+            }
+            else {
+                skipBytes(length);
+            }
+        }
+
+        if (!hasStreamInfo) {
+            throw new IOException("FLAC file has no stream info.");
+        }
+        audioOffset = inputPosition - cacheBits / 8;
+    }
+
+    // Reads the stream info block of the given length.
+    private void readStreamInfo(int length) throws IOException {
+        readBits(16); // Minimum block size.
+        int maxBlockSize = readBits(16);
+        readBits(24); // Minimum frame size.
+        readBits(24); // Maximum frame size.
+        sampleRate = readBits(20);
+        channelCount = readBits(3) + 1;
+        bitsPerSample = readBits(5) + 1;
+        readBits(4); // Total samples, 36 bits.
+        readBits(32);
+        skipBytes(length - 18); // MD5 signature of the audio.
+
+        if (sampleRate == 0 || bitsPerSample < 4) {
+            throw new IOException("FLAC file has malformed stream info.");
+        }
+        if (bitsPerSample > MAX_BITS_PER_SAMPLE) {
+            throw new IOException("Unsupported FLAC file, expected at most 24 bit audio.");
+        }
+
+        outputBitsPerSample = (bitsPerSample + 7) / 8 * 8;
+        samples = new int[channelCount][Math.max(maxBlockSize, 16)];
+    }
+
+    // Decodes the next frame into samples, returning false at the end of the file.
+    private boolean decodeFrame() throws IOException {
+        int channelAssignment;
+
+        while (true) {
+            channelAssignment = readFrameHeader();
+
+            if (channelAssignment == -2) {
+                ended = true;
+                return false;
+            }
+            if (channelAssignment != -1) {
+                break;
+            }
+        }
+
+        for (int channel = 0; channel < channelCount; channel++) {
+            boolean side = channelAssignment == LEFT_SIDE && channel == 1 ||
+                    channelAssignment == SIDE_RIGHT && channel == 0 ||
+                    channelAssignment == MID_SIDE && channel == 1;
+            decodeSubframe(samples[channel], side ? bitsPerSample + 1 : bitsPerSample);
+        }
+
+        decorrelate(channelAssignment);
+        cacheBits -= cacheBits % 8; // Frames end byte aligned.
+        readBits(16); // CRC-16 of the frame.
+        blockPosition = 0;
+
+        return true;
+    }
+
+    // Finds and reads the next frame header, setting blockSize. Returns the channel assignment,
+    // -1 if the header found was not valid, or -2 at the end of the file.
+    private int readFrameHeader() throws IOException {
+        cacheBits -= cacheBits % 8;
+        int previous = -1;
+        int current;
+
+        while (true) {
+            current = readByteOrEnd();
+            if (current == -1) {
+                return -2;
+            }
+            if (previous == 0xFF && (current & 0xFE) == 0xF8) {
+                break;
+            }
+            previous = current;
+        }
+
+        crc = CRC_8[CRC_8[0xFF] ^ current];
+
+        int sizes = readHeaderByte();
+        int format = readHeaderByte();
+        int blockSizeCode = sizes >>> 4;
+        int sampleRateCode = sizes & 0xF;
+        int channelAssignment = format >>> 4;
+        int sampleSizeCode = (format >>> 1) & 0x7;
+
+        if (blockSizeCode == 0 || sampleRateCode == 15 || channelAssignment > MID_SIDE ||
+                sampleSizeCode == 3 || (format & 1) != 0) {
+            return -1;
+        }
+
+        int first = readHeaderByte(); // Frame or sample number, UTF-8 coded.
+        int ones = Integer.numberOfLeadingZeros(~first << 24);
+        if (ones == 1 || ones > 7) {
+            return -1;
+        }
+        for (int i = 1; i < ones; i++) {
+            if ((readHeaderByte() & 0xC0) != 0x80) {
+                return -1;
+            }
+        }
+
+        if (blockSizeCode == 1) {
+            blockSize = 192;
+        }
+        else if (blockSizeCode <= 5) {
+            blockSize = 576 << (blockSizeCode - 2);
+        }
+        else if (blockSizeCode == 6) {
+            blockSize = readHeaderByte() + 1;
+        }
+        else if (blockSizeCode == 7) {
+            blockSize = (readHeaderByte() << 8 | readHeaderByte()) + 1;
+        }
+        else {
+            blockSize = 256 << (blockSizeCode - 8);
+        }
+
+        if (sampleRateCode == 12) {
+            readHeaderByte();
+        }
+        else if (sampleRateCode == 13 || sampleRateCode == 14) {
+            readHeaderByte();
+            readHeaderByte();
+        }
+
+        int expectedCrc = crc;
+        if (readBits(8) != expectedCrc) {
+            return -1;
+        }
+
+        int frameChannels = channelAssignment < LEFT_SIDE ? channelAssignment + 1 : 2;
+        int frameBits = bitsOf(sampleSizeCode);
+
+        if (frameChannels != channelCount || frameBits != 0 && frameBits != bitsPerSample) {
+            throw new IOException("Unsupported FLAC file, format changes between frames.");
+        }
+        if (samples[0].length < blockSize) {
+            samples = new int[channelCount][blockSize];
+        }
+
+        return channelAssignment;
+    }
+
+    // Decodes a subframe of samples of the given size into the given array.
+    private void decodeSubframe(int[] output, int sampleBits) throws IOException {
+        int header = readBits(8);
+        int type = (header >>> 1) & 0x3F;
+        int wasted = 0;
+
+        if ((header & 0x80) != 0) {
+            throw new IOException("FLAC file has a malformed subframe.");
+        }
+        if ((header & 1) != 0) {
+            wasted = readUnary() + 1;
+            sampleBits -= wasted;
+        }
+
+        if (type == 0) {
+            Arrays.fill(output, 0, blockSize, readSigned(sampleBits));
+        }
+        else if (type == 1) {
+            for (int i = 0; i < blockSize; i++) {
+                output[i] = readSigned(sampleBits);
+            }
+        }
+        else if (type >= 8 && type <= 12) {
+            decodeFixed(output, type - 8, sampleBits);
+        }
+        else if (type >= 32) {
+            decodeLpc(output, type - 31, sampleBits);
+        }
+        else {
+            throw new IOException("FLAC file has a malformed subframe.");
+        }
+
+        if (wasted > 0) {
+            for (int i = 0; i < blockSize; i++) {
+                output[i] <<= wasted;
+            }
+        }
+    }
+
+    // Decodes a subframe predicted by the fixed polynomial of the given order.
+    private void decodeFixed(int[] output, int order, int sampleBits) throws IOException {
+        for (int i = 0; i < order; i++) {
+            output[i] = readSigned(sampleBits);
+        }
+        decodeResidual(output, order);
+
+        switch (order) {
+            case 1:
+                for (int i = 1; i < blockSize; i++) {
+                    output[i] += output[i - 1];
+                }
+                break;
+            case 2:
+                for (int i = 2; i < blockSize; i++) {
+                    output[i] += 2 * output[i - 1] - output[i - 2];
+                }
+                break;
+            case 3:
+                for (int i = 3; i < blockSize; i++) {
+                    output[i] += 3 * (output[i - 1] - output[i - 2]) + output[i - 3];
+                }
+                break;
+            case 4:
+                for (int i = 4; i < blockSize; i++) {
+                    output[i] += 4 * (output[i - 1] + output[i - 3])
+                            - 6 * output[i - 2] - output[i - 4];
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Decodes a subframe predicted by linear prediction of the given order.
+    private void decodeLpc(int[] output, int order, int sampleBits) throws IOException {
+        for (int i = 0; i < order; i++) {
+            output[i] = readSigned(sampleBits);
+        }
+
+        int precision = readBits(4) + 1;
+        int shift = readSigned(5);
+        if (precision == 16 || shift < 0) {
+            throw new IOException("FLAC file has a malformed subframe.");
+        }
+
+        int[] coefficients = new int[order];
+        for (int i = 0; i < order; i++) {
+            coefficients[i] = readSigned(precision);
+        }
+        decodeResidual(output, order);
+
+        // Sums fit an int unless samples, coefficients, and order together need over 32 bits.
+        if (sampleBits + precision + 5 <= 32) {
+            for (int i = order; i < blockSize; i++) {
+                int sum = 0;
+                for (int j = 0; j < order; j++) {
+                    sum += coefficients[j] * output[i - 1 - j];
+                }
+                output[i] += sum >> shift;
+            }
+        }
+        else {
+            for (int i = order; i < blockSize; i++) {
+                long sum = 0;
+                for (int j = 0; j < order; j++) {
+                    sum += (long) coefficients[j] * output[i - 1 - j];
+                }
+                output[i] += (int) (sum >> shift);
+            }
+        }
+    }
+
+    // Decodes the Rice coded residual of a subframe into output after its warm-up samples.
+    private void decodeResidual(int[] output, int order) throws IOException {
+        int method = readBits(2);
+        if (method > 1) {
+            throw new IOException("FLAC file has a malformed residual.");
+        }
+
+        int parameterBits = method == 0 ? 4 : 5;
+        int escape = (1 << parameterBits) - 1;
+        int partitionOrder = readBits(4);
+        int partitionSize = blockSize >> partitionOrder;
+
+        if (partitionSize << partitionOrder != blockSize || partitionSize < order) {
+            throw new IOException("FLAC file has a malformed residual.");
+        }
+
+        int i = order;
+        for (int partition = 0; partition < 1 << partitionOrder; partition++) {
+            int end = (partition + 1) * partitionSize;
+            int parameter = readBits(parameterBits);
+
+            if (parameter == escape) {
+                int bits = readBits(5);
+                while (i < end) {
+                    output[i++] = readSigned(bits);
+                }
+                continue;
+            }
+
+            while (i < end) {
+                int value = readUnary() << parameter | readBits(parameter);
+                output[i++] = (value >>> 1) ^ -(value & 1);
+            }
+        }
+    }
+
+    // Restores left and right channels from side channel stereo.
+    private void decorrelate(int channelAssignment) {
+        if (channelAssignment < LEFT_SIDE) {
+            return;
+        }
+
+        int[] first = samples[0];
+        int[] second = samples[1];
+
+        for (int i = 0; i < blockSize; i++) {
+            if (channelAssignment == LEFT_SIDE) {
+                second[i] = first[i] - second[i];
+            }
+            else if (channelAssignment == SIDE_RIGHT) {
+                first[i] += second[i];
+            }
+            else {
+                int mid = first[i] << 1 | (second[i] & 1);
+                first[i] = (mid + second[i]) >> 1;
+                second[i] = (mid - second[i]) >> 1;
+            }
+        }
+    }
+
+    // Returns the sample size of the given frame header code, 0 if given by the stream info.
+    private static int bitsOf(int sampleSizeCode) {
+        switch (sampleSizeCode) {
+            case 1:
+                return 8;
+            case 2:
+                return 12;
+            case 4:
+                return 16;
+            case 5:
+                return 20;
+            case 6:
+                return 24;
+            case 7:
+                return 32;
+            default:
+                return 0;
+        }
+    }
+
+    // Reads a byte of the frame header, adding it to the header CRC.
+    private int readHeaderByte() throws IOException {
+        int value = readBits(8);
+        crc = CRC_8[crc ^ value];
+        return value;
+    }
+
+    // Reads the given number of bits, at most 32, as an unsigned value.
+    private int readBits(int count) throws IOException {
+        while (cacheBits < count) {
+            int value = readInputByte();
+            if (value == -1) {
+                throw new EOFException("FLAC file ended unexpectedly.");
+            }
+            cache = cache << 8 | value;
+            cacheBits += 8;
+        }
+
+        cacheBits -= count;
+        return (int) ((cache >>> cacheBits) & ((1L << count) - 1));
+    }
+
+    // Reads the given number of bits, at most 32, as a two's complement value.
+    private int readSigned(int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        return readBits(count) << (32 - count) >> (32 - count);
+    }
+
+    // Reads zero bits up to the next one bit, returning their number.
+    private int readUnary() throws IOException {
+        int zeros = 0;
+
+        while (true) {
+            long unread = cache & ((1L << cacheBits) - 1);
+
+            if (unread != 0) {
+                int leading = Long.numberOfLeadingZeros(unread) - (64 - cacheBits);
+                cacheBits -= leading + 1;
+                return zeros + leading;
+            }
+
+            zeros += cacheBits;
+            cacheBits = 0;
+
+            int value = readInputByte();
+            if (value == -1) {
+                throw new EOFException("FLAC file ended unexpectedly.");
+            }
+            cache = value;
+            cacheBits = 8;
+        }
+    }
+
+    // Reads the next byte at a byte boundary, or returns -1 at the end of the file.
+    private int readByteOrEnd() throws IOException {
+        if (cacheBits >= 8) {
+            return readBits(8);
+        }
+        return readInputByte();
+    }
+
+    // Skips the given number of bytes, starting at a byte boundary.
+    private void skipBytes(long count) throws IOException {
+        while (count > 0 && cacheBits >= 8) {
+            readBits(8);
+            count--;
+        }
+
+        int buffered = (int) Math.min(count, inputBufferLimit - inputBufferPosition);
+        inputBufferPosition += buffered;
+        inputPosition += buffered;
+        count -= buffered;
+
+        if (count > 0) {
+            long skipped = input.skip(count);
+            inputPosition += skipped;
+
+            if (skipped < count) {
+                throw new EOFException("FLAC file ended unexpectedly.");
+            }
+        }
+    }
+
+    private int readInputByte() throws IOException {
+        if (inputBufferPosition == inputBufferLimit) {
+            int count = input.read(inputBuffer);
+            if (count <= 0) {
+                return -1;
+            }
+            inputBufferPosition = 0;
+            inputBufferLimit = count;
+        }
+
+        inputPosition++;
+        return inputBuffer[inputBufferPosition++] & 0xFF;
+    }
+
+    // CRC-8 with polynomial x^8 + x^2 + x + 1, as used for frame headers.
+    private static int[] crc8Table() {
+        int[] table = new int[256];
+
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? (crc << 1 ^ 0x07) & 0xFF : crc << 1 & 0xFF;
+            }
+            table[i] = crc;
+        }
+        return table;
+    }
+}
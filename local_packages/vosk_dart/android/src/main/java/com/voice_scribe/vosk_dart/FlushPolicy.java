@@ -0,0 +1,34 @@
+package com.voice_scribe.vosk_dart;
+
+// Decides when a TranscriptWriter writes its buffered results out to the file.
+//
+// Results are always written out when the buffer fills up and when the writer is closed.
+class FlushPolicy {
+    // Only writes out when the buffer fills up or on close.
+    public static final FlushPolicy ON_FINISH = new FlushPolicy(0, 0);
+
+    private final int resultInterval; // Results between flushes, or 0 to not flush by count.
+    private final long timeInterval; // Milliseconds between flushes, or 0 to not flush by time.
+
+    public FlushPolicy(int resultInterval, long timeInterval) {
+        this.resultInterval = Math.max(resultInterval, 0);
+        this.timeInterval = Math.max(timeInterval, 0);
+    }
+
+    // Returns true if the writer should flush, given the number of results written and the
+    // milliseconds passed since it last flushed.
+    public boolean shouldFlush(int resultsSinceFlush, long millisecondsSinceFlush) {
+        return (resultInterval > 0 && resultsSinceFlush >= resultInterval) ||
+                (timeInterval > 0 && millisecondsSinceFlush >= timeInterval);
+    }
+
+    // Returns the milliseconds left until the writer should flush by time, given the number of
+    // results written and the milliseconds passed since it last flushed, or -1 if no result is
+    // waiting or the policy does not flush by time.
+    public long millisecondsUntilFlush(int resultsSinceFlush, long millisecondsSinceFlush) {
+        if (timeInterval == 0 || resultsSinceFlush == 0) {
+            return -1;
+        }
+        return Math.max(timeInterval - millisecondsSinceFlush, 0);
+    }
+}
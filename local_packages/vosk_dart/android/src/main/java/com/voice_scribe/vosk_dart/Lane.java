@@ -0,0 +1,270 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A serial executor that runs its tasks in order, one at a time, on threads of a shared pool.
+//
+// No thread is held while the lane is idle or waiting to start. Each task is handed to the pool
+// once the one before it has finished, so lanes take turns on the pool. Shutting down behaves as
+// with any executor service, with shutdownNow interrupting the running task.
+//
+// Tasks are handed over as dispatches ordered by the priority of their lane, then by the order
+// in which they were handed over, so the pool must run them from a priority queue.
+//
+// A long task may run in steps. Before returning, the running task may give a continuation, which
+// runs before any other task of the lane, after the tasks of other lanes already waiting for a
+// thread. A continuation may be suspended until resume is called, holding no thread meanwhile.
+// Continuations are part of the task that gave them, so they are kept by shutdownNow, which
+// instead has them run interrupted.
+class Lane extends AbstractExecutorService {
+    private static final AtomicLong dispatchCount = new AtomicLong(); // Orders equal priorities.
+
+    private final Executor pool;
+    private final int priority; // Lower values run first.
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+    private final ArrayList<Runnable> terminationListeners = new ArrayList<Runnable>();
+
+    private boolean started = false; // False while waiting on a previous lane.
+    private boolean dispatched = false; // True while a task is handed to the pool or running.
+    private boolean shutdown = false;
+    private boolean terminated = false;
+    private Thread runningThread; // Thread running a task of this lane, if any.
+
+    private Runnable continuation; // Runs before the other tasks, if any.
+    private boolean suspended = false; // True while the continuation waits for resume.
+    private boolean interruptContinuation = false; // Set by shutdownNow.
+
+    // Runs the next task of the lane in a pool thread.
+    private final Runnable runNext = new Runnable() {
+        @Override
+        public void run() {
+            Runnable task;
+
+            synchronized (Lane.this) {
+                if (continuation != null) {
+                    task = continuation;
+                    continuation = null;
+
+                    if (interruptContinuation) {
+                        interruptContinuation = false;
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                else {
+                    task = tasks.poll();
+                }
+                runningThread = Thread.currentThread();
+            }
+
+            try {
+                if (task != null) {
+                    task.run();
+                }
+            }
+            finally {
+                synchronized (Lane.this) {
+                    runningThread = null;
+                    Thread.interrupted(); // The thread goes on to run tasks of other lanes.
+                    dispatched = false;
+                    dispatchNext();
+                }
+                notifyIfTerminated();
+            }
+        }
+    };
+
+    Lane(Executor pool, int priority) {
+        this.pool = pool;
+        this.priority = priority;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    // Allows tasks to start running. Called once a previous lane, if any, has terminated.
+    void start() {
+        synchronized (this) {
+            started = true;
+            dispatchNext();
+        }
+        notifyIfTerminated();
+    }
+
+    // Runs the given listener once the lane has terminated, immediately if it already has.
+    public void whenTerminated(Runnable listener) {
+        synchronized (this) {
+            if (!terminated) {
+                terminationListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    // Runs the given continuation before any other task of the lane. Only called by the running
+    // task, just before it returns. If suspend is true, the continuation waits for resume.
+    public synchronized void continueWith(Runnable continuation, boolean suspend) {
+        this.continuation = continuation;
+        suspended = suspend && !interruptContinuation;
+    }
+
+    // Lets a suspended continuation run. If none is suspended, nothing happens.
+    public synchronized void resume() {
+        if (suspended) {
+            suspended = false;
+            dispatchNext();
+        }
+    }
+
+    // Returns true if a task of another lane of the same or higher priority waits for a thread,
+    // in which case a long running task should give a continuation and return.
+    public boolean shouldYield() {
+        if (!(pool instanceof ThreadPoolExecutor)) {
+            return false;
+        }
+
+        Runnable waiting = ((ThreadPoolExecutor) pool).getQueue().peek();
+        return waiting instanceof Dispatch && ((Dispatch) waiting).priority <= priority;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Lane has been shut down.");
+        }
+
+        tasks.add(task);
+        dispatchNext();
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+        notifyIfTerminated();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        ArrayList<Runnable> remainingTasks;
+
+        synchronized (this) {
+            shutdown = true;
+            remainingTasks = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+
+            if (runningThread != null) {
+                runningThread.interrupt();
+            }
+            if (runningThread != null || continuation != null) {
+                interruptContinuation = true; // Any continuation still given or waiting.
+            }
+            if (suspended) {
+                suspended = false;
+                dispatchNext();
+            }
+        }
+
+        notifyIfTerminated();
+        return remainingTasks;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return terminated;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (!terminated) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    // Hands the next task to the pool if the lane is started and no task is running.
+    private void dispatchNext() {
+        boolean ready = continuation != null ? !suspended : !tasks.isEmpty();
+
+        if (started && !dispatched && ready) {
+            dispatched = true;
+            pool.execute(new Dispatch(runNext, priority, dispatchCount.getAndIncrement()));
+        }
+    }
+
+    // Marks the lane as terminated once it is shut down with no tasks left, and tells the
+    // termination listeners. Listeners are run outside of the lock.
+    private void notifyIfTerminated() {
+        ArrayList<Runnable> listeners;
+
+        synchronized (this) {
+            if (terminated ||
+                    !shutdown ||
+                    !started ||
+                    dispatched ||
+                    continuation != null ||
+                    !tasks.isEmpty()) {
+                return;
+            }
+
+            terminated = true;
+            notifyAll();
+
+            listeners = new ArrayList<Runnable>(terminationListeners);
+            terminationListeners.clear();
+        }
+
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // The next task of a lane waiting in the pool queue.
+    private static class Dispatch implements Runnable, Comparable<Dispatch> {
+        private final Runnable runNext;
+        private final int priority;
+        private final long order;
+
+        Dispatch(Runnable runNext, int priority, long order) {
+            this.runNext = runNext;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            runNext.run();
+        }
+
+        @Override
+        public int compareTo(Dispatch other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
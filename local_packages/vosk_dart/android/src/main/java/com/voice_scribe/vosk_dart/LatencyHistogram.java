@@ -0,0 +1,125 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock free histogram of durations in nanoseconds, safe to record to from any thread.
+//
+// Durations are counted in buckets on a log scale, each power of two split into eight linear
+// buckets, so percentiles are within an eighth of the actual duration. Recording is a few atomic
+// increments and never allocates.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final double NANOSECONDS_PER_MILLISECOND = 1000000.0;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // Records the given duration in nanoseconds. Negative durations are recorded as 0.
+    public void record(long nanoseconds) {
+        long duration = Math.max(nanoseconds, 0);
+
+        buckets.incrementAndGet(bucketOf(duration));
+        count.incrementAndGet();
+        total.addAndGet(duration);
+
+        long currentMax = max.get();
+        while (duration > currentMax && !max.compareAndSet(currentMax, duration)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    // Returns the count, mean, 50th, 90th, and 99th percentiles, and max in milliseconds.
+    //
+    // Taken while other threads record, so the values may be off by the durations being recorded.
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[BUCKETS];
+        long snapshotCount = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            snapshotCount += counts[i];
+        }
+
+        HashMap<String, Object> snapshot = new HashMap<String, Object>();
+        snapshot.put("count", snapshotCount);
+        snapshot.put(
+                "mean",
+                snapshotCount == 0 ? 0.0 : total.get() / NANOSECONDS_PER_MILLISECOND / snapshotCount
+        );
+        snapshot.put("p50", percentile(counts, snapshotCount, 0.50));
+        snapshot.put("p90", percentile(counts, snapshotCount, 0.90));
+        snapshot.put("p99", percentile(counts, snapshotCount, 0.99));
+        snapshot.put("max", max.get() / NANOSECONDS_PER_MILLISECOND);
+        return snapshot;
+    }
+
+    // Clears all recorded durations.
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    // Returns the middle of the bucket holding the given fraction of counts, in milliseconds.
+    private static double percentile(long[] counts, long totalCount, double fraction) {
+        if (totalCount == 0) {
+            return 0.0;
+        }
+
+        long rank = (long) Math.ceil(fraction * totalCount);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                return (lowerBoundOf(i) + widthOf(i) / 2.0) / NANOSECONDS_PER_MILLISECOND;
+            }
+        }
+        return 0.0;
+    }
+
+    private static int bucketOf(long duration) {
+        if (duration < SUB_BUCKETS) {
+            return (int) duration;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(duration);
+        int subBucket = (int) (duration >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static long widthOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return 1;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return 1L << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,87 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Latency of each stage of transcription and throughput of an instance, recorded from any thread.
+//
+// Stage latencies are kept for the life of the instance. The real time factor, the time spent
+// processing divided by the duration of audio processed, is kept for the current transcript.
+class Metrics {
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final double NANOSECONDS_PER_SECOND = 1000000000.0;
+
+    final LatencyHistogram queueWait = new LatencyHistogram(); // From feed or submit until started.
+    final LatencyHistogram accept = new LatencyHistogram(); // Of acceptWaveForm calls.
+    final LatencyHistogram parse = new LatencyHistogram(); // Of parsing recognizer results.
+    final LatencyHistogram write = new LatencyHistogram(); // Of writing results to transcripts.
+    final LatencyHistogram post = new LatencyHistogram(); // From post until sent to dart.
+
+    private final AtomicLong audioBytes = new AtomicLong(); // Fed to the current transcript.
+    private final AtomicLong processingTime = new AtomicLong(); // In nanoseconds.
+    private volatile int sampleRate = 0;
+
+    private volatile double fileBytesPerSecond = 0.0; // Of the last file feed.
+
+    // Starts measuring the real time factor of a new transcript.
+    public void startTranscript() {
+        audioBytes.set(0);
+        processingTime.set(0);
+    }
+
+    // Sets the sample rate of the audio of the current transcript, once known.
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    // Records an acceptWaveForm call of the given number of bytes taking the given nanoseconds.
+    public void recordAccept(int bytes, long nanoseconds) {
+        accept.record(nanoseconds);
+        audioBytes.addAndGet(bytes);
+        processingTime.addAndGet(nanoseconds);
+    }
+
+    public void recordParse(long nanoseconds) {
+        parse.record(nanoseconds);
+        processingTime.addAndGet(nanoseconds);
+    }
+
+    public void recordWrite(long nanoseconds) {
+        write.record(nanoseconds);
+        processingTime.addAndGet(nanoseconds);
+    }
+
+    // Records a file feed of the given number of bytes taking the given nanoseconds in total.
+    public void recordFile(long bytes, long nanoseconds) {
+        if (nanoseconds > 0) {
+            fileBytesPerSecond = bytes * NANOSECONDS_PER_SECOND / nanoseconds;
+        }
+    }
+
+    // Returns the processing time divided by the duration of audio of the current transcript, or 0
+    // if no audio was processed. Values below 1 are faster than real time.
+    public double getRealTimeFactor() {
+        long bytes = audioBytes.get();
+
+        if (bytes == 0 || sampleRate == 0) {
+            return 0.0;
+        }
+
+        double audioSeconds = (double) bytes / (sampleRate * BYTES_PER_SAMPLE);
+        return processingTime.get() / NANOSECONDS_PER_SECOND / audioSeconds;
+    }
+
+    // Returns all metrics as a map to be sent to dart.
+    public Map<String, Object> toMap() {
+        HashMap<String, Object> metrics = new HashMap<String, Object>();
+        metrics.put("queueWait", queueWait.snapshot());
+        metrics.put("accept", accept.snapshot());
+        metrics.put("parse", parse.snapshot());
+        metrics.put("write", write.snapshot());
+        metrics.put("post", post.snapshot());
+        metrics.put("realTimeFactor", getRealTimeFactor());
+        metrics.put("fileBytesPerSecond", fileBytesPerSecond);
+        return metrics;
+    }
+}
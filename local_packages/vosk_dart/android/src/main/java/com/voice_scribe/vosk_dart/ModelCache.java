@@ -0,0 +1,343 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Process;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.vosk.Model;
+
+// Plugin wide registry of opened models, keyed by their canonical path.
+//
+// Instances that open the same model share a single loaded copy. Every acquire must be paired
+// with a release. Models that are no longer referenced are kept idle, in least recently used
+// order, while the total size of loaded models fits within the budget. Otherwise they are closed,
+// along with the idle recognizers the recognizer pool keeps of them.
+//
+// Calls only queue their work on the loader thread, where paths are resolved to keys and models
+// are measured, opened, and closed, so that callers on the main thread never touch the disk. The
+// work runs in the order it was given. Loaded models carry the sample rate read from their
+// configuration, given by sampleRateOf.
+class ModelCache {
+    public static final int DEFAULT_SAMPLE_RATE = 16000;
+
+    private static final String FEATURE_CONFIG = "conf/mfcc.conf";
+    private static final String SAMPLE_FREQUENCY_OPTION = "--sample-frequency=";
+
+    // A single loaded model and the number of references to it.
+    private static class Entry {
+        Model model;
+        int references = 0;
+        long size = 0; // Size of the model on disk in bytes.
+    }
+
+    // A model opened by the cache, with the sample rate its recognizers are created with.
+    private static class RatedModel extends Model {
+        private final int sampleRate;
+
+        RatedModel(String modelPath, int sampleRate) {
+            super(modelPath);
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    private final ExecutorService loaderService; // Thread in which models are opened and closed.
+    private final RecognizerPool recognizerPool; // Recognizers kept of the models.
+
+    // Access ordered, so iteration starts from the least recently used entry.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(
+            16, 0.75f, true
+    );
+    private final HashSet<String> preloaded = new HashSet<String>(); // Held by the cache itself.
+
+    private long budget = 0; // Bytes that loaded models may take before idle ones are closed.
+
+    public ModelCache(RecognizerPool recognizerPool) {
+        this.recognizerPool = recognizerPool;
+        loaderService = Executors.newSingleThreadExecutor();
+    }
+
+    // Returns a future of the model at the given path, loading it if no copy exists yet. The
+    // future gives null if the model could not be opened.
+    //
+    // The caller holds a reference to the model until release is called with the same path.
+    public Future<Model> acquire(final String modelPath) {
+        FutureTask<Model> modelFuture = new FutureTask<Model>(new Callable<Model>() {
+            @Override
+            public Model call() {
+                return acquireNow(keyOf(modelPath), false);
+            }
+        });
+
+        execute(modelFuture);
+        return modelFuture;
+    }
+
+    // Releases a reference previously acquired for the model at the given path.
+    //
+    // If no references remain, the model becomes idle and may be closed to stay within budget.
+    public void release(final String modelPath) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                releaseNow(keyOf(modelPath));
+            }
+        });
+    }
+
+    // Starts loading the model at the given path so that it is ready before any transcript.
+    //
+    // The model is held by the cache until unload is called. If already preloaded, nothing happens.
+    public void preload(String modelPath) {
+        preload(modelPath, false);
+    }
+
+    // Preloads as with preload. If background is true, the model is loaded at background thread
+    // priority, and a foreground acquire made while it loads waits for the slower load.
+    public void preload(final String modelPath, final boolean background) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                String key = keyOf(modelPath);
+
+                if (markPreloaded(key)) {
+                    acquireNow(key, background);
+                }
+            }
+        });
+    }
+
+    // Releases the reference held by a previous preload. If not preloaded, nothing happens.
+    public void unload(final String modelPath) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                String key = keyOf(modelPath);
+
+                if (unmarkPreloaded(key)) {
+                    releaseNow(key);
+                }
+            }
+        });
+    }
+
+    // Sets the number of bytes loaded models may take before idle models are closed.
+    public void setBudget(final long budget) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                resize(budget);
+            }
+        });
+    }
+
+    // Releases preloaded models and closes all idle ones.
+    //
+    // Models still referenced are closed once their last reference is released, in the thread
+    // releasing them.
+    public void close() {
+        synchronized (loaderService) {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (String key : takePreloaded()) {
+                        releaseNow(key);
+                    }
+                    resize(0);
+                }
+            });
+
+            loaderService.shutdown();
+        }
+    }
+
+    // Gives the given task to the loader thread, or runs it right away once the cache is closed.
+    private void execute(Runnable task) {
+        synchronized (loaderService) {
+            if (!loaderService.isShutdown()) {
+                loaderService.execute(task);
+                return;
+            }
+        }
+
+        task.run();
+    }
+
+    // Adds a reference to the model with the given key, loading it at background thread priority
+    // if background is true and no copy exists yet. Returns null if it could not be opened.
+    //
+    // Runs in the loader thread, which is the only one that loads models, so a model is never
+    // loaded twice at once.
+    private Model acquireNow(String key, boolean background) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+
+            if (entry != null) {
+                entry.references++;
+                return entry.model;
+            }
+        }
+
+        Entry entry = load(key, background);
+
+        synchronized (this) {
+            if (entry.model != null) {
+                entry.references++;
+                entries.put(key, entry);
+                trim();
+            }
+        }
+
+        return entry.model;
+    }
+
+    // Removes a reference to the model with the given key, closing it if it is no longer needed.
+    private synchronized void releaseNow(String key) {
+        Entry entry = entries.get(key);
+
+        if (entry == null || entry.references == 0) {
+            return;
+        }
+
+        entry.references--;
+        trim();
+    }
+
+    // Returns true if the model with the given key was not preloaded before.
+    private synchronized boolean markPreloaded(String key) {
+        return preloaded.add(key);
+    }
+
+    // Returns true if the model with the given key was preloaded.
+    private synchronized boolean unmarkPreloaded(String key) {
+        return preloaded.remove(key);
+    }
+
+    // Returns the keys of the preloaded models, which are no longer held by the cache.
+    private synchronized ArrayList<String> takePreloaded() {
+        ArrayList<String> keys = new ArrayList<String>(preloaded);
+        preloaded.clear();
+        return keys;
+    }
+
+    // Sets the budget to the given number of bytes and closes idle models beyond it.
+    private synchronized void resize(long budget) {
+        this.budget = Math.max(budget, 0);
+        trim();
+    }
+
+    // Closes idle models, least recently used first, until loaded models fit within the budget.
+    private synchronized void trim() {
+        long totalSize = 0;
+        for (Entry entry : entries.values()) {
+            totalSize += entry.size;
+        }
+
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext() && (totalSize > budget || budget == 0)) {
+            Entry entry = iterator.next();
+
+            if (entry.references == 0) {
+                iterator.remove();
+                totalSize -= entry.size;
+                new CloseModel(recognizerPool, entry.model).run();
+            }
+        }
+    }
+
+    // Returns the sample rate recognizers of the given model are created with, read from its
+    // configuration when the cache opened it. DEFAULT_SAMPLE_RATE if not opened by a cache.
+    public static int sampleRateOf(Model model) {
+        if (model instanceof RatedModel) {
+            return ((RatedModel) model).sampleRate;
+        }
+        return DEFAULT_SAMPLE_RATE;
+    }
+
+    // Measures and opens the model with the given key into a new entry, at background thread
+    // priority if background is true. The model of the entry is null if it could not be opened.
+    private static Entry load(String key, boolean background) {
+        if (background) {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        }
+
+        try {
+            Entry entry = new Entry();
+            entry.size = sizeOf(new File(key));
+            entry.model = new RatedModel(key, sampleRateOf(key));
+            return entry;
+        }
+        catch (RuntimeException e) {
+            System.out.println("Unable to open the given model.");
+            return new Entry();
+        }
+        finally {
+            if (background) {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+            }
+        }
+    }
+
+    // Returns the sample rate the model at the given path expects, read from its feature
+    // configuration. Falls back to DEFAULT_SAMPLE_RATE if it cannot be read.
+    private static int sampleRateOf(String modelPath) {
+        File config = new File(modelPath, FEATURE_CONFIG);
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(config))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+
+                if (line.startsWith(SAMPLE_FREQUENCY_OPTION)) {
+                    String value = line.substring(SAMPLE_FREQUENCY_OPTION.length()).trim();
+                    return (int) Float.parseFloat(value);
+                }
+            }
+        }
+        catch (IOException | NumberFormatException e) {
+            // Models without a readable configuration use the default.
+        }
+
+        return DEFAULT_SAMPLE_RATE;
+    }
+
+    // Returns the key used for the model at the given path.
+    private static String keyOf(String modelPath) {
+        File modelDirectory = new File(modelPath);
+
+        try {
+            return modelDirectory.getCanonicalPath();
+        }
+        catch (IOException e) {
+            return modelDirectory.getAbsolutePath();
+        }
+    }
+
+    // Returns the total size of all files under the given file.
+    private static long sizeOf(File file) {
+        File[] children = file.listFiles();
+
+        if (children == null) {
+            return file.length();
+        }
+
+        long size = 0;
+        for (File child : children) {
+            size += sizeOf(child);
+        }
+        return size;
+    }
+}
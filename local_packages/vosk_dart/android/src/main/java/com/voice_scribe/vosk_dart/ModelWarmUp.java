@@ -0,0 +1,133 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Process;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// Loads the model at the given path ahead of the first transcript and warms it up, so the first
+// transcript neither waits for the model nor pays the cost of a cold first decode.
+//
+// Runs on its own thread at background priority. The model is preloaded in the given modelCache
+// at background priority as well, so instances opening it share the loaded copy, and stays loaded
+// until unloaded. Once loaded, WARM_UP_SECONDS of quiet synthetic noise are fed through a
+// recognizer from the given recognizerPool, which pages in the model and fills the caches the
+// decoder uses. The recognizer is then released to the pool, where the first transcript finds it
+// ready while it stays idle. Load and warm-up timings are kept for the report.
+class ModelWarmUp implements Runnable {
+    private static final double WARM_UP_SECONDS = 1.0;
+    private static final double BUFFER_SECONDS = 0.2;
+    private static final int NOISE_AMPLITUDE = 300; // Of 16 bit samples, well below speech.
+    private static final long NOISE_SEED = 0;
+
+    // States of the warm-up, reported by their index.
+    public static final int LOADING = 0;
+    public static final int WARMING_UP = 1;
+    public static final int READY = 2;
+    public static final int FAILED = 3;
+
+    private final ModelCache modelCache;
+    private final RecognizerPool recognizerPool;
+    private final String modelPath;
+
+    private int state = LOADING;
+    private long loadTime = 0; // Nanoseconds from the start until the model was loaded.
+    private long warmUpTime = 0; // Nanoseconds spent decoding the synthetic audio.
+
+    public ModelWarmUp(ModelCache modelCache, RecognizerPool recognizerPool, String modelPath) {
+        this.modelCache = modelCache;
+        this.recognizerPool = recognizerPool;
+        this.modelPath = modelPath;
+    }
+
+    // Starts the warm-up on a new thread.
+    public void start() {
+        new Thread(this, "vosk_warm_up").start();
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+        long startTime = System.nanoTime();
+        modelCache.preload(modelPath, true);
+        Future<Model> modelFuture = modelCache.acquire(modelPath);
+
+        try {
+            if (modelFuture.get() == null) {
+                setState(FAILED);
+                return;
+            }
+
+            long loadedTime = System.nanoTime();
+            setLoadTime(loadedTime - startTime);
+
+            int sampleRate = ModelCache.sampleRateOf(modelFuture.get());
+            Recognizer recognizer = recognizerPool.acquire(modelFuture.get(), sampleRate);
+            decodeNoise(recognizer, sampleRate);
+            recognizerPool.release(recognizer);
+
+            setWarmUpTime(System.nanoTime() - loadedTime);
+        }
+        catch (ExecutionException | InterruptedException e) {
+            System.out.println("Unable to finish opening the given model.");
+            setState(FAILED);
+        }
+        finally {
+            modelCache.release(modelPath);
+        }
+    }
+
+    // Returns the state and timings of the warm-up in milliseconds, as sent to dart.
+    public synchronized HashMap<String, Object> getReport() {
+        HashMap<String, Object> report = new HashMap<String, Object>();
+        report.put("modelPath", modelPath);
+        report.put("state", state);
+        report.put("loadTime", loadTime / 1e6);
+        report.put("warmUpTime", warmUpTime / 1e6);
+        return report;
+    }
+
+    // Feeds WARM_UP_SECONDS of noise to the given recognizer in buffers, as a transcript would.
+    private static void decodeNoise(Recognizer recognizer, int sampleRate) {
+        Random random = new Random(NOISE_SEED);
+        byte[] buffer = new byte[(int) (sampleRate * BUFFER_SECONDS) * 2];
+        int bufferCount = (int) Math.round(WARM_UP_SECONDS / BUFFER_SECONDS);
+
+        for (int i = 0; i < bufferCount; i++) {
+            for (int offset = 0; offset < buffer.length; offset += 2) {
+                int sample = random.nextInt(2 * NOISE_AMPLITUDE + 1) - NOISE_AMPLITUDE;
+                buffer[offset] = (byte) sample;
+                buffer[offset + 1] = (byte) (sample >> 8);
+            }
+
+            if (recognizer.acceptWaveForm(buffer, buffer.length)) {
+                recognizer.getResult();
+            }
+            else {
+                recognizer.getPartialResult();
+            }
+        }
+
+        recognizer.getFinalResult();
+    }
+
+    private synchronized void setState(int state) {
+        this.state = state;
+    }
+
+    private synchronized void setLoadTime(long loadTime) {
+        this.loadTime = loadTime;
+        state = WARMING_UP;
+    }
+
+    private synchronized void setWarmUpTime(long warmUpTime) {
+        this.warmUpTime = warmUpTime;
+        state = READY;
+    }
+}
@@ -0,0 +1,87 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Replaces the text of partial result events by how it differs from the last partial result sent
+// for the same transcript, as partial results mostly grow by a word at a time.
+//
+// An encoded partial result holds textPrefix, the number of chars its text shares with the last
+// one sent, and textSuffix, the text that follows them, in place of text. Dart rebuilds the text
+// from the last partial it got, and a textPrefix of 0 needs no earlier partial. A partial result
+// that repeats both the text and the progress of the last one is not sent at all. Transcripts are
+// forgotten once their final result is sent, or once they are terminated. Only used in the main
+// thread.
+class PartialDiffer {
+    // Text and progress of the last partial result sent for a transcript.
+    private static class SentPartial {
+        String text;
+        Object progress;
+    }
+
+    private final HashMap<Object, SentPartial> sentPartials = new HashMap<Object, SentPartial>();
+
+    // Encodes the given event if it is a partial result, returning false if it need not be sent.
+    //
+    // Must be called on every event sent, in order.
+    public boolean encode(Map<String, Object> event) {
+        Object resultType = event.get("resultType");
+
+        if (resultType == null) {
+            return true;
+        }
+
+        Object transcriptPath = event.get("transcriptPath");
+
+        if (resultType.equals(TranscribeTask.FINAL_RESULT)) {
+            sentPartials.remove(transcriptPath);
+            return true;
+        }
+        if (!resultType.equals(TranscribeTask.PARTIAL)) {
+            return true;
+        }
+
+        String text = (String) event.remove("text");
+        Object progress = event.get("progress");
+        SentPartial sentPartial = sentPartials.get(transcriptPath);
+
+        if (sentPartial == null) {
+            sentPartial = new SentPartial();
+            sentPartial.text = "";
+            sentPartials.put(transcriptPath, sentPartial);
+        }
+        else if (text.equals(sentPartial.text) && progress.equals(sentPartial.progress)) {
+            return false;
+        }
+
+        int prefix = commonPrefixLength(sentPartial.text, text);
+        event.put("textPrefix", prefix);
+        event.put("textSuffix", text.substring(prefix));
+
+        sentPartial.text = text;
+        sentPartial.progress = progress;
+        return true;
+    }
+
+    // Forgets the partial results sent for the transcript at the given transcriptPath, so the next
+    // one is sent whole.
+    public void forget(Object transcriptPath) {
+        sentPartials.remove(transcriptPath);
+    }
+
+    // Forgets all sent partial results, so the next ones are sent whole. Called when events were
+    // dropped instead of sent.
+    public void reset() {
+        sentPartials.clear();
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,109 @@
+package com.voice_scribe.vosk_dart;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// A recognizer that a RecognizerPool keeps between transcripts.
+//
+// A recognizer times its results from the first audio it was ever fed, even across final results.
+// The audio fed to it is counted, so that the results of each transcript can be moved back by the
+// audio fed before the transcript began, its time offset. Used by one thread at a time.
+//
+// A recognizer restricted to a grammar only decodes the phrases of the grammar, given as a JSON
+// array of phrases, which builds a far smaller decoding graph than the full vocabulary.
+class PooledRecognizer extends Recognizer {
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    private final Model model;
+    private final int sampleRate;
+    private final String grammar; // Null for the full vocabulary.
+    private boolean words = false; // Whether results hold word results.
+
+    private long bytesAccepted = 0; // Since the recognizer was created.
+    private double timeOffset = 0.0; // Seconds fed before the current transcript.
+    private boolean finalized = true; // Whether no audio was fed since the last final result.
+    private long releaseTime; // Of the last release, in nanoseconds. Guarded by the pool.
+
+    public PooledRecognizer(Model model, int sampleRate) {
+        super(model, sampleRate);
+        this.model = model;
+        this.sampleRate = sampleRate;
+        this.grammar = null;
+    }
+
+    public PooledRecognizer(Model model, int sampleRate, String grammar) {
+        super(model, sampleRate, grammar);
+        this.model = model;
+        this.sampleRate = sampleRate;
+        this.grammar = grammar;
+    }
+
+    // Returns the time offset of the given recognizer, 0 if it is not pooled.
+    public static double timeOffsetOf(Recognizer recognizer) {
+        if (recognizer instanceof PooledRecognizer) {
+            return ((PooledRecognizer) recognizer).timeOffset;
+        }
+        return 0.0;
+    }
+
+    // Returns the sample rate the given recognizer was created with, ModelCache.DEFAULT_SAMPLE_RATE
+    // if it is not pooled.
+    public static int sampleRateOf(Recognizer recognizer) {
+        if (recognizer instanceof PooledRecognizer) {
+            return ((PooledRecognizer) recognizer).sampleRate;
+        }
+        return ModelCache.DEFAULT_SAMPLE_RATE;
+    }
+
+    @Override
+    public boolean acceptWaveForm(byte[] data, int length) {
+        bytesAccepted += length;
+        finalized = false;
+        return super.acceptWaveForm(data, length);
+    }
+
+    @Override
+    public void setWords(boolean words) {
+        this.words = words;
+        super.setWords(words);
+    }
+
+    @Override
+    public String getFinalResult() {
+        finalized = true;
+        return super.getFinalResult();
+    }
+
+    // Returns true if the recognizer was created from the given model at the given sampleRate,
+    // restricted to the given grammar, or to none if null, with the given word output.
+    public boolean belongsTo(Model model, int sampleRate, String grammar, boolean words) {
+        return this.model == model && this.sampleRate == sampleRate &&
+                (grammar == null ? this.grammar == null : grammar.equals(this.grammar)) &&
+                this.words == words;
+    }
+
+    // Starts timing results from the audio fed next.
+    public void startTranscript() {
+        timeOffset = (double) bytesAccepted / ((long) sampleRate * BYTES_PER_SAMPLE);
+    }
+
+    // Takes the final result unless already taken, which resets the recognizer for the next
+    // transcript.
+    public void finish() {
+        if (!finalized) {
+            getFinalResult();
+        }
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public long getReleaseTime() {
+        return releaseTime;
+    }
+
+    public void setReleaseTime(long releaseTime) {
+        this.releaseTime = releaseTime;
+    }
+}
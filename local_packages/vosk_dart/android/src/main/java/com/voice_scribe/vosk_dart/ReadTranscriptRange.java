@@ -0,0 +1,56 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+// A task given to a thread. Reads the words in a time range from the index of the given
+// transcript, replying to the given method call result in the main thread.
+class ReadTranscriptRange implements Runnable {
+    private final String transcriptPath;
+    private final double start;
+    private final double end;
+    private final Result result;
+    private final Handler mainHandler;
+
+    public ReadTranscriptRange(
+            String transcriptPath, double start, double end, Result result, Handler mainHandler
+    ) {
+        this.transcriptPath = transcriptPath;
+        this.start = start;
+        this.end = end;
+        this.result = result;
+        this.mainHandler = mainHandler;
+    }
+
+    @Override
+    public void run() {
+        try {
+            WordResults wordResults = TranscriptIndexReader.read(transcriptPath, start, end);
+
+            final HashMap<String, Object> range = new HashMap<String, Object>();
+            range.put("words", wordResults.copyWords());
+            range.put("starts", wordResults.copyStarts());
+            range.put("ends", wordResults.copyEnds());
+            range.put("confidences", wordResults.copyConfidences());
+
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    result.success(range);
+                }
+            });
+        }
+        catch (IOException e) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    result.error("IndexError", "Transcript index could not be read", null);
+                }
+            });
+        }
+    }
+}
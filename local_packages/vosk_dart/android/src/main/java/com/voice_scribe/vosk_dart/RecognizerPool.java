@@ -0,0 +1,197 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// Plugin wide pool of recognizers kept between transcripts, keyed by their model, sample rate,
+// grammar and word output.
+//
+// Creating a recognizer builds its decoder from the model, which for short clips can take longer
+// than decoding them, and a grammar recognizer also compiles its grammar. A released recognizer is
+// instead reset by taking its final result and kept idle for the next transcript with the same
+// key. At most maxIdle recognizers are
+// kept, the least recently released being closed first, and recognizers idle for longer than
+// idleTimeout are closed. Idle recognizers of a model are closed as the model cache closes it.
+class RecognizerPool {
+    public static final int DEFAULT_MAX_IDLE = 2;
+    public static final long DEFAULT_IDLE_TIMEOUT = 60000; // In milliseconds.
+
+    private final ScheduledExecutorService sweeper; // Thread that closes expired recognizers.
+
+    // Idle recognizers, least recently released first.
+    private final ArrayDeque<PooledRecognizer> idle = new ArrayDeque<PooledRecognizer>();
+
+    private int maxIdle = DEFAULT_MAX_IDLE;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private boolean closed = false;
+
+    // Closes the recognizers that have been idle for longer than idleTimeout.
+    private final Runnable sweep = new Runnable() {
+        @Override
+        public void run() {
+            closeAll(takeExpired());
+        }
+    };
+
+    public RecognizerPool() {
+        sweeper = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    // Returns the most recently released idle recognizer of the given model and sampleRate for the
+    // full vocabulary with words enabled, or a new one if none is idle. Results are timed from the
+    // audio fed next.
+    public PooledRecognizer acquire(Model model, int sampleRate) {
+        return acquire(model, sampleRate, null, true);
+    }
+
+    // As above, for a recognizer restricted to the given grammar, a JSON array of phrases, unless
+    // null, with word results in its results if words is true.
+    public PooledRecognizer acquire(Model model, int sampleRate, String grammar, boolean words) {
+        PooledRecognizer recognizer = takeIdle(model, sampleRate, grammar, words);
+
+        if (recognizer == null) {
+            recognizer = grammar == null
+                    ? new PooledRecognizer(model, sampleRate)
+                    : new PooledRecognizer(model, sampleRate, grammar);
+            recognizer.setWords(words);
+        }
+
+        recognizer.startTranscript();
+        return recognizer;
+    }
+
+    // Resets the given recognizer and keeps it idle, or closes it if the pool keeps none or is
+    // closed. Recognizers not acquired from a pool are closed.
+    public void release(Recognizer recognizer) {
+        if (!(recognizer instanceof PooledRecognizer)) {
+            recognizer.close();
+            return;
+        }
+
+        PooledRecognizer pooledRecognizer = (PooledRecognizer) recognizer;
+        pooledRecognizer.finish();
+
+        List<PooledRecognizer> evicted = new ArrayList<PooledRecognizer>();
+
+        synchronized (this) {
+            if (closed || maxIdle == 0) {
+                evicted.add(pooledRecognizer);
+            }
+            else {
+                pooledRecognizer.setReleaseTime(System.nanoTime());
+                idle.addLast(pooledRecognizer);
+                evicted.addAll(takeExcess());
+                sweeper.schedule(sweep, idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        closeAll(evicted);
+    }
+
+    // Sets the most recognizers kept idle and the milliseconds they are kept, closing the ones
+    // beyond the new limits.
+    public void setLimits(int maxIdle, long idleTimeout) {
+        List<PooledRecognizer> evicted;
+
+        synchronized (this) {
+            this.maxIdle = Math.max(maxIdle, 0);
+            this.idleTimeout = Math.max(idleTimeout, 0);
+            evicted = takeExcess();
+            evicted.addAll(takeExpired());
+
+            if (!closed && !idle.isEmpty()) {
+                sweeper.schedule(sweep, this.idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        closeAll(evicted);
+    }
+
+    // Closes the idle recognizers of the given model. Called before the model is closed.
+    public void evict(Model model) {
+        List<PooledRecognizer> evicted = new ArrayList<PooledRecognizer>();
+
+        synchronized (this) {
+            Iterator<PooledRecognizer> iterator = idle.iterator();
+
+            while (iterator.hasNext()) {
+                PooledRecognizer recognizer = iterator.next();
+
+                if (recognizer.getModel() == model) {
+                    iterator.remove();
+                    evicted.add(recognizer);
+                }
+            }
+        }
+
+        closeAll(evicted);
+    }
+
+    // Closes all idle recognizers. Recognizers released from now on are closed.
+    public void close() {
+        List<PooledRecognizer> evicted;
+
+        synchronized (this) {
+            closed = true;
+            evicted = new ArrayList<PooledRecognizer>(idle);
+            idle.clear();
+        }
+
+        closeAll(evicted);
+        sweeper.shutdownNow();
+    }
+
+    // Removes and returns the most recently released idle recognizer with the given key, or null if
+    // there is none.
+    private synchronized PooledRecognizer takeIdle(
+            Model model, int sampleRate, String grammar, boolean words
+    ) {
+        Iterator<PooledRecognizer> iterator = idle.descendingIterator();
+
+        while (iterator.hasNext()) {
+            PooledRecognizer recognizer = iterator.next();
+
+            if (recognizer.belongsTo(model, sampleRate, grammar, words)) {
+                iterator.remove();
+                return recognizer;
+            }
+        }
+        return null;
+    }
+
+    // Removes and returns the least recently released recognizers beyond maxIdle.
+    private synchronized List<PooledRecognizer> takeExcess() {
+        List<PooledRecognizer> excess = new ArrayList<PooledRecognizer>();
+
+        while (idle.size() > maxIdle) {
+            excess.add(idle.removeFirst());
+        }
+        return excess;
+    }
+
+    // Removes and returns the recognizers idle for idleTimeout or longer.
+    private synchronized List<PooledRecognizer> takeExpired() {
+        List<PooledRecognizer> expired = new ArrayList<PooledRecognizer>();
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+
+        while (!idle.isEmpty() && now - idle.peekFirst().getReleaseTime() >= timeout) {
+            expired.add(idle.removeFirst());
+        }
+        return expired;
+    }
+
+    private static void closeAll(List<PooledRecognizer> recognizers) {
+        for (PooledRecognizer recognizer : recognizers) {
+            recognizer.close();
+        }
+    }
+}
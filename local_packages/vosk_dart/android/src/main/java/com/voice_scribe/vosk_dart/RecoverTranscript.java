@@ -0,0 +1,45 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import java.io.IOException;
+
+// A task given to a thread. Rebuilds the given transcript from its journal, replying to the given
+// method call result in the main thread with the number of results recovered, or null if the
+// transcript has no journal.
+class RecoverTranscript implements Runnable {
+    private final String transcriptPath;
+    private final Result result;
+    private final Handler mainHandler;
+
+    public RecoverTranscript(String transcriptPath, Result result, Handler mainHandler) {
+        this.transcriptPath = transcriptPath;
+        this.result = result;
+        this.mainHandler = mainHandler;
+    }
+
+    @Override
+    public void run() {
+        try {
+            int count = TranscriptJournal.recover(transcriptPath, "UTF-8");
+            final Integer recovered = count < 0 ? null : count;
+
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    result.success(recovered);
+                }
+            });
+        }
+        catch (IOException e) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    result.error("FileError", "Transcript could not be recovered", null);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.voice_scribe.vosk_dart;
+
+// A task that is given to a thread. It releases the given model path from the model cache.
+//
+// Used instead of closing the model directly as other instances may still share it.
+class ReleaseModel implements Runnable {
+    private final ModelCache modelCache;
+    private final String modelPath;
+
+    public ReleaseModel(ModelCache modelCache, String modelPath) {
+        this.modelCache = modelCache;
+        this.modelPath = modelPath;
+    }
+
+    @Override
+    public void run() {
+        modelCache.release(modelPath);
+    }
+}
@@ -0,0 +1,33 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.vosk.Recognizer;
+
+// A task given to a thread. Releases the given recognizer future to the given recognizer pool.
+//
+// Used instead of closing the recognizer, so that it can be reused by a later transcript.
+class ReleaseRecognizer implements Runnable {
+    private final RecognizerPool recognizerPool;
+    private final Future<Recognizer> recognizerFuture;
+
+    public ReleaseRecognizer(RecognizerPool recognizerPool, Future<Recognizer> recognizerFuture) {
+        this.recognizerPool = recognizerPool;
+        this.recognizerFuture = recognizerFuture;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Recognizer recognizer = recognizerFuture.get();
+
+            if (recognizer != null) {
+                recognizerPool.release(recognizer);
+            }
+        }
+        catch (ExecutionException | InterruptedException e) {
+            System.out.println("Unable to finish opening the given recognizer.");
+        }
+    }
+}
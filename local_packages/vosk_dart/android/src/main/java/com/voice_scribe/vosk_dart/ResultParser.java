@@ -0,0 +1,369 @@
+package com.voice_scribe.vosk_dart;
+
+import org.json.JSONException;
+
+// Parses the JSON results of a recognizer into WordResults in a single pass.
+//
+// Only the fields used by the plugin are kept, any others are skipped without building them. Meant
+// to be reused by a single thread, as the returned WordResults is overwritten by the next parse.
+class ResultParser {
+    // Keys of interest.
+    private static final int UNKNOWN = 0;
+    private static final int RESULT = 1;
+    private static final int TEXT = 2;
+    private static final int PARTIAL = 3;
+    private static final int WORD = 4;
+    private static final int START = 5;
+    private static final int END = 6;
+    private static final int CONF = 7;
+
+    private static final String[] KEYS = {
+            null, "result", "text", "partial", "word", "start", "end", "conf"
+    };
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final WordResults wordResults = new WordResults();
+    private final StringBuilder scratch = new StringBuilder(); // For strings with escapes.
+
+    private String json;
+    private int position;
+
+    // Parses the given recognizer result, returning the reused word results.
+    //
+    // If the given json is not a valid recognizer result, a JSONException is thrown.
+    public WordResults parse(String json) throws JSONException {
+        this.json = json;
+        this.position = 0;
+
+        wordResults.clear();
+
+        try {
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    int key = readKey();
+                    expect(':');
+
+                    if (key == RESULT) {
+                        parseWordResults();
+                    }
+                    else if (key == TEXT) {
+                        wordResults.setText(readString(), false);
+                    }
+                    else if (key == PARTIAL) {
+                        wordResults.setText(readString(), true);
+                    }
+                    else {
+                        skipValue();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+        }
+        finally {
+            this.json = null;
+        }
+
+        return wordResults;
+    }
+
+    // Parses an array of word result objects.
+    private void parseWordResults() throws JSONException {
+        expect('[');
+        if (consume(']')) {
+            return;
+        }
+
+        do {
+            String word = "";
+            double start = 0;
+            double end = 0;
+            double confidence = 0;
+
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    int key = readKey();
+                    expect(':');
+
+                    if (key == WORD) {
+                        word = readString();
+                    }
+                    else if (key == START) {
+                        start = readNumber();
+                    }
+                    else if (key == END) {
+                        end = readNumber();
+                    }
+                    else if (key == CONF) {
+                        confidence = readNumber();
+                    }
+                    else {
+                        skipValue();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+
+            wordResults.add(word, start, end, confidence);
+        } while (consume(','));
+
+        expect(']');
+    }
+
+    // Reads an object key, returning which of the keys of interest it is without allocating.
+    private int readKey() throws JSONException {
+        skipWhitespace();
+        if (position >= json.length() || json.charAt(position) != '"') {
+            throw error("Expected key");
+        }
+
+        for (int key = 1; key < KEYS.length; key++) {
+            String name = KEYS[key];
+            int end = position + 1 + name.length();
+
+            if (json.regionMatches(position + 1, name, 0, name.length()) &&
+                    end < json.length() &&
+                    json.charAt(end) == '"') {
+                position = end + 1;
+                return key;
+            }
+        }
+
+        skipString();
+        return UNKNOWN;
+    }
+
+    // Reads a string value, decoding any escape sequences.
+    private String readString() throws JSONException {
+        expect('"');
+
+        int start = position;
+        while (position < json.length()) {
+            char c = json.charAt(position);
+
+            if (c == '"') {
+                return json.substring(start, position++);
+            }
+            if (c == '\\') {
+                scratch.setLength(0);
+                scratch.append(json, start, position);
+                return readEscapedString();
+            }
+            position++;
+        }
+
+        throw error("Unterminated string");
+    }
+
+    // Reads the rest of a string that contains escape sequences into the scratch buffer.
+    private String readEscapedString() throws JSONException {
+        while (position < json.length()) {
+            char c = json.charAt(position++);
+
+            if (c == '"') {
+                return scratch.toString();
+            }
+            if (c != '\\') {
+                scratch.append(c);
+                continue;
+            }
+            if (position >= json.length()) {
+                break;
+            }
+
+            char escaped = json.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                    scratch.append('\b');
+                    break;
+                case 'f':
+                    scratch.append('\f');
+                    break;
+                case 'n':
+                    scratch.append('\n');
+                    break;
+                case 'r':
+                    scratch.append('\r');
+                    break;
+                case 't':
+                    scratch.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > json.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        scratch.append((char) Integer.parseInt(
+                                json.substring(position, position + 4), 16
+                        ));
+                    }
+                    catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    scratch.append(escaped);
+            }
+        }
+
+        throw error("Unterminated string");
+    }
+
+    // Reads a number. Plain decimals are computed directly, others are left to Double.
+    private double readNumber() throws JSONException {
+        skipWhitespace();
+        int start = position;
+
+        boolean negative = consume('-');
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+
+        while (position < json.length() && isDigit(json.charAt(position))) {
+            mantissa = mantissa * 10 + (json.charAt(position++) - '0');
+            digits++;
+        }
+        if (position < json.length() && json.charAt(position) == '.') {
+            position++;
+            while (position < json.length() && isDigit(json.charAt(position))) {
+                mantissa = mantissa * 10 + (json.charAt(position++) - '0');
+                digits++;
+                fractionDigits++;
+            }
+        }
+
+        boolean exponent = position < json.length() &&
+                (json.charAt(position) == 'e' || json.charAt(position) == 'E');
+
+        if (digits == 0) {
+            throw error("Expected number");
+        }
+        if (!exponent && digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits]; // Exact, so correctly rounded.
+            return negative ? -value : value;
+        }
+
+        skipLiteral();
+        try {
+            return Double.parseDouble(json.substring(start, position));
+        }
+        catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+    }
+
+    // Skips any value.
+    private void skipValue() throws JSONException {
+        skipWhitespace();
+        if (position >= json.length()) {
+            throw error("Expected value");
+        }
+
+        char c = json.charAt(position);
+
+        if (c == '"') {
+            skipString();
+        }
+        else if (c == '{' || c == '[') {
+            skipNested();
+        }
+        else {
+            skipLiteral();
+        }
+    }
+
+    private void skipString() throws JSONException {
+        expect('"');
+
+        while (position < json.length()) {
+            char c = json.charAt(position++);
+
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                position++;
+            }
+        }
+
+        throw error("Unterminated string");
+    }
+
+    // Skips an object or array, including anything nested in it.
+    private void skipNested() throws JSONException {
+        int depth = 0;
+
+        do {
+            char c = json.charAt(position);
+
+            if (c == '"') {
+                skipString();
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            }
+            else if (c == '}' || c == ']') {
+                depth--;
+            }
+            position++;
+        } while (depth > 0 && position < json.length());
+
+        if (depth > 0) {
+            throw error("Unterminated value");
+        }
+    }
+
+    // Skips a number or a true, false or null literal.
+    private void skipLiteral() {
+        while (position < json.length()) {
+            char c = json.charAt(position);
+
+            if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private void expect(char expected) throws JSONException {
+        if (!consume(expected)) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    // Skips whitespace and the given character if it is next, returning true if it was.
+    private boolean consume(char expected) {
+        skipWhitespace();
+
+        if (position < json.length() && json.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private JSONException error(String message) {
+        return new JSONException(message + " at position " + position + ".");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
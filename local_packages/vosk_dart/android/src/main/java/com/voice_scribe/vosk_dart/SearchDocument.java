@@ -0,0 +1,75 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+// The words of a transcript with the times they start at, collected as its results are written so
+// the transcript can be added to the search index once finished.
+class SearchDocument {
+    private final String transcriptPath;
+    private final HashMap<String, Occurrences> terms = new HashMap<String, Occurrences>();
+    private int wordCount = 0;
+
+    public SearchDocument(String transcriptPath) {
+        this.transcriptPath = transcriptPath;
+    }
+
+    // Adds the words of the given result.
+    public void add(WordResults result) {
+        for (int i = 0; i < result.size(); i++) {
+            String term = normalize(result.getWord(i));
+            Occurrences occurrences = terms.get(term);
+
+            if (occurrences == null) {
+                occurrences = new Occurrences();
+                terms.put(term, occurrences);
+            }
+            occurrences.add((float) result.getStart(i));
+            wordCount++;
+        }
+    }
+
+    public String getTranscriptPath() {
+        return transcriptPath;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    // Returns the distinct terms of the transcript in ascending order.
+    public String[] sortedTerms() {
+        String[] sorted = terms.keySet().toArray(new String[0]);
+        Arrays.sort(sorted, SearchSegment.TERM_ORDER);
+        return sorted;
+    }
+
+    // Returns the start times of the given term in seconds, of which only the first
+    // occurrenceCount are set.
+    public float[] startsOf(String term) {
+        return terms.get(term).starts;
+    }
+
+    public int occurrenceCount(String term) {
+        return terms.get(term).count;
+    }
+
+    // Returns the given word or query word as it is indexed.
+    static String normalize(String word) {
+        return word.toLowerCase(Locale.ROOT);
+    }
+
+    // Start times of a single term, in the order said.
+    private static class Occurrences {
+        float[] starts = new float[4];
+        int count = 0;
+
+        void add(float start) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = start;
+        }
+    }
+}
@@ -0,0 +1,580 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+// Plugin wide inverted index from the words of finished transcripts to the transcripts and times
+// they were said at, kept in the given directory, so transcripts can be searched without reading
+// them.
+//
+// The index is made of immutable segments. Each transcript added becomes a segment of its own, and
+// once there are more than MAX_SEGMENTS, the MERGE_FACTOR smallest are merged into one, leaving
+// out removed transcripts, so a query looks up each word in a few segments however many
+// transcripts were added. Removing a transcript only marks its document in the manifest, and a
+// segment whose documents are all removed is dropped. The manifest lists the segments and their
+// removed documents, and is replaced by renaming a complete copy over it, so after a crash the
+// index is as of the last change that completed. Files it does not list are deleted on load.
+//
+// Changes run in order on a thread of their own. Queries read the segments as of their start
+// without locking, and may run on any thread.
+class SearchIndex {
+    private static final String MANIFEST = "manifest";
+    private static final int MANIFEST_MAGIC = 0x5653534D; // "VSSM"
+    private static final short MANIFEST_VERSION = 1;
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MERGE_FACTOR = 8;
+    private static final int MAX_STARTS_PER_TERM = 32; // Start times returned per word and hit.
+
+    private final File directory;
+    private final ExecutorService writerService = Executors.newSingleThreadExecutor();
+    private final Future<?> loaded; // Done once the manifest was read.
+
+    private volatile Segment[] segments = new Segment[0]; // Replaced as a whole on every change.
+    private int nextSegmentNumber = 0; // Only used on the writer thread.
+
+    public SearchIndex(File directory) {
+        this.directory = directory;
+        loaded = writerService.submit(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    // Adds the given finished transcript to the index, replacing any earlier transcript at the
+    // same path. Transcripts finished after the index was closed are not added.
+    public void add(final SearchDocument document) {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                addDocument(document);
+            }
+        });
+    }
+
+    // Removes the transcript at the given path from the index, if it was added.
+    public void remove(final String transcriptPath) {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                removeDocument(transcriptPath);
+            }
+        });
+    }
+
+    // Returns up to maxHits transcripts holding any of the words of the given query, best first.
+    //
+    // Each hit is ranked by tf-idf, the sum over the query words it holds of (1 + ln occurrences)
+    // times ln(1 + transcripts / transcripts holding the word), and holds the transcriptPath, the
+    // score, and the sorted start times in seconds of up to MAX_STARTS_PER_TERM occurrences of
+    // each word, as sent to dart.
+    //
+    // Throws an IOException if the index could not be loaded.
+    public List<HashMap<String, Object>> search(String query, int maxHits) throws IOException {
+        try {
+            loaded.get();
+        }
+        catch (ExecutionException | InterruptedException e) {
+            throw new IOException("Search index could not be loaded.");
+        }
+
+        Segment[] snapshot = segments;
+        int documentCount = 0;
+        for (Segment segment : snapshot) {
+            documentCount += segment.liveCount;
+        }
+
+        HashMap<Long, Hit> hits = new HashMap<Long, Hit>();
+        SearchSegmentReader.Postings[] postings =
+                new SearchSegmentReader.Postings[snapshot.length];
+
+        for (String term : termsOf(query)) {
+            int documentFrequency = 0;
+
+            for (int i = 0; i < snapshot.length; i++) {
+                postings[i] = snapshot[i].reader.find(term);
+
+                while (postings[i] != null && postings[i].next()) {
+                    if (!snapshot[i].removed.get(postings[i].getDocument())) {
+                        documentFrequency++;
+                    }
+                }
+            }
+
+            if (documentFrequency == 0) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (double) documentCount / documentFrequency);
+
+            for (int i = 0; i < snapshot.length; i++) {
+                if (postings[i] != null) {
+                    score(snapshot[i], i, postings[i], idf, hits);
+                }
+            }
+        }
+
+        ArrayList<Hit> ranked = new ArrayList<Hit>(hits.values());
+        Collections.sort(ranked, new Comparator<Hit>() {
+            @Override
+            public int compare(Hit a, Hit b) {
+                return Double.compare(b.score, a.score);
+            }
+        });
+
+        ArrayList<HashMap<String, Object>> results = new ArrayList<HashMap<String, Object>>();
+        for (int i = 0; i < Math.min(maxHits, ranked.size()); i++) {
+            results.add(ranked.get(i).toMap());
+        }
+        return results;
+    }
+
+    // Returns a future done once the changes given so far are done.
+    public Future<?> changesDone() {
+        return writerService.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    // Finishes the changes given so far, then stops taking changes.
+    public void close() {
+        writerService.shutdown();
+    }
+
+    private void submit(Runnable change) {
+        try {
+            writerService.submit(change);
+        }
+        catch (RejectedExecutionException e) {
+            System.out.println("Search index is closed, could not change it.");
+        }
+    }
+
+    // Adds the score of the given term postings of the segment at the given index to the hits.
+    private static void score(
+            Segment segment,
+            int index,
+            SearchSegmentReader.Postings postings,
+            double idf,
+            HashMap<Long, Hit> hits
+    ) {
+        postings.rewind();
+
+        while (postings.next()) {
+            int document = postings.getDocument();
+            if (segment.removed.get(document)) {
+                continue;
+            }
+
+            long key = ((long) index << 32) | document;
+            Hit hit = hits.get(key);
+
+            if (hit == null) {
+                hit = new Hit(segment.reader.getTranscriptPath(document));
+                hits.put(key, hit);
+            }
+
+            int occurrenceCount = postings.getOccurrenceCount();
+            hit.score += (1.0 + Math.log(occurrenceCount)) * idf;
+
+            for (int i = 0; i < Math.min(occurrenceCount, MAX_STARTS_PER_TERM); i++) {
+                hit.addStart(postings.getStart(i));
+            }
+        }
+    }
+
+    // Returns the distinct words of the given query as they are indexed.
+    private static LinkedHashSet<String> termsOf(String query) {
+        LinkedHashSet<String> terms = new LinkedHashSet<String>();
+
+        for (String word : query.trim().split("\\s+")) {
+            if (!word.isEmpty()) {
+                terms.add(SearchDocument.normalize(word));
+            }
+        }
+        return terms;
+    }
+
+    // Reads the manifest and opens the segments it lists, then deletes any other files.
+    private void load() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.println("IO error, could not create search index directory.");
+            return;
+        }
+
+        try {
+            segments = readManifest();
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not read search index, starting a new one.");
+            segments = new Segment[0];
+        }
+
+        HashSet<String> listed = new HashSet<String>();
+        listed.add(MANIFEST);
+        for (Segment segment : segments) {
+            listed.add(SearchSegment.fileOf(directory, segment.reader.getNumber()).getName());
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!listed.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private void addDocument(SearchDocument document) {
+        Segment[] current = withRemoved(segments, document.getTranscriptPath());
+        ArrayList<Segment> changed = new ArrayList<Segment>(Arrays.asList(current));
+        ArrayList<Segment> obsolete = new ArrayList<Segment>();
+
+        try {
+            changed.add(writeSegment(document));
+
+            while (changed.size() > MAX_SEGMENTS) {
+                List<Segment> smallest = smallestSegments(changed);
+                changed.add(merge(smallest));
+                changed.removeAll(smallest);
+                obsolete.addAll(smallest);
+            }
+
+            dropRemoved(changed, obsolete);
+            publish(changed.toArray(new Segment[0]), obsolete);
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not add transcript to search index.");
+        }
+    }
+
+    private void removeDocument(String transcriptPath) {
+        ArrayList<Segment> changed = new ArrayList<Segment>(
+                Arrays.asList(withRemoved(segments, transcriptPath))
+        );
+        ArrayList<Segment> obsolete = new ArrayList<Segment>();
+
+        try {
+            dropRemoved(changed, obsolete);
+            publish(changed.toArray(new Segment[0]), obsolete);
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not remove transcript from search index.");
+        }
+    }
+
+    // Writes the given document as a new segment.
+    private Segment writeSegment(SearchDocument document) throws IOException {
+        int number = nextSegmentNumber++;
+        SearchSegmentWriter writer = new SearchSegmentWriter(
+                SearchSegment.fileOf(directory, number)
+        );
+
+        int documentNumber = writer.addDocument(
+                document.getTranscriptPath(), document.getWordCount()
+        );
+        for (String term : document.sortedTerms()) {
+            writer.startTerm(term);
+            writer.addPosting(
+                    documentNumber, document.startsOf(term), document.occurrenceCount(term)
+            );
+            writer.finishTerm();
+        }
+        writer.close();
+
+        return new Segment(SearchSegmentReader.open(directory, number), new BitSet());
+    }
+
+    // Merges the given segments into a new segment, leaving out their removed documents.
+    //
+    // The terms of the segments are read side by side in ascending order, so only the current
+    // term of each is held in memory.
+    private Segment merge(List<Segment> merged) throws IOException {
+        int number = nextSegmentNumber++;
+        SearchSegmentWriter writer = new SearchSegmentWriter(
+                SearchSegment.fileOf(directory, number)
+        );
+
+        int count = merged.size();
+        int[][] documentMaps = new int[count][]; // New document numbers, -1 if removed.
+        SearchSegmentReader.Terms[] terms = new SearchSegmentReader.Terms[count];
+        String[] currentTerms = new String[count]; // Null once a segment has no terms left.
+
+        for (int i = 0; i < count; i++) {
+            Segment segment = merged.get(i);
+            SearchSegmentReader reader = segment.reader;
+            documentMaps[i] = new int[reader.getDocumentCount()];
+
+            for (int document = 0; document < reader.getDocumentCount(); document++) {
+                documentMaps[i][document] = segment.removed.get(document)
+                        ? -1
+                        : writer.addDocument(
+                                reader.getTranscriptPath(document), reader.getWordCount(document)
+                        );
+            }
+
+            terms[i] = reader.terms();
+            currentTerms[i] = terms[i].next() ? terms[i].term() : null;
+        }
+
+        float[] starts = new float[64];
+
+        while (true) {
+            String term = null;
+            for (String currentTerm : currentTerms) {
+                if (currentTerm != null &&
+                        (term == null || SearchSegment.TERM_ORDER.compare(currentTerm, term) < 0)) {
+                    term = currentTerm;
+                }
+            }
+            if (term == null) {
+                break;
+            }
+
+            writer.startTerm(term);
+
+            for (int i = 0; i < count; i++) {
+                if (!term.equals(currentTerms[i])) {
+                    continue;
+                }
+
+                SearchSegmentReader.Postings postings = terms[i].postings();
+                while (postings.next()) {
+                    int document = documentMaps[i][postings.getDocument()];
+                    if (document == -1) {
+                        continue;
+                    }
+
+                    int occurrenceCount = postings.getOccurrenceCount();
+                    if (starts.length < occurrenceCount) {
+                        starts = new float[occurrenceCount];
+                    }
+                    for (int j = 0; j < occurrenceCount; j++) {
+                        starts[j] = postings.getStart(j);
+                    }
+                    writer.addPosting(document, starts, occurrenceCount);
+                }
+
+                currentTerms[i] = terms[i].next() ? terms[i].term() : null;
+            }
+
+            writer.finishTerm();
+        }
+        writer.close();
+
+        return new Segment(SearchSegmentReader.open(directory, number), new BitSet());
+    }
+
+    // Returns the MERGE_FACTOR segments of the given segments with the fewest bytes of documents
+    // that were not removed.
+    private static List<Segment> smallestSegments(List<Segment> segments) {
+        ArrayList<Segment> sorted = new ArrayList<Segment>(segments);
+        Collections.sort(sorted, new Comparator<Segment>() {
+            @Override
+            public int compare(Segment a, Segment b) {
+                return Double.compare(a.liveSize(), b.liveSize());
+            }
+        });
+        return sorted.subList(0, MERGE_FACTOR);
+    }
+
+    // Returns the given segments with the documents of the given transcript marked removed.
+    private static Segment[] withRemoved(Segment[] segments, String transcriptPath) {
+        Segment[] changed = segments.clone();
+
+        for (int i = 0; i < changed.length; i++) {
+            SearchSegmentReader reader = changed[i].reader;
+            BitSet removed = null;
+
+            for (int document = 0; document < reader.getDocumentCount(); document++) {
+                if (!changed[i].removed.get(document) &&
+                        reader.getTranscriptPath(document).equals(transcriptPath)) {
+                    if (removed == null) {
+                        removed = (BitSet) changed[i].removed.clone();
+                    }
+                    removed.set(document);
+                }
+            }
+
+            if (removed != null) {
+                changed[i] = new Segment(reader, removed);
+            }
+        }
+
+        return changed;
+    }
+
+    // Moves the segments whose documents are all removed to obsolete.
+    private static void dropRemoved(List<Segment> segments, List<Segment> obsolete) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (segments.get(i).liveCount == 0) {
+                obsolete.add(segments.remove(i));
+            }
+        }
+    }
+
+    // Writes the manifest listing the given segments and makes them the segments queried, then
+    // deletes the files of the obsolete segments.
+    private void publish(Segment[] changed, List<Segment> obsolete) throws IOException {
+        writeManifest(changed);
+        segments = changed;
+
+        for (Segment segment : obsolete) {
+            SearchSegment.fileOf(directory, segment.reader.getNumber()).delete();
+        }
+    }
+
+    // Reads the manifest of the index, returning no segments if there is none.
+    //
+    // Layout:
+    //     int magic, short version, int next segment number, int segment count
+    // followed per segment by:
+    //     int number, int removed count, int removed document * removed count
+    private Segment[] readManifest() throws IOException {
+        File file = new File(directory, MANIFEST);
+        if (!file.exists()) {
+            return new Segment[0];
+        }
+
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file))
+        );
+
+        try {
+            if (input.readInt() != MANIFEST_MAGIC || input.readShort() != MANIFEST_VERSION) {
+                throw new IOException("Not a search index manifest.");
+            }
+
+            nextSegmentNumber = input.readInt();
+            Segment[] listed = new Segment[input.readInt()];
+
+            for (int i = 0; i < listed.length; i++) {
+                SearchSegmentReader reader = SearchSegmentReader.open(directory, input.readInt());
+                BitSet removed = new BitSet(reader.getDocumentCount());
+
+                int removedCount = input.readInt();
+                for (int j = 0; j < removedCount; j++) {
+                    removed.set(input.readInt());
+                }
+                listed[i] = new Segment(reader, removed);
+            }
+
+            return listed;
+        }
+        catch (EOFException e) {
+            throw new IOException("Search index manifest ended unexpectedly.");
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    // Replaces the manifest with one listing the given segments.
+    private void writeManifest(Segment[] listed) throws IOException {
+        File temporary = new File(directory, MANIFEST + ".tmp");
+        FileOutputStream output = new FileOutputStream(temporary);
+
+        try {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+            data.writeInt(MANIFEST_MAGIC);
+            data.writeShort(MANIFEST_VERSION);
+            data.writeInt(nextSegmentNumber);
+            data.writeInt(listed.length);
+
+            for (Segment segment : listed) {
+                data.writeInt(segment.reader.getNumber());
+                data.writeInt(segment.removed.cardinality());
+
+                for (int document = segment.removed.nextSetBit(0);
+                        document >= 0;
+                        document = segment.removed.nextSetBit(document + 1)) {
+                    data.writeInt(document);
+                }
+            }
+
+            data.flush();
+            output.getFD().sync();
+        }
+        finally {
+            output.close();
+        }
+
+        if (!temporary.renameTo(new File(directory, MANIFEST))) {
+            throw new IOException("Could not replace search index manifest.");
+        }
+    }
+
+    // An open segment and its removed documents. Never changed once published, a removal
+    // replaces it with a copy.
+    private static class Segment {
+        final SearchSegmentReader reader;
+        final BitSet removed;
+        final int liveCount; // Documents not removed.
+
+        Segment(SearchSegmentReader reader, BitSet removed) {
+            this.reader = reader;
+            this.removed = removed;
+            liveCount = reader.getDocumentCount() - removed.cardinality();
+        }
+
+        // Bytes of the segment, scaled by the share of documents not removed.
+        double liveSize() {
+            return (double) reader.getSize() * liveCount / reader.getDocumentCount();
+        }
+    }
+
+    // A transcript matching a query.
+    private static class Hit {
+        final String transcriptPath;
+        double score = 0;
+        double[] starts = new double[8];
+        int startCount = 0;
+
+        Hit(String transcriptPath) {
+            this.transcriptPath = transcriptPath;
+        }
+
+        void addStart(float start) {
+            if (startCount == starts.length) {
+                starts = Arrays.copyOf(starts, startCount * 2);
+            }
+            starts[startCount++] = start;
+        }
+
+        HashMap<String, Object> toMap() {
+            double[] sorted = Arrays.copyOf(starts, startCount);
+            Arrays.sort(sorted);
+
+            HashMap<String, Object> map = new HashMap<String, Object>();
+            map.put("transcriptPath", transcriptPath);
+            map.put("score", score);
+            map.put("starts", sorted);
+            return map;
+        }
+    }
+}
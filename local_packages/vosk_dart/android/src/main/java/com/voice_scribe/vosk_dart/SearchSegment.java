@@ -0,0 +1,65 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.util.Comparator;
+
+// Layout of an immutable segment of the search index.
+//
+// The file starts with a header, followed by the postings of each term in term order, a posting
+// per transcript holding the term, in document order:
+//     int document, int occurrences, float start * occurrences
+// then the document table, a record per transcript of the segment:
+//     int word count, unsigned short path length, UTF-8 path bytes
+// then the term dictionary, a record per term in ascending order:
+//     unsigned short term length, UTF-8 term bytes, int document frequency, long postings offset
+// and a sparse term index, the offset of every TERM_INTERVAL-th term record. The last FOOTER_SIZE
+// bytes hold the offsets and counts of the document table, term dictionary, and term index, and
+// the magic number again to mark the segment as complete. All values are big endian.
+final class SearchSegment {
+    static final String PREFIX = "segment_";
+    static final String EXTENSION = ".seg";
+
+    static final int MAGIC = 0x56535353; // "VSSS"
+    static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 6; // int magic, short version
+    static final int POSTING_HEADER_SIZE = 8; // int document, int occurrences
+    static final int DOCUMENT_HEADER_SIZE = 6; // int word count, short length
+    static final int TERM_TRAILER_SIZE = 12; // int document frequency, long postings offset
+    static final int ENTRY_SIZE = 8; // long offset
+    // long documents offset, int documents, long terms offset, int terms, long index offset,
+    // int magic
+    static final int FOOTER_SIZE = 36;
+
+    static final int TERM_INTERVAL = 32; // Terms between term index entries.
+    static final int MAX_LENGTH = 1024; // In bytes, longer terms are cut.
+
+    // Orders terms by code point, as their UTF-8 bytes compare when read back.
+    static final Comparator<String> TERM_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int i = 0;
+            int j = 0;
+
+            while (i < a.length() && j < b.length()) {
+                int first = a.codePointAt(i);
+                int second = b.codePointAt(j);
+
+                if (first != second) {
+                    return first - second;
+                }
+                i += Character.charCount(first);
+                j += Character.charCount(second);
+            }
+            return (a.length() - i) - (b.length() - j);
+        }
+    };
+
+    private SearchSegment() {
+    }
+
+    // Returns the file of the segment with the given number in the given index directory.
+    static File fileOf(File directory, int number) {
+        return new File(directory, PREFIX + number + EXTENSION);
+    }
+}
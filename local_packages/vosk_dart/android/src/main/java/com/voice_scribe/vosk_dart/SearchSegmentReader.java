@@ -0,0 +1,295 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+// Reads a segment of the search index.
+//
+// The segment is memory mapped once opened, and its document table is read up front. A term is
+// found by binary searching the sparse term index and scanning at most TERM_INTERVAL records of
+// the dictionary, so only the pages holding them and the postings of the term are read from disk.
+// Immutable once opened, and safe to read from several threads at once.
+class SearchSegmentReader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int number;
+    private final long size; // In bytes.
+    private final ByteBuffer mapped; // Whole file, only read through absolute gets or duplicates.
+
+    private final String[] paths;
+    private final int[] wordCounts;
+
+    private final int termsOffset;
+    private final int termCount;
+    private final int indexOffset;
+    private final int entryCount;
+
+    private SearchSegmentReader(
+            int number,
+            long size,
+            ByteBuffer mapped,
+            String[] paths,
+            int[] wordCounts,
+            int termsOffset,
+            int termCount,
+            int indexOffset
+    ) {
+        this.number = number;
+        this.size = size;
+        this.mapped = mapped;
+        this.paths = paths;
+        this.wordCounts = wordCounts;
+        this.termsOffset = termsOffset;
+        this.termCount = termCount;
+        this.indexOffset = indexOffset;
+        entryCount = (termCount + SearchSegment.TERM_INTERVAL - 1) / SearchSegment.TERM_INTERVAL;
+    }
+
+    // Opens the segment with the given number in the given index directory.
+    //
+    // Throws an IOException if the segment cannot be read or is incomplete.
+    public static SearchSegmentReader open(File directory, int number) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(
+                SearchSegment.fileOf(directory, number), "r"
+        )) {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+
+            if (size < SearchSegment.HEADER_SIZE + SearchSegment.FOOTER_SIZE ||
+                    size > Integer.MAX_VALUE) {
+                throw new IOException("Search index segment is incomplete.");
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int footer = (int) size - SearchSegment.FOOTER_SIZE;
+            long documentsOffset = mapped.getLong(footer);
+            int documentCount = mapped.getInt(footer + 8);
+            long termsOffset = mapped.getLong(footer + 12);
+            int termCount = mapped.getInt(footer + 20);
+            long indexOffset = mapped.getLong(footer + 24);
+            int entryCount = (termCount + SearchSegment.TERM_INTERVAL - 1)
+                    / SearchSegment.TERM_INTERVAL;
+
+            if (mapped.getInt(0) != SearchSegment.MAGIC ||
+                    mapped.getInt(footer + 32) != SearchSegment.MAGIC ||
+                    indexOffset + (long) entryCount * SearchSegment.ENTRY_SIZE != footer) {
+                throw new IOException("Search index segment is incomplete.");
+            }
+
+            String[] paths = new String[documentCount];
+            int[] wordCounts = new int[documentCount];
+            ByteBuffer documents = mapped.duplicate();
+            documents.position((int) documentsOffset);
+
+            for (int i = 0; i < documentCount; i++) {
+                wordCounts[i] = documents.getInt();
+                paths[i] = readString(documents, documents.getShort() & 0xFFFF);
+            }
+
+            return new SearchSegmentReader(
+                    number,
+                    size,
+                    mapped,
+                    paths,
+                    wordCounts,
+                    (int) termsOffset,
+                    termCount,
+                    (int) indexOffset
+            );
+        }
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    // Size of the segment file in bytes.
+    public long getSize() {
+        return size;
+    }
+
+    public int getDocumentCount() {
+        return paths.length;
+    }
+
+    public String getTranscriptPath(int document) {
+        return paths[document];
+    }
+
+    public int getWordCount(int document) {
+        return wordCounts[document];
+    }
+
+    // Returns the postings of the given term, or null if the segment does not hold the term.
+    public Postings find(String term) {
+        if (termCount == 0) {
+            return null;
+        }
+
+        byte[] key = term.getBytes(UTF_8);
+        Terms terms = new Terms(mapped.getLong(indexOffset + lastEntryAtOrBefore(key) * 8));
+        int scanned = 0;
+
+        while (scanned < SearchSegment.TERM_INTERVAL && terms.next()) {
+            int comparison = terms.compareTo(key);
+
+            if (comparison == 0) {
+                return terms.postings();
+            }
+            if (comparison > 0) {
+                return null;
+            }
+            scanned++;
+        }
+
+        return null;
+    }
+
+    // Returns the terms of the segment, to be read in ascending order.
+    public Terms terms() {
+        return new Terms(termsOffset);
+    }
+
+    // Binary searches the term index for the last entry whose term is at or before the given key.
+    private int lastEntryAtOrBefore(byte[] key) {
+        int low = 0;
+        int high = entryCount - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            Terms terms = new Terms(mapped.getLong(indexOffset + middle * 8));
+            terms.next();
+
+            if (terms.compareTo(key) <= 0) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private static String readString(ByteBuffer bytes, int length) {
+        byte[] string = new byte[length];
+        bytes.get(string);
+        return new String(string, UTF_8);
+    }
+
+    // Reads the term dictionary from a record onwards.
+    class Terms {
+        private final ByteBuffer records = mapped.duplicate();
+        private int termOffset; // Of the bytes of the current term.
+        private int termLength;
+        private int documentFrequency;
+        private long postingsOffset;
+
+        private Terms(long recordOffset) {
+            records.position((int) recordOffset);
+        }
+
+        // Moves to the next term, returning false if there is none.
+        public boolean next() {
+            if (records.position() >= indexOffset) {
+                return false;
+            }
+
+            termLength = records.getShort() & 0xFFFF;
+            termOffset = records.position();
+            records.position(termOffset + termLength);
+            documentFrequency = records.getInt();
+            postingsOffset = records.getLong();
+            return true;
+        }
+
+        public String term() {
+            byte[] bytes = new byte[termLength];
+
+            for (int i = 0; i < termLength; i++) {
+                bytes[i] = mapped.get(termOffset + i);
+            }
+            return new String(bytes, UTF_8);
+        }
+
+        // Compares the UTF-8 bytes of the current term to the given key as unsigned bytes, which
+        // orders them as the terms were sorted when written.
+        int compareTo(byte[] key) {
+            int length = Math.min(termLength, key.length);
+
+            for (int i = 0; i < length; i++) {
+                int difference = (mapped.get(termOffset + i) & 0xFF) - (key[i] & 0xFF);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return termLength - key.length;
+        }
+
+        public Postings postings() {
+            return new Postings(postingsOffset, documentFrequency);
+        }
+    }
+
+    // Reads the postings of a term in document order.
+    class Postings {
+        private final ByteBuffer records = mapped.duplicate();
+        private final long start; // Offset of the first posting.
+        private final int documentFrequency;
+        private int read = 0;
+        private int document;
+        private int occurrenceCount;
+        private int startsOffset; // Of the start times of the current posting.
+
+        private Postings(long start, int documentFrequency) {
+            this.start = start;
+            this.documentFrequency = documentFrequency;
+            records.position((int) start);
+        }
+
+        // Number of documents holding the term, including removed ones.
+        public int getDocumentFrequency() {
+            return documentFrequency;
+        }
+
+        // Moves to the next posting, returning false if there is none.
+        public boolean next() {
+            if (read == documentFrequency) {
+                return false;
+            }
+            if (read > 0) {
+                records.position(startsOffset + 4 * occurrenceCount);
+            }
+
+            document = records.getInt();
+            occurrenceCount = records.getInt();
+            startsOffset = records.position();
+            read++;
+            return true;
+        }
+
+        // Moves back before the first posting.
+        public void rewind() {
+            records.position((int) start);
+            read = 0;
+        }
+
+        public int getDocument() {
+            return document;
+        }
+
+        public int getOccurrenceCount() {
+            return occurrenceCount;
+        }
+
+        // Start time of the given occurrence in the current document, in seconds.
+        public float getStart(int occurrence) {
+            return mapped.getFloat(startsOffset + 4 * occurrence);
+        }
+    }
+}
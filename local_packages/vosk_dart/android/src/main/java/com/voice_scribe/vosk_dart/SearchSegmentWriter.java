@@ -0,0 +1,173 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Writes a segment of the search index, from a single finished transcript or by merging segments.
+//
+// Documents are added first, then terms in ascending order, each followed by its postings in
+// document order. Postings are written as they come, while the document table and term
+// dictionary are kept in memory and written with the footer on close. The file is forced to
+// storage before close returns, so a segment listed in the manifest is always complete.
+class SearchSegmentWriter {
+    private static final int BUFFER_SIZE = 128 * 1024; // Holds any document record.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final FileOutputStream stream;
+    private final FileChannel output;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // Unwritten bytes.
+    private long offset; // Offset in the file of the next byte.
+
+    private final ArrayList<byte[]> paths = new ArrayList<byte[]>();
+    private int[] wordCounts = new int[16];
+
+    private final ArrayList<byte[]> terms = new ArrayList<byte[]>();
+    private int[] documentFrequencies = new int[256];
+    private long[] postingsOffsets = new long[256];
+
+    private byte[] term; // Term whose postings are being written, null between terms.
+    private long termOffset; // Offset of its postings.
+    private int termFrequency; // Number of its postings.
+
+    // If the segment file cannot be created, a FileNotFoundException is thrown.
+    public SearchSegmentWriter(File file) throws FileNotFoundException {
+        stream = new FileOutputStream(file);
+        output = stream.getChannel();
+
+        buffer.putInt(SearchSegment.MAGIC);
+        buffer.putShort(SearchSegment.VERSION);
+        offset = SearchSegment.HEADER_SIZE;
+    }
+
+    // Adds a transcript of the given word count to the segment, returning its document number.
+    public int addDocument(String transcriptPath, int wordCount) {
+        int document = paths.size();
+
+        if (document == wordCounts.length) {
+            wordCounts = Arrays.copyOf(wordCounts, document * 2);
+        }
+        paths.add(transcriptPath.getBytes(UTF_8));
+        wordCounts[document] = wordCount;
+
+        return document;
+    }
+
+    // Starts the postings of the given term, which must follow the previous term.
+    public void startTerm(String term) {
+        byte[] bytes = term.getBytes(UTF_8);
+        this.term = bytes.length > SearchSegment.MAX_LENGTH
+                ? Arrays.copyOf(bytes, SearchSegment.MAX_LENGTH)
+                : bytes;
+        termOffset = offset;
+        termFrequency = 0;
+    }
+
+    // Adds the first count start times of the given starts as the occurrences of the current term
+    // in the given document, which must follow the previous document of the term.
+    public void addPosting(int document, float[] starts, int count) throws IOException {
+        ensureRemaining(SearchSegment.POSTING_HEADER_SIZE);
+        buffer.putInt(document);
+        buffer.putInt(count);
+
+        for (int i = 0; i < count; i++) {
+            ensureRemaining(4);
+            buffer.putFloat(starts[i]);
+        }
+
+        offset += SearchSegment.POSTING_HEADER_SIZE + 4L * count;
+        termFrequency++;
+    }
+
+    // Ends the postings of the current term. Terms without postings are left out.
+    public void finishTerm() {
+        if (termFrequency > 0) {
+            int index = terms.size();
+
+            if (index == documentFrequencies.length) {
+                documentFrequencies = Arrays.copyOf(documentFrequencies, index * 2);
+                postingsOffsets = Arrays.copyOf(postingsOffsets, index * 2);
+            }
+            terms.add(term);
+            documentFrequencies[index] = termFrequency;
+            postingsOffsets[index] = termOffset;
+        }
+        term = null;
+    }
+
+    // Writes the document table, term dictionary, term index, and footer, forces the segment to
+    // storage, and closes it.
+    public void close() throws IOException {
+        try {
+            long documentsOffset = offset;
+            for (int i = 0; i < paths.size(); i++) {
+                byte[] path = paths.get(i);
+                ensureRemaining(SearchSegment.DOCUMENT_HEADER_SIZE + path.length);
+                buffer.putInt(wordCounts[i]);
+                buffer.putShort((short) path.length);
+                buffer.put(path);
+                offset += SearchSegment.DOCUMENT_HEADER_SIZE + path.length;
+            }
+
+            long termsOffset = offset;
+            int entryCount = (terms.size() + SearchSegment.TERM_INTERVAL - 1)
+                    / SearchSegment.TERM_INTERVAL;
+            long[] entries = new long[entryCount];
+
+            for (int i = 0; i < terms.size(); i++) {
+                if (i % SearchSegment.TERM_INTERVAL == 0) {
+                    entries[i / SearchSegment.TERM_INTERVAL] = offset;
+                }
+
+                byte[] bytes = terms.get(i);
+                int recordSize = 2 + bytes.length + SearchSegment.TERM_TRAILER_SIZE;
+                ensureRemaining(recordSize);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+                buffer.putInt(documentFrequencies[i]);
+                buffer.putLong(postingsOffsets[i]);
+                offset += recordSize;
+            }
+
+            long indexOffset = offset;
+            for (long entry : entries) {
+                ensureRemaining(SearchSegment.ENTRY_SIZE);
+                buffer.putLong(entry);
+            }
+
+            ensureRemaining(SearchSegment.FOOTER_SIZE);
+            buffer.putLong(documentsOffset);
+            buffer.putInt(paths.size());
+            buffer.putLong(termsOffset);
+            buffer.putInt(terms.size());
+            buffer.putLong(indexOffset);
+            buffer.putInt(SearchSegment.MAGIC);
+
+            flush();
+            output.force(false);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    private void ensureRemaining(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+}
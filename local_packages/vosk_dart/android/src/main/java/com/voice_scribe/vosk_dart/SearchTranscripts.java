@@ -0,0 +1,51 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+// A task given to a thread. Searches the given search index for transcripts holding the words of
+// the given query, replying to the given method call result in the main thread.
+class SearchTranscripts implements Runnable {
+    private final SearchIndex searchIndex;
+    private final String query;
+    private final int maxHits;
+    private final Result result;
+    private final Handler mainHandler;
+
+    public SearchTranscripts(
+            SearchIndex searchIndex, String query, int maxHits, Result result, Handler mainHandler
+    ) {
+        this.searchIndex = searchIndex;
+        this.query = query;
+        this.maxHits = maxHits;
+        this.result = result;
+        this.mainHandler = mainHandler;
+    }
+
+    @Override
+    public void run() {
+        try {
+            final List<HashMap<String, Object>> hits = searchIndex.search(query, maxHits);
+
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    result.success(hits);
+                }
+            });
+        }
+        catch (IOException e) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    result.error("IndexError", "Search index could not be read", null);
+                }
+            });
+        }
+    }
+}
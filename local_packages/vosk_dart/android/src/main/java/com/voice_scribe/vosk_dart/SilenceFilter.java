@@ -0,0 +1,292 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.Arrays;
+
+// Voice activity filter that drops long silences from mono 16 bit PCM audio before it is decoded.
+//
+// Audio is split into frames of FRAME_SECONDS. A frame is speech if its energy is well above the
+// noise floor, or somewhat above it with the high zero crossing rate of unvoiced sounds such as
+// fricatives. The noise floor is the energy of the quietest frame of the last NOISE_WINDOW_SECONDS,
+// tracked as the minimums of shorter windows, so it follows both quieter and louder surroundings
+// even when the audio starts with speech. Frames within HANGOVER_SECONDS after speech are kept, so
+// the recognizer still hears the trailing silence that ends a result, as are up to PREROLL_SECONDS
+// of frames before speech, so onsets are not clipped. Other frames are dropped.
+//
+// Dropped stretches are recorded in a timeline mapping times in the kept audio back to times in
+// the given audio, so that word timestamps can be restored. Not thread safe, meant to be used by
+// the tasks of a single transcript, which run one at a time.
+class SilenceFilter {
+    private static final double FRAME_SECONDS = 0.02;
+    private static final double HANGOVER_SECONDS = 0.6;
+    private static final double PREROLL_SECONDS = 0.2;
+
+    private static final double SPEECH_RATIO = 5.0; // Energy over the noise floor of voiced frames.
+    private static final double UNVOICED_RATIO = 2.5; // Of unvoiced frames.
+    private static final double UNVOICED_CROSSING_RATE = 0.3; // Zero crossings per sample.
+    private static final double MIN_NOISE_ENERGY = 100.0; // Keeps digital silence from being 0.
+    private static final double NOISE_WINDOW_SECONDS = 3.0;
+    private static final int NOISE_WINDOWS = 6; // Shorter windows the noise window is made of.
+
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int INITIAL_SEGMENTS = 16;
+
+    private final double bytesPerSecond;
+    private final int frameSize; // In bytes.
+    private final int hangoverFrames;
+
+    private final byte[] partialFrame; // Bytes given after the last whole frame.
+    private int partialLength = 0;
+
+    private final byte[] preroll; // Ring of the latest silent frames, consecutive in the audio.
+    private final int prerollFrames;
+    private int prerollHead = 0; // Frame index of the oldest held frame in the ring.
+    private int prerollCount = 0;
+    private long prerollPosition = 0; // Position in the audio of the oldest held frame.
+
+    private byte[] output = new byte[0]; // Frames kept from the last call.
+    private int outputLength = 0;
+
+    private final int noiseWindowFrames; // Frames in each shorter window.
+    private final double[] windowMinimums; // Least energy of each of the last shorter windows.
+    private int windowIndex = 0; // Shorter window being filled.
+    private int windowFrames = 0; // Frames in the shorter window being filled.
+    private int hangover; // Frames still kept after the last speech frame.
+
+    private long position = 0; // Position in the audio of the next whole frame, in bytes.
+    private long keptBytes = 0; // Bytes kept so far.
+    private long nextKeptPosition = 0; // Position in the audio that follows the last kept frame.
+
+    // Timeline, where kept audio from keptStarts[i] on came from the audio at originalStarts[i].
+    private long[] keptStarts = new long[INITIAL_SEGMENTS];
+    private long[] originalStarts = new long[INITIAL_SEGMENTS];
+    private int segmentCount = 1;
+
+    public SilenceFilter(int sampleRate) {
+        bytesPerSecond = (double) sampleRate * BYTES_PER_SAMPLE;
+        frameSize = (int) (sampleRate * FRAME_SECONDS) * BYTES_PER_SAMPLE;
+        hangoverFrames = (int) Math.round(HANGOVER_SECONDS / FRAME_SECONDS);
+        prerollFrames = (int) Math.round(PREROLL_SECONDS / FRAME_SECONDS);
+
+        noiseWindowFrames = (int) Math.round(
+                NOISE_WINDOW_SECONDS / NOISE_WINDOWS / FRAME_SECONDS
+        );
+        windowMinimums = new double[NOISE_WINDOWS];
+        Arrays.fill(windowMinimums, Double.MAX_VALUE);
+
+        partialFrame = new byte[frameSize];
+        preroll = new byte[prerollFrames * frameSize];
+        hangover = hangoverFrames; // The start is kept while the noise floor settles.
+    }
+
+    // Filters the first length bytes of the given audio, returning the number of bytes kept.
+    //
+    // The kept audio is read through getOutput, and is only valid until the next call. Bytes that
+    // do not make up a whole frame are held until the next call.
+    public int filter(byte[] audio, int length) {
+        outputLength = 0;
+        ensureOutput(partialLength + length + preroll.length);
+
+        int offset = 0;
+
+        if (partialLength > 0) {
+            offset = Math.min(frameSize - partialLength, length);
+            System.arraycopy(audio, 0, partialFrame, partialLength, offset);
+            partialLength += offset;
+
+            if (partialLength < frameSize) {
+                return 0;
+            }
+            processFrame(partialFrame, 0);
+            partialLength = 0;
+        }
+
+        for (; offset + frameSize <= length; offset += frameSize) {
+            processFrame(audio, offset);
+        }
+
+        partialLength = length - offset;
+        System.arraycopy(audio, offset, partialFrame, 0, partialLength);
+
+        return outputLength;
+    }
+
+    // Keeps the bytes held from the last call, returning their number. Called once no more audio
+    // is given. Held silence before speech is dropped.
+    public int flush() {
+        outputLength = 0;
+        ensureOutput(partialLength);
+
+        if (partialLength > 0) {
+            keep(partialFrame, 0, partialLength, position);
+            position += partialLength;
+            partialLength = 0;
+        }
+
+        return outputLength;
+    }
+
+    public byte[] getOutput() {
+        return output;
+    }
+
+    // Moves the timestamps of the given result from kept audio to the given audio.
+    public void restoreTimestamps(WordResults result) {
+        for (int i = 0; i < result.size(); i++) {
+            result.setTimes(
+                    i,
+                    toOriginal(result.getStart(i), false),
+                    toOriginal(result.getEnd(i), true)
+            );
+        }
+    }
+
+    // Returns the time in the given audio of the given time in seconds of kept audio. An end of
+    // kept audio at the start of a segment belongs to the segment before it.
+    private double toOriginal(double seconds, boolean end) {
+        long kept = Math.round(seconds * bytesPerSecond);
+
+        int low = 0;
+        int high = segmentCount - 1;
+
+        while (low < high) { // Finds the last segment starting before, or at if a start, kept.
+            int middle = (low + high + 1) >>> 1;
+
+            if (keptStarts[middle] < kept || (!end && keptStarts[middle] == kept)) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return (originalStarts[low] + kept - keptStarts[low]) / bytesPerSecond;
+    }
+
+    // Keeps or holds the frame at the given offset of the given audio.
+    private void processFrame(byte[] audio, int offset) {
+        if (isSpeech(audio, offset)) {
+            hangover = hangoverFrames;
+            keepPreroll();
+            keep(audio, offset, frameSize, position);
+        }
+        else if (hangover > 0) {
+            hangover--;
+            keep(audio, offset, frameSize, position);
+        }
+        else {
+            hold(audio, offset, position);
+        }
+
+        position += frameSize;
+    }
+
+    // Returns true if the frame at the given offset holds speech, updating the noise floor.
+    private boolean isSpeech(byte[] audio, int offset) {
+        double energy = 0.0;
+        int crossings = 0;
+        int previous = 0;
+
+        for (int i = offset; i < offset + frameSize; i += BYTES_PER_SAMPLE) {
+            int sample = (short) ((audio[i] & 0xFF) | (audio[i + 1] << 8));
+            energy += (double) sample * sample;
+
+            if ((sample < 0) != (previous < 0)) {
+                crossings++;
+            }
+            previous = sample;
+        }
+
+        int samples = frameSize / BYTES_PER_SAMPLE;
+        energy /= samples;
+        double crossingRate = (double) crossings / samples;
+
+        double floor = Math.max(updateNoiseFloor(energy), MIN_NOISE_ENERGY);
+
+        return energy > floor * SPEECH_RATIO ||
+                (energy > floor * UNVOICED_RATIO && crossingRate > UNVOICED_CROSSING_RATE);
+    }
+
+    // Adds the given frame energy to the noise window, returning the least energy in it.
+    private double updateNoiseFloor(double energy) {
+        if (windowFrames == noiseWindowFrames) {
+            windowIndex = (windowIndex + 1) % NOISE_WINDOWS;
+            windowMinimums[windowIndex] = Double.MAX_VALUE;
+            windowFrames = 0;
+        }
+
+        windowMinimums[windowIndex] = Math.min(windowMinimums[windowIndex], energy);
+        windowFrames++;
+
+        double floor = Double.MAX_VALUE;
+        for (double minimum : windowMinimums) {
+            floor = Math.min(floor, minimum);
+        }
+        return floor;
+    }
+
+    // Holds the given silent frame as preroll, dropping the oldest held frame if full.
+    private void hold(byte[] audio, int offset, long framePosition) {
+        if (prerollFrames == 0) {
+            return;
+        }
+
+        if (prerollCount == 0) {
+            prerollPosition = framePosition;
+        }
+        else if (prerollCount == prerollFrames) {
+            prerollHead = (prerollHead + 1) % prerollFrames;
+            prerollPosition += frameSize;
+            prerollCount--;
+        }
+
+        int slot = (prerollHead + prerollCount) % prerollFrames;
+        System.arraycopy(audio, offset, preroll, slot * frameSize, frameSize);
+        prerollCount++;
+    }
+
+    // Keeps the held frames, oldest first.
+    private void keepPreroll() {
+        for (int i = 0; i < prerollCount; i++) {
+            int slot = (prerollHead + i) % prerollFrames;
+            keep(preroll, slot * frameSize, frameSize, prerollPosition + (long) i * frameSize);
+        }
+
+        prerollHead = 0;
+        prerollCount = 0;
+    }
+
+    // Appends length bytes at the given offset to the output, from the given position in the audio.
+    private void keep(byte[] audio, int offset, int length, long framePosition) {
+        if (framePosition != nextKeptPosition) {
+            addSegment(keptBytes, framePosition);
+        }
+
+        System.arraycopy(audio, offset, output, outputLength, length);
+        outputLength += length;
+        keptBytes += length;
+        nextKeptPosition = framePosition + length;
+    }
+
+    // Records that kept audio from keptStart on comes from the audio at originalStart.
+    private void addSegment(long keptStart, long originalStart) {
+        if (keptStarts[segmentCount - 1] == keptStart) {
+            originalStarts[segmentCount - 1] = originalStart; // Nothing kept since the last one.
+            return;
+        }
+
+        if (segmentCount == keptStarts.length) {
+            keptStarts = Arrays.copyOf(keptStarts, segmentCount * 2);
+            originalStarts = Arrays.copyOf(originalStarts, segmentCount * 2);
+        }
+
+        keptStarts[segmentCount] = keptStart;
+        originalStarts[segmentCount] = originalStart;
+        segmentCount++;
+    }
+
+    private void ensureOutput(int length) {
+        if (output.length < length) {
+            output = new byte[length];
+        }
+    }
+}
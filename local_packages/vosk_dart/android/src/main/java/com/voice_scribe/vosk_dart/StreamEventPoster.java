@@ -0,0 +1,26 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.Map;
+
+// Posts the events of a stream through the given bridge, tagged with the given streamId so dart
+// can tell them apart from those of the other streams of the instance.
+class StreamEventPoster implements EventPoster {
+    private final Bridge bridge;
+    private final long streamId;
+
+    public StreamEventPoster(Bridge bridge, long streamId) {
+        this.bridge = bridge;
+        this.streamId = streamId;
+    }
+
+    @Override
+    public void post(Map<String, Object> event) {
+        event.put("streamId", streamId);
+        bridge.post(event);
+    }
+
+    @Override
+    public boolean hasListeners() {
+        return bridge.hasListeners();
+    }
+}
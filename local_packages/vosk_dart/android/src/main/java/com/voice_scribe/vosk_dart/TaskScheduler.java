@@ -0,0 +1,66 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Plugin wide pool of threads that runs the tasks of all instances.
+//
+// Each instance is given lanes, which run their tasks in order and one at a time on the shared
+// threads. A lane may follow a previous lane, in which case none of its tasks start before the
+// previous lane has terminated. The number of threads is fixed, no matter how many lanes exist.
+//
+// Lanes have a priority. Whenever a thread frees up, it runs the next task of the waiting lane
+// with the lowest priority value, in the order they were handed over among equal priorities.
+// Instance lanes run at INSTANCE_PRIORITY, ahead of background work such as batch jobs.
+class TaskScheduler {
+    public static final int INSTANCE_PRIORITY = 0;
+    public static final int DEFAULT_BATCH_PRIORITY = 1;
+
+    private final ThreadPoolExecutor pool;
+
+    public TaskScheduler(int threadCount) {
+        pool = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>()
+        );
+    }
+
+    // Number of threads shared by the lanes.
+    public int getThreadCount() {
+        return pool.getCorePoolSize();
+    }
+
+    // Returns a new instance lane that starts once the given previousLane has terminated, or
+    // immediately if previousLane is null.
+    public Lane newLane(Lane previousLane) {
+        return newLane(previousLane, INSTANCE_PRIORITY);
+    }
+
+    // Returns a new lane with the given priority, started as with newLane.
+    public Lane newLane(Lane previousLane, int priority) {
+        final Lane lane = new Lane(pool, priority);
+
+        if (previousLane == null) {
+            lane.start();
+        }
+        else {
+            previousLane.whenTerminated(new Runnable() {
+                @Override
+                public void run() {
+                    lane.start();
+                }
+            });
+        }
+
+        return lane;
+    }
+
+    // Stops accepting lane tasks once the tasks already given have finished.
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
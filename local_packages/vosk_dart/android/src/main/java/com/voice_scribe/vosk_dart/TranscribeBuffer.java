@@ -1,54 +1,86 @@
 package com.voice_scribe.vosk_dart;
 
-import android.os.Handler;
-
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.vosk.Recognizer;
 
-// Transcribes the given buffer with the given recognizer.
+// Transcribes the buffers of the given feedQueue with the given recognizer until it is empty.
 //
-// Writes the result to the given transcriptWriter and posts an event to
-// the given bridge.
+// Writes the results to the given transcriptWriter and posts events to the given bridge for the
+// buffers that asked for it. Only one of these should run for a feedQueue at a time. Buffers pass
+// through the stages of the given transcriptAudio, shared by the buffers of the transcript.
 class TranscribeBuffer extends TranscribeTask {
-    private final byte[] buffer;
+    private final FeedQueue feedQueue;
+    private final TranscriptAudio transcriptAudio;
+
+    private AudioConverter audioConverter; // Null if buffers are already mono at the rate.
 
     public TranscribeBuffer(
-            byte[] buffer,
+            FeedQueue feedQueue,
+            TranscriptAudio transcriptAudio,
             Future<Recognizer> recognizerFuture,
             TranscriptWriter transcriptWriter,
-            Bridge bridge,
-            Handler mainHandler
+            EventPoster bridge,
+            ResultParser resultParser,
+            Metrics metrics
     ) {
-        super(recognizerFuture, transcriptWriter, bridge, mainHandler);
-        this.buffer = buffer;
+        super(recognizerFuture, transcriptWriter, bridge, resultParser, metrics);
+        this.feedQueue = feedQueue;
+        this.transcriptAudio = transcriptAudio;
     }
 
     @Override
     public void run() {
+        Recognizer recognizer = null;
+
         try {
-            final Recognizer recognizer = recognizerFuture.get();
+            recognizer = recognizerFuture.get();
+            audioConverter = transcriptAudio.getBufferConverter();
+            silenceFilter = transcriptAudio.getSilenceFilter();
+        }
+        catch (ExecutionException | InterruptedException e) {
+            System.out.println("Unable to finish getting the given recognizer.");
+        }
 
-            boolean silence = recognizer.acceptWaveForm(buffer, buffer.length);
+        // Keeps taking until the queue is empty, even if buffers are dropped, so that the next
+        // offered buffer schedules a new drain.
+        while (feedQueue.take()) {
+            if (recognizer == null || Thread.currentThread().isInterrupted()) {
+                feedQueue.clear();
+                continue;
+            }
 
-            if (silence) {
-                JSONObject result = new JSONObject(recognizer.getResult());
-                transcriptWriter.writeResult(result);
-                post(result, RESULT, BUFFER, 1.0);
+            try {
+                transcribe(recognizer);
+            }
+            catch (JSONException e) {
+                System.out.println("Invalid JSON string given.");
             }
-            else {
-                JSONObject partialResult = new JSONObject(recognizer.getPartialResult());
-                post(partialResult, PARTIAL, BUFFER, 1.0);
+            catch (IOException e) {
+                System.out.println("IO error, could not write to transcript.");
             }
         }
-        catch (ExecutionException | InterruptedException e) {
-            System.out.println("Unable to finish getting the given recognizer.");
+    }
+
+    // Feeds the buffer last taken from the queue.
+    private void transcribe(Recognizer recognizer) throws JSONException, IOException {
+        EventPoster bridge = feedQueue.shouldPost() ? this.bridge : null;
+        metrics.queueWait.record(System.nanoTime() - feedQueue.getOfferTime());
+        boolean silence = accept(
+                recognizer, audioConverter, feedQueue.getBuffer(), feedQueue.getLength()
+        );
+
+        if (silence) {
+            WordResults result = parse(recognizer, recognizer.getResult());
+            write(result);
+            post(bridge, result, RESULT, BUFFER, 1.0);
         }
-        catch (JSONException e) {
-            System.out.println("Invalid JSON string given.");
+        else if (isHeard(bridge)) {
+            WordResults partialResult = parse(recognizer, recognizer.getPartialResult());
+            post(bridge, partialResult, PARTIAL, BUFFER, 1.0);
         }
     }
 }
@@ -1,86 +1,229 @@
 package com.voice_scribe.vosk_dart;
 
-import android.os.Handler;
-
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.vosk.Recognizer;
 
 // Transcribes the file at the given filePath with the given recognizer.
 //
+// The file must be a PCM wav file of 8, 16, 24, or 32 bit samples, or a FLAC file, which is
+// decoded a frame at a time as it is fed instead of being expanded to a wav file first. Audio of
+// any other channel count or sample rate than the mono audio at the rate of the recognizer is
+// converted as it is read. Audio then passes through the silence filter of the given
+// transcriptAudio, unless null. Progress is given in bytes of the file read.
+//
+// Runs on the given lane in steps. Between buffers, it stops if the given cancellationToken is
+// cancelled, suspends the lane while paused, and yields its thread to waiting tasks of other lanes,
+// continuing where it left off. If lane is null, the file is transcribed in one go.
+//
+// The file is read in buffers as decided by the given chunkPolicy. LIVE reads BUFFER_SIZE bytes at
+// a time, as a live recording would be fed, so results and progress come often. ADAPTIVE doubles
+// the buffer while the recognizer takes less than half of TARGET_STEP_TIME on it, and halves it
+// while it takes more than twice as long, between BUFFER_SIZE and MAX_BUFFER_SIZE. Fast devices
+// thus make fewer native calls and events per second of audio, while a buffer still takes short
+// enough to stop, pause, or yield the thread soon after being asked to.
+//
 // Writes the result to the given transcriptWriter and posts an event to
 // the given bridge.
 class TranscribeFile extends TranscribeTask {
+    // Chunk policies.
+    public static final int LIVE = 0;
+    public static final int ADAPTIVE = 1;
+
     private static final int BUFFER_SIZE = 6400;
+    private static final int MAX_BUFFER_SIZE = 64 * BUFFER_SIZE;
+    private static final long TARGET_STEP_TIME = 50000000; // In nanoseconds.
 
     private final String filePath;
+    private final TranscriptAudio transcriptAudio;
+    private final Lane lane;
+    private final CancellationToken cancellationToken;
+    private final int chunkPolicy;
+
+    private AudioDecoder audioDecoder; // Open while the file is being fed.
+    private Recognizer recognizer;
+    private AudioConverter audioConverter;
+    private byte[] buffer;
+    private int readSize = BUFFER_SIZE; // Bytes read into the buffer at a time.
+
+    private long bytesInFile = 0; // Of the input, compressed for compressed files.
+    private long totalBytesRead = 0; // Of decoded audio.
+    private long activeTime = 0; // Nanoseconds spent transcribing, not waiting between steps.
 
     public TranscribeFile(
             String filePath,
+            TranscriptAudio transcriptAudio,
+            Lane lane,
+            CancellationToken cancellationToken,
+            int chunkPolicy,
             Future<Recognizer> recognizerFuture,
             TranscriptWriter transcriptWriter,
-            Bridge bridge,
-            Handler mainHandler
+            EventPoster bridge,
+            ResultParser resultParser,
+            Metrics metrics
     ) {
-        super(recognizerFuture, transcriptWriter, bridge, mainHandler);
+        super(recognizerFuture, transcriptWriter, bridge, resultParser, metrics);
         this.filePath = filePath;
+        this.transcriptAudio = transcriptAudio;
+        this.lane = lane;
+        this.cancellationToken = cancellationToken;
+        this.chunkPolicy = chunkPolicy;
     }
 
     @Override
     public void run() {
-        try (FileInputStream fileInput = new FileInputStream(filePath)) {
-            fileInput.skip(44); // Skip the 44 byte wav header.
-
-            byte[] buffer = new byte[BUFFER_SIZE];
+        long startTime = System.nanoTime();
+        boolean done = true;
 
-            long bytesInFile = new File(filePath).length() - 44;
-            long totalBytesRead = 0;
+        try {
+            if (audioDecoder == null) {
+                recordQueueWait();
 
-            Recognizer recognizer = recognizerFuture.get();
-
-            while (true) {
-                int bytesRead = fileInput.read(buffer);
-
-                if (bytesRead == -1) {
-                    break;
+                if (cancellationToken.isCancelled() || !open()) {
+                    return;
                 }
-                else {
-                    totalBytesRead += bytesRead;
-                }
-
-                if (Thread.interrupted()) {
-                    break;
-                }
-
-                boolean silence = recognizer.acceptWaveForm(buffer, bytesRead);
+            }
 
-                double progress = (float) totalBytesRead / bytesInFile;
+            done = transcribe();
+            activeTime += System.nanoTime() - startTime;
 
-                if (silence) {
-                    JSONObject result = new JSONObject(recognizer.getResult());
-                    transcriptWriter.writeResult(result);
-                    post(result, RESULT, FILE, progress);
-                }
-                else {
-                    JSONObject partialResult = new JSONObject(recognizer.getPartialResult());
-                    post(partialResult, PARTIAL, FILE, progress);
+            if (done) {
+                if (flushAudioConverter(recognizer, audioConverter)) {
+                    handleResult(true, 1.0);
                 }
+                metrics.recordFile(totalBytesRead, activeTime);
             }
         }
         catch (ExecutionException | InterruptedException e) {
             System.out.println("Unable to finish opening the given model.");
         }
         catch (IOException e) {
-            System.out.println("IO error, could not read contents of wav file.");
+            System.out.println("IO error, could not read contents of audio file.");
         }
         catch (JSONException e) {
             System.out.println("Invalid JSON string given.");
         }
+        finally {
+            if (done) {
+                close();
+                cancellationToken.end();
+            }
+        }
+    }
+
+    // Opens the file and gets the recognizer. Returns false if the file cannot be fed.
+    private boolean open() throws IOException, ExecutionException, InterruptedException {
+        audioDecoder = AudioDecoders.open(filePath);
+
+        if (!AudioConverter.supports(audioDecoder.getBitsPerSample())) {
+            System.out.println("Unsupported audio file, expected 8, 16, 24, or 32 bit audio.");
+            return false;
+        }
+
+        recognizer = recognizerFuture.get();
+        buffer = new byte[BUFFER_SIZE];
+        bytesInFile = audioDecoder.getInputLength();
+
+        if (transcriptAudio != null) {
+            silenceFilter = transcriptAudio.getSilenceFilter();
+        }
+
+        int recognizerRate = PooledRecognizer.sampleRateOf(recognizer);
+        if (AudioConverter.isNeeded(
+                audioDecoder.getSampleRate(),
+                audioDecoder.getChannelCount(),
+                audioDecoder.getBitsPerSample(),
+                recognizerRate
+        )) {
+            audioConverter = new AudioConverter(
+                    audioDecoder.getSampleRate(),
+                    audioDecoder.getChannelCount(),
+                    audioDecoder.getBitsPerSample(),
+                    recognizerRate
+            );
+        }
+        return true;
+    }
+
+    // Feeds buffers until the file ends or the task is stopped, returning true, or until it gives
+    // the lane a continuation to pause or yield, returning false.
+    private boolean transcribe() throws IOException, JSONException {
+        while (true) {
+            if (Thread.interrupted() || cancellationToken.isCancelled()) {
+                return true;
+            }
+
+            long stepStart = System.nanoTime();
+            int bytesRead = audioDecoder.read(buffer, 0, readSize);
+
+            if (bytesRead == -1) {
+                return true;
+            }
+            else {
+                totalBytesRead += bytesRead;
+            }
+
+            boolean silence = accept(recognizer, audioConverter, buffer, bytesRead);
+            handleResult(silence, (float) audioDecoder.getInputPosition() / bytesInFile);
+
+            if (chunkPolicy == ADAPTIVE) {
+                adaptReadSize(System.nanoTime() - stepStart);
+            }
+
+            if (lane == null) {
+                continue;
+            }
+            if (cancellationToken.suspendIfPaused(lane, this)) {
+                return false;
+            }
+            if (lane.shouldYield()) {
+                lane.continueWith(this, false);
+                return false;
+            }
+        }
+    }
+
+    // Writes and posts the result on silence, otherwise posts the partial result.
+    private void handleResult(boolean silence, double progress) throws JSONException, IOException {
+        if (silence) {
+            WordResults result = parse(recognizer, recognizer.getResult());
+            write(result);
+            post(result, RESULT, FILE, progress);
+        }
+        else if (isHeard(bridge)) {
+            WordResults partialResult = parse(recognizer, recognizer.getPartialResult());
+            post(partialResult, PARTIAL, FILE, progress);
+        }
+    }
+
+    // Grows or shrinks the buffer read next, given the nanoseconds the last one took.
+    private void adaptReadSize(long stepTime) {
+        if (stepTime < TARGET_STEP_TIME / 2 && readSize < MAX_BUFFER_SIZE) {
+            readSize *= 2;
+
+            if (buffer.length < readSize) {
+                buffer = new byte[readSize];
+            }
+        }
+        else if (stepTime > TARGET_STEP_TIME * 2 && readSize > BUFFER_SIZE) {
+            readSize /= 2;
+        }
+    }
+
+    private void close() {
+        try {
+            if (audioDecoder != null) {
+                audioDecoder.close();
+            }
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not close audio file.");
+        }
+
+        audioDecoder = null;
+        buffer = null;
     }
 }
@@ -0,0 +1,439 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONException;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// Transcribes the file at the given filePath by splitting it into chunks that are transcribed at
+// the same time, each with its own recognizer of the given model.
+//
+// Recognizers are taken from the given recognizerPool, one per thread helping out, which reuses it
+// for every chunk it claims and releases it once no chunk is left, so decoders are only built when
+// the pool has none idle rather than for every chunk.
+//
+// Chunk boundaries are placed at the quietest point near fixed window boundaries and each chunk is
+// decoded with some overlap into its neighbours. A word belongs to the chunk in which it starts.
+// Results are written to the given transcriptWriter and posted to the given bridge in timestamp
+// order. Meant for transcripts that are only fed this one file, as the timestamps start at zero.
+// The file must be a PCM wav file of 8, 16, 24, or 32 bit samples. Chunks are planned in frames
+// of the file and converted to mono audio at the rate of the model as they are fed, unless already
+// so.
+// Chunks stop at their next buffer once the given cancellationToken is cancelled, which cannot
+// pause them.
+class TranscribeFileInParallel extends TranscribeTask {
+    private static final int BUFFER_SIZE = 6400;
+
+    private static final double MIN_WINDOW_SECONDS = 10.0;
+    private static final double MAX_WINDOW_SECONDS = 60.0;
+    private static final double OVERLAP_SECONDS = 1.0; // Extra audio decoded on each side.
+    private static final double SEARCH_SECONDS = 2.0; // Distance searched for a quiet boundary.
+    private static final double FRAME_SECONDS = 0.1; // Resolution of the quiet boundary search.
+
+    private static final double MAX_PARTIAL_PROGRESS = 0.999; // 1.0 is reserved for the last event.
+
+    // A region of the audio data transcribed by a single recognizer.
+    private static class Chunk {
+        long start; // Byte offsets in the audio data of the words kept by this chunk.
+        long end;
+        long decodeStart; // Byte offsets in the audio data fed to the recognizer.
+        long decodeEnd;
+        List<WordResults> results = new ArrayList<WordResults>();
+        volatile boolean done = false;
+    }
+
+    private final String filePath;
+    private final Future<Model> modelFuture;
+    private final RecognizerPool recognizerPool;
+    private final ExecutorService workerService; // Shared threads that help transcribe chunks.
+    private final int workerCount;
+    private final CancellationToken cancellationToken;
+
+    private int recognizerRate; // Of the model, known once it is loaded.
+    private int fileRate; // Format of the file, known once it is opened.
+    private int channelCount;
+    private int bitsPerSample;
+    private int blockAlign;
+
+    private Chunk[] chunks;
+    private final AtomicInteger nextChunk = new AtomicInteger(); // Index of next chunk to claim.
+    private CountDownLatch chunksDone;
+    private int mergedChunks = 0; // Chunks written in order so far. Guarded by this.
+
+    private long bytesToProcess = 0;
+    private final AtomicLong bytesProcessed = new AtomicLong();
+    private final AtomicInteger postedPercent = new AtomicInteger();
+
+    private final WordResults progressResult = new WordResults(); // Empty partial for progress.
+
+    private volatile boolean cancelled = false;
+
+    public TranscribeFileInParallel(
+            String filePath,
+            Future<Model> modelFuture,
+            RecognizerPool recognizerPool,
+            ExecutorService workerService,
+            int workerCount,
+            CancellationToken cancellationToken,
+            Future<Recognizer> recognizerFuture,
+            TranscriptWriter transcriptWriter,
+            EventPoster bridge,
+            ResultParser resultParser,
+            Metrics metrics
+    ) {
+        super(recognizerFuture, transcriptWriter, bridge, resultParser, metrics);
+        this.filePath = filePath;
+        this.modelFuture = modelFuture;
+        this.recognizerPool = recognizerPool;
+        this.workerService = workerService;
+        this.workerCount = workerCount;
+        this.cancellationToken = cancellationToken;
+        progressResult.setText("", true);
+    }
+
+    @Override
+    public void run() {
+        recordQueueWait();
+        long startTime = System.nanoTime();
+
+        try {
+            if (cancellationToken.isCancelled()) {
+                return;
+            }
+
+            recognizerRate = ModelCache.sampleRateOf(modelFuture.get());
+
+            try (WavReader wavReader = new WavReader(filePath)) {
+                if (!AudioConverter.supports(wavReader.getBitsPerSample())) {
+                    System.out.println(
+                            "Unsupported wav file, expected 8, 16, 24, or 32 bit audio."
+                    );
+                    return;
+                }
+
+                fileRate = wavReader.getSampleRate();
+                channelCount = wavReader.getChannelCount();
+                bitsPerSample = wavReader.getBitsPerSample();
+                blockAlign = wavReader.getBlockAlign();
+                chunks = planChunks(wavReader);
+            }
+            chunksDone = new CountDownLatch(chunks.length);
+
+            for (Chunk chunk : chunks) {
+                bytesToProcess += chunk.decodeEnd - chunk.decodeStart;
+            }
+
+            for (int i = 1; i < Math.min(workerCount, chunks.length); i++) {
+                workerService.submit(new ChunkWorker());
+            }
+            new ChunkWorker().run(); // Help out instead of idling until chunks are done.
+
+            chunksDone.await();
+
+            if (!isCancelled()) {
+                post(progressResult, PARTIAL, FILE, 1.0);
+                metrics.recordFile(bytesToProcess, System.nanoTime() - startTime);
+            }
+        }
+        catch (InterruptedException e) {
+            cancelled = true;
+        }
+        catch (ExecutionException e) {
+            System.out.println("Unable to finish opening the given model.");
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not read contents of wav file.");
+        }
+        finally {
+            cancellationToken.end();
+        }
+    }
+
+    // Splits the audio data into chunks whose boundaries lie at quiet points.
+    private Chunk[] planChunks(WavReader wavReader) throws IOException {
+        long bytesPerSecond = (long) fileRate * blockAlign;
+        long dataLength = wavReader.getDataLength();
+
+        double duration = (double) dataLength / bytesPerSecond;
+        double windowSeconds = Math.max(
+                MIN_WINDOW_SECONDS,
+                Math.min(MAX_WINDOW_SECONDS, duration / workerCount)
+        );
+        long window = alignToFrame((long) (windowSeconds * bytesPerSecond));
+        long overlap = alignToFrame((long) (OVERLAP_SECONDS * bytesPerSecond));
+
+        ArrayList<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(0L);
+
+        for (long target = window; target < dataLength - window / 2; target += window) {
+            long boundary = quietestPointNear(wavReader, target, dataLength, bytesPerSecond);
+
+            if (boundary > boundaries.get(boundaries.size() - 1)) {
+                boundaries.add(boundary);
+            }
+        }
+
+        boundaries.add(dataLength);
+
+        Chunk[] chunks = new Chunk[boundaries.size() - 1];
+        for (int i = 0; i < chunks.length; i++) {
+            Chunk chunk = new Chunk();
+            chunk.start = boundaries.get(i);
+            chunk.end = boundaries.get(i + 1);
+            chunk.decodeStart = Math.max(0, chunk.start - overlap);
+            chunk.decodeEnd = Math.min(dataLength, chunk.end + overlap);
+            chunks[i] = chunk;
+        }
+        return chunks;
+    }
+
+    // Returns the start of the frame with the least energy within the search distance of target.
+    private long quietestPointNear(
+            WavReader wavReader, long target, long dataLength, long bytesPerSecond
+    ) throws IOException {
+        int frameSize = (int) alignToFrame((long) (FRAME_SECONDS * bytesPerSecond));
+        long searchDistance = alignToFrame((long) (SEARCH_SECONDS * bytesPerSecond));
+        int bytesPerSample = bitsPerSample / 8;
+        long searchStart = Math.max(0, target - searchDistance);
+        long searchEnd = Math.min(dataLength, target + searchDistance);
+
+        byte[] frame = new byte[frameSize];
+        long quietestPoint = target;
+        long quietestEnergy = Long.MAX_VALUE;
+
+        wavReader.seek(searchStart);
+
+        for (long position = searchStart; position + frameSize <= searchEnd; position += frameSize) {
+            wavReader.read(frame);
+
+            long energy = 0;
+            for (int i = 0; i + bytesPerSample <= frameSize; i += bytesPerSample) {
+                int sample = AudioConverter.sampleAt(frame, i, bytesPerSample);
+                energy += (long) sample * sample;
+            }
+
+            if (energy < quietestEnergy) {
+                quietestEnergy = energy;
+                quietestPoint = position;
+            }
+        }
+
+        return quietestPoint;
+    }
+
+    // Transcribes the given chunk with the given recognizer, whose results are parsed with the
+    // given chunkParser, keeping the results that start in it. The recognizer is left with its
+    // final result taken, timing results from the audio fed next.
+    private void transcribeChunk(
+            Chunk chunk, PooledRecognizer recognizer, ResultParser chunkParser
+    ) throws IOException, JSONException {
+        AudioConverter audioConverter = null;
+
+        if (AudioConverter.isNeeded(fileRate, channelCount, bitsPerSample, recognizerRate)) {
+            audioConverter = new AudioConverter(
+                    fileRate, channelCount, bitsPerSample, recognizerRate
+            );
+        }
+
+        try (WavReader wavReader = new WavReader(filePath)) {
+            wavReader.seek(chunk.decodeStart);
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long bytesRemaining = chunk.decodeEnd - chunk.decodeStart;
+
+            while (bytesRemaining > 0 && !isCancelled()) {
+                int bytesRead = wavReader.read(
+                        buffer, 0, (int) Math.min(buffer.length, bytesRemaining)
+                );
+
+                if (bytesRead == -1) {
+                    break;
+                }
+                bytesRemaining -= bytesRead;
+
+                if (Thread.interrupted()) {
+                    cancelled = true;
+                    break;
+                }
+
+                if (accept(recognizer, audioConverter, buffer, bytesRead)) {
+                    keepResult(chunk, parse(chunkParser, recognizer, recognizer.getResult()));
+                }
+
+                reportProgress(bytesRead);
+            }
+
+            if (flushAudioConverter(recognizer, audioConverter)) {
+                keepResult(chunk, parse(chunkParser, recognizer, recognizer.getResult()));
+            }
+
+            keepResult(chunk, parse(chunkParser, recognizer, recognizer.getFinalResult()));
+        }
+        finally {
+            recognizer.finish();
+            recognizer.startTranscript();
+        }
+    }
+
+    // Parses the given result of the given recognizer with the given parser of a chunk, timed from
+    // the start of the chunk.
+    private WordResults parse(
+            ResultParser chunkParser, Recognizer recognizer, String json
+    ) throws JSONException {
+        long start = System.nanoTime();
+        WordResults result = chunkParser.parse(json);
+        result.shift(-PooledRecognizer.timeOffsetOf(recognizer));
+        metrics.recordParse(System.nanoTime() - start);
+        return result;
+    }
+
+    // Adds the words of the given result that start in the chunk to its results.
+    //
+    // Timestamps are moved from being relative to the chunk to being relative to the file.
+    private void keepResult(Chunk chunk, WordResults result) {
+        double bytesPerSecond = (double) fileRate * blockAlign;
+        double offset = chunk.decodeStart / bytesPerSecond;
+        double start = chunk.start / bytesPerSecond;
+        double end = chunk.end / bytesPerSecond;
+
+        WordResults keptResult = new WordResults();
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < result.size(); i++) {
+            double wordStart = result.getStart(i) + offset;
+
+            if (wordStart < start || wordStart >= end) {
+                continue;
+            }
+
+            keptResult.add(
+                    result.getWord(i),
+                    wordStart,
+                    result.getEnd(i) + offset,
+                    result.getConfidence(i)
+            );
+
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(result.getWord(i));
+        }
+
+        if (!keptResult.isEmpty()) {
+            keptResult.setText(text.toString(), false);
+            chunk.results.add(keptResult);
+        }
+    }
+
+    // Writes and posts the results of all chunks that are done and have no unfinished chunk
+    // before them.
+    private synchronized void mergeDoneChunks() throws IOException {
+        while (mergedChunks < chunks.length && chunks[mergedChunks].done) {
+            Chunk chunk = chunks[mergedChunks++];
+
+            for (WordResults result : chunk.results) {
+                write(result);
+                post(result, RESULT, FILE, progress());
+            }
+            chunk.results = null;
+        }
+    }
+
+    // Adds the given number of bytes to the progress, posting it every percent.
+    private void reportProgress(int bytesRead) {
+        bytesProcessed.addAndGet(bytesRead);
+
+        double progress = progress();
+        int percent = (int) (progress * 100);
+        int lastPercent = postedPercent.get();
+
+        if (percent > lastPercent && postedPercent.compareAndSet(lastPercent, percent)) {
+            post(progressResult, PARTIAL, FILE, progress);
+        }
+    }
+
+    // Progress across all chunks, kept below 1.0 which only the last event has.
+    private double progress() {
+        return Math.min((double) bytesProcessed.get() / bytesToProcess, MAX_PARTIAL_PROGRESS);
+    }
+
+    private boolean isCancelled() {
+        return cancelled || cancellationToken.isCancelled();
+    }
+
+    private long alignToFrame(long bytes) {
+        return bytes - bytes % blockAlign;
+    }
+
+    // Claims and transcribes chunks until none are left, with a recognizer acquired for the first
+    // chunk claimed and released once done.
+    private class ChunkWorker implements Runnable {
+        private final ResultParser chunkParser = new ResultParser(); // Workers run apart.
+        private PooledRecognizer recognizer;
+
+        @Override
+        public void run() {
+            try {
+                claimChunks();
+            }
+            finally {
+                if (recognizer != null) {
+                    recognizerPool.release(recognizer);
+                }
+            }
+        }
+
+        private void claimChunks() {
+            while (true) {
+                int index = nextChunk.getAndIncrement();
+
+                if (index >= chunks.length) {
+                    return;
+                }
+
+                Chunk chunk = chunks[index];
+
+                try {
+                    if (!isCancelled()) {
+                        if (recognizer == null) {
+                            recognizer = recognizerPool.acquire(modelFuture.get(), recognizerRate);
+                        }
+                        transcribeChunk(chunk, recognizer, chunkParser);
+                    }
+                }
+                catch (InterruptedException e) {
+                    cancelled = true;
+                }
+                catch (ExecutionException e) {
+                    System.out.println("Unable to finish opening the given model.");
+                }
+                catch (IOException e) {
+                    System.out.println("IO error, could not read contents of wav file.");
+                }
+                catch (JSONException e) {
+                    System.out.println("Invalid JSON string given.");
+                }
+                finally {
+                    chunk.done = true;
+                    chunksDone.countDown();
+                }
+
+                try {
+                    mergeDoneChunks();
+                }
+                catch (IOException e) {
+                    System.out.println("IO error, could not write to transcript.");
+                }
+            }
+        }
+    }
+}
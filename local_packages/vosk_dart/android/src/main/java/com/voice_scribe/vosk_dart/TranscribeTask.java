@@ -1,18 +1,20 @@
 package com.voice_scribe.vosk_dart;
 
-import android.os.Handler;
-
+import java.io.IOException;
 import java.util.concurrent.Future;
 import java.util.HashMap;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.vosk.Recognizer;
 
 // A transcription task given to a thread.
 //
-// Defines a set of properties and functions used commonly among transcription tasks.
+// Defines a set of properties and functions used commonly among transcription tasks. The stages
+// of transcription are timed into the given metrics. Audio in another format than the recognizer
+// expects is first converted. If a silence filter is set, audio then passes through it before
+// reaching the recognizer. Parsed results are timed from the start of the transcript, even if the
+// recognizer was reused from an earlier one, and get their original timestamps. Partial results are
+// only taken while they would be heard.
 abstract class TranscribeTask implements Runnable {
     // DataType Enums
     protected static final int NONE = 0;
@@ -25,59 +27,166 @@ abstract class TranscribeTask implements Runnable {
     protected static final int FINAL_RESULT = 2;
 
     protected final Future<Recognizer> recognizerFuture; // For transcribing.
-    protected final TranscriptWriter transcriptWriter; // For file writing.
-    protected final Bridge bridge; // For dart communication.
-    protected final Handler mainHandler; // For access to UI thread.
+    protected TranscriptWriter transcriptWriter; // For file writing, set later by batch jobs.
+    protected final EventPoster bridge; // For dart communication.
+    protected final ResultParser resultParser; // For reading recognizer results.
+    protected final Metrics metrics; // For timing stages.
+    protected SilenceFilter silenceFilter; // For skipping silence, set once the rate is known.
+
+    private final long submitTime = System.nanoTime();
 
     protected TranscribeTask(
             Future<Recognizer> recognizerFuture,
             TranscriptWriter transcriptWriter,
-            Bridge bridge,
-            Handler mainHandler
+            EventPoster bridge,
+            ResultParser resultParser,
+            Metrics metrics
     ) {
         this.recognizerFuture = recognizerFuture;
         this.transcriptWriter = transcriptWriter;
         this.bridge = bridge;
-        this.mainHandler = mainHandler;
+        this.resultParser = resultParser;
+        this.metrics = metrics;
+    }
+
+    // Records the time since this task was created as its queue wait. Called as it starts.
+    protected void recordQueueWait() {
+        metrics.queueWait.record(System.nanoTime() - submitTime);
+    }
+
+    // Feeds length bytes of the given buffer to the given recognizer, returning true on silence.
+    //
+    // Audio dropped by the silence filter never reaches the recognizer, but is still counted as
+    // processed.
+    protected boolean accept(Recognizer recognizer, byte[] buffer, int length) {
+        return accept(recognizer, null, buffer, length);
+    }
+
+    // Feeds length bytes of the given buffer to the given recognizer, after converting them to
+    // the rate of the recognizer with the given audioConverter unless null. Returns true on
+    // silence.
+    //
+    // Conversion comes before the silence filter, which works on audio at the recognizer rate.
+    protected boolean accept(
+            Recognizer recognizer, AudioConverter audioConverter, byte[] buffer, int length
+    ) {
+        long start = System.nanoTime();
+
+        if (audioConverter != null) {
+            length = audioConverter.convert(buffer, length);
+            buffer = audioConverter.getOutput();
+        }
+
+        boolean silence = acceptConverted(recognizer, buffer, length);
+
+        metrics.recordAccept(length, System.nanoTime() - start);
+        return silence;
     }
 
-    // Post the given transcription result in the UI thread to dart side.
+    // Feeds the audio still held by the given audioConverter to the given recognizer, returning
+    // true on silence. Called once no more audio is converted by it. If null, nothing is fed.
+    protected boolean flushAudioConverter(Recognizer recognizer, AudioConverter audioConverter) {
+        if (audioConverter == null) {
+            return false;
+        }
+
+        int length = audioConverter.flush();
+        return acceptConverted(recognizer, audioConverter.getOutput(), length);
+    }
+
+    // Feeds any audio held back by the silence filter to the given recognizer, returning true on
+    // silence. Called before the final result is taken.
+    protected boolean flushSilenceFilter(Recognizer recognizer) {
+        if (silenceFilter == null) {
+            return false;
+        }
+
+        int keptLength = silenceFilter.flush();
+        return keptLength > 0 &&
+                recognizer.acceptWaveForm(silenceFilter.getOutput(), keptLength);
+    }
+
+    // Feeds length bytes of audio at the recognizer rate through any silence filter.
+    private boolean acceptConverted(Recognizer recognizer, byte[] buffer, int length) {
+        if (length == 0) {
+            return false;
+        }
+
+        if (silenceFilter == null) {
+            return recognizer.acceptWaveForm(buffer, length);
+        }
+
+        int keptLength = silenceFilter.filter(buffer, length);
+        return keptLength > 0 && recognizer.acceptWaveForm(silenceFilter.getOutput(), keptLength);
+    }
+
+    // Parses the given result of the given recognizer with the resultParser.
+    protected WordResults parse(Recognizer recognizer, String json) throws JSONException {
+        long start = System.nanoTime();
+        WordResults result = resultParser.parse(json);
+        result.shift(-PooledRecognizer.timeOffsetOf(recognizer));
+
+        if (silenceFilter != null) {
+            silenceFilter.restoreTimestamps(result);
+        }
+
+        metrics.recordParse(System.nanoTime() - start);
+        return result;
+    }
+
+    // Returns true if partial results posted through the given bridge would be heard by dart, so
+    // that taking them from the recognizer is worth its cost.
+    protected static boolean isHeard(EventPoster bridge) {
+        return bridge != null && bridge.hasListeners();
+    }
+
+    // Writes the given result to the transcriptWriter.
+    protected void write(WordResults result) throws IOException {
+        long start = System.nanoTime();
+        transcriptWriter.writeResult(result);
+        metrics.recordWrite(System.nanoTime() - start);
+    }
+
+    // Post the given transcription result to dart side.
+    //
+    // Word results are sent as a list of words and typed arrays of their starts, ends, and
+    // confidences.
     protected boolean post(
-            JSONObject result,
+            WordResults result,
             int resultType,
             int dataType,
             double progress
-    ) throws JSONException {
+    ) {
+        return post(bridge, result, resultType, dataType, progress);
+    }
+
+    // Post the given transcription result through the given bridge instead. If null, nothing is
+    // posted.
+    protected boolean post(
+            EventPoster bridge,
+            WordResults result,
+            int resultType,
+            int dataType,
+            double progress
+    ) {
         if (bridge == null) {
             return false;
         }
 
-        final HashMap<String, Object> event = new HashMap<String, Object>();
+        HashMap<String, Object> event = new HashMap<String, Object>();
         event.put("resultType", resultType);
         event.put("dataType", dataType);
         event.put("progress", progress);
         event.put("transcriptPath", transcriptWriter.getTranscriptPath());
-        event.put("timestamp", getResultTimestamp(result));
-        event.put("text", result.getString(resultType == PARTIAL ? "partial" : "text"));
+        event.put("timestamp", result.getTimestamp());
+        event.put("text", result.getText());
+        event.put("words", result.copyWords());
+        event.put("starts", result.copyStarts());
+        event.put("ends", result.copyEnds());
+        event.put("confidences", result.copyConfidences());
 
-        mainHandler.post(new Runnable() {
-            @Override
-            public void run() {
-                bridge.post(event);
-            }
-        });
+        bridge.post(event);
 
         return true;
     }
-
-    // Retrieves the timestamp of the given result in seconds.
-    // If the result has no word results (is a partial result), then -1.0 is returned instead.
-    private double getResultTimestamp(JSONObject result) throws JSONException {
-        if (result.has("result")) {
-            return result.getJSONArray("result").getJSONObject(0).getDouble("start");
-        }
-        else {
-            return -1.0;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.voice_scribe.vosk_dart;
+
+// The stages fed buffers of a transcript pass through that depend on the sample rate of its model:
+// conversion to mono audio at that rate, and the silence filter.
+//
+// Created with the transcript, before the model has been read, and set up by CreateRecognizer in
+// the lane of the transcript once the rate is known, so that the main thread never waits for the
+// model. Tasks of the transcript read the stages only after getting its recognizer.
+class TranscriptAudio {
+    private final int sampleRate; // Of fed buffers.
+    private final int channelCount; // Of fed buffers.
+    private final boolean skipSilence;
+    private final Metrics metrics; // Given the rate of the transcript, unless null.
+
+    private volatile AudioConverter bufferConverter; // Null if buffers are already mono at rate.
+    private volatile SilenceFilter silenceFilter; // Null if silence is not skipped.
+
+    public TranscriptAudio(int sampleRate, int channelCount, boolean skipSilence, Metrics metrics) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.skipSilence = skipSilence;
+        this.metrics = metrics;
+    }
+
+    // Creates the stages for a recognizer at the given recognizerRate.
+    public void setUp(int recognizerRate) {
+        if (AudioConverter.isNeeded(sampleRate, channelCount, 16, recognizerRate)) {
+            bufferConverter = new AudioConverter(sampleRate, channelCount, 16, recognizerRate);
+        }
+        if (skipSilence) {
+            silenceFilter = new SilenceFilter(recognizerRate);
+        }
+        if (metrics != null) {
+            metrics.setSampleRate(recognizerRate);
+        }
+    }
+
+    public AudioConverter getBufferConverter() {
+        return bufferConverter;
+    }
+
+    public SilenceFilter getSilenceFilter() {
+        return silenceFilter;
+    }
+}
@@ -0,0 +1,31 @@
+package com.voice_scribe.vosk_dart;
+
+// Layout of the binary transcript index stored beside a transcript.
+//
+// The file starts with a header, followed by a record per word in the order written:
+//     float start, float end, float confidence, unsigned short word length, UTF-8 word bytes
+// and ends with a sparse time index, an entry for every INDEX_INTERVAL words:
+//     float start of the word, long offset of its record
+// The last FOOTER_SIZE bytes hold the offset of the time index, its entry count, the word
+// count, and the magic number again to mark the file as complete. All values are big endian.
+final class TranscriptIndex {
+    static final String EXTENSION = ".idx";
+
+    static final int MAGIC = 0x56535449; // "VSTI"
+    static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 6; // int magic, short version
+    static final int RECORD_HEADER_SIZE = 14; // float start, float end, float conf, short length
+    static final int ENTRY_SIZE = 12; // float start, long offset
+    static final int FOOTER_SIZE = 20; // long index offset, int entries, int words, int magic
+
+    static final int INDEX_INTERVAL = 64; // Words between time index entries.
+
+    private TranscriptIndex() {
+    }
+
+    // Returns the path of the index kept for the transcript at the given path.
+    static String pathOf(String transcriptPath) {
+        return transcriptPath + EXTENSION;
+    }
+}
@@ -0,0 +1,130 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+// Reads the words within a time range from a binary transcript index.
+//
+// Only the footer and time index are read up front. The word records are memory mapped, so only
+// the pages holding the requested range are read from disk.
+class TranscriptIndexReader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private TranscriptIndexReader() {
+    }
+
+    // Returns the words of the transcript at the given path that overlap the time range from start
+    // to end in seconds, in the order they were written.
+    //
+    // Throws an IOException if the index cannot be read or is incomplete.
+    public static WordResults read(String transcriptPath, double start, double end)
+            throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(
+                TranscriptIndex.pathOf(transcriptPath), "r"
+        )) {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+
+            if (size < TranscriptIndex.HEADER_SIZE + TranscriptIndex.FOOTER_SIZE) {
+                throw new IOException("Transcript index is incomplete.");
+            }
+
+            ByteBuffer footer = readAt(
+                    channel, size - TranscriptIndex.FOOTER_SIZE, TranscriptIndex.FOOTER_SIZE
+            );
+            long indexOffset = footer.getLong(0);
+            int entryCount = footer.getInt(8);
+
+            if (footer.getInt(16) != TranscriptIndex.MAGIC ||
+                    indexOffset + (long) entryCount * TranscriptIndex.ENTRY_SIZE
+                            != size - TranscriptIndex.FOOTER_SIZE) {
+                throw new IOException("Transcript index is incomplete.");
+            }
+
+            WordResults result = new WordResults();
+            if (entryCount == 0) {
+                return result;
+            }
+
+            ByteBuffer entries = readAt(
+                    channel, indexOffset, entryCount * TranscriptIndex.ENTRY_SIZE
+            );
+            // Start a block early, as words of the previous block may still overlap the range.
+            int entry = Math.max(0, lastEntryAtOrBefore(entries, entryCount, start) - 1);
+            long recordsOffset = entries.getLong(entry * TranscriptIndex.ENTRY_SIZE + 4);
+
+            MappedByteBuffer records = channel.map(
+                    FileChannel.MapMode.READ_ONLY, recordsOffset, indexOffset - recordsOffset
+            );
+            readRecords(records, start, end, result);
+
+            return result;
+        }
+    }
+
+    // Adds the records that overlap the time range to result, stopping at the first record that
+    // starts after the range.
+    private static void readRecords(
+            ByteBuffer records, double start, double end, WordResults result
+    ) {
+        byte[] word = new byte[64];
+
+        while (records.remaining() >= TranscriptIndex.RECORD_HEADER_SIZE) {
+            float wordStart = records.getFloat();
+            float wordEnd = records.getFloat();
+            float confidence = records.getFloat();
+            int length = records.getShort() & 0xFFFF;
+
+            if (wordStart > end) {
+                return;
+            }
+            if (wordEnd < start) {
+                records.position(records.position() + length);
+                continue;
+            }
+
+            if (word.length < length) {
+                word = new byte[length];
+            }
+            records.get(word, 0, length);
+            result.add(new String(word, 0, length, UTF_8), wordStart, wordEnd, confidence);
+        }
+    }
+
+    // Binary searches the time index for the last entry starting at or before the given time.
+    private static int lastEntryAtOrBefore(ByteBuffer entries, int entryCount, double time) {
+        int low = 0;
+        int high = entryCount - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (entries.getFloat(middle * TranscriptIndex.ENTRY_SIZE) <= time) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long offset, int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) == -1) {
+                throw new IOException("Transcript index is incomplete.");
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+}
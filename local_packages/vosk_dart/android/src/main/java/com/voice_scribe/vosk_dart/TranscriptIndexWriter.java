@@ -0,0 +1,116 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// Writes the words of transcription results to a binary transcript index.
+//
+// The time index is kept in memory and written as the footer on close. An index that was not
+// closed has no footer and is treated as unavailable by the reader.
+class TranscriptIndexWriter {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_WORD_LENGTH = 1024; // In bytes, longer words are cut.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final FileChannel output;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // Unwritten bytes.
+
+    private long offset = 0; // Offset in the file of the next record.
+    private int wordCount = 0;
+
+    private float[] entryStarts = new float[64];
+    private long[] entryOffsets = new long[64];
+    private int entryCount = 0;
+
+    // If the index file at the given indexPath cannot be created, a FileNotFoundException is
+    // thrown.
+    public TranscriptIndexWriter(String indexPath) throws FileNotFoundException {
+        output = new FileOutputStream(indexPath).getChannel();
+
+        buffer.putInt(TranscriptIndex.MAGIC);
+        buffer.putShort(TranscriptIndex.VERSION);
+        offset = TranscriptIndex.HEADER_SIZE;
+    }
+
+    // Adds the words of the given result to the index.
+    public void writeResult(WordResults result) throws IOException {
+        for (int i = 0; i < result.size(); i++) {
+            byte[] word = result.getWord(i).getBytes(UTF_8);
+            int length = Math.min(word.length, MAX_WORD_LENGTH);
+
+            if (wordCount % TranscriptIndex.INDEX_INTERVAL == 0) {
+                addEntry((float) result.getStart(i), offset);
+            }
+
+            int recordSize = TranscriptIndex.RECORD_HEADER_SIZE + length;
+            if (buffer.remaining() < recordSize) {
+                flush();
+            }
+
+            buffer.putFloat((float) result.getStart(i));
+            buffer.putFloat((float) result.getEnd(i));
+            buffer.putFloat((float) result.getConfidence(i));
+            buffer.putShort((short) length);
+            buffer.put(word, 0, length);
+
+            offset += recordSize;
+            wordCount++;
+        }
+    }
+
+    // Writes out any buffered records.
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    // Writes the time index and footer, then closes the file.
+    public void close() throws IOException {
+        try {
+            long indexOffset = offset;
+
+            for (int i = 0; i < entryCount; i++) {
+                if (buffer.remaining() < TranscriptIndex.ENTRY_SIZE) {
+                    flush();
+                }
+                buffer.putFloat(entryStarts[i]);
+                buffer.putLong(entryOffsets[i]);
+            }
+
+            if (buffer.remaining() < TranscriptIndex.FOOTER_SIZE) {
+                flush();
+            }
+            buffer.putLong(indexOffset);
+            buffer.putInt(entryCount);
+            buffer.putInt(wordCount);
+            buffer.putInt(TranscriptIndex.MAGIC);
+
+            flush();
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    private void addEntry(float start, long recordOffset) {
+        if (entryCount == entryStarts.length) {
+            entryStarts = Arrays.copyOf(entryStarts, entryCount * 2);
+            entryOffsets = Arrays.copyOf(entryOffsets, entryCount * 2);
+        }
+        entryStarts[entryCount] = start;
+        entryOffsets[entryCount] = recordOffset;
+        entryCount++;
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+// Append-only journal of the results of a transcript, kept beside it while it is written, so the
+// transcript can be rebuilt if the process dies before the transcript is closed.
+//
+// Each result is written to the file as a checksummed record as soon as it is appended, so results
+// survive the process dying without waiting for the buffer of the transcript to be written out.
+// Records are forced to storage in groups as decided by the given sync policy, so a device losing
+// power loses at most the records since the last sync, without paying a sync per result. Syncs due
+// by time while no further result comes are left to the writer to schedule. Once the transcript is
+// closed and forced to storage, the journal is deleted.
+//
+// The file starts with a header, followed by a record per result:
+//     int payload length, int CRC-32 of the payload, payload
+// where the payload is the result formatted as in the transcript, in UTF-8. All values are big
+// endian. A record cut short or not matching its checksum ends the journal.
+class TranscriptJournal {
+    static final String EXTENSION = ".journal";
+
+    private static final int MAGIC = 0x5653544A; // "VSTJ"
+    private static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 6; // int magic, short version
+    private static final int RECORD_HEADER_SIZE = 8; // int length, int checksum
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024; // Larger lengths are torn.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String journalPath;
+    private final FileOutputStream stream;
+    private final FileChannel output;
+    private final FlushPolicy syncPolicy;
+    private final CRC32 checksum = new CRC32();
+    private ByteBuffer record = ByteBuffer.allocate(1024); // Record being written, reused.
+
+    private int recordsSinceSync = 0;
+    private long lastSyncTime = System.currentTimeMillis();
+
+    // Creates the journal at the given journalPath, replacing any earlier one.
+    //
+    // If the journal cannot be created, a FileNotFoundException is thrown.
+    public TranscriptJournal(String journalPath, FlushPolicy syncPolicy)
+            throws FileNotFoundException {
+        this.journalPath = journalPath;
+        this.syncPolicy = syncPolicy;
+        stream = new FileOutputStream(journalPath);
+        output = stream.getChannel();
+    }
+
+    // Returns the path of the journal kept for the transcript at the given path.
+    static String pathOf(String transcriptPath) {
+        return transcriptPath + EXTENSION;
+    }
+
+    // Writes the given formatted result from the given start index on as a record, and forces the
+    // journal to storage if the sync policy says so.
+    //
+    // If an IO error occurs, an IOException is thrown.
+    public void append(CharSequence formatted, int start) throws IOException {
+        byte[] payload = formatted.subSequence(start, formatted.length()).toString()
+                .getBytes(UTF_8);
+        int size = RECORD_HEADER_SIZE + payload.length;
+
+        if (record.capacity() < HEADER_SIZE + size) {
+            record = ByteBuffer.allocate(Math.max(HEADER_SIZE + size, record.capacity() * 2));
+        }
+        record.clear();
+
+        if (output.position() == 0) {
+            record.putInt(MAGIC);
+            record.putShort(VERSION);
+        }
+
+        checksum.reset();
+        checksum.update(payload, 0, payload.length);
+        record.putInt(payload.length);
+        record.putInt((int) checksum.getValue());
+        record.put(payload);
+        record.flip();
+
+        while (record.hasRemaining()) {
+            output.write(record);
+        }
+
+        recordsSinceSync++;
+        syncIfDue();
+    }
+
+    // Forces the records written so far to storage if the sync policy says so.
+    //
+    // If an IO error occurs, an IOException is thrown.
+    public void syncIfDue() throws IOException {
+        if (syncPolicy.shouldFlush(recordsSinceSync, System.currentTimeMillis() - lastSyncTime)) {
+            sync();
+        }
+    }
+
+    // Returns the milliseconds until the records written since the last sync are due to be synced
+    // by time, or -1 if none are waiting or the sync policy does not sync by time.
+    public long millisecondsUntilSync() {
+        return syncPolicy.millisecondsUntilFlush(
+                recordsSinceSync, System.currentTimeMillis() - lastSyncTime
+        );
+    }
+
+    // Forces the records written so far to storage.
+    public void sync() throws IOException {
+        output.force(false);
+        recordsSinceSync = 0;
+        lastSyncTime = System.currentTimeMillis();
+    }
+
+    // Closes the journal. If discard is true, the transcript is complete and the journal is
+    // deleted, otherwise it is kept to recover the transcript from.
+    public void close(boolean discard) throws IOException {
+        stream.close();
+
+        if (discard) {
+            new File(journalPath).delete();
+        }
+    }
+
+    // Rebuilds the transcript at the given transcriptPath in the given encoding from the records
+    // of its journal, replacing whatever part of it was written, then deletes the journal.
+    // Returns the number of results recovered, or -1 if the transcript has no journal.
+    //
+    // Throws an IOException if the journal is not a journal or the transcript cannot be written.
+    static int recover(String transcriptPath, String encoding) throws IOException {
+        File journal = new File(pathOf(transcriptPath));
+        DataInputStream input;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+        }
+        catch (FileNotFoundException e) {
+            return -1;
+        }
+
+        File temporary = new File(transcriptPath + ".tmp");
+        FileOutputStream output = new FileOutputStream(temporary);
+        int count = 0;
+
+        try {
+            Writer writer = new OutputStreamWriter(output, encoding);
+
+            if (!readHeader(input)) {
+                throw new IOException("Not a transcript journal.");
+            }
+
+            CRC32 checksum = new CRC32();
+            String result;
+
+            while ((result = readRecord(input, checksum)) != null) {
+                if (count > 0) { // Results are separated as TranscriptWriter separates them.
+                    writer.write('\n');
+                }
+                writer.write(result);
+                count++;
+            }
+
+            writer.flush();
+            output.getFD().sync();
+        }
+        finally {
+            input.close();
+            output.close();
+        }
+
+        if (!temporary.renameTo(new File(transcriptPath))) {
+            throw new IOException("Could not replace transcript.");
+        }
+        journal.delete();
+
+        return count;
+    }
+
+    // Reads the header of a journal, returning false if the file is not a journal. An empty
+    // journal, created before its first record, counts as a journal.
+    private static boolean readHeader(DataInputStream input) throws IOException {
+        try {
+            return input.readInt() == MAGIC && input.readShort() == VERSION;
+        }
+        catch (EOFException e) {
+            return true;
+        }
+    }
+
+    // Reads the next record, or returns null if the journal ends or the record is torn.
+    private static String readRecord(DataInputStream input, CRC32 checksum) throws IOException {
+        try {
+            int length = input.readInt();
+            int expected = input.readInt();
+
+            if (length < 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+
+            byte[] payload = new byte[length];
+            input.readFully(payload);
+
+            checksum.reset();
+            checksum.update(payload, 0, length);
+            if ((int) checksum.getValue() != expected) {
+                return null;
+            }
+
+            return new String(payload, UTF_8);
+        }
+        catch (EOFException e) {
+            return null;
+        }
+    }
+}
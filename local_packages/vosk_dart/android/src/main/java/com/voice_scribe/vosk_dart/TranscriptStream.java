@@ -0,0 +1,198 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Future;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// A transcript of its own within an instance, next to the main transcript, so that several audio
+// sources can be transcribed at once without an instance, thread, and model load for each.
+//
+// Each stream has its own recognizer from the recognizer pool, transcript writer, queue of fed
+// buffers, and result parser, and holds its own reference to the model, so the instance may close
+// its model while streams are still open. Its tasks run in order on a lane of its own, so streams
+// are transcribed at the same time over the shared threads of the task scheduler. Events posted
+// by a stream carry its streamId. Only used in the main thread.
+class TranscriptStream {
+    private final Lane lane; // Runs the tasks of this stream alone.
+    private final ModelCache modelCache;
+    private final String modelPath; // Path of the model acquired from the model cache.
+    private final Bridge bridge; // Forgets the partial results of the stream if terminated.
+    private final EventPoster eventPoster;
+    private final ResultParser resultParser = new ResultParser(); // Streams run at the same time.
+    private final Metrics metrics; // Shared with the instance.
+
+    private final Future<Recognizer> recognizerFuture;
+    private final RecognizerPool recognizerPool;
+    private final SearchIndex searchIndex; // Receives the transcript once finished, if indexed.
+    private final TranscriptWriter transcriptWriter;
+    private final FeedQueue feedQueue;
+    private final TranscriptAudio transcriptAudio; // Set up once the model is loaded.
+
+    private final HashMap<Long, CancellationToken> feeds = new HashMap<Long, CancellationToken>();
+
+    // Opens a stream with the given streamId writing to the given transcriptPath, with options as
+    // for the main transcript of an instance, decoding with the model at the given modelPath.
+    //
+    // Will throw a FileNotFoundException if transcript file could not be found or created.
+    // Will throw a UnsupportedEncodingException if charset is not supported on operating system.
+    public TranscriptStream(
+            long streamId,
+            String transcriptPath,
+            int sampleRate,
+            int channelCount,
+            FlushPolicy flushPolicy,
+            boolean indexed,
+            FlushPolicy syncPolicy,
+            int queueCapacity,
+            int overflowPolicy,
+            boolean skipSilence,
+            String grammar,
+            boolean words,
+            ModelCache modelCache,
+            RecognizerPool recognizerPool,
+            SearchIndex searchIndex,
+            String modelPath,
+            TaskScheduler taskScheduler,
+            Bridge bridge,
+            Handler mainHandler,
+            Metrics metrics
+    ) throws FileNotFoundException, UnsupportedEncodingException {
+        transcriptWriter = new TranscriptWriter(
+                transcriptPath, "UTF-8", flushPolicy, indexed, syncPolicy
+        );
+
+        this.modelCache = modelCache;
+        this.recognizerPool = recognizerPool;
+        this.searchIndex = searchIndex;
+        this.modelPath = modelPath;
+        this.metrics = metrics;
+        this.bridge = bridge;
+        eventPoster = new StreamEventPoster(bridge, streamId);
+
+        lane = taskScheduler.newLane(null);
+        transcriptWriter.scheduleOn(mainHandler, lane);
+        Future<Model> modelFuture = modelCache.acquire(modelPath);
+        transcriptAudio = new TranscriptAudio(sampleRate, channelCount, skipSilence, null);
+        recognizerFuture = lane.submit(new CreateRecognizer(
+                recognizerPool, modelFuture, transcriptAudio, grammar, words
+        ));
+
+        feedQueue = new FeedQueue(
+                mainHandler, queueCapacity, overflowPolicy, sampleRate, channelCount
+        );
+    }
+
+    // Queues the remaining bytes of the given buffer to be fed to the recognizer of the stream,
+    // as with the main transcript of an instance.
+    public void feedBuffer(
+            ByteBuffer buffer, boolean post, FeedQueue.AcceptListener acceptListener
+    ) {
+        if (feedQueue.offer(buffer, post, acceptListener)) {
+            lane.submit(new TranscribeBuffer(
+                    feedQueue,
+                    transcriptAudio,
+                    recognizerFuture,
+                    transcriptWriter,
+                    eventPoster,
+                    resultParser,
+                    metrics
+            ));
+        }
+    }
+
+    // Feeds the given file to the recognizer of the stream under the given feedId, stopped,
+    // paused, and resumed through the given cancellationToken. Buffers are read as decided by the
+    // given TranscribeFile chunkPolicy, and the file yields its thread as with the main transcript.
+    public void feedFile(
+            long feedId,
+            String filePath,
+            boolean post,
+            CancellationToken cancellationToken,
+            int chunkPolicy
+    ) {
+        removeEndedFeeds();
+        feeds.put(feedId, cancellationToken);
+
+        lane.submit(new TranscribeFile(
+                filePath,
+                transcriptAudio,
+                lane,
+                cancellationToken,
+                chunkPolicy,
+                recognizerFuture,
+                transcriptWriter,
+                post ? eventPoster : null,
+                resultParser,
+                metrics
+        ));
+    }
+
+    // Returns the token of the file fed to this stream with the given feedId, or null if there is
+    // none. If remove is true, the feed is forgotten.
+    public CancellationToken getFeed(long feedId, boolean remove) {
+        return remove ? feeds.remove(feedId) : feeds.get(feedId);
+    }
+
+    // Writes and posts the remaining results once the tasks given so far are done, then closes the
+    // stream. If post is true, result events will be posted to dart side.
+    public void finish(boolean post) {
+        lane.submit(new FinishTranscript(
+                recognizerPool,
+                searchIndex,
+                transcriptAudio,
+                recognizerFuture,
+                transcriptWriter,
+                post ? eventPoster : null,
+                resultParser,
+                metrics
+        ));
+        close();
+    }
+
+    // Closes the stream right away, cancelling its fed files and dropping queued buffers. The
+    // transcript file is not deleted.
+    public void terminate() {
+        for (CancellationToken cancellationToken : feeds.values()) {
+            cancellationToken.cancel();
+        }
+        feeds.clear();
+        feedQueue.clear();
+        lane.submit(new ReleaseRecognizer(recognizerPool, recognizerFuture));
+
+        try {
+            transcriptWriter.close();
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not write to transcript.");
+        }
+        bridge.forgetPartials(transcriptWriter.getTranscriptPath());
+
+        close();
+    }
+
+    // Releases the model once the tasks given so far are done, and shuts the lane down.
+    private void close() {
+        lane.submit(new ReleaseModel(modelCache, modelPath));
+        lane.shutdown();
+    }
+
+    // Forgets the feeds that have ended.
+    private void removeEndedFeeds() {
+        Iterator<CancellationToken> iterator = feeds.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().hasEnded()) {
+                iterator.remove();
+            }
+        }
+    }
+}
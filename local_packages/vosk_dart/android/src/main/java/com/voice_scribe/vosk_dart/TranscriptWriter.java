@@ -1,84 +1,433 @@
 package com.voice_scribe.vosk_dart;
 
+import android.os.Handler;
+
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 // Abstracts the parsing and writing of transcription results to a single file.
+//
+// Results are formatted into a reused buffer and encoded into a byte buffer that is written to the
+// file when full, or earlier as decided by the given flush policy. Safe to close from a different
+// thread than the one writing, any results written after closing are ignored.
+//
+// If indexed, the words are also written to a binary transcript index beside the transcript, and
+// collected so the finished transcript can be added to the search index. If journaled, each result
+// is also appended to a TranscriptJournal synced as decided by the given sync policy, which is
+// deleted once the transcript is closed, so a transcript cut short can be rebuilt from it. Flushes
+// and syncs due by time are checked as results are written, and once scheduled, also when they
+// fall due.
+// A transcript can be resumed from a length committed earlier, continuing after its results.
 class TranscriptWriter {
+    private static final int BYTE_BUFFER_SIZE = 16 * 1024;
+    private static final int DECIMAL_PLACES = 6; // Precision of the timestamps given by Vosk.
+    private static final long DECIMAL_SCALE = 1000000;
+
     private final String transcriptPath;
 
-    private final PrintWriter output;
+    private final FileChannel output;
+    private final CharsetEncoder encoder;
+    private final FlushPolicy flushPolicy;
+    private final TranscriptIndexWriter indexWriter; // Null if not indexed.
+    private final SearchDocument searchDocument; // Null if not indexed.
+    private final TranscriptJournal journal; // Null if not journaled.
+
+    private final StringBuilder formatted = new StringBuilder(); // Result being formatted.
+    private CharBuffer chars = CharBuffer.allocate(1024); // Formatted result being encoded.
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE); // Unwritten bytes.
+
+    private int resultsSinceFlush = 0;
+    private long lastFlushTime = System.currentTimeMillis();
+
+    private boolean writtenFirstResult; // Used to treat first results in a special manner.
+    private boolean closed = false;
 
-    private boolean writtenFirstResult = false; // Used to treat first results in a special manner.
+    private Handler mainHandler; // Schedules the timed work, unless null.
+    private Executor lane; // Runs the timed work.
+    private boolean timerScheduled = false;
+
+    // Hands the timed work over to the lane once due. Called in the main thread.
+    private final Runnable timer = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                lane.execute(timedWork);
+            }
+            catch (RejectedExecutionException e) {
+                // The lane was shut down, and the transcript closed with it.
+            }
+        }
+    };
+
+    // Writes out results and syncs the journal if due, and schedules the next time. Run in the
+    // lane.
+    private final Runnable timedWork = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (TranscriptWriter.this) {
+                timerScheduled = false;
+
+                if (closed) {
+                    return;
+                }
+
+                try {
+                    if (flushPolicy.shouldFlush(
+                            resultsSinceFlush, System.currentTimeMillis() - lastFlushTime
+                    )) {
+                        flush();
+                    }
+                    if (journal != null) {
+                        journal.syncIfDue();
+                    }
+                }
+                catch (IOException e) {
+                    System.out.println("IO error, could not write to transcript.");
+                }
+                scheduleTimer();
+            }
+        }
+    };
 
     // If the given transcriptPath points to a file that does not exists or that cannot be created,
     // a FileNotFoundException is thrown.
     // If the given encoding is unsupported, an UnsupportedEncodingException is thrown.
     public TranscriptWriter(
-            String transcriptPath, String encoding
+            String transcriptPath, String encoding, FlushPolicy flushPolicy, boolean indexed
     ) throws FileNotFoundException, UnsupportedEncodingException {
+        this(transcriptPath, encoding, flushPolicy, indexed, null);
+    }
+
+    // As above, journaling the results with the given syncPolicy unless it is null.
+    public TranscriptWriter(
+            String transcriptPath,
+            String encoding,
+            FlushPolicy flushPolicy,
+            boolean indexed,
+            FlushPolicy syncPolicy
+    ) throws FileNotFoundException, UnsupportedEncodingException {
+        this(
+                transcriptPath,
+                encoderFor(encoding),
+                flushPolicy,
+                new FileOutputStream(transcriptPath).getChannel(),
+                indexed ? new TranscriptIndexWriter(TranscriptIndex.pathOf(transcriptPath)) : null,
+                syncPolicy != null ? new TranscriptJournal(
+                        TranscriptJournal.pathOf(transcriptPath), syncPolicy
+                ) : null,
+                false
+        );
+    }
+
+    private TranscriptWriter(
+            String transcriptPath,
+            CharsetEncoder encoder,
+            FlushPolicy flushPolicy,
+            FileChannel output,
+            TranscriptIndexWriter indexWriter,
+            TranscriptJournal journal,
+            boolean writtenFirstResult
+    ) {
         this.transcriptPath = transcriptPath;
-        this.output = new PrintWriter(transcriptPath, encoding);
+        this.encoder = encoder;
+        this.flushPolicy = flushPolicy;
+        this.output = output;
+        this.indexWriter = indexWriter;
+        this.journal = journal;
+        this.writtenFirstResult = writtenFirstResult;
+        searchDocument = indexWriter != null ? new SearchDocument(transcriptPath) : null;
+    }
+
+    // Opens the transcript at the given transcriptPath to continue writing after its first length
+    // bytes, as returned by commit. Anything after them is discarded. Resumed transcripts are not
+    // indexed or journaled.
+    //
+    // If the transcript cannot be opened or truncated, an IOException is thrown.
+    public static TranscriptWriter resume(
+            String transcriptPath, String encoding, FlushPolicy flushPolicy, long length
+    ) throws IOException {
+        CharsetEncoder encoder = encoderFor(encoding);
+        FileChannel output = new RandomAccessFile(transcriptPath, "rw").getChannel();
+
+        try {
+            output.truncate(length);
+            output.position(length);
+        }
+        catch (IOException e) {
+            output.close();
+            throw e;
+        }
+
+        return new TranscriptWriter(
+                transcriptPath, encoder, flushPolicy, output, null, null, length > 0
+        );
+    }
+
+    // Has flushes and syncs due by time run in the given lane when they fall due, scheduled through
+    // the given mainHandler, rather than only when the next result is written.
+    public synchronized void scheduleOn(Handler mainHandler, Executor lane) {
+        this.mainHandler = mainHandler;
+        this.lane = lane;
     }
 
-    // Closes the writer.
-    public void close() {
-        output.close();
+    // Writes out any remaining results and closes the writer. If journaled, the transcript is
+    // forced to storage before the journal is deleted.
+    //
+    // If an IO error occurs, an IOException is thrown. The writer is closed regardless, keeping the
+    // journal.
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean complete = false;
+
+        if (mainHandler != null) {
+            mainHandler.removeCallbacks(timer);
+        }
+
+        try {
+            chars.clear().flip();
+            encode(true);
+            flush();
+
+            if (journal != null) {
+                output.force(false);
+            }
+            complete = true;
+        }
+        finally {
+            output.close();
+
+            if (journal != null) {
+                journal.close(complete);
+            }
+            if (indexWriter != null) {
+                indexWriter.close();
+            }
+        }
     }
 
     public String getTranscriptPath() {
         return transcriptPath;
     }
 
-    // Writes the given result to the transcript.
-    // If the resultString has no data, then nothing happens.
-    // If given string is not a proper JSON string, a JSONException is thrown.
-    public void writeResult(JSONObject result) throws JSONException {
-        String parsedResult = parseResult(result);
+    // Returns the words written so far to be added to the search index, or null if not indexed.
+    public synchronized SearchDocument getSearchDocument() {
+        return searchDocument;
+    }
+
+    // Writes out all results written so far and forces them to storage, returning the length of
+    // the transcript they make up.
+    //
+    // If an IO error occurs or the writer is closed, an IOException is thrown.
+    public synchronized long commit() throws IOException {
+        flush();
+        output.force(false);
+        return output.position();
+    }
 
-        if (parsedResult.isEmpty()) {
+    // Writes the given result to the transcript. A result without word results, as from a
+    // recognizer giving none, is written as its text on a line of its own.
+    // If the result has neither word results nor text or the writer is closed, then nothing
+    // happens. If an IO error occurs, an IOException is thrown.
+    public synchronized void writeResult(WordResults result) throws IOException {
+        if ((result.isEmpty() && result.getText().isEmpty()) || closed) {
             return;
         }
 
+        formatted.setLength(0);
+
         if (writtenFirstResult) { // Create separation from previous result only if not first.
-            output.write("\n");
+            formatted.append('\n');
         }
         else {
             writtenFirstResult = true;
         }
 
-        output.write(parsedResult);
+        int resultStart = formatted.length();
+        parseResult(result, formatted);
+        encodeFormatted();
+
+        if (journal != null) {
+            journal.append(formatted, resultStart);
+        }
+
+        if (indexWriter != null) {
+            indexWriter.writeResult(result);
+            searchDocument.add(result);
+        }
+
+        resultsSinceFlush++;
+        long now = System.currentTimeMillis();
+
+        if (flushPolicy.shouldFlush(resultsSinceFlush, now - lastFlushTime)) {
+            flush();
+        }
+        scheduleTimer();
+    }
+
+    private static CharsetEncoder encoderFor(String encoding) throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(encoding).newEncoder();
+        }
+        catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+    }
+
+    // Schedules the timed work for when the next flush or sync by time falls due, or cancels it if
+    // none is waiting. Does nothing unless scheduled on a lane.
+    private void scheduleTimer() {
+        if (mainHandler == null) {
+            return;
+        }
+
+        long delay = flushPolicy.millisecondsUntilFlush(
+                resultsSinceFlush, System.currentTimeMillis() - lastFlushTime
+        );
+        long syncDelay = journal != null ? journal.millisecondsUntilSync() : -1;
+
+        if (delay < 0 || (syncDelay >= 0 && syncDelay < delay)) {
+            delay = syncDelay;
+        }
+
+        if (delay < 0) {
+            if (timerScheduled) {
+                mainHandler.removeCallbacks(timer);
+                timerScheduled = false;
+            }
+        }
+        else if (!timerScheduled) {
+            mainHandler.postDelayed(timer, delay);
+            timerScheduled = true;
+        }
+    }
+
+    // Writes out all encoded bytes to the file.
+    private void flush() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            output.write(bytes);
+        }
+        bytes.clear();
+
+        if (indexWriter != null) {
+            indexWriter.flush();
+        }
+
+        resultsSinceFlush = 0;
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    // Encodes the formatted result, writing out the byte buffer whenever it fills up.
+    private void encodeFormatted() throws IOException {
+        int length = formatted.length();
+
+        if (chars.capacity() < length) {
+            chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+        }
+
+        chars.clear();
+        formatted.getChars(0, length, chars.array(), 0);
+        chars.limit(length);
+
+        encode(false);
     }
 
-    // Parses the given result into the proper format.
-    // If the result is empty, an empty string is returned.
-    // If given string is not a proper JSON string, a JSONException is thrown.
-    private static String parseResult(JSONObject result) throws JSONException {
-        if (!result.has("result")) { // Terminate if result is empty.
-            return "";
+    // Encodes the remaining chars, ending the input if endOfInput is true.
+    private void encode(boolean endOfInput) throws IOException {
+        CoderResult result;
+
+        do {
+            result = encoder.encode(chars, bytes, endOfInput);
+            handle(result);
+        } while (result.isOverflow());
+
+        if (endOfInput) {
+            do {
+                result = encoder.flush(bytes);
+                handle(result);
+            } while (result.isOverflow());
         }
+    }
 
-        JSONArray wordResults = result.getJSONArray("result");
-        String parsedResult = "";
+    // Writes out the byte buffer if it is full, or throws if the chars could not be encoded.
+    private void handle(CoderResult result) throws IOException {
+        if (result.isOverflow()) {
+            flush();
+        }
+        else if (result.isError()) {
+            result.throwException();
+        }
+    }
 
-        for (int i = 0; i < wordResults.length(); i++) {
-            parsedResult += parseWordResult(wordResults.getJSONObject(i)) + '\n';
+    // Appends the given result in the proper format to the given builder, a word result per line,
+    // or its text on one line if it has no word results.
+    private static void parseResult(WordResults result, StringBuilder builder) {
+        if (result.isEmpty()) {
+            builder.append(result.getText()).append('\n');
+            return;
         }
 
-        return parsedResult;
+        for (int i = 0; i < result.size(); i++) {
+            parseWordResult(result, i, builder);
+            builder.append('\n');
+        }
     }
 
-    // Parses and returns the given word result JSON object as a formatted string.
-    // If the given wordResult does not contain the proper data, a JSONException is thrown.
-    private static String parseWordResult(JSONObject wordResult) throws JSONException {
-        return wordResult.getString("word") + " " +
-                String.valueOf(wordResult.getDouble("start")) + " " +
-                String.valueOf(wordResult.getDouble("end")) + " " +
-                String.valueOf(wordResult.getDouble("conf"));
+    // Appends the word result at the given index as a formatted line to the given builder.
+    private static void parseWordResult(WordResults result, int i, StringBuilder builder) {
+        builder.append(result.getWord(i)).append(' ');
+        appendDecimal(builder, result.getStart(i));
+        builder.append(' ');
+        appendDecimal(builder, result.getEnd(i));
+        builder.append(' ');
+        appendDecimal(builder, result.getConfidence(i));
+    }
+
+    // Appends the given value with up to six decimal places without creating strings. Trailing
+    // zeros are dropped, keeping at least one decimal place like String.valueOf.
+    private static void appendDecimal(StringBuilder builder, double value) {
+        long scaled = Math.round(Math.abs(value) * DECIMAL_SCALE);
+
+        if (value < 0 && scaled != 0) {
+            builder.append('-');
+        }
+
+        builder.append(scaled / DECIMAL_SCALE).append('.');
+
+        long fraction = scaled % DECIMAL_SCALE;
+        int places = DECIMAL_PLACES;
+        while (places > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            places--;
+        }
+
+        for (long digit = pow10(places - 1); digit > fraction && digit > 1; digit /= 10) {
+            builder.append('0'); // Leading zeros of the fraction.
+        }
+        builder.append(fraction);
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
     }
 }
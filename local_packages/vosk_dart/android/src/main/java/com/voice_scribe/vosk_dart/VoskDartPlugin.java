@@ -1,5 +1,10 @@
 package com.voice_scribe.vosk_dart;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.annotation.NonNull;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
@@ -10,23 +15,56 @@ import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry.Registrar;
 
+import java.io.File;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** VoskDartPlugin */
 public class VoskDartPlugin implements FlutterPlugin, MethodCallHandler {
+    private static final int MIN_LANE_THREADS = 2;
+    private static final String PREFERENCES_NAME = "vosk_dart";
+    private static final String WARM_UP_MODEL_PATH = "warmUpModelPath";
+    private static final String SEARCH_INDEX_DIRECTORY = "vosk_search_index";
+
     private MethodChannel mainMethodChannel; // The main method channel used to communicate with dart.
     private FlutterPluginBinding flutterPluginBinding;
+    private ModelCache modelCache; // Models shared among all instances.
+    private RecognizerPool recognizerPool; // Recognizers reused among all instances.
+    private SearchIndex searchIndex; // Finished indexed transcripts of all instances.
+    private TaskScheduler taskScheduler; // Threads that run the lanes of all instances.
+    private ExecutorService workerService; // Threads shared among all instances for parallel work.
+    private int workerCount;
+    private ModelWarmUp modelWarmUp; // Warm-up started at attach, if a model was configured.
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private final HashMap<Long, VoskInstance> instances = new HashMap<Long, VoskInstance>();
 
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding flutterPluginBinding) {
         this.flutterPluginBinding = flutterPluginBinding;
+        recognizerPool = new RecognizerPool();
+        modelCache = new ModelCache(recognizerPool);
+        searchIndex = new SearchIndex(new File(
+                flutterPluginBinding.getApplicationContext().getFilesDir(),
+                SEARCH_INDEX_DIRECTORY
+        ));
+        taskScheduler = new TaskScheduler(
+                Math.max(MIN_LANE_THREADS, Runtime.getRuntime().availableProcessors())
+        );
+        workerCount = Runtime.getRuntime().availableProcessors();
+        workerService = Executors.newFixedThreadPool(workerCount);
 
         mainMethodChannel = new MethodChannel(
                 flutterPluginBinding.getBinaryMessenger(),
                 "vosk_main"
         );
         mainMethodChannel.setMethodCallHandler(this);
+
+        String warmUpModelPath = getPreferences().getString(WARM_UP_MODEL_PATH, null);
+        if (warmUpModelPath != null) {
+            modelWarmUp = new ModelWarmUp(modelCache, recognizerPool, warmUpModelPath);
+            modelWarmUp.start();
+        }
     }
 
     @Override
@@ -36,6 +74,11 @@ public class VoskDartPlugin implements FlutterPlugin, MethodCallHandler {
             voskInstance.disconnect();
         }
         instances.clear();
+        modelCache.close();
+        recognizerPool.close();
+        taskScheduler.shutdown();
+        searchIndex.close();
+        workerService.shutdown();
         mainMethodChannel.setMethodCallHandler(null);
     }
 
@@ -51,6 +94,59 @@ public class VoskDartPlugin implements FlutterPlugin, MethodCallHandler {
             removeInstance(id);
             result.success(null);
         }
+        else if (call.method.equals("preloadModel")) {
+            String modelPath = (String) call.arguments;
+            modelCache.preload(modelPath);
+            result.success(null);
+        }
+        else if (call.method.equals("unloadModel")) {
+            String modelPath = (String) call.arguments;
+            modelCache.unload(modelPath);
+            result.success(null);
+        }
+        else if (call.method.equals("configureRecognizerPool")) {
+            int maxIdle = call.argument("maxIdle");
+            long idleTimeout = ((Number) call.argument("idleTimeout")).longValue();
+            recognizerPool.setLimits(maxIdle, idleTimeout);
+            result.success(null);
+        }
+        else if (call.method.equals("configureWarmUp")) {
+            String modelPath = (String) call.arguments;
+            configureWarmUp(modelPath);
+            result.success(null);
+        }
+        else if (call.method.equals("getWarmUpReport")) {
+            result.success(modelWarmUp == null ? null : modelWarmUp.getReport());
+        }
+        else if (call.method.equals("readTranscriptRange")) {
+            String transcriptPath = call.argument("transcriptPath");
+            double start = ((Number) call.argument("start")).doubleValue();
+            double end = ((Number) call.argument("end")).doubleValue();
+            workerService.submit(new ReadTranscriptRange(
+                    transcriptPath, start, end, result, mainHandler
+            ));
+        }
+        else if (call.method.equals("recoverTranscript")) {
+            String transcriptPath = (String) call.arguments;
+            workerService.submit(new RecoverTranscript(transcriptPath, result, mainHandler));
+        }
+        else if (call.method.equals("searchTranscripts")) {
+            String query = call.argument("query");
+            int maxHits = call.argument("maxHits");
+            workerService.submit(new SearchTranscripts(
+                    searchIndex, query, maxHits, result, mainHandler
+            ));
+        }
+        else if (call.method.equals("removeFromSearchIndex")) {
+            String transcriptPath = (String) call.arguments;
+            searchIndex.remove(transcriptPath);
+            result.success(null);
+        }
+        else if (call.method.equals("setModelCacheBudget")) {
+            long budget = ((Number) call.arguments).longValue();
+            modelCache.setBudget(budget);
+            result.success(null);
+        }
         else {
             result.notImplemented();
         }
@@ -59,10 +155,40 @@ public class VoskDartPlugin implements FlutterPlugin, MethodCallHandler {
     // Creates a new vosk instance with the given name and establishes a connection with it.
     // If an instance with the name exists, nothing happens.
     private void createNewInstance(long id) {
-        VoskInstance newInstance = new VoskInstance(flutterPluginBinding.getBinaryMessenger(), id);
+        VoskInstance newInstance = new VoskInstance(
+                flutterPluginBinding.getBinaryMessenger(),
+                id,
+                modelCache,
+                recognizerPool,
+                searchIndex,
+                taskScheduler,
+                workerService,
+                workerCount
+        );
         instances.putIfAbsent(id, newInstance);
     }
 
+    // Saves the given modelPath as the model to warm up the next time the plugin is attached. If
+    // modelPath is null, no model is warmed up.
+    private void configureWarmUp(String modelPath) {
+        SharedPreferences.Editor editor = getPreferences().edit();
+
+        if (modelPath == null) {
+            editor.remove(WARM_UP_MODEL_PATH);
+        }
+        else {
+            editor.putString(WARM_UP_MODEL_PATH, modelPath);
+        }
+        editor.apply();
+    }
+
+    private SharedPreferences getPreferences() {
+        return flutterPluginBinding.getApplicationContext().getSharedPreferences(
+                PREFERENCES_NAME,
+                Context.MODE_PRIVATE
+        );
+    }
+
     // Removes the instance with the given name. If no instance with the name exists, nothing
     // happens. Instance resources are not closed before removal.
     private void removeInstance(long id) {
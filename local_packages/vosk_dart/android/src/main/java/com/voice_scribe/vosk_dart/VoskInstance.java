@@ -6,9 +6,15 @@ import android.os.Looper;
 import io.flutter.plugin.common.BinaryMessenger;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import org.vosk.Model;
@@ -19,134 +25,542 @@ import org.vosk.Recognizer;
 // Provides minimal functionality. Parameters are not checked for validity and the order of method
 // calls is not enforced. These are instead done dart side where exceptions are more useful.
 class VoskInstance {
+    private final Handler mainHandler;
+    private final Metrics metrics = new Metrics(); // Latency and throughput of tasks.
     private final Bridge bridge; // Used to communicate with dart.
-    private final Handler mainHandler; // Main thread.
+    private final ResultParser resultParser = new ResultParser(); // Shared by tasks in the lane.
+    private final ModelCache modelCache; // Shared models among all instances.
+    private final RecognizerPool recognizerPool; // Shared recognizers among all instances.
+    private final SearchIndex searchIndex; // Finished indexed transcripts of all instances.
+    private final TaskScheduler taskScheduler; // Shared threads that run the lanes.
+    private final ExecutorService workerService; // Shared threads for parallel work.
+    private final int workerCount; // Number of threads in workerService.
 
-    private ExecutorService executorService; // Current thread used for transcribing.
-    private ExecutorService previousExecutorService; // Previous thread if any.
+    private Lane lane; // Current lane used for transcribing.
+    private Lane previousLane; // Previous lane if any.
 
+    private String modelPath; // Path of the model acquired from the model cache.
     private Future<Model> modelFuture; // The model that will be used for transcribing.
 
     private Future<Recognizer> recognizerFuture; // Recognizer used for transcribing.
+    private boolean constrained; // Whether the recognizer has a grammar or gives no words.
     private TranscriptWriter transcriptWriter; // Used to write results to a output file.
+    private FeedQueue feedQueue; // Buffers waiting to be fed to the current transcript.
+    private TranscriptAudio transcriptAudio; // Converts and drops silence of fed buffers.
 
-    public VoskInstance(BinaryMessenger binaryMessenger, long id) {
-        bridge = new Bridge(this, binaryMessenger, id);
+    // Files fed to the main transcript. Ids are shared with the files fed to streams.
+    private final HashMap<Long, CancellationToken> feeds = new HashMap<Long, CancellationToken>();
+    private long nextFeedId = 0;
+
+    // Open streams, transcribed next to the main transcript.
+    private final HashMap<Long, TranscriptStream> streams = new HashMap<Long, TranscriptStream>();
+    private long nextStreamId = 0;
+
+    private final HashMap<Long, Batch> batches = new HashMap<Long, Batch>(); // Running batches.
+    private long nextBatchId = 0;
+
+    private long metricsInterval = 0; // Milliseconds between metrics events, 0 if none are posted.
+
+    // Posts a metrics event and schedules the next one. Called in the main thread.
+    private final Runnable postMetrics = new Runnable() {
+        @Override
+        public void run() {
+            HashMap<String, Object> event = new HashMap<String, Object>();
+            event.put("metrics", metrics.toMap());
+            bridge.post(event);
+
+            if (metricsInterval > 0) {
+                mainHandler.postDelayed(this, metricsInterval);
+            }
+        }
+    };
+
+    public VoskInstance(
+            BinaryMessenger binaryMessenger,
+            long id,
+            ModelCache modelCache,
+            RecognizerPool recognizerPool,
+            SearchIndex searchIndex,
+            TaskScheduler taskScheduler,
+            ExecutorService workerService,
+            int workerCount
+    ) {
         mainHandler = new Handler(Looper.getMainLooper());
+        bridge = new Bridge(this, binaryMessenger, id, mainHandler, metrics.post);
+        this.modelCache = modelCache;
+        this.recognizerPool = recognizerPool;
+        this.searchIndex = searchIndex;
+        this.taskScheduler = taskScheduler;
+        this.workerService = workerService;
+        this.workerCount = workerCount;
     }
 
-    // Allocate a single thread for computation.
+    // Allocate a lane on the shared threads for computation.
     //
-    // Will wait for any previous thread to finish before any task will execute.
+    // Will wait for any previous lane to finish before any task will execute, without holding a
+    // thread while waiting.
     public void allocateSingleThread() {
-        executorService = Executors.newSingleThreadExecutor();
-        if (previousExecutorService != null) {
-            executorService.submit(new WaitForThread(previousExecutorService));
-        }
+        lane = taskScheduler.newLane(previousLane);
     }
 
-    // Deallocate the current thread.
+    // Deallocate the current lane.
     //
-    // Will wait for all existing tasks to complete before thread is closed.
+    // Will wait for all existing tasks to complete before lane is closed.
     public void deallocateThread() {
-        executorService.shutdown();
-        previousExecutorService = executorService;
-        executorService = null;
+        lane.shutdown();
+        previousLane = lane;
+        lane = null;
     }
 
-    // Attempts to interrupt thread and close it.
+    // Attempts to interrupt lane and close it.
     //
-    // Sends an interrupt signal.
+    // Cancels fed files, which stop at their next buffer even if paused, drops waiting tasks, and
+    // sends an interrupt signal to the running task.
     public void terminateThread() {
-        executorService.shutdownNow();
-        previousExecutorService = executorService;
-        executorService = null;
+        cancelFeeds();
+        lane.shutdownNow();
+        previousLane = lane;
+        lane = null;
     }
 
-    // Ask thread to open model at the given path.
+    // Open model at the given path.
+    //
+    // If another instance already opened the same model, its loaded copy is shared. Transcripts
+    // are decoded at the sample rate given by the configuration of the model, read along with the
+    // model in the background.
     public void openModel(String modelPath) {
-        modelFuture = executorService.submit(new OpenModel(modelPath));
+        this.modelPath = modelPath;
+        modelFuture = modelCache.acquire(modelPath);
     }
 
-    // Asks the thread to close the existing model.
+    // Asks the lane to release the existing model once its existing tasks are done.
     public void closeModel() {
-        executorService.submit(new CloseModel(modelFuture));
+        lane.submit(new ReleaseModel(modelCache, modelPath));
+        modelPath = null;
         modelFuture = null;
     }
 
     // Starts a new transcript file.
     //
-    // Subsequent calls to feed functions will write to the given transcriptPath.
+    // The recognizer is taken from the recognizer pool, and returned to it once the transcript is
+    // finished or terminated, so transcripts one after another reuse the same recognizer.
+    // Subsequent calls to feed functions will write to the given transcriptPath. Fed buffers are
+    // 16 bit PCM audio of the given sampleRate and channelCount, converted to mono audio at the
+    // sample rate of the model if they differ, as are fed files. Results are written out to the
+    // file as decided by the given flushPolicy. If indexed is true, a binary transcript index is
+    // also written beside the transcript, and the finished transcript is added to the search
+    // index. Unless syncPolicy is null, results are also journaled, forcing the journal to storage
+    // as decided by syncPolicy. At most queueCapacity fed buffers wait to be transcribed, beyond
+    // which the given FeedQueue overflowPolicy applies. If skipSilence is true, long silences are
+    // dropped before they are decoded, except by parallel file feeds, while results keep their
+    // timestamps. Unless grammar is null, the recognizer only decodes its phrases, given as a JSON
+    // array, and if words is false, results are written as their text without word results.
     // Will throw a FileNotFoundException if transcript file could not be found or created.
     // Will throw a UnsupportedEncodingException if charset is not supported on operating system.
     public void startNewTranscript(
-            String transcriptPath, int sampleRate
+            String transcriptPath,
+            int sampleRate,
+            int channelCount,
+            FlushPolicy flushPolicy,
+            boolean indexed,
+            FlushPolicy syncPolicy,
+            int queueCapacity,
+            int overflowPolicy,
+            boolean skipSilence,
+            String grammar,
+            boolean words
     ) throws FileNotFoundException, UnsupportedEncodingException {
-        recognizerFuture = executorService.submit(new CreateRecognizer(modelFuture, sampleRate));
-        transcriptWriter = new TranscriptWriter(transcriptPath, "UTF-8");
+        transcriptAudio = new TranscriptAudio(sampleRate, channelCount, skipSilence, metrics);
+        recognizerFuture = lane.submit(new CreateRecognizer(
+                recognizerPool, modelFuture, transcriptAudio, grammar, words
+        ));
+        constrained = grammar != null || !words;
+        metrics.startTranscript();
+        transcriptWriter = new TranscriptWriter(
+                transcriptPath, "UTF-8", flushPolicy, indexed, syncPolicy
+        );
+        transcriptWriter.scheduleOn(mainHandler, lane);
+        feedQueue = new FeedQueue(
+                mainHandler, queueCapacity, overflowPolicy, sampleRate, channelCount
+        );
     }
 
-    // Terminate the current transcript.
+    // Terminate the current transcript, cancelling the files fed to it.
     public void terminateTranscript() {
-        executorService.submit(new CloseRecognizer(recognizerFuture));
-        transcriptWriter.close();
+        cancelFeeds();
+        feedQueue.clear();
+        lane.submit(new ReleaseRecognizer(recognizerPool, recognizerFuture));
+
+        try {
+            transcriptWriter.close();
+        }
+        catch (IOException e) {
+            System.out.println("IO error, could not write to transcript.");
+        }
+        bridge.forgetPartials(transcriptWriter.getTranscriptPath());
 
         recognizerFuture = null;
         transcriptWriter = null;
+        feedQueue = null;
+        transcriptAudio = null;
     }
 
     // Finish the current transcript, writing/posting remaining results.
     //
     // If post is true, result events will be posted to dart side.
     public void finishTranscript(boolean post) {
-        executorService.submit(new FinishTranscript(
+        lane.submit(new FinishTranscript(
+                recognizerPool,
+                searchIndex,
+                transcriptAudio,
                 recognizerFuture,
                 transcriptWriter,
                 post ? bridge : null,
-                mainHandler
+                resultParser,
+                metrics
         ));
 
         recognizerFuture = null;
         transcriptWriter = null;
+        feedQueue = null;
+        transcriptAudio = null;
     }
 
-    // Feed the given file to the recognizer.
+    // Feed the given file to the recognizer, returning an id by which the feed can be cancelled,
+    // paused, and resumed.
     //
     // If post is true, result events will be posted to dart side.
-    public void feedFile(String filePath, boolean post) {
-        executorService.submit(new TranscribeFile(
-                filePath,
-                recognizerFuture,
-                transcriptWriter,
-                post ? bridge : null,
-                mainHandler
-        ));
+    // If parallel is true, chunks of the file are transcribed at the same time by separate
+    // recognizers sharing the model, which is only meant for transcripts fed this one file, and
+    // only takes wav files, which can be split at any sample. As chunks are joined by the times of
+    // their words, transcripts with a grammar or without word results feed files sequentially.
+    // Otherwise the file gives up its thread between buffers whenever tasks of other instances are
+    // waiting for one, so that live audio is not held up by it, and is read in buffers sized as
+    // decided by the given TranscribeFile chunkPolicy.
+    public long feedFile(String filePath, boolean post, boolean parallel, int chunkPolicy) {
+        CancellationToken cancellationToken = new CancellationToken();
+        long feedId = nextFeedId++;
+
+        removeEndedFeeds();
+        feeds.put(feedId, cancellationToken);
+
+        if (parallel && !constrained) {
+            lane.submit(new TranscribeFileInParallel(
+                    filePath,
+                    modelFuture,
+                    recognizerPool,
+                    workerService,
+                    workerCount,
+                    cancellationToken,
+                    recognizerFuture,
+                    transcriptWriter,
+                    post ? bridge : null,
+                    resultParser,
+                    metrics
+            ));
+        }
+        else {
+            lane.submit(new TranscribeFile(
+                    filePath,
+                    transcriptAudio,
+                    lane,
+                    cancellationToken,
+                    chunkPolicy,
+                    recognizerFuture,
+                    transcriptWriter,
+                    post ? bridge : null,
+                    resultParser,
+                    metrics
+            ));
+        }
+
+        return feedId;
+    }
+
+    // Stops the fed file with the given id at its next buffer, keeping the results it has. The
+    // transcript goes on with whatever is fed next. If no such file is being fed, nothing happens.
+    public void cancelFeed(long feedId) {
+        CancellationToken cancellationToken = getFeed(feedId, true);
+
+        if (cancellationToken != null) {
+            cancellationToken.cancel();
+        }
+    }
+
+    // Pauses the fed file with the given id at its next buffer, without holding a thread. Tasks
+    // given later, including finishing the transcript, wait until it is resumed. Parallel feeds
+    // cannot be paused.
+    public void pauseFeed(long feedId) {
+        CancellationToken cancellationToken = getFeed(feedId, false);
+
+        if (cancellationToken != null) {
+            cancellationToken.pause();
+        }
+    }
+
+    // Resumes the fed file with the given id from where it was paused.
+    public void resumeFeed(long feedId) {
+        CancellationToken cancellationToken = getFeed(feedId, false);
+
+        if (cancellationToken != null) {
+            cancellationToken.resume();
+        }
+    }
+
+    // Returns the token of the file fed to the main transcript or to a stream with the given
+    // feedId, or null if there is none. If remove is true, the feed is forgotten.
+    private CancellationToken getFeed(long feedId, boolean remove) {
+        CancellationToken cancellationToken = remove ? feeds.remove(feedId) : feeds.get(feedId);
+
+        for (TranscriptStream stream : streams.values()) {
+            if (cancellationToken != null) {
+                break;
+            }
+            cancellationToken = stream.getFeed(feedId, remove);
+        }
+        return cancellationToken;
+    }
+
+    // Cancels all files being fed to the main transcript.
+    private void cancelFeeds() {
+        for (CancellationToken cancellationToken : feeds.values()) {
+            cancellationToken.cancel();
+        }
+        feeds.clear();
     }
 
-    // Feed the given buffer to the recognizer.
+    // Forgets the feeds that have ended.
+    private void removeEndedFeeds() {
+        Iterator<CancellationToken> iterator = feeds.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().hasEnded()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Queue the remaining bytes of the given buffer to be fed to the recognizer.
     //
-    // If post is true, result events will be posted to dart side.
-    public void feedBuffer(byte[] buffer, boolean post) {
-        executorService.submit(new TranscribeBuffer(
-                buffer,
-                recognizerFuture,
-                transcriptWriter,
-                post ? bridge : null,
-                mainHandler
-        ));
+    // If post is true, result events will be posted to dart side. The given acceptListener is told
+    // once the buffer has been queued, which may be delayed if the queue is full. The buffer is
+    // copied, so it may be reused once this returns. Returns false without queueing the buffer or
+    // telling the acceptListener if no transcript is in progress.
+    public boolean feedBuffer(
+            ByteBuffer buffer, boolean post, FeedQueue.AcceptListener acceptListener
+    ) {
+        if (feedQueue == null) {
+            return false;
+        }
+
+        if (feedQueue.offer(buffer, post, acceptListener)) {
+            lane.submit(new TranscribeBuffer(
+                    feedQueue,
+                    transcriptAudio,
+                    recognizerFuture,
+                    transcriptWriter,
+                    bridge,
+                    resultParser,
+                    metrics
+            ));
+        }
+        return true;
+    }
+
+    // Opens a stream transcribing into the given transcriptPath next to the main transcript, with
+    // the open model, returning the id of the stream.
+    //
+    // Takes the same options as startNewTranscript. Each stream has its own recognizer and runs on
+    // a lane of its own, so several streams are transcribed at the same time, and events posted by
+    // it carry its id as streamId. Files fed to a stream get ids shared with those of the main
+    // transcript. The stream stays open until finished or terminated, even if the model is closed.
+    // Will throw a FileNotFoundException if transcript file could not be found or created.
+    // Will throw a UnsupportedEncodingException if charset is not supported on operating system.
+    public long openStream(
+            String transcriptPath,
+            int sampleRate,
+            int channelCount,
+            FlushPolicy flushPolicy,
+            boolean indexed,
+            FlushPolicy syncPolicy,
+            int queueCapacity,
+            int overflowPolicy,
+            boolean skipSilence,
+            String grammar,
+            boolean words
+    ) throws FileNotFoundException, UnsupportedEncodingException {
+        long streamId = nextStreamId;
+
+        TranscriptStream stream = new TranscriptStream(
+                streamId,
+                transcriptPath,
+                sampleRate,
+                channelCount,
+                flushPolicy,
+                indexed,
+                syncPolicy,
+                queueCapacity,
+                overflowPolicy,
+                skipSilence,
+                grammar,
+                words,
+                modelCache,
+                recognizerPool,
+                searchIndex,
+                modelPath,
+                taskScheduler,
+                bridge,
+                mainHandler,
+                metrics
+        );
+        streams.put(streamId, stream);
+        nextStreamId++;
+
+        return streamId;
+    }
+
+    // Queues the remaining bytes of the given buffer to be fed to the stream with the given id, as
+    // with feedBuffer. Returns false if the stream is not open.
+    public boolean feedStreamBuffer(
+            long streamId,
+            ByteBuffer buffer,
+            boolean post,
+            FeedQueue.AcceptListener acceptListener
+    ) {
+        TranscriptStream stream = streams.get(streamId);
+
+        if (stream == null) {
+            return false;
+        }
+
+        stream.feedBuffer(buffer, post, acceptListener);
+        return true;
+    }
+
+    // Feeds the given file to the stream with the given id, returning an id by which the feed can
+    // be cancelled, paused, and resumed, as with feedFile. Returns -1 if the stream is not open.
+    public long feedStreamFile(long streamId, String filePath, boolean post, int chunkPolicy) {
+        TranscriptStream stream = streams.get(streamId);
+
+        if (stream == null) {
+            return -1;
+        }
+
+        long feedId = nextFeedId++;
+        stream.feedFile(
+                feedId, filePath, post, new CancellationToken(), chunkPolicy
+        );
+        return feedId;
+    }
+
+    // Finishes the stream with the given id, writing/posting remaining results, and closes it.
+    //
+    // If post is true, result events will be posted to dart side. Returns false if the stream is
+    // not open.
+    public boolean finishStream(long streamId, boolean post) {
+        TranscriptStream stream = streams.remove(streamId);
+
+        if (stream == null) {
+            return false;
+        }
+
+        stream.finish(post);
+        return true;
+    }
+
+    // Terminates the stream with the given id, cancelling the files fed to it, and closes it.
+    // Returns false if the stream is not open.
+    public boolean terminateStream(long streamId) {
+        TranscriptStream stream = streams.remove(streamId);
+
+        if (stream == null) {
+            return false;
+        }
+
+        stream.terminate();
+        return true;
+    }
+
+    // Terminates all open streams.
+    private void terminateStreams() {
+        for (TranscriptStream stream : streams.values()) {
+            stream.terminate();
+        }
+        streams.clear();
     }
 
-    // Closes any open threads, recognizers, writers, and models.
+    // Starts transcribing each of the given filePaths into the transcript at the same index of the
+    // given transcriptPaths in the background, with the open model. Returns the id of the batch.
     //
-    // If force is true, existing thread will attempt to quit tasks to clear resources.
-    // If force is false, resources will be cleared once existing thread has finished existing tasks.
-    // If no thread is open to close resources, one will be allocated and shutdown when finished.
+    // Jobs run on lanes of the given priority, where lower values run first and the lanes of
+    // instances run at TaskScheduler.INSTANCE_PRIORITY. Jobs resume from checkpoints left by an
+    // earlier batch, and jobs whose transcripts were completed by one are skipped. If skipSilence
+    // is true, long silences are dropped before they are decoded.
+    public long startBatch(
+            List<String> filePaths, List<String> transcriptPaths, int priority, boolean skipSilence
+    ) {
+        final long batchId = nextBatchId++;
+
+        Batch batch = new Batch(
+                batchId,
+                filePaths,
+                transcriptPaths,
+                modelCache,
+                recognizerPool,
+                modelPath,
+                taskScheduler,
+                priority,
+                skipSilence,
+                bridge,
+                mainHandler,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        batches.remove(batchId);
+                    }
+                }
+        );
+        batches.put(batchId, batch);
+        batch.start();
+
+        return batchId;
+    }
+
+    // Cancels the batch with the given id, keeping checkpoints of its unfinished jobs. If no such
+    // batch is running, nothing happens.
+    public void cancelBatch(long batchId) {
+        Batch batch = batches.get(batchId);
+
+        if (batch != null) {
+            batch.cancel();
+        }
+    }
+
+    // Cancels all running batches.
+    private void cancelBatches() {
+        for (Batch batch : new ArrayList<Batch>(batches.values())) {
+            batch.cancel();
+        }
+    }
+
+    // Closes any open lanes, recognizers, writers, and models, terminating open streams.
+    //
+    // If force is true, existing lane will attempt to quit tasks to clear resources, and running
+    // batches are cancelled.
+    // If force is false, resources will be cleared once existing lane has finished existing tasks.
+    // If no lane is open to close resources, one will be allocated and shutdown when finished.
     public void closeResources(boolean force) {
-        if (force && executorService != null) {
+        if (force) {
+            cancelBatches();
+        }
+
+        terminateStreams();
+
+        if (force && lane != null) {
             terminateThread();
         }
 
-        if (executorService == null) {
+        if (lane == null) {
             allocateSingleThread();
         }
 
@@ -160,8 +574,33 @@ class VoskInstance {
         deallocateThread();
     }
 
-    // Disconnects this instance from dart, rendering it unusable once called.
+    // Sets the longest time in milliseconds an event may wait before being sent to dart, and the
+    // most events sent together.
+    public void configureEvents(long maxLatency, int maxBatchSize) {
+        bridge.configureEvents(maxLatency, maxBatchSize);
+    }
+
+    // Returns the latency of each stage of transcription, the real time factor of the current
+    // transcript, and the throughput of the last file fed.
+    public Map<String, Object> getMetrics() {
+        return metrics.toMap();
+    }
+
+    // Posts the metrics to dart every interval milliseconds. An interval of 0 stops posting.
+    public void configureMetrics(long interval) {
+        metricsInterval = interval;
+        mainHandler.removeCallbacks(postMetrics);
+
+        if (interval > 0) {
+            mainHandler.postDelayed(postMetrics, interval);
+        }
+    }
+
+    // Disconnects this instance from dart, rendering it unusable once called. Running batches are
+    // cancelled.
     public void disconnect() {
+        cancelBatches();
+        mainHandler.removeCallbacks(postMetrics);
         bridge.close();
     }
 }
@@ -4,11 +4,16 @@ import androidx.annotation.NonNull;
 
 import java.io.FileNotFoundException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
 
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 
+import org.json.JSONArray;
+
 // Handles dart side method calls. Delegates calls to its Vosk instance.
 class VoskMethodCallHandler implements MethodCallHandler {
     private final VoskInstance voskInstance;
@@ -18,7 +23,7 @@ class VoskMethodCallHandler implements MethodCallHandler {
     }
 
     @Override
-    public void onMethodCall(@NonNull MethodCall call, @NonNull Result result) {
+    public void onMethodCall(@NonNull MethodCall call, @NonNull final Result result) {
         if (call.method.equals("allocateSingleThread")) {
             voskInstance.allocateSingleThread();
             result.success(null);
@@ -40,12 +45,75 @@ class VoskMethodCallHandler implements MethodCallHandler {
             voskInstance.closeModel();
             result.success(null);
         }
-        else if (call.method.equals("startNewTranscript")) {
+        else if (call.method.equals("startNewTranscript") || call.method.equals("openStream")) {
             try {
                 String transcriptPath = call.argument("transcriptPath");
                 int sampleRate = call.argument("sampleRate");
-                voskInstance.startNewTranscript(transcriptPath, sampleRate);
-                result.success(null);
+                int channelCount = call.hasArgument("channelCount")
+                        ? (int) call.argument("channelCount")
+                        : 1;
+                FlushPolicy flushPolicy = new FlushPolicy(
+                        call.hasArgument("flushEveryResults")
+                                ? (int) call.argument("flushEveryResults")
+                                : 0,
+                        call.hasArgument("flushInterval")
+                                ? ((Number) call.argument("flushInterval")).longValue()
+                                : 0
+                );
+                boolean indexed = call.hasArgument("indexed") && (boolean) call.argument("indexed");
+                FlushPolicy syncPolicy = null;
+                if (call.hasArgument("journaled") && (boolean) call.argument("journaled")) {
+                    syncPolicy = new FlushPolicy(
+                            call.hasArgument("syncEveryResults")
+                                    ? (int) call.argument("syncEveryResults")
+                                    : 0,
+                            call.hasArgument("syncInterval")
+                                    ? ((Number) call.argument("syncInterval")).longValue()
+                                    : 0
+                    );
+                }
+                int queueCapacity = call.hasArgument("queueCapacity")
+                        ? (int) call.argument("queueCapacity")
+                        : FeedQueue.DEFAULT_CAPACITY;
+                int overflowPolicy = call.hasArgument("overflowPolicy")
+                        ? (int) call.argument("overflowPolicy")
+                        : FeedQueue.BLOCK;
+                boolean skipSilence = call.hasArgument("skipSilence") &&
+                        (boolean) call.argument("skipSilence");
+                List<String> phrases = call.argument("grammar");
+                String grammar = phrases != null ? new JSONArray(phrases).toString() : null;
+                boolean words = !call.hasArgument("words") || (boolean) call.argument("words");
+                if (call.method.equals("openStream")) {
+                    result.success(voskInstance.openStream(
+                            transcriptPath,
+                            sampleRate,
+                            channelCount,
+                            flushPolicy,
+                            indexed,
+                            syncPolicy,
+                            queueCapacity,
+                            overflowPolicy,
+                            skipSilence,
+                            grammar,
+                            words
+                    ));
+                }
+                else {
+                    voskInstance.startNewTranscript(
+                            transcriptPath,
+                            sampleRate,
+                            channelCount,
+                            flushPolicy,
+                            indexed,
+                            syncPolicy,
+                            queueCapacity,
+                            overflowPolicy,
+                            skipSilence,
+                            grammar,
+                            words
+                    );
+                    result.success(null);
+                }
             }
             catch (FileNotFoundException | UnsupportedEncodingException e) {
                 result.error("FileError", "Transcript could not be created or accessed", null);
@@ -63,13 +131,98 @@ class VoskMethodCallHandler implements MethodCallHandler {
         else if (call.method.equals("feedFile")) {
             String filePath = call.argument("filePath");
             boolean post = call.argument("post");
-            voskInstance.feedFile(filePath, post);
+            boolean parallel = call.hasArgument("parallel") && (boolean) call.argument("parallel");
+            int chunkPolicy = call.hasArgument("chunkPolicy")
+                    ? (int) call.argument("chunkPolicy")
+                    : TranscribeFile.LIVE;
+            result.success(voskInstance.feedFile(filePath, post, parallel, chunkPolicy));
+        }
+        else if (call.method.equals("feedStreamFile")) {
+            long streamId = ((Number) call.argument("streamId")).longValue();
+            String filePath = call.argument("filePath");
+            boolean post = call.argument("post");
+            int chunkPolicy = call.hasArgument("chunkPolicy")
+                    ? (int) call.argument("chunkPolicy")
+                    : TranscribeFile.LIVE;
+            long feedId = voskInstance.feedStreamFile(streamId, filePath, post, chunkPolicy);
+            if (feedId < 0) {
+                result.error("StreamError", "No stream open with the given id", null);
+            }
+            else {
+                result.success(feedId);
+            }
+        }
+        else if (call.method.equals("finishStream")) {
+            long streamId = ((Number) call.argument("streamId")).longValue();
+            boolean post = call.argument("post");
+            if (voskInstance.finishStream(streamId, post)) {
+                result.success(null);
+            }
+            else {
+                result.error("StreamError", "No stream open with the given id", null);
+            }
+        }
+        else if (call.method.equals("terminateStream")) {
+            long streamId = ((Number) call.arguments).longValue();
+            if (voskInstance.terminateStream(streamId)) {
+                result.success(null);
+            }
+            else {
+                result.error("StreamError", "No stream open with the given id", null);
+            }
+        }
+        else if (call.method.equals("cancelFeed")) {
+            long feedId = ((Number) call.arguments).longValue();
+            voskInstance.cancelFeed(feedId);
+            result.success(null);
+        }
+        else if (call.method.equals("pauseFeed")) {
+            long feedId = ((Number) call.arguments).longValue();
+            voskInstance.pauseFeed(feedId);
+            result.success(null);
+        }
+        else if (call.method.equals("resumeFeed")) {
+            long feedId = ((Number) call.arguments).longValue();
+            voskInstance.resumeFeed(feedId);
             result.success(null);
         }
         else if (call.method.equals("feedBuffer")) {
             byte[] buffer = call.argument("buffer");
             boolean post = call.argument("post");
-            voskInstance.feedBuffer(buffer, post);
+            // Replies with the queue status once the buffer is queued.
+            FeedQueue.AcceptListener acceptListener = new FeedQueue.AcceptListener() {
+                @Override
+                public void onAccepted(Map<String, Object> status) {
+                    result.success(status);
+                }
+            };
+            if (call.hasArgument("streamId")) {
+                long streamId = ((Number) call.argument("streamId")).longValue();
+                if (!voskInstance.feedStreamBuffer(
+                        streamId, ByteBuffer.wrap(buffer), post, acceptListener
+                )) {
+                    result.error("StreamError", "No stream open with the given id", null);
+                }
+            }
+            else if (!voskInstance.feedBuffer(ByteBuffer.wrap(buffer), post, acceptListener)) {
+                result.error("TranscriptError", "No transcript in progress", null);
+            }
+        }
+        else if (call.method.equals("startBatch")) {
+            List<String> filePaths = call.argument("filePaths");
+            List<String> transcriptPaths = call.argument("transcriptPaths");
+            int priority = call.hasArgument("priority")
+                    ? (int) call.argument("priority")
+                    : TaskScheduler.DEFAULT_BATCH_PRIORITY;
+            boolean skipSilence = call.hasArgument("skipSilence") &&
+                    (boolean) call.argument("skipSilence");
+            result.success(voskInstance.startBatch(
+                    filePaths, transcriptPaths, priority, skipSilence
+            ));
+        }
+        else if (call.method.equals("cancelBatch")) {
+            long batchId = ((Number) call.arguments).longValue();
+            voskInstance.cancelBatch(batchId);
             result.success(null);
         }
         else if (call.method.equals("closeResources")) {
@@ -77,6 +230,20 @@ class VoskMethodCallHandler implements MethodCallHandler {
             voskInstance.closeResources(force);
             result.success(null);
         }
+        else if (call.method.equals("configureEvents")) {
+            long maxLatency = ((Number) call.argument("maxLatency")).longValue();
+            int maxBatchSize = call.argument("maxBatchSize");
+            voskInstance.configureEvents(maxLatency, maxBatchSize);
+            result.success(null);
+        }
+        else if (call.method.equals("getMetrics")) {
+            result.success(voskInstance.getMetrics());
+        }
+        else if (call.method.equals("configureMetrics")) {
+            long interval = ((Number) call.arguments).longValue();
+            voskInstance.configureMetrics(interval);
+            result.success(null);
+        }
         else if (call.method.equals("disconnect")) {
             voskInstance.disconnect();
             result.success(null);
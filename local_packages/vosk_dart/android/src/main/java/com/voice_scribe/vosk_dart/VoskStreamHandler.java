@@ -5,7 +5,7 @@ import io.flutter.plugin.common.EventChannel.StreamHandler;
 
 // Handles stream events when listeners start listening and/or canceling.
 class VoskStreamHandler implements StreamHandler{
-    private int listenerCount = 0;
+    private volatile int listenerCount = 0; // Changed in the main thread, read by tasks.
 
     private EventSink eventSink;
 
@@ -13,6 +13,11 @@ class VoskStreamHandler implements StreamHandler{
         return eventSink;
     }
 
+    // Returns true if dart is listening to events. May be called from any thread.
+    public boolean hasListeners() {
+        return listenerCount > 0;
+    }
+
     @Override
     public void onListen(Object listener, EventSink eventSink) {
         if (++listenerCount == 1) {
@@ -0,0 +1,243 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Reads the audio data of a PCM wav file through a memory mapped view of the file.
+//
+// The RIFF chunks of the file are walked to find the format and data chunks, skipping any others
+// such as LIST and fact. The data chunk is mapped in windows, so files larger than a single
+// mapping can hold are supported. Reads copy straight from the mapping into the given array.
+// As an AudioDecoder, the input is the audio data itself.
+class WavReader implements AudioDecoder {
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int FORMAT_SIZE = 16; // Size of the fields shared by all fmt chunks.
+    private static final int EXTENSIBLE_FORMAT_SIZE = 40;
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    private int formatTag = -1;
+    private int channelCount;
+    private int sampleRate;
+    private int bitsPerSample;
+    private int blockAlign; // Bytes in a single frame of samples across all channels.
+
+    private long dataOffset = -1; // Offset of the audio data in the file.
+    private long dataLength; // Length of the audio data in bytes.
+
+    private long position = 0; // Current position within the audio data.
+    private MappedByteBuffer window; // Mapped region of the audio data that is being read.
+    private long windowStart; // Position within the audio data at which the window begins.
+
+    // Opens and parses the wav file at the given filePath.
+    //
+    // Throws an IOException if the file cannot be read, is not a wav file, has no format or data
+    // chunk, or does not contain PCM audio.
+    public WavReader(String filePath) throws IOException {
+        file = new RandomAccessFile(filePath, "r");
+        channel = file.getChannel();
+
+        try {
+            parseChunks();
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public int getBlockAlign() {
+        return blockAlign;
+    }
+
+    // Length of the audio data in bytes.
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    // Current read position within the audio data in bytes.
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public long getInputLength() {
+        return dataLength;
+    }
+
+    @Override
+    public long getInputPosition() {
+        return position;
+    }
+
+    // Moves the read position within the audio data to the given position.
+    public void seek(long position) {
+        this.position = Math.max(0, Math.min(position, dataLength));
+    }
+
+    // Reads up to length bytes of audio data into the given buffer at offset.
+    //
+    // Returns the number of bytes read, or -1 if the end of the audio data was reached.
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (position >= dataLength) {
+            return -1;
+        }
+
+        int bytesRead = 0;
+
+        while (bytesRead < length && position < dataLength) {
+            if (!windowContains(position)) {
+                mapWindowAt(position);
+            }
+
+            int windowPosition = (int) (position - windowStart);
+            int count = Math.min(length - bytesRead, window.limit() - windowPosition);
+
+            window.position(windowPosition);
+            window.get(buffer, offset + bytesRead, count);
+
+            bytesRead += count;
+            position += count;
+        }
+
+        return bytesRead;
+    }
+
+    public int read(byte[] buffer) throws IOException {
+        return read(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        file.close();
+    }
+
+    private boolean windowContains(long position) {
+        return window != null && position >= windowStart && position < windowStart + window.limit();
+    }
+
+    // Maps the window of audio data that contains the given position.
+    private void mapWindowAt(long position) throws IOException {
+        windowStart = position - position % MAP_WINDOW_SIZE;
+        long size = Math.min(MAP_WINDOW_SIZE, dataLength - windowStart);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + windowStart, size);
+    }
+
+    // Walks the RIFF chunks of the file, reading the format and locating the audio data.
+    private void parseChunks() throws IOException {
+        long fileSize = channel.size();
+
+        ByteBuffer header = readAt(0, RIFF_HEADER_SIZE);
+        if (header.getInt(0) != fourCc("RIFF") || header.getInt(8) != fourCc("WAVE")) {
+            throw new IOException("Not a RIFF/WAVE file.");
+        }
+
+        long chunkOffset = RIFF_HEADER_SIZE;
+
+        while (chunkOffset + CHUNK_HEADER_SIZE <= fileSize) {
+            ByteBuffer chunkHeader = readAt(chunkOffset, CHUNK_HEADER_SIZE);
+            int chunkId = chunkHeader.getInt(0);
+            long chunkSize = chunkHeader.getInt(4) & 0xFFFFFFFFL;
+            long chunkDataOffset = chunkOffset + CHUNK_HEADER_SIZE;
+
+            if (chunkId == fourCc("fmt ")) {
+                parseFormat(chunkDataOffset, chunkSize);
+            }
+            else if (chunkId == fourCc("data")) {
+                dataOffset = chunkDataOffset;
+                // Streamed files may leave the size unset or too large, so stop at end of file.
+                long available = fileSize - chunkDataOffset;
+                dataLength = chunkSize == 0 || chunkSize > available ? available : chunkSize;
+                break;
+            }
+
+            chunkOffset = chunkDataOffset + chunkSize + (chunkSize & 1); // Chunks are word aligned.
+        }
+
+        if (formatTag == -1) {
+            throw new IOException("Wav file has no format chunk.");
+        }
+        if (dataOffset == -1) {
+            throw new IOException("Wav file has no data chunk.");
+        }
+        if (formatTag != WAVE_FORMAT_PCM) {
+            throw new IOException("Wav file does not contain PCM audio.");
+        }
+
+        dataLength -= dataLength % blockAlign; // Drop any trailing partial frame.
+    }
+
+    // Reads the format chunk at the given offset.
+    private void parseFormat(long offset, long size) throws IOException {
+        if (size < FORMAT_SIZE) {
+            throw new IOException("Wav file has a malformed format chunk.");
+        }
+
+        ByteBuffer format = readAt(offset, (int) Math.min(size, EXTENSIBLE_FORMAT_SIZE));
+
+        formatTag = format.getShort(0) & 0xFFFF;
+        channelCount = format.getShort(2) & 0xFFFF;
+        sampleRate = format.getInt(4);
+        blockAlign = format.getShort(12) & 0xFFFF;
+        bitsPerSample = format.getShort(14) & 0xFFFF;
+
+        // Extensible formats store the actual format tag at the start of the sub format GUID.
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE && format.limit() >= EXTENSIBLE_FORMAT_SIZE) {
+            formatTag = format.getShort(24) & 0xFFFF;
+        }
+
+        if (channelCount == 0 || sampleRate <= 0 || blockAlign == 0) {
+            throw new IOException("Wav file has a malformed format chunk.");
+        }
+    }
+
+    // Reads length bytes at the given offset of the file into a little endian buffer.
+    private ByteBuffer readAt(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) == -1) {
+                throw new IOException("Wav file ended unexpectedly.");
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    // Returns the given four character code as read from a little endian buffer.
+    private static int fourCc(String code) {
+        return (code.charAt(0)) |
+                (code.charAt(1) << 8) |
+                (code.charAt(2) << 16) |
+                (code.charAt(3) << 24);
+    }
+}
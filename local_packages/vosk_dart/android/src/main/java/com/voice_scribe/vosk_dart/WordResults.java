@@ -0,0 +1,121 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.Arrays;
+import java.util.List;
+
+// The text and word results of a single recognizer result, stored as parallel arrays.
+//
+// Meant to be reused, clear discards the previous result while keeping the allocated arrays.
+class WordResults {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String text = ""; // The full text, or the partial text if partial.
+    private boolean partial = false;
+
+    private int count = 0;
+    private String[] words = new String[INITIAL_CAPACITY];
+    private double[] starts = new double[INITIAL_CAPACITY]; // In seconds.
+    private double[] ends = new double[INITIAL_CAPACITY]; // In seconds.
+    private double[] confidences = new double[INITIAL_CAPACITY];
+
+    // Discards the current result.
+    public void clear() {
+        text = "";
+        partial = false;
+        Arrays.fill(words, 0, count, null);
+        count = 0;
+    }
+
+    public void setText(String text, boolean partial) {
+        this.text = text;
+        this.partial = partial;
+    }
+
+    // Adds a word result to the end of the result.
+    public void add(String word, double start, double end, double confidence) {
+        if (count == words.length) {
+            int capacity = count * 2;
+            words = Arrays.copyOf(words, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            confidences = Arrays.copyOf(confidences, capacity);
+        }
+
+        words[count] = word;
+        starts[count] = start;
+        ends[count] = end;
+        confidences[count] = confidence;
+        count++;
+    }
+
+    // Adds the given number of seconds to all timestamps.
+    public void shift(double seconds) {
+        for (int i = 0; i < count; i++) {
+            starts[i] += seconds;
+            ends[i] += seconds;
+        }
+    }
+
+    // Replaces the timestamps of the word result at the given index.
+    public void setTimes(int i, double start, double end) {
+        starts[i] = start;
+        ends[i] = end;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+
+    // Number of word results.
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public String getWord(int i) {
+        return words[i];
+    }
+
+    public double getStart(int i) {
+        return starts[i];
+    }
+
+    public double getEnd(int i) {
+        return ends[i];
+    }
+
+    public double getConfidence(int i) {
+        return confidences[i];
+    }
+
+    // Timestamp of the first word in seconds. If there are no words, -1.0 is returned instead.
+    public double getTimestamp() {
+        return count > 0 ? starts[0] : -1.0;
+    }
+
+    // Copies of the arrays, trimmed to the number of word results. Used to hand results to other
+    // threads while this instance is reused.
+
+    public List<String> copyWords() {
+        return Arrays.asList(Arrays.copyOf(words, count));
+    }
+
+    public double[] copyStarts() {
+        return Arrays.copyOf(starts, count);
+    }
+
+    public double[] copyEnds() {
+        return Arrays.copyOf(ends, count);
+    }
+
+    public double[] copyConfidences() {
+        return Arrays.copyOf(confidences, count);
+    }
+}
@@ -0,0 +1,68 @@
+package com.voice_scribe.vosk_dart;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Cost of converting a minute of 16 bit audio, in buffers as fed from a file, into mono audio at
+// the rate of the recognizer. The bytes output are returned, which is what the recognizer decodes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AudioConverterBenchmark {
+    private static final int SECONDS = 60;
+
+    @Param({"16000", "44100", "48000"})
+    public int inputRate;
+
+    @Param({"1", "2"})
+    public int channelCount;
+
+    @Param({"6400"})
+    public int bufferSize;
+
+    private byte[] audio;
+    private byte[] buffer;
+    private AudioConverter audioConverter;
+
+    @Setup
+    public void setup() {
+        ByteBuffer samples = ByteBuffer.allocate(SECONDS * inputRate * channelCount * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; samples.remaining() > 0; i++) {
+            double tone = Math.sin(2 * Math.PI * 220.0 * i / inputRate);
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                samples.putShort((short) (Short.MAX_VALUE * 0.8 * tone));
+            }
+        }
+
+        audio = samples.array();
+        buffer = new byte[bufferSize];
+        audioConverter = new AudioConverter(
+                inputRate, channelCount, 16, BenchmarkData.SAMPLE_RATE
+        );
+    }
+
+    @Benchmark
+    public long convert() {
+        long outputBytes = 0;
+
+        for (int offset = 0; offset < audio.length; offset += buffer.length) {
+            int length = Math.min(buffer.length, audio.length - offset);
+            System.arraycopy(audio, offset, buffer, 0, length);
+            outputBytes += audioConverter.convert(buffer, length);
+        }
+        return outputBytes + audioConverter.flush();
+    }
+}
@@ -0,0 +1,98 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// Decoding of the same audio stored as a wav file and as a FLAC file, on its own and as part of
+// transcribing the file.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AudioDecoderBenchmark {
+    @Param({"60"})
+    public double seconds;
+
+    @Param({"wav", "flac"})
+    public String format;
+
+    private File file;
+    private final byte[] buffer = new byte[6400];
+
+    private File transcript;
+    private TranscriptWriter transcriptWriter;
+    private final ResultParser resultParser = new ResultParser();
+    private final Metrics metrics = new Metrics();
+
+    @Setup
+    public void setup() throws IOException {
+        file = format.equals("wav")
+                ? BenchmarkData.wavFile(seconds)
+                : BenchmarkData.flacFile(seconds);
+
+        transcript = BenchmarkData.tempFile(".txt");
+        transcriptWriter = new TranscriptWriter(
+                transcript.getPath(), "UTF-8", FlushPolicy.ON_FINISH, false
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transcriptWriter.close();
+        transcript.delete();
+        file.delete();
+    }
+
+    @Benchmark
+    public long decodeFile() throws IOException {
+        long checksum = 0;
+
+        try (AudioDecoder audioDecoder = AudioDecoders.open(file.getPath())) {
+            int bytesRead;
+            while ((bytesRead = audioDecoder.read(buffer, 0, buffer.length)) != -1) {
+                checksum += buffer[bytesRead - 1];
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public void transcribeFile() {
+        new TranscribeFile(
+                file.getPath(),
+                null,
+                null,
+                new CancellationToken(),
+                TranscribeFile.LIVE,
+                recognizerFuture(),
+                transcriptWriter,
+                null,
+                resultParser,
+                metrics
+        ).run();
+    }
+
+    private static Future<Recognizer> recognizerFuture() {
+        FutureTask<Model> modelFuture = new FutureTask<Model>(new OpenModel(""));
+        FutureTask<Recognizer> recognizerFuture = new FutureTask<Recognizer>(
+                new CreateRecognizer(new RecognizerPool(), modelFuture)
+        );
+        modelFuture.run();
+        recognizerFuture.run();
+        return recognizerFuture;
+    }
+}
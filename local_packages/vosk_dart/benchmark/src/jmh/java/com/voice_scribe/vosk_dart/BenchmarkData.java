@@ -0,0 +1,292 @@
+package com.voice_scribe.vosk_dart;
+
+import io.flutter.plugin.common.BinaryMessenger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.json.JSONException;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// Inputs shared by the benchmarks.
+final class BenchmarkData {
+    static final int SAMPLE_RATE = 16000;
+
+    private static final double SPEECH_SECONDS = 4.0; // Of each stretch of speech-like audio.
+    private static final double SYLLABLE_SECONDS = 0.25;
+    private static final int FLAC_BLOCK_SIZE = 4096;
+
+    // A messenger that drops everything sent to it.
+    static final BinaryMessenger NULL_MESSENGER = new BinaryMessenger() {
+        @Override
+        public void send(String channel, ByteBuffer message) {
+        }
+
+        @Override
+        public void send(String channel, ByteBuffer message, BinaryReply callback) {
+        }
+
+        @Override
+        public void setMessageHandler(String channel, BinaryMessageHandler handler) {
+        }
+    };
+
+    private BenchmarkData() {
+    }
+
+    // Returns the given number of results as given by the recognizer stand-in.
+    static String[] recordedResults(int count) {
+        Recognizer recognizer = new Recognizer(new Model(""), SAMPLE_RATE);
+        String[] results = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            results[i] = recognizer.getResult();
+        }
+        return results;
+    }
+
+    // Returns the given results parsed, each into its own WordResults.
+    static WordResults[] parsedResults(String[] results) throws JSONException {
+        WordResults[] parsed = new WordResults[results.length];
+
+        for (int i = 0; i < results.length; i++) {
+            parsed[i] = new ResultParser().parse(results[i]);
+        }
+        return parsed;
+    }
+
+    // Returns a partial result as given by the recognizer stand-in.
+    static String recordedPartial() {
+        return new Recognizer(new Model(""), SAMPLE_RATE).getPartialResult();
+    }
+
+    // Returns a new empty file in the temporary directory, deleted on exit.
+    static File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("vosk_benchmark", suffix);
+        file.deleteOnExit();
+        if (!file.delete()) {
+            throw new IOException("Could not clear temporary file.");
+        }
+        return file;
+    }
+
+    // Writes a mono 16 bit wav file of the given length holding a tone with varying loudness.
+    static File wavFile(double seconds) throws IOException {
+        File file = File.createTempFile("vosk_benchmark", ".wav");
+        file.deleteOnExit();
+
+        int dataLength = (int) (seconds * SAMPLE_RATE) * 2;
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes("US-ASCII")).putInt(36 + dataLength);
+        header.put("WAVEfmt ".getBytes("US-ASCII")).putInt(16);
+        header.putShort((short) 1).putShort((short) 1);
+        header.putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2);
+        header.putShort((short) 2).putShort((short) 16);
+        header.put("data".getBytes("US-ASCII")).putInt(dataLength);
+
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(header.array());
+            output.write(audio(dataLength));
+        }
+        return file;
+    }
+
+    // Writes a mono 16 bit FLAC file of the given length holding the same audio as wavFile.
+    //
+    // Frames hold FLAC_BLOCK_SIZE samples predicted by the second order fixed polynomial, with the
+    // residual Rice coded in a single partition, as a plain FLAC encoder would write them.
+    static File flacFile(double seconds) throws IOException {
+        File file = File.createTempFile("vosk_benchmark", ".flac");
+        file.deleteOnExit();
+
+        int sampleCount = (int) (seconds * SAMPLE_RATE);
+        ByteBuffer audio = ByteBuffer.wrap(audio(sampleCount * 2)).order(ByteOrder.LITTLE_ENDIAN);
+        short[] samples = new short[sampleCount];
+        audio.asShortBuffer().get(samples);
+
+        BitWriter writer = new BitWriter();
+        writer.write(0x664C6143, 32); // "fLaC"
+        writer.write(0x80000022, 32); // Last metadata block, stream info of 34 bytes.
+        writer.write(FLAC_BLOCK_SIZE, 16);
+        writer.write(FLAC_BLOCK_SIZE, 16);
+        writer.write(0, 24);
+        writer.write(0, 24);
+        writer.write(SAMPLE_RATE, 20);
+        writer.write(0, 3); // One channel.
+        writer.write(15, 5); // 16 bits.
+        writer.write(0, 4);
+        writer.write(sampleCount, 32);
+        writer.write(0, 32); // MD5 signature left unset.
+        writer.write(0, 32);
+        writer.write(0, 32);
+        writer.write(0, 32);
+
+        for (int start = 0; start < sampleCount; start += FLAC_BLOCK_SIZE) {
+            writeFlacFrame(writer, samples, start, Math.min(FLAC_BLOCK_SIZE, sampleCount - start));
+        }
+
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(writer.toByteArray());
+        }
+        return file;
+    }
+
+    private static void writeFlacFrame(BitWriter writer, short[] samples, int start, int size) {
+        int headerStart = writer.size();
+        writer.write(0xFFF9, 16); // Sync code, variable block size numbered by sample.
+        writer.write(7 << 4, 8); // Block size in 16 bits at the end of the header.
+        writer.write(4 << 1, 8); // Mono, 16 bits.
+
+        int number = start; // UTF-8 coded, at most 21 bits here.
+        if (number < 0x80) {
+            writer.write(number, 8);
+        }
+        else if (number < 0x800) {
+            writer.write(0xC0 | number >> 6, 8);
+            writer.write(0x80 | number & 0x3F, 8);
+        }
+        else if (number < 0x10000) {
+            writer.write(0xE0 | number >> 12, 8);
+            writer.write(0x80 | number >> 6 & 0x3F, 8);
+            writer.write(0x80 | number & 0x3F, 8);
+        }
+        else {
+            writer.write(0xF0 | number >> 18, 8);
+            writer.write(0x80 | number >> 12 & 0x3F, 8);
+            writer.write(0x80 | number >> 6 & 0x3F, 8);
+            writer.write(0x80 | number & 0x3F, 8);
+        }
+        writer.write(size - 1, 16);
+        writer.write(writer.crc(headerStart, 0x07, 8), 8);
+
+        int order = Math.min(2, size);
+        writer.write(0x10 | order << 1, 8); // Fixed subframe of the order, no wasted bits.
+        for (int i = 0; i < order; i++) {
+            writer.write(samples[start + i], 16);
+        }
+
+        int[] residual = new int[size - order];
+        long magnitude = 0;
+        for (int i = order; i < size; i++) {
+            int sample = start + i;
+            residual[i - order] = samples[sample] - 2 * samples[sample - 1] + samples[sample - 2];
+            magnitude += Math.abs(residual[i - order]);
+        }
+
+        int parameter = 0;
+        while (parameter < 14 && (long) residual.length << (parameter + 1) < magnitude) {
+            parameter++;
+        }
+
+        writer.write(0, 2); // Rice coding with 4 bit parameters.
+        writer.write(0, 4); // A single partition.
+        writer.write(parameter, 4);
+        for (int value : residual) {
+            int folded = value >= 0 ? value << 1 : (-value << 1) - 1;
+            writer.writeUnary(folded >>> parameter);
+            writer.write(folded, parameter);
+        }
+
+        writer.alignToByte();
+        writer.write(writer.crc(headerStart, 0x8005, 16), 16);
+    }
+
+    // Returns the given number of bytes of mono 16 bit audio alternating between stretches of
+    // speech-like tone bursts and quiet noise, with the given fraction of it being speech.
+    static byte[] speechAudio(int length, double speechFraction) {
+        ByteBuffer audio = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(0);
+
+        int speechSamples = (int) (SPEECH_SECONDS * SAMPLE_RATE);
+        int cycleSamples = (int) (speechSamples / speechFraction);
+        int syllableSamples = (int) (SYLLABLE_SECONDS * SAMPLE_RATE);
+
+        for (int i = 0; audio.remaining() >= 2; i++) {
+            double sample = random.nextGaussian() * 30.0;
+            boolean speaking = i % cycleSamples < speechSamples;
+            boolean voiced = i % syllableSamples < syllableSamples * 4 / 5;
+
+            if (speaking && voiced) {
+                sample += Short.MAX_VALUE * 0.25 * Math.sin(2 * Math.PI * 180.0 * i / SAMPLE_RATE);
+            }
+            audio.putShort((short) sample);
+        }
+        return audio.array();
+    }
+
+    // Returns the given number of bytes of mono 16 bit audio holding a tone with varying loudness.
+    static byte[] audio(int length) {
+        ByteBuffer audio = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; audio.remaining() >= 2; i++) {
+            double loudness = 0.5 + 0.5 * Math.sin(2 * Math.PI * i / (SAMPLE_RATE * 3.0));
+            double tone = Math.sin(2 * Math.PI * 220.0 * i / SAMPLE_RATE);
+            audio.putShort((short) (Short.MAX_VALUE * 0.8 * loudness * tone));
+        }
+        return audio.array();
+    }
+
+    // Writes bits most significant first, as FLAC files are laid out.
+    private static class BitWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int pending = 0; // Bits not yet making up a whole byte.
+        private int pendingCount = 0;
+
+        // Writes the lowest count bits of the given value, at most 32.
+        void write(long value, int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                pending = pending << 1 | (int) (value >>> i & 1);
+                if (++pendingCount == 8) {
+                    bytes.write(pending);
+                    pending = 0;
+                    pendingCount = 0;
+                }
+            }
+        }
+
+        void writeUnary(int zeros) {
+            for (int i = 0; i < zeros; i++) {
+                write(0, 1);
+            }
+            write(1, 1);
+        }
+
+        void alignToByte() {
+            while (pendingCount != 0) {
+                write(0, 1);
+            }
+        }
+
+        // Bytes written so far.
+        int size() {
+            return bytes.size();
+        }
+
+        // Returns the CRC of the given width and polynomial of the bytes written from start on.
+        int crc(int start, int polynomial, int width) {
+            byte[] written = bytes.toByteArray();
+            int top = 1 << (width - 1);
+            int mask = (1 << width) - 1;
+            int crc = 0;
+
+            for (int i = start; i < written.length; i++) {
+                crc ^= (written[i] & 0xFF) << (width - 8);
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & top) != 0 ? (crc << 1 ^ polynomial) & mask : crc << 1 & mask;
+                }
+            }
+            return crc;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
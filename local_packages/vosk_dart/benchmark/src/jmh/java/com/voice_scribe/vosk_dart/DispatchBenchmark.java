@@ -0,0 +1,135 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vosk.Recognizer;
+
+// Feeding live buffers through a VoskInstance, from the feed call until the recognizer has
+// accepted them, including results written and posted along the way.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DispatchBenchmark {
+    private static final int BUFFERS = 64; // Buffers fed in each invocation.
+
+    // Accepts buffers without replying to anyone.
+    private static final FeedQueue.AcceptListener ignoreAcceptance =
+            new FeedQueue.AcceptListener() {
+                @Override
+                public void onAccepted(Map<String, Object> status) {
+                }
+            };
+
+    @Param({"8000"})
+    public int bufferSize;
+
+    @Param({"0", "2"}) // FeedQueue.BLOCK and FeedQueue.MERGE.
+    public int overflowPolicy;
+
+    private byte[] buffer;
+    private ByteBuffer directBuffer; // Like the buffers received on the audio channel.
+
+    private RecognizerPool recognizerPool;
+    private ModelCache modelCache;
+    private TaskScheduler taskScheduler;
+    private ExecutorService workerService;
+    private VoskInstance voskInstance;
+    private File transcript;
+
+    @Setup
+    public void setup() throws IOException {
+        buffer = BenchmarkData.audio(bufferSize);
+        directBuffer = ByteBuffer.allocateDirect(bufferSize);
+        directBuffer.put(buffer);
+
+        recognizerPool = new RecognizerPool();
+        modelCache = new ModelCache(recognizerPool);
+        taskScheduler = new TaskScheduler(2);
+        workerService = Executors.newFixedThreadPool(2);
+        voskInstance = new VoskInstance(
+                BenchmarkData.NULL_MESSENGER,
+                0,
+                modelCache,
+                recognizerPool,
+                null,
+                taskScheduler,
+                workerService,
+                2
+        );
+        transcript = BenchmarkData.tempFile(".txt");
+
+        voskInstance.allocateSingleThread();
+        voskInstance.openModel("model");
+        voskInstance.startNewTranscript(
+                transcript.getPath(),
+                BenchmarkData.SAMPLE_RATE,
+                1,
+                FlushPolicy.ON_FINISH,
+                false,
+                null,
+                BUFFERS,
+                overflowPolicy,
+                false,
+                null,
+                true
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        voskInstance.closeResources(false);
+        voskInstance.disconnect();
+        modelCache.close();
+        recognizerPool.close();
+        taskScheduler.shutdown();
+        workerService.shutdown();
+        workerService.awaitTermination(1, TimeUnit.MINUTES);
+        transcript.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BUFFERS)
+    public void feedBuffer() {
+        long target = Recognizer.acceptedBytes.get() + (long) BUFFERS * bufferSize;
+
+        for (int i = 0; i < BUFFERS; i++) {
+            voskInstance.feedBuffer(ByteBuffer.wrap(buffer), true, ignoreAcceptance);
+        }
+        awaitAccepted(target);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BUFFERS)
+    public void feedDirectBuffer() {
+        long target = Recognizer.acceptedBytes.get() + (long) BUFFERS * bufferSize;
+
+        for (int i = 0; i < BUFFERS; i++) {
+            directBuffer.rewind();
+            voskInstance.feedBuffer(directBuffer, true, ignoreAcceptance);
+        }
+        awaitAccepted(target);
+    }
+
+    // Waits until the recognizers have accepted the given total number of bytes.
+    private static void awaitAccepted(long target) {
+        while (Recognizer.acceptedBytes.get() < target) {
+            Thread.yield();
+        }
+    }
+}
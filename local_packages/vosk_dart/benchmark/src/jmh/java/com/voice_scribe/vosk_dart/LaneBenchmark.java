@@ -0,0 +1,61 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Allocating and deallocating lanes that follow each other, as instances do between transcripts.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LaneBenchmark {
+    private static final int LANES = 16; // Lanes chained in each invocation.
+
+    private static final Runnable emptyTask = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private TaskScheduler taskScheduler;
+
+    @Setup
+    public void setup() {
+        taskScheduler = new TaskScheduler(2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        taskScheduler.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LANES)
+    public void chainLanes() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        Lane lane = null;
+
+        for (int i = 0; i < LANES; i++) {
+            lane = taskScheduler.newLane(lane);
+            lane.execute(emptyTask);
+            lane.shutdown();
+        }
+
+        lane.whenTerminated(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+}
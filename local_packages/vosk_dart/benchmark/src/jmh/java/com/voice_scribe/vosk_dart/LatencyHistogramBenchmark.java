@@ -0,0 +1,32 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+// Cost of recording durations into a histogram shared by several threads, as tasks do for every
+// stage, and of taking a snapshot of it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LatencyHistogramBenchmark {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Benchmark
+    @Threads(4)
+    public void record() {
+        histogram.record(System.nanoTime() & 0xFFFFFFL);
+    }
+
+    @Benchmark
+    public Map<String, Object> snapshot() {
+        return histogram.snapshot();
+    }
+}
@@ -0,0 +1,70 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Encoding of the partial results of an utterance as it grows a word at a time, with each partial
+// repeated as when buffers hold no new word. The chars of text sent are returned.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PartialDifferBenchmark {
+    private static final int REPEATS = 3; // Buffers fed per word.
+
+    private String[] partials;
+
+    @Setup
+    public void setup() throws JSONException {
+        WordResults[] results = BenchmarkData.parsedResults(BenchmarkData.recordedResults(7));
+        StringBuilder text = new StringBuilder();
+        int wordCount = 0;
+
+        for (WordResults result : results) {
+            wordCount += result.size();
+        }
+
+        partials = new String[wordCount * REPEATS];
+        int next = 0;
+
+        for (WordResults result : results) {
+            for (int i = 0; i < result.size(); i++) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(result.getWord(i));
+
+                for (int repeat = 0; repeat < REPEATS; repeat++) {
+                    partials[next++] = text.toString();
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public long encode() {
+        PartialDiffer partialDiffer = new PartialDiffer();
+        long charsSent = 0;
+
+        for (String partial : partials) {
+            HashMap<String, Object> event = new HashMap<String, Object>();
+            event.put("resultType", TranscribeTask.PARTIAL);
+            event.put("transcriptPath", "transcript.txt");
+            event.put("progress", 1.0);
+            event.put("text", partial);
+
+            if (partialDiffer.encode(event)) {
+                charsSent += ((String) event.get("textSuffix")).length();
+            }
+        }
+        return charsSent;
+    }
+}
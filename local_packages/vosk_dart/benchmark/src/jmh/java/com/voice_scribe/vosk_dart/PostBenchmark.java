@@ -0,0 +1,86 @@
+package com.voice_scribe.vosk_dart;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Posting of results to dart, from building the event to handing it to the event batcher.
+//
+// Batches are sent from the stand-in main thread to an event sink that discards them.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostBenchmark {
+    // Exposes post of a transcription task.
+    private static class PostTask extends TranscribeTask {
+        PostTask(TranscriptWriter transcriptWriter, Bridge bridge) {
+            super(null, transcriptWriter, bridge, null, new Metrics());
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private WordResults[] results;
+    private WordResults partialResult;
+    private int next = 0;
+
+    private File transcript;
+    private TranscriptWriter transcriptWriter;
+    private Bridge bridge;
+    private PostTask postTask;
+
+    @Setup
+    public void setup() throws IOException, JSONException {
+        results = BenchmarkData.parsedResults(BenchmarkData.recordedResults(7));
+        partialResult = new ResultParser().parse(BenchmarkData.recordedPartial());
+
+        transcript = BenchmarkData.tempFile(".txt");
+        transcriptWriter = new TranscriptWriter(
+                transcript.getPath(), "UTF-8", FlushPolicy.ON_FINISH, false
+        );
+        bridge = new Bridge(
+                null,
+                BenchmarkData.NULL_MESSENGER,
+                0,
+                new Handler(Looper.getMainLooper()),
+                new LatencyHistogram()
+        );
+        postTask = new PostTask(transcriptWriter, bridge);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        bridge.close();
+        transcriptWriter.close();
+        transcript.delete();
+    }
+
+    @Benchmark
+    public boolean postResult() {
+        boolean posted = postTask.post(
+                results[next], TranscribeTask.RESULT, TranscribeTask.BUFFER, 1.0
+        );
+        next = (next + 1) % results.length;
+        return posted;
+    }
+
+    @Benchmark
+    public boolean postPartialResult() {
+        return postTask.post(partialResult, TranscribeTask.PARTIAL, TranscribeTask.BUFFER, 1.0);
+    }
+}
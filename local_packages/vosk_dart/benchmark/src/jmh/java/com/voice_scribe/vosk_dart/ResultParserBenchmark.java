@@ -0,0 +1,67 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Parsing of recognizer results, as done for every result and partial result.
+//
+// The org.json benchmark parses the same results the way results were parsed before ResultParser,
+// as a baseline.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultParserBenchmark {
+    private final ResultParser resultParser = new ResultParser();
+
+    private String[] results;
+    private String partial;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        results = BenchmarkData.recordedResults(7);
+        partial = BenchmarkData.recordedPartial();
+    }
+
+    @Benchmark
+    public WordResults parseResult() throws JSONException {
+        return resultParser.parse(nextResult());
+    }
+
+    @Benchmark
+    public WordResults parsePartialResult() throws JSONException {
+        return resultParser.parse(partial);
+    }
+
+    @Benchmark
+    public void parseResultWithOrgJson(Blackhole blackhole) throws JSONException {
+        JSONObject result = new JSONObject(nextResult());
+        JSONArray words = result.getJSONArray("result");
+
+        for (int i = 0; i < words.length(); i++) {
+            JSONObject word = words.getJSONObject(i);
+            blackhole.consume(word.getString("word"));
+            blackhole.consume(word.getDouble("start"));
+            blackhole.consume(word.getDouble("end"));
+            blackhole.consume(word.getDouble("conf"));
+        }
+        blackhole.consume(result.getString("text"));
+    }
+
+    private String nextResult() {
+        String result = results[next];
+        next = (next + 1) % results.length;
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Ranked queries of the search index, over transcripts of about an hour of speech each, with words
+// drawn from a vocabulary by a Zipf distribution as in natural speech.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchIndexBenchmark {
+    private static final int VOCABULARY_SIZE = 20000;
+    private static final int WORDS_PER_TRANSCRIPT = 9000; // About an hour of speech.
+    private static final int WORDS_PER_RESULT = 10;
+
+    @Param({"1000"})
+    public int transcripts;
+
+    // A frequent word and a rare word of the vocabulary.
+    @Param({"w5 w4000"})
+    public String query;
+
+    private File directory;
+    private SearchIndex searchIndex;
+
+    @Setup
+    public void setup() throws IOException, ExecutionException, InterruptedException {
+        directory = BenchmarkData.tempFile("_index");
+        searchIndex = new SearchIndex(directory);
+
+        double[] cumulative = zipf();
+        Random random = new Random(0);
+        WordResults result = new WordResults();
+
+        for (int i = 0; i < transcripts; i++) {
+            SearchDocument document = new SearchDocument("transcript_" + i + ".txt");
+
+            for (int word = 0; word < WORDS_PER_TRANSCRIPT; word += WORDS_PER_RESULT) {
+                result.clear();
+
+                for (int j = 0; j < WORDS_PER_RESULT; j++) {
+                    double start = (word + j) * 0.4;
+                    result.add("w" + sample(cumulative, random), start, start + 0.3, 1.0);
+                }
+                document.add(result);
+            }
+            searchIndex.add(document);
+        }
+
+        searchIndex.changesDone().get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        searchIndex.close();
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<HashMap<String, Object>> search() throws IOException {
+        return searchIndex.search(query, 20);
+    }
+
+    // Returns the cumulative probabilities of the ranks of the vocabulary.
+    private static double[] zipf() {
+        double[] cumulative = new double[VOCABULARY_SIZE];
+        double sum = 0;
+
+        for (int rank = 0; rank < VOCABULARY_SIZE; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < VOCABULARY_SIZE; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return rank >= 0 ? rank : Math.min(-rank - 1, cumulative.length - 1);
+    }
+}
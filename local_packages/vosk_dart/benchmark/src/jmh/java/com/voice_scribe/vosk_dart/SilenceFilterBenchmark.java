@@ -0,0 +1,49 @@
+package com.voice_scribe.vosk_dart;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Cost of filtering a minute of audio for silence, in buffers as fed from a file, against the
+// fraction of it that is speech. The bytes kept are returned, which is what the recognizer decodes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SilenceFilterBenchmark {
+    private static final int SECONDS = 60;
+
+    @Param({"0.3", "0.9"})
+    public double speechFraction;
+
+    @Param({"6400"})
+    public int bufferSize;
+
+    private byte[] audio;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        audio = BenchmarkData.speechAudio(SECONDS * BenchmarkData.SAMPLE_RATE * 2, speechFraction);
+        buffer = new byte[bufferSize];
+    }
+
+    @Benchmark
+    public long filter() {
+        SilenceFilter silenceFilter = new SilenceFilter(BenchmarkData.SAMPLE_RATE);
+        long keptBytes = 0;
+
+        for (int offset = 0; offset < audio.length; offset += buffer.length) {
+            int length = Math.min(buffer.length, audio.length - offset);
+            System.arraycopy(audio, offset, buffer, 0, length);
+            keptBytes += silenceFilter.filter(buffer, length);
+        }
+        return keptBytes + silenceFilter.flush();
+    }
+}
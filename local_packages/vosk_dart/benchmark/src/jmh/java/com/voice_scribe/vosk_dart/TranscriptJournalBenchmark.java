@@ -0,0 +1,57 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Writing of results to a journaled transcript, syncing the journal every given number of
+// results, against the same transcript not journaled (syncEveryResults -1).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TranscriptJournalBenchmark {
+    @Param({"-1", "1", "16"})
+    public int syncEveryResults;
+
+    private WordResults[] results;
+    private int next = 0;
+
+    private File transcript;
+    private TranscriptWriter transcriptWriter;
+
+    @Setup
+    public void setup() throws IOException, JSONException {
+        results = BenchmarkData.parsedResults(BenchmarkData.recordedResults(7));
+        transcript = BenchmarkData.tempFile(".txt");
+        transcriptWriter = new TranscriptWriter(
+                transcript.getPath(),
+                "UTF-8",
+                FlushPolicy.ON_FINISH,
+                false,
+                syncEveryResults < 0 ? null : new FlushPolicy(syncEveryResults, 0)
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transcriptWriter.close();
+        transcript.delete();
+    }
+
+    @Benchmark
+    public void writeResult() throws IOException {
+        transcriptWriter.writeResult(results[next]);
+        next = (next + 1) % results.length;
+    }
+}
@@ -0,0 +1,72 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Writing of results to a transcript, with and without its binary index, and of the results of a
+// recognizer giving no word results (words false) as text lines.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TranscriptWriterBenchmark {
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    @Param({"0", "1"})
+    public int flushEveryResults;
+
+    @Param({"true", "false"})
+    public boolean words;
+
+    private WordResults[] results;
+    private int next = 0;
+
+    private File transcript;
+    private TranscriptWriter transcriptWriter;
+
+    @Setup
+    public void setup() throws IOException, JSONException {
+        String[] recorded = BenchmarkData.recordedResults(7);
+
+        if (!words) {
+            for (int i = 0; i < recorded.length; i++) {
+                String text = new JSONObject(recorded[i]).getString("text");
+                recorded[i] = new JSONObject().put("text", text).toString();
+            }
+        }
+        results = BenchmarkData.parsedResults(recorded);
+        transcript = BenchmarkData.tempFile(".txt");
+        transcriptWriter = new TranscriptWriter(
+                transcript.getPath(),
+                "UTF-8",
+                new FlushPolicy(flushEveryResults, 0),
+                indexed
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transcriptWriter.close();
+        transcript.delete();
+        new File(TranscriptIndex.pathOf(transcript.getPath())).delete();
+    }
+
+    @Benchmark
+    public void writeResult() throws IOException {
+        transcriptWriter.writeResult(results[next]);
+        next = (next + 1) % results.length;
+    }
+}
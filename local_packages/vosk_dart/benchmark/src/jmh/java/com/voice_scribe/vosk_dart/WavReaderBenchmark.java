@@ -0,0 +1,108 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+// Reading of wav files, on its own and as part of transcribing a file.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WavReaderBenchmark {
+    @Param({"60"})
+    public double seconds;
+
+    @Param({"6400"})
+    public int bufferSize;
+
+    @Param({"false", "true"})
+    public boolean skipSilence;
+
+    @Param({"0", "1"}) // TranscribeFile.LIVE and TranscribeFile.ADAPTIVE.
+    public int chunkPolicy;
+
+    private File wav;
+    private byte[] buffer;
+
+    private File transcript;
+    private TranscriptWriter transcriptWriter;
+    private final ResultParser resultParser = new ResultParser();
+    private final Metrics metrics = new Metrics();
+
+    @Setup
+    public void setup() throws IOException {
+        wav = BenchmarkData.wavFile(seconds);
+        buffer = new byte[bufferSize];
+
+        transcript = BenchmarkData.tempFile(".txt");
+        transcriptWriter = new TranscriptWriter(
+                transcript.getPath(), "UTF-8", FlushPolicy.ON_FINISH, false
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transcriptWriter.close();
+        transcript.delete();
+        wav.delete();
+    }
+
+    @Benchmark
+    public long readFile() throws IOException {
+        long checksum = 0;
+
+        try (WavReader wavReader = new WavReader(wav.getPath())) {
+            int bytesRead;
+            while ((bytesRead = wavReader.read(buffer)) != -1) {
+                checksum += buffer[bytesRead - 1];
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public void transcribeFile() {
+        TranscriptAudio transcriptAudio = new TranscriptAudio(
+                BenchmarkData.SAMPLE_RATE, 1, skipSilence, null
+        );
+
+        new TranscribeFile(
+                wav.getPath(),
+                transcriptAudio,
+                null,
+                new CancellationToken(),
+                chunkPolicy,
+                recognizerFuture(transcriptAudio),
+                transcriptWriter,
+                null,
+                resultParser,
+                metrics
+        ).run();
+    }
+
+    private static Future<Recognizer> recognizerFuture(TranscriptAudio transcriptAudio) {
+        FutureTask<Model> modelFuture = new FutureTask<Model>(new OpenModel(""));
+        FutureTask<Recognizer> recognizerFuture = new FutureTask<Recognizer>(
+                new CreateRecognizer(
+                        new RecognizerPool(), modelFuture, transcriptAudio, null, true
+                )
+        );
+        modelFuture.run();
+        recognizerFuture.run();
+        return recognizerFuture;
+    }
+}
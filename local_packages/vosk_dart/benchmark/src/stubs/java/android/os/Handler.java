@@ -0,0 +1,53 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Stand-in for the Android handler. Runs posted runnables in the thread of its looper.
+public class Handler {
+    private final Looper looper;
+    private final HashMap<Runnable, List<Future<?>>> pending = new HashMap<>();
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public boolean post(Runnable runnable) {
+        return postDelayed(runnable, 0);
+    }
+
+    public boolean postDelayed(final Runnable runnable, long delayMillis) {
+        synchronized (pending) {
+            List<Future<?>> futures = pending.get(runnable);
+            if (futures == null) {
+                futures = new ArrayList<>();
+                pending.put(runnable, futures);
+            }
+
+            futures.add(looper.executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (pending) {
+                        pending.remove(runnable);
+                    }
+                    runnable.run();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS));
+        }
+        return true;
+    }
+
+    public void removeCallbacks(Runnable runnable) {
+        synchronized (pending) {
+            List<Future<?>> futures = pending.remove(runnable);
+            if (futures != null) {
+                for (Future<?> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package android.os;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+// Stand-in for the Android looper. The main looper is a single daemon thread.
+public class Looper {
+    private static final Looper mainLooper = new Looper("main");
+
+    final ScheduledExecutorService executor;
+
+    private Looper(final String name) {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public static Looper getMainLooper() {
+        return mainLooper;
+    }
+}
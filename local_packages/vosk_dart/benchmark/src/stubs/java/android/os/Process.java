@@ -0,0 +1,10 @@
+package android.os;
+
+// Stand-in for the Android process. Thread priorities are left as they are.
+public class Process {
+    public static final int THREAD_PRIORITY_DEFAULT = 0;
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    public static void setThreadPriority(int priority) {
+    }
+}
@@ -0,0 +1,5 @@
+package androidx.annotation;
+
+// Stand-in for the androidx annotation.
+public @interface NonNull {
+}
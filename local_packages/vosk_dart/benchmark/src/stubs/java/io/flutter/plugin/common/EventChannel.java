@@ -0,0 +1,55 @@
+package io.flutter.plugin.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stand-in for a Flutter event channel, which acts as if dart listens to it as soon as it has a
+// stream handler. Events sent to it are counted and discarded.
+public class EventChannel {
+    public interface EventSink {
+        void success(Object event);
+
+        void error(String errorCode, String errorMessage, Object errorDetails);
+
+        void endOfStream();
+    }
+
+    public interface StreamHandler {
+        void onListen(Object arguments, EventSink events);
+
+        void onCancel(Object arguments);
+    }
+
+    public static final AtomicLong eventCount = new AtomicLong(); // Events sent to any channel.
+
+    private static final EventSink countingSink = new EventSink() {
+        @Override
+        public void success(Object event) {
+            eventCount.incrementAndGet();
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+        }
+
+        @Override
+        public void endOfStream() {
+        }
+    };
+
+    private StreamHandler handler;
+
+    public EventChannel(BinaryMessenger messenger, String name) {
+    }
+
+    public void setStreamHandler(StreamHandler handler) {
+        if (this.handler != null) {
+            this.handler.onCancel(null);
+        }
+
+        this.handler = handler;
+
+        if (handler != null) {
+            handler.onListen(null, countingSink);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package io.flutter.plugin.common;
+
+import java.util.Map;
+
+// Stand-in for a Flutter method call, with arguments given as a map or a single value.
+public class MethodCall {
+    public final String method;
+    public final Object arguments;
+
+    public MethodCall(String method, Object arguments) {
+        this.method = method;
+        this.arguments = arguments;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T argument(String key) {
+        return (T) ((Map<?, ?>) arguments).get(key);
+    }
+
+    public boolean hasArgument(String key) {
+        return arguments instanceof Map && ((Map<?, ?>) arguments).containsKey(key);
+    }
+}
@@ -0,0 +1,22 @@
+package io.flutter.plugin.common;
+
+// Stand-in for a Flutter method channel. Calls can only be made directly on its handler.
+public class MethodChannel {
+    public interface Result {
+        void success(Object result);
+
+        void error(String errorCode, String errorMessage, Object errorDetails);
+
+        void notImplemented();
+    }
+
+    public interface MethodCallHandler {
+        void onMethodCall(MethodCall call, Result result);
+    }
+
+    public MethodChannel(BinaryMessenger messenger, String name) {
+    }
+
+    public void setMethodCallHandler(MethodCallHandler handler) {
+    }
+}
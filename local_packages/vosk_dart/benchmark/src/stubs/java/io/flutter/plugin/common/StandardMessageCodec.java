@@ -0,0 +1,16 @@
+package io.flutter.plugin.common;
+
+import java.nio.ByteBuffer;
+
+// Stand-in for the Flutter standard message codec. Messages are not actually encoded.
+public class StandardMessageCodec {
+    public static final StandardMessageCodec INSTANCE = new StandardMessageCodec();
+
+    public ByteBuffer encodeMessage(Object message) {
+        return null;
+    }
+
+    public Object decodeMessage(ByteBuffer message) {
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package io.flutter.plugin.common;
+
+import java.nio.ByteBuffer;
+
+// Stand-in for the Flutter standard method codec. Envelopes are not actually encoded.
+public class StandardMethodCodec {
+    public static final StandardMethodCodec INSTANCE = new StandardMethodCodec();
+
+    public ByteBuffer encodeSuccessEnvelope(Object result) {
+        return null;
+    }
+
+    public ByteBuffer encodeErrorEnvelope(
+            String errorCode, String errorMessage, Object errorDetails
+    ) {
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package org.vosk;
+
+// Stand-in for a Vosk model. Nothing is loaded.
+public class Model implements AutoCloseable {
+    public Model(String path) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
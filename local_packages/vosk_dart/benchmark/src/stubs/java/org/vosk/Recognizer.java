@@ -0,0 +1,119 @@
+package org.vosk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stand-in for a Vosk recognizer that replays recorded results instead of decoding.
+//
+// A result is completed every few seconds of audio fed, cycling through the recorded results.
+// Partial results hold the text of the result in progress.
+public class Recognizer implements AutoCloseable {
+    private static final double SECONDS_PER_RESULT = 3.0;
+
+    private static final String[] results = readRecordedResults();
+    private static final String[] partials = partialsOf(results);
+
+    public static final AtomicLong acceptedBytes = new AtomicLong(); // Bytes fed to any recognizer.
+
+    private final long bytesPerResult;
+    private long bytesSinceResult = 0;
+    private int next = 0; // Index of the result in progress.
+
+    public Recognizer(Model model, float sampleRate) {
+        bytesPerResult = (long) (sampleRate * 2 * SECONDS_PER_RESULT);
+    }
+
+    public Recognizer(Model model, float sampleRate, String grammar) {
+        this(model, sampleRate);
+    }
+
+    public void setWords(boolean words) {
+    }
+
+    public void setMaxAlternatives(int maxAlternatives) {
+    }
+
+    public boolean acceptWaveForm(byte[] data, int length) {
+        acceptedBytes.addAndGet(length);
+        bytesSinceResult += length;
+
+        if (bytesSinceResult >= bytesPerResult) {
+            bytesSinceResult = 0;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean acceptWaveForm(short[] data, int length) {
+        return acceptWaveForm((byte[]) null, length * 2);
+    }
+
+    public boolean acceptWaveForm(float[] data, int length) {
+        return acceptWaveForm((byte[]) null, length * 2);
+    }
+
+    public String getResult() {
+        String result = results[next];
+        next = (next + 1) % results.length;
+        return result;
+    }
+
+    public String getPartialResult() {
+        return partials[next];
+    }
+
+    public String getFinalResult() {
+        bytesSinceResult = 0;
+        return getResult();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // Reads the recorded results, which are separated by empty lines.
+    private static String[] readRecordedResults() {
+        List<String> results = new ArrayList<>();
+        StringBuilder result = new StringBuilder();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Recognizer.class.getResourceAsStream("/recognizer_results.txt"),
+                StandardCharsets.UTF_8
+        ))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    results.add(result.toString());
+                    result.setLength(0);
+                }
+                else {
+                    result.append(line).append('\n');
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Could not read recorded results.", e);
+        }
+
+        if (result.length() > 0) {
+            results.add(result.toString());
+        }
+        return results.toArray(new String[0]);
+    }
+
+    private static String[] partialsOf(String[] results) {
+        String[] partials = new String[results.length];
+
+        for (int i = 0; i < results.length; i++) {
+            int start = results[i].indexOf("\"text\" : \"") + "\"text\" : \"".length();
+            int end = results[i].indexOf('"', start);
+            partials[i] = "{\n  \"partial\" : \"" + results[i].substring(start, end) + "\"\n}";
+        }
+        return partials;
+    }
+}
@@ -0,0 +1,176 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+// Converts audio of known content and checks the samples that come out: their count, the tones
+// that survive resampling, and how channels and sample sizes are folded into mono 16 bit audio.
+public class AudioConverterTest {
+    @Test
+    public void passesMono16BitAudioThroughAtTheSameRate() {
+        short[] samples = tone(4000, 16000, 440.0, 0.5);
+        byte[] input = pcm16(samples);
+
+        assertArrayEquals(input, convert(new AudioConverter(16000, 1, 16, 16000), input, 7));
+    }
+
+    @Test
+    public void averagesChannels() {
+        short[] left = tone(1000, 16000, 440.0, 0.5);
+        short[] right = tone(1000, 16000, 1000.0, 0.25);
+        byte[] input = pcm16(left, right);
+
+        short[] expected = new short[left.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (short) Math.round((left[i] + right[i]) / 2.0f);
+        }
+
+        byte[] output = convert(new AudioConverter(16000, 2, 16, 16000), input, 4096);
+        assertArrayEquals(pcm16(expected), output);
+    }
+
+    @Test
+    public void scalesEverySampleSizeTo16Bits() {
+        // The same samples at each size, with the bits below 16 set to show they are dropped.
+        byte[] eight = {(byte) 0x80, (byte) 0xFF, 0x00, 0x40};
+        byte[] sixteen = {0x00, 0x00, 0x00, 0x7F, 0x00, (byte) 0x80, 0x00, (byte) 0xC0};
+        byte[] twentyFour = {
+                0x12, 0x00, 0x00,
+                0x34, 0x00, 0x7F,
+                0x56, 0x00, (byte) 0x80,
+                0x78, 0x00, (byte) 0xC0
+        };
+        byte[] thirtyTwo = {
+                0x12, 0x34, 0x00, 0x00,
+                0x12, 0x34, 0x00, 0x7F,
+                0x12, 0x34, 0x00, (byte) 0x80,
+                0x12, 0x34, 0x00, (byte) 0xC0
+        };
+        byte[] expected = pcm16(new short[] {0, 0x7F00, (short) 0x8000, (short) 0xC000});
+
+        assertArrayEquals(expected, convert(new AudioConverter(16000, 1, 8, 16000), eight, 3));
+        assertArrayEquals(expected, convert(new AudioConverter(16000, 1, 16, 16000), sixteen, 3));
+        assertArrayEquals(
+                expected, convert(new AudioConverter(16000, 1, 24, 16000), twentyFour, 5)
+        );
+        assertArrayEquals(
+                expected, convert(new AudioConverter(16000, 1, 32, 16000), thirtyTwo, 5)
+        );
+    }
+
+    @Test
+    public void outputsOneSamplePerOutputPeriodOfInput() {
+        int[][] rates = {{44100, 16000}, {48000, 16000}, {8000, 16000}, {22050, 8000}};
+
+        for (int[] rate : rates) {
+            for (int length : new int[] {1, 999, 44100}) {
+                byte[] input = pcm16(tone(length, rate[0], 440.0, 0.5));
+                byte[] output = convert(new AudioConverter(rate[0], 1, 16, rate[1]), input, 777);
+
+                // Output sample n lies at input time n * inputRate / outputRate, before the end.
+                long expected = ((long) length * rate[1] + rate[0] - 1) / rate[0];
+                assertEquals(rate[0] + " to " + rate[1], expected * 2, output.length);
+            }
+        }
+    }
+
+    @Test
+    public void keepsTonesBelowTheLowerNyquistFrequency() {
+        int[][] rates = {{44100, 16000}, {48000, 16000}, {8000, 16000}};
+
+        for (int[] rate : rates) {
+            byte[] input = pcm16(tone(rate[0], rate[0], 1000.0, 0.5));
+            short[] output = samples(
+                    convert(new AudioConverter(rate[0], 1, 16, rate[1]), input, 1000)
+            );
+            short[] expected = tone(output.length, rate[1], 1000.0, 0.5);
+
+            // Away from the edges, where the filters look past the audio into silence.
+            for (int i = 100; i < output.length - 100; i++) {
+                assertEquals(rate[0] + " to " + rate[1] + " at " + i, expected[i], output[i], 100);
+            }
+        }
+    }
+
+    @Test
+    public void removesTonesAboveTheOutputNyquistFrequency() {
+        byte[] input = pcm16(tone(48000, 48000, 12000.0, 0.5));
+        short[] output = samples(convert(new AudioConverter(48000, 1, 16, 16000), input, 1000));
+
+        double sum = 0.0;
+        for (int i = 100; i < output.length - 100; i++) {
+            sum += (double) output[i] * output[i];
+        }
+        double rms = Math.sqrt(sum / (output.length - 200));
+
+        assertTrue("Residual " + rms, rms < 0.01 * 0.5 * Short.MAX_VALUE);
+    }
+
+    @Test
+    public void startsOverAfterFlushing() {
+        byte[] input = pcm16(tone(5000, 44100, 440.0, 0.5));
+        AudioConverter converter = new AudioConverter(44100, 2, 16, 16000);
+        byte[] stereo = pcm16(samples(input), samples(input));
+
+        byte[] first = convert(converter, stereo, 1001);
+        converter.convert(stereo, 3); // A partial frame, dropped by the flush.
+        converter.flush();
+        byte[] second = convert(converter, stereo, 4096);
+
+        assertArrayEquals(first, second);
+    }
+
+    // Converts the given audio given length bytes at a time, so frames are split across calls,
+    // then flushes the converter.
+    private static byte[] convert(AudioConverter converter, byte[] audio, int length) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[length];
+
+        for (int offset = 0; offset < audio.length; offset += length) {
+            int count = Math.min(length, audio.length - offset);
+            System.arraycopy(audio, offset, buffer, 0, count);
+            int outputLength = converter.convert(buffer, count);
+            output.write(converter.getOutput(), 0, outputLength);
+        }
+        int outputLength = converter.flush();
+        output.write(converter.getOutput(), 0, outputLength);
+        return output.toByteArray();
+    }
+
+    // Returns a sine of the given frequency and amplitude, as a part of full scale.
+    private static short[] tone(int length, int sampleRate, double frequency, double amplitude) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            double value = amplitude * Math.sin(2 * Math.PI * frequency * i / sampleRate);
+            samples[i] = (short) Math.round(value * Short.MAX_VALUE);
+        }
+        return samples;
+    }
+
+    // Returns the given channels interleaved as little endian 16 bit samples.
+    private static byte[] pcm16(short[]... channels) {
+        byte[] audio = new byte[channels[0].length * channels.length * 2];
+        int offset = 0;
+
+        for (int i = 0; i < channels[0].length; i++) {
+            for (short[] channel : channels) {
+                audio[offset++] = (byte) channel[i];
+                audio[offset++] = (byte) (channel[i] >> 8);
+            }
+        }
+        return audio;
+    }
+
+    private static short[] samples(byte[] pcm16) {
+        short[] samples = new short[pcm16.length / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) ((pcm16[2 * i] & 0xFF) | (pcm16[2 * i + 1] << 8));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,91 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+// Offers buffers to queues that are never drained and checks what each overflow policy keeps.
+public class FeedQueueTest {
+    private static final int CAPACITY = 4;
+    private static final int BUFFER_SIZE = 320;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private final FeedQueue.AcceptListener acceptListener = new FeedQueue.AcceptListener() {
+        @Override
+        public void onAccepted(Map<String, Object> status) {
+            accepted.incrementAndGet();
+        }
+    };
+
+    @Test
+    public void blockHoldsBackBuffersBeyondCapacity() {
+        FeedQueue queue = queue(FeedQueue.BLOCK);
+        offer(queue, CAPACITY * 2);
+
+        Map<String, Object> status = queue.getStatus();
+        assertEquals(CAPACITY * 2, status.get("queueDepth"));
+        assertEquals(0L, status.get("droppedBytes"));
+        assertEquals(CAPACITY, accepted.get());
+    }
+
+    @Test
+    public void blockDropsTheOldestOnceTooManyAreHeldBack() throws InterruptedException {
+        FeedQueue queue = queue(FeedQueue.BLOCK);
+        offer(queue, CAPACITY * 2 + 3);
+
+        Map<String, Object> status = queue.getStatus();
+        assertEquals(CAPACITY * 2, status.get("queueDepth"));
+        assertEquals(3L * BUFFER_SIZE, status.get("droppedBytes"));
+
+        // Buffers moved into the ring in place of dropped ones are accepted in the main thread.
+        long end = System.currentTimeMillis() + 1000;
+        while (accepted.get() < CAPACITY + 3 && System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+        }
+        assertEquals(CAPACITY + 3, accepted.get());
+    }
+
+    @Test
+    public void dropOldestKeepsCapacityBuffers() {
+        FeedQueue queue = queue(FeedQueue.DROP_OLDEST);
+        offer(queue, CAPACITY + 2);
+
+        Map<String, Object> status = queue.getStatus();
+        assertEquals(CAPACITY, status.get("queueDepth"));
+        assertEquals(2L * BUFFER_SIZE, status.get("droppedBytes"));
+        assertEquals(CAPACITY + 2, accepted.get());
+    }
+
+    @Test
+    public void mergeJoinsBuffersBeyondCapacity() {
+        FeedQueue queue = queue(FeedQueue.MERGE);
+        offer(queue, CAPACITY + 2);
+
+        Map<String, Object> status = queue.getStatus();
+        assertEquals(CAPACITY, status.get("queueDepth"));
+        assertEquals(0L, status.get("droppedBytes"));
+
+        assertTrue(queue.take());
+        assertEquals((CAPACITY + 2) * BUFFER_SIZE, queue.getLength());
+    }
+
+    private FeedQueue queue(int overflowPolicy) {
+        return new FeedQueue(mainHandler, CAPACITY, overflowPolicy, 16000, 1);
+    }
+
+    private void offer(FeedQueue queue, int count) {
+        for (int i = 0; i < count; i++) {
+            queue.offer(ByteBuffer.wrap(new byte[BUFFER_SIZE]), false, acceptListener);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Decodes FLAC streams coded in each way the format allows and checks the PCM handed out against
+// the samples that were coded.
+public class FlacDecoderTest {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int BLOCK_SIZE = 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decodesFixedPredictionOfEveryOrder() throws IOException {
+        int[] samples = signal(5 * BLOCK_SIZE, 16, 1);
+        FlacWriter writer = new FlacWriter(SAMPLE_RATE, 1, 16, samples.length);
+
+        for (int order = 0; order <= 4; order++) {
+            writer.startFrame((long) order * BLOCK_SIZE, BLOCK_SIZE, 0);
+            writer.fixed(block(samples, order), 16, order, order, 0, order % 2 == 1);
+            writer.endFrame();
+        }
+
+        assertDecodes(writer, pcm(16, samples));
+    }
+
+    @Test
+    public void decodesLinearPrediction() throws IOException {
+        int[] samples = signal(3 * BLOCK_SIZE, 16, 2);
+        FlacWriter writer = new FlacWriter(SAMPLE_RATE, 1, 16, samples.length);
+
+        writer.startFrame(0, BLOCK_SIZE, 0);
+        writer.lpc(block(samples, 0), 16, new int[] {1 << 9}, 11, 9, 0, 0); // Sums fit an int.
+        writer.endFrame();
+
+        writer.startFrame(BLOCK_SIZE, BLOCK_SIZE, 0);
+        int[] coefficients = {3000, -1500, 512, -100, 37, -9, 4, -1};
+        writer.lpc(block(samples, 1), 16, coefficients, 13, 11, 3, 0);
+        writer.endFrame();
+
+        coefficients = new int[32];
+        Random random = new Random(3);
+        coefficients[0] = 1 << 13;
+        for (int i = 1; i < coefficients.length; i++) {
+            coefficients[i] = random.nextInt(201) - 100;
+        }
+        writer.startFrame(2 * BLOCK_SIZE, BLOCK_SIZE, 0);
+        writer.lpc(block(samples, 2), 16, coefficients, 15, 13, 4, 0);
+        writer.endFrame();
+
+        assertDecodes(writer, pcm(16, samples));
+    }
+
+    @Test
+    public void decodesEscapedPartitions() throws IOException {
+        int[] samples = signal(2 * BLOCK_SIZE, 16, 4);
+        int[] ramp = new int[BLOCK_SIZE]; // Predicted exactly, so its escaped residual has 0 bits.
+        for (int i = 0; i < ramp.length; i++) {
+            ramp[i] = 3 * i - 1500;
+        }
+        FlacWriter writer = new FlacWriter(SAMPLE_RATE, 1, 16, samples.length + ramp.length);
+
+        writer.startFrame(0, BLOCK_SIZE, 0);
+        writer.fixed(block(samples, 0), 16, 2, 3, 0xA5, false);
+        writer.endFrame();
+
+        writer.startFrame(BLOCK_SIZE, BLOCK_SIZE, 0);
+        writer.lpc(block(samples, 1), 16, new int[] {2000, -1000}, 12, 10, 2, 0x6);
+        writer.endFrame();
+
+        writer.startFrame(2 * BLOCK_SIZE, BLOCK_SIZE, 0);
+        writer.fixed(ramp, 16, 2, 0, 0x1, true);
+        writer.endFrame();
+
+        assertDecodes(writer, pcm(16, concat(samples, ramp)));
+    }
+
+    @Test
+    public void decodesEveryStereoMode() throws IOException {
+        int[] left = signal(4 * BLOCK_SIZE, 16, 5);
+        int[] right = signal(4 * BLOCK_SIZE, 16, 6);
+        FlacWriter writer = new FlacWriter(SAMPLE_RATE, 2, 16, left.length);
+
+        writer.startFrame(0, BLOCK_SIZE, 1); // Independent channels.
+        writer.fixed(block(left, 0), 16, 2, 1, 0, false);
+        writer.fixed(block(right, 0), 16, 1, 1, 0, false);
+        writer.endFrame();
+
+        writer.startFrame(BLOCK_SIZE, BLOCK_SIZE, FlacWriter.LEFT_SIDE);
+        writer.fixed(block(left, 1), 16, 2, 2, 0, false);
+        writer.fixed(difference(block(left, 1), block(right, 1)), 17, 2, 2, 0x2, false);
+        writer.endFrame();
+
+        writer.startFrame(2 * BLOCK_SIZE, BLOCK_SIZE, FlacWriter.SIDE_RIGHT);
+        writer.fixed(difference(block(left, 2), block(right, 2)), 17, 3, 0, 0, false);
+        writer.fixed(block(right, 2), 16, 3, 0, 0, false);
+        writer.endFrame();
+
+        int[] mid = new int[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            mid[i] = block(left, 3)[i] + block(right, 3)[i] >> 1;
+        }
+        writer.startFrame(3 * BLOCK_SIZE, BLOCK_SIZE, FlacWriter.MID_SIDE);
+        writer.lpc(mid, 16, new int[] {1800, -800}, 12, 10, 1, 0);
+        writer.lpc(difference(block(left, 3), block(right, 3)), 17, new int[] {900}, 12, 10, 1, 0);
+        writer.endFrame();
+
+        assertDecodes(writer, pcm(16, left, right));
+    }
+
+    @Test
+    public void decodesConstantAndVerbatimSubframesWithWastedBits() throws IOException {
+        int[] samples = signal(2 * BLOCK_SIZE, 16, 7);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            samples[BLOCK_SIZE + i] &= ~0x7; // 3 wasted bits.
+        }
+        int[] constant = new int[BLOCK_SIZE];
+        Arrays.fill(constant, -1234);
+        FlacWriter writer = new FlacWriter(SAMPLE_RATE, 1, 16, 3 * BLOCK_SIZE);
+
+        writer.startFrame(0, BLOCK_SIZE, 0);
+        writer.verbatim(block(samples, 0), 16, 0);
+        writer.endFrame();
+
+        writer.startFrame(BLOCK_SIZE, BLOCK_SIZE, 0);
+        writer.verbatim(block(samples, 1), 16, 3);
+        writer.endFrame();
+
+        writer.startFrame(2 * BLOCK_SIZE, BLOCK_SIZE, 0);
+        writer.constant(-1234, 16);
+        writer.endFrame();
+
+        assertDecodes(writer, pcm(16, concat(samples, constant)));
+    }
+
+    @Test
+    public void widensOddSampleSizesAndOffsetsEightBitSamples() throws IOException {
+        for (int bits : new int[] {8, 12, 20, 24}) {
+            int[] samples = signal(2 * BLOCK_SIZE, bits, bits);
+            FlacWriter writer = new FlacWriter(SAMPLE_RATE, 1, bits, samples.length);
+
+            writer.startFrame(0, BLOCK_SIZE, 0);
+            writer.fixed(block(samples, 0), bits, 2, 2, 0, bits > 16);
+            writer.endFrame();
+
+            writer.startFrame(BLOCK_SIZE, BLOCK_SIZE, 0);
+            writer.verbatim(block(samples, 1), bits, 0);
+            writer.endFrame();
+
+            File file = writer.writeTo(folder.newFile());
+            try (FlacDecoder decoder = new FlacDecoder(file.getPath())) {
+                assertEquals((bits + 7) / 8 * 8, decoder.getBitsPerSample());
+            }
+            assertDecodes(writer, pcm(bits, samples));
+        }
+    }
+
+    @Test
+    public void skipsGarbageAndCorruptHeadersBetweenFrames() throws IOException {
+        int[] samples = signal(2 * BLOCK_SIZE, 16, 9);
+        FlacWriter writer = new FlacWriter(SAMPLE_RATE, 1, 16, samples.length);
+
+        writer.startFrame(0, BLOCK_SIZE, 0);
+        writer.fixed(block(samples, 0), 16, 1, 0, 0, false);
+        writer.endFrame();
+
+        // A sync code followed by a header whose CRC does not match, then stray bytes.
+        writer.writeBytes(new byte[] {
+                (byte) 0xFF, (byte) 0xF9, 0x70, 0x00, 0x00, 0x03, (byte) 0xFF, 0x00, 0x12
+        });
+
+        writer.startFrame(BLOCK_SIZE, BLOCK_SIZE, 0);
+        writer.fixed(block(samples, 1), 16, 1, 0, 0, false);
+        writer.endFrame();
+
+        assertDecodes(writer, pcm(16, samples));
+    }
+
+    @Test
+    public void reportsFormatAndProgress() throws IOException {
+        int[] left = signal(3 * BLOCK_SIZE, 16, 10);
+        int[] right = signal(3 * BLOCK_SIZE, 16, 11);
+        FlacWriter writer = new FlacWriter(44100, 2, 16, left.length);
+
+        for (int i = 0; i < 3; i++) {
+            writer.startFrame((long) i * BLOCK_SIZE, BLOCK_SIZE, 1);
+            writer.fixed(block(left, i), 16, 2, 0, 0, false);
+            writer.fixed(block(right, i), 16, 2, 0, 0, false);
+            writer.endFrame();
+        }
+
+        File file = writer.writeTo(folder.newFile());
+        try (FlacDecoder decoder = new FlacDecoder(file.getPath())) {
+            assertEquals(44100, decoder.getSampleRate());
+            assertEquals(2, decoder.getChannelCount());
+            assertEquals(0, decoder.getInputPosition());
+
+            byte[] buffer = new byte[4000];
+            long lastPosition = 0;
+            while (decoder.read(buffer, 0, buffer.length) != -1) {
+                long position = decoder.getInputPosition();
+                assertTrue(position >= lastPosition);
+                lastPosition = position;
+            }
+            assertEquals(decoder.getInputLength(), lastPosition);
+        }
+    }
+
+    // Decodes the stream of the given writer with reads of several sizes, none of which fits a
+    // whole number of frames, and checks that each gives the expected PCM.
+    private void assertDecodes(FlacWriter writer, byte[] expected) throws IOException {
+        File file = writer.writeTo(folder.newFile());
+
+        for (int readSize : new int[] {7, 1000, 65536}) {
+            try (FlacDecoder decoder = new FlacDecoder(file.getPath())) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[readSize];
+                int bytesRead;
+
+                while ((bytesRead = decoder.read(buffer, 0, buffer.length)) != -1) {
+                    output.write(buffer, 0, bytesRead);
+                }
+                assertArrayEquals("Read size " + readSize, expected, output.toByteArray());
+            }
+        }
+    }
+
+    // Returns a tone with noise of the given length, filling most of the range of the given size.
+    private static int[] signal(int length, int bits, long seed) {
+        Random random = new Random(seed);
+        double amplitude = (1 << (bits - 1)) - 1;
+        int[] samples = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            double value = 0.6 * Math.sin(2 * Math.PI * 440.0 * i / SAMPLE_RATE) +
+                    0.05 * random.nextGaussian();
+            samples[i] = (int) Math.max(-amplitude, Math.min(amplitude, value * amplitude));
+        }
+        return samples;
+    }
+
+    // Returns the samples of the given block of BLOCK_SIZE.
+    private static int[] block(int[] samples, int index) {
+        int[] block = new int[BLOCK_SIZE];
+        System.arraycopy(samples, index * BLOCK_SIZE, block, 0, BLOCK_SIZE);
+        return block;
+    }
+
+    private static int[] difference(int[] a, int[] b) {
+        int[] difference = new int[a.length];
+        for (int i = 0; i < a.length; i++) {
+            difference[i] = a[i] - b[i];
+        }
+        return difference;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] joined = new int[a.length + b.length];
+        System.arraycopy(a, 0, joined, 0, a.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    // Returns the given channels interleaved as the decoder hands them out: little endian, widened
+    // to whole bytes, and unsigned if of 8 bits.
+    private static byte[] pcm(int bits, int[]... channels) {
+        int outputBits = (bits + 7) / 8 * 8;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        for (int i = 0; i < channels[0].length; i++) {
+            for (int[] channel : channels) {
+                int sample = channel[i] << (outputBits - bits);
+
+                if (outputBits == 8) {
+                    output.write(sample + 128);
+                    continue;
+                }
+                for (int b = 0; b < outputBits / 8; b++) {
+                    output.write(sample >> (8 * b));
+                }
+            }
+        }
+        return output.toByteArray();
+    }
+}
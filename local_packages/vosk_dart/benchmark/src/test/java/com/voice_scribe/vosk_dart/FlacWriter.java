@@ -0,0 +1,302 @@
+package com.voice_scribe.vosk_dart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Writes FLAC streams for the decoder tests a subframe at a time, so each test picks the exact
+// coding it checks, which a real encoder would choose for itself.
+//
+// Frames number their first sample and give their block size in 16 bits, taking the sample rate
+// and sample size from the stream info. Residuals are Rice coded with a parameter picked from
+// their mean magnitude, or written as raw values in escaped partitions.
+final class FlacWriter {
+    // Channel assignments beyond independent channels.
+    static final int LEFT_SIDE = 8;
+    static final int SIDE_RIGHT = 9;
+    static final int MID_SIDE = 10;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int pending = 0; // Bits not yet making up a whole byte.
+    private int pendingCount = 0;
+    private int frameStart;
+
+    // Starts a stream of the given format, with the stream info as its only metadata block.
+    FlacWriter(int sampleRate, int channelCount, int bitsPerSample, long totalSamples) {
+        write(0x664C6143, 32); // "fLaC"
+        write(0x80000022, 32); // Last metadata block, stream info of 34 bytes.
+        write(16, 16);
+        write(65535, 16);
+        write(0, 24);
+        write(0, 24);
+        write(sampleRate, 20);
+        write(channelCount - 1, 3);
+        write(bitsPerSample - 1, 5);
+        write(totalSamples >>> 32, 4);
+        write(totalSamples, 32);
+        for (int i = 0; i < 4; i++) {
+            write(0, 32); // MD5 signature left unset.
+        }
+    }
+
+    // Writes the given bytes as they are, such as garbage between frames.
+    void writeBytes(byte[] data) {
+        for (byte value : data) {
+            write(value, 8);
+        }
+    }
+
+    // Starts a frame of the given blockSize beginning at the given sample of each channel.
+    void startFrame(long firstSample, int blockSize, int channelAssignment) {
+        frameStart = bytes.size();
+        write(0xFFF9, 16); // Sync code, variable block size numbered by sample.
+        write(7 << 4, 8); // Block size in 16 bits at the end of the header, rate from stream info.
+        write(channelAssignment << 4, 8); // Sample size from stream info.
+        writeUtf8(firstSample);
+        write(blockSize - 1, 16);
+        write(crc(frameStart, 0x07, 8), 8);
+    }
+
+    // Ends the frame with its CRC-16.
+    void endFrame() {
+        alignToByte();
+        write(crc(frameStart, 0x8005, 16), 16);
+    }
+
+    // Writes a subframe of a single repeated value of the given sample size.
+    void constant(int value, int bits) {
+        write(0, 8);
+        write(value, bits);
+    }
+
+    // Writes the given samples as they are, with the lowest wasted bits of each left out.
+    void verbatim(int[] samples, int bits, int wasted) {
+        writeSubframeHeader(1, wasted);
+        for (int sample : samples) {
+            write(sample >> wasted, bits - wasted);
+        }
+    }
+
+    // Writes the given samples predicted by the fixed polynomial of the given order, 0 to 4.
+    //
+    // The residual is split into 2 ^ partitionOrder partitions, of which those set in escaped
+    // are written raw. If wideParameters, Rice parameters take 5 bits instead of 4.
+    void fixed(
+            int[] samples,
+            int bits,
+            int order,
+            int partitionOrder,
+            int escaped,
+            boolean wideParameters
+    ) {
+        writeSubframeHeader(8 + order, 0);
+        for (int i = 0; i < order; i++) {
+            write(samples[i], bits);
+        }
+
+        int[] residual = new int[samples.length - order];
+        for (int i = order; i < samples.length; i++) {
+            long prediction;
+            if (order == 0) {
+                prediction = 0;
+            }
+            else if (order == 1) {
+                prediction = samples[i - 1];
+            }
+            else if (order == 2) {
+                prediction = 2L * samples[i - 1] - samples[i - 2];
+            }
+            else if (order == 3) {
+                prediction = 3L * samples[i - 1] - 3L * samples[i - 2] + samples[i - 3];
+            }
+            else {
+                prediction = 4L * samples[i - 1] - 6L * samples[i - 2] + 4L * samples[i - 3] -
+                        samples[i - 4];
+            }
+            residual[i - order] = (int) (samples[i] - prediction);
+        }
+
+        writeResidual(residual, order, samples.length, partitionOrder, escaped, wideParameters);
+    }
+
+    // Writes the given samples predicted by the given coefficients, stored with the given
+    // precision in bits, and the prediction shifted right by shift. Partitions are as for fixed.
+    void lpc(
+            int[] samples,
+            int bits,
+            int[] coefficients,
+            int precision,
+            int shift,
+            int partitionOrder,
+            int escaped
+    ) {
+        int order = coefficients.length;
+        writeSubframeHeader(32 + order - 1, 0);
+        for (int i = 0; i < order; i++) {
+            write(samples[i], bits);
+        }
+        write(precision - 1, 4);
+        write(shift, 5);
+        for (int coefficient : coefficients) {
+            write(coefficient, precision);
+        }
+
+        int[] residual = new int[samples.length - order];
+        for (int i = order; i < samples.length; i++) {
+            long sum = 0;
+            for (int j = 0; j < order; j++) {
+                sum += (long) coefficients[j] * samples[i - 1 - j];
+            }
+            residual[i - order] = (int) (samples[i] - (sum >> shift));
+        }
+
+        writeResidual(residual, order, samples.length, partitionOrder, escaped, false);
+    }
+
+    // Returns the stream written so far.
+    byte[] toByteArray() {
+        alignToByte();
+        return bytes.toByteArray();
+    }
+
+    // Writes the stream written so far to the given file, returning it.
+    File writeTo(File file) throws IOException {
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(toByteArray());
+        }
+        return file;
+    }
+
+    private void writeSubframeHeader(int type, int wasted) {
+        write(0, 1);
+        write(type, 6);
+        if (wasted == 0) {
+            write(0, 1);
+        }
+        else {
+            write(1, 1);
+            writeUnary(wasted - 1);
+        }
+    }
+
+    private void writeResidual(
+            int[] residual,
+            int order,
+            int blockSize,
+            int partitionOrder,
+            int escaped,
+            boolean wideParameters
+    ) {
+        int parameterBits = wideParameters ? 5 : 4;
+        int escapeCode = (1 << parameterBits) - 1;
+
+        write(wideParameters ? 1 : 0, 2);
+        write(partitionOrder, 4);
+
+        int position = 0;
+        for (int partition = 0; partition < 1 << partitionOrder; partition++) {
+            int length = (blockSize >> partitionOrder) - (partition == 0 ? order : 0);
+
+            if ((escaped >> partition & 1) != 0) {
+                int bits = 0;
+                for (int i = position; i < position + length; i++) {
+                    bits = Math.max(bits, signedBitsOf(residual[i]));
+                }
+
+                write(escapeCode, parameterBits);
+                write(bits, 5);
+                for (int i = position; i < position + length; i++) {
+                    write(residual[i], bits);
+                }
+            }
+            else {
+                long magnitude = 0;
+                for (int i = position; i < position + length; i++) {
+                    magnitude += Math.abs((long) residual[i]);
+                }
+
+                int parameter = 0;
+                while (parameter < escapeCode - 1 && (long) length << (parameter + 1) < magnitude) {
+                    parameter++;
+                }
+
+                write(parameter, parameterBits);
+                for (int i = position; i < position + length; i++) {
+                    long value = residual[i];
+                    long folded = value >= 0 ? value << 1 : (-value << 1) - 1;
+                    writeUnary((int) (folded >>> parameter));
+                    write(folded, parameter);
+                }
+            }
+
+            position += length;
+        }
+    }
+
+    // Bits needed to hold the given value in two's complement, 0 for 0.
+    private static int signedBitsOf(int value) {
+        if (value == 0) {
+            return 0;
+        }
+        return 33 - Integer.numberOfLeadingZeros(value < 0 ? ~value : value);
+    }
+
+    private void writeUtf8(long value) {
+        if (value < 0x80) {
+            write(value, 8);
+            return;
+        }
+
+        int continuations = 1;
+        while (value >= 1L << (6 * continuations + 6 - continuations)) {
+            continuations++;
+        }
+        write(0xFF00 >> (continuations + 1) | value >> (6 * continuations), 8);
+        for (int i = continuations - 1; i >= 0; i--) {
+            write(0x80 | value >> (6 * i) & 0x3F, 8);
+        }
+    }
+
+    // Writes the lowest count bits of the given value, at most 64.
+    private void write(long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            pending = pending << 1 | (int) (value >>> i & 1);
+            if (++pendingCount == 8) {
+                bytes.write(pending);
+                pending = 0;
+                pendingCount = 0;
+            }
+        }
+    }
+
+    private void writeUnary(int zeros) {
+        for (int i = 0; i < zeros; i++) {
+            write(0, 1);
+        }
+        write(1, 1);
+    }
+
+    private void alignToByte() {
+        while (pendingCount != 0) {
+            write(0, 1);
+        }
+    }
+
+    // Returns the CRC of the given width and polynomial of the bytes written from start on.
+    private int crc(int start, int polynomial, int width) {
+        byte[] written = bytes.toByteArray();
+        int top = 1 << (width - 1);
+        int mask = (1 << width) - 1;
+        int crc = 0;
+
+        for (int i = start; i < written.length; i++) {
+            crc ^= (written[i] & 0xFF) << (width - 8);
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & top) != 0 ? (crc << 1 ^ polynomial) & mask : crc << 1 & mask;
+            }
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,168 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+// Parses recognizer results written in each way JSON allows, and checks the words, times, and text
+// against what they stand for.
+public class ResultParserTest {
+    private final ResultParser parser = new ResultParser();
+
+    @Test
+    public void parsesFinalResults() throws JSONException {
+        WordResults results = parser.parse("{\n" +
+                "  \"result\" : [{\n" +
+                "      \"conf\" : 1.000000,\n" +
+                "      \"end\" : 1.110000,\n" +
+                "      \"start\" : 0.870000,\n" +
+                "      \"word\" : \"hello\"\n" +
+                "    }, {\n" +
+                "      \"conf\" : 0.613542,\n" +
+                "      \"end\" : 1.530000,\n" +
+                "      \"start\" : 1.110000,\n" +
+                "      \"word\" : \"world\"\n" +
+                "    }],\n" +
+                "  \"text\" : \"hello world\"\n" +
+                "}");
+
+        assertEquals("hello world", results.getText());
+        assertFalse(results.isPartial());
+        assertEquals(2, results.size());
+        assertWord(results, 0, "hello", 0.87, 1.11, 1.0);
+        assertWord(results, 1, "world", 1.11, 1.53, 0.613542);
+    }
+
+    @Test
+    public void parsesPartialAndEmptyResults() throws JSONException {
+        WordResults results = parser.parse("{\"partial\" : \"hello wor\"}");
+        assertEquals("hello wor", results.getText());
+        assertTrue(results.isPartial());
+        assertTrue(results.isEmpty());
+
+        results = parser.parse("{\"text\" : \"\"}");
+        assertEquals("", results.getText());
+        assertFalse(results.isPartial());
+
+        results = parser.parse(" { } ");
+        assertEquals("", results.getText());
+        assertTrue(results.isEmpty());
+
+        results = parser.parse("{\"result\" : [], \"text\" : \"\"}");
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void decodesEscapes() throws JSONException {
+        WordResults results = parser.parse("{\"result\" : [" +
+                "{\"word\" : \"caf\\u00e9\"}, " +
+                "{\"word\" : \"\\\"quoted\\\"\"}, " +
+                "{\"word\" : \"back\\\\slash\\/\"}, " +
+                "{\"word\" : \"\\b\\f\\n\\r\\t\"}, " +
+                "{\"word\" : \"\\uD83D\\uDE00 \\u65E5\"}" +
+                "], \"text\" : \"plain \\u0041\"}");
+
+        assertEquals(5, results.size());
+        assertEquals("caf\u00e9", results.getWord(0));
+        assertEquals("\"quoted\"", results.getWord(1));
+        assertEquals("back\\slash/", results.getWord(2));
+        assertEquals("\b\f\n\r\t", results.getWord(3));
+        assertEquals("\uD83D\uDE00 \u65E5", results.getWord(4));
+        assertEquals("plain A", results.getText());
+    }
+
+    @Test
+    public void readsNumbersAsDoubleWould() throws JSONException {
+        String[] numbers = {
+                "0", "-0.5", "12", "1.25", "0.870000", "123456789.012345", "-0.000001",
+                "1e3", "1E-3", "2.5e+2", "-1.25E1", "6.02214076e23", "0.1234567890123456789",
+                "12345678901234567890", "4.9e-324", "1.7976931348623157e308"
+        };
+
+        for (String number : numbers) {
+            WordResults results = parser.parse(
+                    "{\"result\" : [{\"start\" : " + number + ", \"end\":" + number +
+                            "\n, \"conf\" :" + number + "}]}"
+            );
+            double expected = Double.parseDouble(number);
+
+            assertEquals(number, expected, results.getStart(0), 0.0);
+            assertEquals(number, expected, results.getEnd(0), 0.0);
+            assertEquals(number, expected, results.getConfidence(0), 0.0);
+        }
+    }
+
+    @Test
+    public void skipsUnknownKeys() throws JSONException {
+        WordResults results = parser.parse("{" +
+                "\"alternatives\" : [{\"text\" : \"not this\", \"result\" : [1, 2]}], " +
+                "\"texts\" : \"nor this\", " +
+                "\"resul\" : {\"nested\" : {\"deeper\" : [\"]}\", \"\\\"{\"]}}, " +
+                "\"spk\" : [-0.5, 1e-3, true, false, null], " +
+                "\"result\" : [{" +
+                "\"word\" : \"kept\", \"confidence\" : 0.5, \"extra\" : {\"a\" : []}, " +
+                "\"start\" : 1.5, \"text\" : \"ignored\", \"end\" : 2" +
+                "}], " +
+                "\"te\\\"xt\" : \"escaped key\", " +
+                "\"text\" : \"kept\", " +
+                "\"spk_frames\" : 42" +
+                "}");
+
+        assertEquals("kept", results.getText());
+        assertEquals(1, results.size());
+        assertWord(results, 0, "kept", 1.5, 2.0, 0.0);
+    }
+
+    @Test
+    public void overwritesThePreviousResult() throws JSONException {
+        parser.parse("{\"result\" : [{\"word\" : \"old\"}], \"text\" : \"old\"}");
+        WordResults results = parser.parse("{\"partial\" : \"new\"}");
+
+        assertEquals("new", results.getText());
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void rejectsMalformedResults() {
+        String[] malformed = {
+                "",
+                "[]",
+                "{",
+                "{\"text\" : \"unterminated}",
+                "{\"text\" : 5}",
+                "{\"text\" \"missing colon\"}",
+                "{\"text\" : \"a\" \"partial\" : \"b\"}",
+                "{\"result\" : [{\"start\" : }]}",
+                "{\"result\" : [{\"start\" : -}]}",
+                "{\"result\" : [{\"start\" : 1e}]}",
+                "{\"result\" : [{\"word\" : \"\\u12\"}]}",
+                "{\"result\" : [{\"word\" : \"\\uXYZW\"}]}",
+                "{\"result\" : [{\"word\" : \"a\"}",
+                "{\"unknown\" : [1, {\"a\" : 2}",
+                "{\"unknown\" : "
+        };
+
+        for (String json : malformed) {
+            try {
+                parser.parse(json);
+                fail("Parsed " + json);
+            }
+            catch (JSONException e) {
+                // Expected.
+            }
+        }
+    }
+
+    private static void assertWord(
+            WordResults results, int i, String word, double start, double end, double confidence
+    ) {
+        assertEquals(word, results.getWord(i));
+        assertEquals(start, results.getStart(i), 0.0);
+        assertEquals(end, results.getEnd(i), 0.0);
+        assertEquals(confidence, results.getConfidence(i), 0.0);
+    }
+}
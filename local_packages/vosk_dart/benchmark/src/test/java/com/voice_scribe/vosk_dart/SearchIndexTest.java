@@ -0,0 +1,211 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Adds, removes, and searches transcripts through a search index kept in a temporary directory,
+// and checks that merging segments and reopening the index keep what the queries find.
+public class SearchIndexTest {
+    private static final int MAX_SEGMENTS = 16; // As in SearchIndex.
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private SearchIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder();
+        index = new SearchIndex(directory);
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+    }
+
+    @Test
+    public void findsWordsRankedByHowOftenTheyAreSaid() throws Exception {
+        index.add(document("a", "hello there", "general kenobi"));
+        index.add(document("b", "Hello hello", "hello again"));
+        index.add(document("c", "nothing to see"));
+        waitForChanges();
+
+        List<HashMap<String, Object>> hits = index.search("HELLO", 10);
+        assertEquals(2, hits.size());
+        assertEquals("b", hits.get(0).get("transcriptPath"));
+        assertEquals("a", hits.get(1).get("transcriptPath"));
+        assertTrue((Double) hits.get(0).get("score") > (Double) hits.get(1).get("score"));
+
+        // Words start a second apart, results ten seconds apart.
+        assertArrayEquals(new double[] {0.0, 1.0, 10.0}, startsOf(hits.get(0)), 0.0);
+        assertArrayEquals(new double[] {0.0}, startsOf(hits.get(1)), 0.0);
+
+        assertEquals(1, index.search("hello", 1).size());
+        assertTrue(index.search("missing", 10).isEmpty());
+        assertEquals(paths("a", "c"), pathsOf(index.search("kenobi see", 10)));
+    }
+
+    @Test
+    public void replacesAndRemovesTranscripts() throws Exception {
+        index.add(document("a", "old words"));
+        index.add(document("b", "old words"));
+        index.add(document("a", "new words"));
+        waitForChanges();
+
+        assertEquals(paths("b"), pathsOf(index.search("old", 10)));
+        assertEquals(paths("a"), pathsOf(index.search("new", 10)));
+        assertEquals(paths("a", "b"), pathsOf(index.search("words", 10)));
+
+        index.remove("a");
+        index.remove("missing");
+        waitForChanges();
+
+        assertTrue(index.search("new", 10).isEmpty());
+        assertEquals(paths("b"), pathsOf(index.search("words", 10)));
+        assertEquals(1, segmentFileCount()); // Segments left with no documents are deleted.
+    }
+
+    @Test
+    public void mergesSegmentsBeyondTheMaximum() throws Exception {
+        int count = 5 * MAX_SEGMENTS;
+
+        for (int i = 0; i < count; i++) {
+            index.add(document("t" + i, "common word" + i));
+            if (i % 7 == 3) {
+                index.remove("t" + (i - 2));
+            }
+        }
+        waitForChanges();
+
+        assertTrue(segmentFileCount() <= MAX_SEGMENTS);
+
+        HashSet<String> expected = new HashSet<String>();
+        for (int i = 0; i < count; i++) {
+            boolean removed = i % 7 == 1 && i + 2 < count;
+            List<HashMap<String, Object>> hits = index.search("word" + i, 10);
+
+            assertEquals("t" + i, removed ? 0 : 1, hits.size());
+            if (!removed) {
+                assertEquals("t" + i, hits.get(0).get("transcriptPath"));
+                expected.add("t" + i);
+            }
+        }
+        assertEquals(expected, pathsOf(index.search("common", count)));
+    }
+
+    @Test
+    public void reloadsWhatTheManifestLists() throws Exception {
+        for (int i = 0; i < 2 * MAX_SEGMENTS; i++) {
+            index.add(document("t" + i, "shared unique" + i));
+        }
+        index.remove("t3");
+        index.remove("t20");
+        waitForChanges();
+        index.close();
+
+        // Left by a change that did not complete, so not listed.
+        File stray = SearchSegment.fileOf(directory, 1000);
+        new FileOutputStream(stray).close();
+
+        index = new SearchIndex(directory);
+        HashSet<String> expected = new HashSet<String>();
+        for (int i = 0; i < 2 * MAX_SEGMENTS; i++) {
+            if (i != 3 && i != 20) {
+                expected.add("t" + i);
+            }
+        }
+        assertEquals(expected, pathsOf(index.search("shared", 100)));
+        assertTrue(index.search("unique20", 10).isEmpty());
+        assertEquals(paths("t21"), pathsOf(index.search("unique21", 10)));
+        assertFalse(stray.exists());
+
+        // New segments are numbered after those reloaded.
+        index.add(document("t3", "shared again"));
+        waitForChanges();
+        expected.add("t3");
+        assertEquals(expected, pathsOf(index.search("shared", 100)));
+    }
+
+    @Test
+    public void startsOverIfTheManifestIsCorrupt() throws Exception {
+        index.add(document("a", "hello"));
+        waitForChanges();
+        index.close();
+
+        FileOutputStream output = new FileOutputStream(new File(directory, "manifest"));
+        output.write(new byte[] {1, 2, 3});
+        output.close();
+
+        index = new SearchIndex(directory);
+        assertTrue(index.search("hello", 10).isEmpty());
+        assertEquals(0, segmentFileCount());
+    }
+
+    // Returns a finished transcript at the given path of the given results, each of words a
+    // second apart, starting ten seconds after the last.
+    private static SearchDocument document(String transcriptPath, String... results) {
+        SearchDocument document = new SearchDocument(transcriptPath);
+        WordResults result = new WordResults();
+
+        for (int i = 0; i < results.length; i++) {
+            result.clear();
+            String[] words = results[i].split(" ");
+            for (int j = 0; j < words.length; j++) {
+                result.add(words[j], 10.0 * i + j, 10.0 * i + j + 0.5, 1.0);
+            }
+            document.add(result);
+        }
+        return document;
+    }
+
+    private void waitForChanges() throws Exception {
+        index.changesDone().get();
+    }
+
+    private int segmentFileCount() {
+        int count = 0;
+        for (String name : directory.list()) {
+            if (name.startsWith(SearchSegment.PREFIX)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double[] startsOf(HashMap<String, Object> hit) {
+        return (double[]) hit.get("starts");
+    }
+
+    private static HashSet<String> pathsOf(List<HashMap<String, Object>> hits) {
+        HashSet<String> paths = new HashSet<String>();
+        for (HashMap<String, Object> hit : hits) {
+            paths.add((String) hit.get("transcriptPath"));
+        }
+        return paths;
+    }
+
+    private static HashSet<String> paths(String... paths) {
+        HashSet<String> set = new HashSet<String>();
+        for (String path : paths) {
+            set.add(path);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,176 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Writes transcript indexes of many blocks of words and checks the words read back for time
+// ranges starting, ending, and spanning each side of the block boundaries of the time index.
+public class TranscriptIndexReaderTest {
+    private static final int BLOCK = TranscriptIndex.INDEX_INTERVAL;
+    private static final int WORD_COUNT = 20 * BLOCK + 17;
+    private static final int WORDS_PER_RESULT = 7;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private String transcriptPath;
+
+    @Before
+    public void setUp() throws IOException {
+        transcriptPath = new File(folder.getRoot(), "transcript.json").getPath();
+    }
+
+    @Test
+    public void readsRangesAcrossBlockBoundaries() throws IOException {
+        WordResults words = words();
+        writeIndex(words);
+
+        for (int block = 0; block <= WORD_COUNT / BLOCK; block++) {
+            double boundary = words.getStart(block * BLOCK);
+
+            for (double before : new double[] {0.0, 0.1, 0.5, 0.6, 3.0, 40.0}) {
+                for (double after : new double[] {0.0, 0.1, 0.5, 0.6, 3.0, 40.0}) {
+                    assertReads(words, boundary - before, boundary + after);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readsRangesAtTheEdgesOfTheTranscript() throws IOException {
+        WordResults words = words();
+        writeIndex(words);
+        double last = words.getEnd(WORD_COUNT - 1);
+
+        assertReads(words, -10.0, -1.0);
+        assertReads(words, -10.0, 0.0);
+        assertReads(words, -10.0, last + 10.0);
+        assertReads(words, 0.0, 0.0);
+        assertReads(words, last, last);
+        assertReads(words, last + 0.1, last + 10.0);
+        assertReads(words, 12.25, 12.26); // Within a word.
+        assertReads(words, 12.41, 12.49); // Between words.
+    }
+
+    @Test
+    public void readsWordsReachingIntoTheNextBlock() throws IOException {
+        WordResults words = words();
+        writeIndex(words);
+
+        // The last word of each block lasts into the next, so a range only covering the start of
+        // the next block still holds it.
+        double boundary = words.getStart(3 * BLOCK);
+        WordResults read = TranscriptIndexReader.read(
+                transcriptPath, boundary + 0.1, boundary + 0.2
+        );
+
+        assertEquals(2, read.size());
+        assertEquals(words.getWord(3 * BLOCK - 1), read.getWord(0));
+        assertEquals(words.getWord(3 * BLOCK), read.getWord(1));
+    }
+
+    @Test
+    public void readsAnEmptyIndex() throws IOException {
+        writeIndex(new WordResults());
+
+        assertTrue(TranscriptIndexReader.read(transcriptPath, 0.0, 100.0).isEmpty());
+    }
+
+    @Test
+    public void rejectsAnIndexThatWasNotClosed() throws IOException {
+        TranscriptIndexWriter writer = new TranscriptIndexWriter(
+                TranscriptIndex.pathOf(transcriptPath)
+        );
+        writer.writeResult(words());
+        writer.flush();
+
+        assertRejected();
+
+        writeIndex(words());
+        try (RandomAccessFile file = new RandomAccessFile(
+                TranscriptIndex.pathOf(transcriptPath), "rw"
+        )) {
+            file.setLength(file.length() - 1);
+        }
+        assertRejected();
+    }
+
+    // Checks that reading the given range gives the words of the given words overlapping it.
+    private void assertReads(WordResults words, double start, double end) throws IOException {
+        WordResults read = TranscriptIndexReader.read(transcriptPath, start, end);
+        String range = start + " to " + end;
+        int count = 0;
+
+        for (int i = 0; i < words.size(); i++) {
+            if ((float) words.getStart(i) > end || (float) words.getEnd(i) < start) {
+                continue;
+            }
+
+            assertTrue(range, count < read.size());
+            assertEquals(range, words.getWord(i), read.getWord(count));
+            assertEquals(range, (float) words.getStart(i), read.getStart(count), 0.0);
+            assertEquals(range, (float) words.getEnd(i), read.getEnd(count), 0.0);
+            assertEquals(range, (float) words.getConfidence(i), read.getConfidence(count), 0.0);
+            count++;
+        }
+        assertEquals(range, count, read.size());
+    }
+
+    private void assertRejected() {
+        try {
+            TranscriptIndexReader.read(transcriptPath, 0.0, 100.0);
+            fail("Read an incomplete index.");
+        }
+        catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    // Writes the given words to the index of the transcript as results of WORDS_PER_RESULT.
+    private void writeIndex(WordResults words) throws IOException {
+        TranscriptIndexWriter writer = new TranscriptIndexWriter(
+                TranscriptIndex.pathOf(transcriptPath)
+        );
+        WordResults result = new WordResults();
+
+        for (int i = 0; i < words.size(); i += WORDS_PER_RESULT) {
+            result.clear();
+            for (int j = i; j < Math.min(i + WORDS_PER_RESULT, words.size()); j++) {
+                result.add(words.getWord(j), words.getStart(j), words.getEnd(j),
+                        words.getConfidence(j));
+            }
+            writer.writeResult(result);
+        }
+        writer.close();
+    }
+
+    // Returns WORD_COUNT words half a second apart, of which the last of each block lasts into
+    // the next, and some are long enough that records straddle the buffer of the writer.
+    private static WordResults words() {
+        WordResults words = new WordResults();
+
+        for (int i = 0; i < WORD_COUNT; i++) {
+            StringBuilder word = new StringBuilder("w" + i);
+            if (i % 13 == 0) {
+                for (int j = 0; j < 300; j++) {
+                    word.append((char) ('a' + j % 26));
+                }
+            }
+
+            double start = 0.5 * i;
+            double end = i % BLOCK == BLOCK - 1 ? start + 0.75 : start + 0.4;
+            words.add(word.toString(), start, end, (i % 100) / 100.0);
+        }
+        return words;
+    }
+}
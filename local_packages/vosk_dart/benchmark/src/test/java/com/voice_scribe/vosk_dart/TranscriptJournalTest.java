@@ -0,0 +1,196 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Writes journals of known results, damages them as a crash or bad storage would, and checks
+// what recovering the transcript from them gives.
+public class TranscriptJournalTest {
+    private static final int HEADER_SIZE = 6; // As in TranscriptJournal.
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] RESULTS = {
+            "{\"text\": \"first\"}",
+            "{\"text\": \"second result\"}",
+            "{\"text\": \"third\"}"
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private String transcriptPath;
+    private File journal;
+
+    @Before
+    public void setUp() throws IOException {
+        transcriptPath = new File(folder.getRoot(), "transcript.json").getPath();
+        journal = new File(TranscriptJournal.pathOf(transcriptPath));
+    }
+
+    @Test
+    public void recoversEveryRecordOverWhatWasWritten() throws IOException {
+        writeJournal(RESULTS);
+        write(transcriptPath, "{\"text\": \"fir".getBytes(UTF_8)); // Cut short by the crash.
+
+        assertEquals(3, TranscriptJournal.recover(transcriptPath, "UTF-8"));
+        assertEquals(join(RESULTS, 3), read(transcriptPath, "UTF-8"));
+        assertFalse(journal.exists());
+    }
+
+    @Test
+    public void writesTheTranscriptInTheGivenEncoding() throws IOException {
+        String[] results = {"{\"text\": \"gr\u00F6\u00DFe\"}", "{\"text\": \"\u65E5\u672C\"}"};
+        writeJournal(results);
+
+        assertEquals(2, TranscriptJournal.recover(transcriptPath, "UTF-16LE"));
+        assertEquals(join(results, 2), read(transcriptPath, "UTF-16LE"));
+    }
+
+    @Test
+    public void stopsAtATornRecord() throws IOException {
+        writeJournal(RESULTS);
+        byte[] whole = Files.readAllBytes(journal.toPath());
+
+        // Cut the journal after every byte, as if the process died while writing it.
+        for (int length = 0; length <= whole.length; length++) {
+            write(journal.getPath(), Arrays.copyOf(whole, length));
+
+            int expected = wholeRecordsIn(length);
+            assertEquals("Length " + length,
+                    expected, TranscriptJournal.recover(transcriptPath, "UTF-8"));
+            assertEquals("Length " + length,
+                    join(RESULTS, expected), read(transcriptPath, "UTF-8"));
+        }
+    }
+
+    @Test
+    public void stopsAtACorruptRecord() throws IOException {
+        writeJournal(RESULTS);
+        byte[] whole = Files.readAllBytes(journal.toPath());
+        int second = offsetOf(1);
+
+        // A flipped payload byte, checksum, and length of the second record.
+        int[] offsets = {second + RECORD_HEADER_SIZE + 3, second + 5, second + 2};
+        for (int offset : offsets) {
+            byte[] corrupt = whole.clone();
+            corrupt[offset] ^= 0x10;
+            write(journal.getPath(), corrupt);
+
+            assertEquals("Offset " + offset, 1, TranscriptJournal.recover(transcriptPath, "UTF-8"));
+            assertEquals(join(RESULTS, 1), read(transcriptPath, "UTF-8"));
+        }
+
+        // A length too large to be a record, which is not allocated.
+        byte[] corrupt = whole.clone();
+        corrupt[second] = 0x7F;
+        write(journal.getPath(), corrupt);
+        assertEquals(1, TranscriptJournal.recover(transcriptPath, "UTF-8"));
+    }
+
+    @Test
+    public void keepsTheTranscriptOfAFileThatIsNotAJournal() throws IOException {
+        write(transcriptPath, "{\"text\": \"kept\"}".getBytes(UTF_8));
+        write(journal.getPath(), "not a journal".getBytes(UTF_8));
+
+        try {
+            TranscriptJournal.recover(transcriptPath, "UTF-8");
+            fail("Recovered from a file that is not a journal.");
+        }
+        catch (IOException e) {
+            assertEquals("{\"text\": \"kept\"}", read(transcriptPath, "UTF-8"));
+        }
+    }
+
+    @Test
+    public void returnsMinusOneWithoutAJournal() throws IOException {
+        assertEquals(-1, TranscriptJournal.recover(transcriptPath, "UTF-8"));
+        assertFalse(new File(transcriptPath).exists());
+    }
+
+    @Test
+    public void deletesTheJournalOnceTheTranscriptIsComplete() throws IOException {
+        TranscriptJournal written = new TranscriptJournal(journal.getPath(), new FlushPolicy(2, 0));
+        written.append(RESULTS[0], 0);
+        written.close(true);
+
+        assertFalse(journal.exists());
+    }
+
+    @Test
+    public void appendsFromTheGivenStart() throws IOException {
+        TranscriptJournal written = new TranscriptJournal(journal.getPath(), FlushPolicy.ON_FINISH);
+        written.append(new StringBuilder(",\n").append(RESULTS[0]), 2);
+        written.close(false);
+
+        assertTrue(journal.exists());
+        assertEquals(1, TranscriptJournal.recover(transcriptPath, "UTF-8"));
+        assertArrayEquals(
+                RESULTS[0].getBytes(UTF_8), Files.readAllBytes(new File(transcriptPath).toPath())
+        );
+    }
+
+    // Writes a journal of the given results, left behind as by a crash.
+    private void writeJournal(String[] results) throws IOException {
+        TranscriptJournal written = new TranscriptJournal(journal.getPath(), new FlushPolicy(1, 0));
+        for (String result : results) {
+            written.append(result, 0);
+        }
+        written.close(false);
+    }
+
+    // Returns the number of whole records of RESULTS in a journal of the given length.
+    private static int wholeRecordsIn(int length) {
+        int count = 0;
+        while (count < RESULTS.length && offsetOf(count + 1) <= length) {
+            count++;
+        }
+        return count;
+    }
+
+    // Returns the offset of the record of the result at the given index of RESULTS.
+    private static int offsetOf(int index) {
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < index; i++) {
+            offset += RECORD_HEADER_SIZE + RESULTS[i].getBytes(UTF_8).length;
+        }
+        return offset;
+    }
+
+    // Returns the first count results as TranscriptWriter separates them.
+    private static String join(String[] results, int count) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                joined.append('\n');
+            }
+            joined.append(results[i]);
+        }
+        return joined.toString();
+    }
+
+    private static void write(String path, byte[] content) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(path)) {
+            output.write(content);
+        }
+    }
+
+    private static String read(String path, String encoding) throws IOException {
+        return new String(Files.readAllBytes(new File(path).toPath()), encoding);
+    }
+}
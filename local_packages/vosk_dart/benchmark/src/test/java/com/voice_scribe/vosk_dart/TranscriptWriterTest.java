@@ -0,0 +1,101 @@
+package com.voice_scribe.vosk_dart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Writes results with flush policies by time and checks when they reach the file.
+public class TranscriptWriterTest {
+    private static final long INTERVAL = 50; // Milliseconds between flushes by time.
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ExecutorService lane;
+    private File transcript;
+
+    @Before
+    public void setUp() {
+        lane = Executors.newSingleThreadExecutor();
+        transcript = new File(folder.getRoot(), "transcript.json");
+    }
+
+    @After
+    public void tearDown() {
+        lane.shutdownNow();
+    }
+
+    @Test
+    public void flushesWhenTheIntervalPassesWithoutFurtherResults() throws Exception {
+        TranscriptWriter writer = writer(new FlushPolicy(0, INTERVAL), null);
+        writer.scheduleOn(mainHandler, lane);
+        writer.writeResult(result("hello"));
+        assertEquals(0, transcript.length());
+
+        waitForLength(INTERVAL * 20);
+        assertTrue(transcript.length() > 0);
+        writer.close();
+    }
+
+    @Test
+    public void flushesAfterEachPauseInResults() throws Exception {
+        TranscriptWriter writer = writer(new FlushPolicy(0, INTERVAL), new FlushPolicy(0, 0));
+        writer.scheduleOn(mainHandler, lane);
+        writer.writeResult(result("hello"));
+        waitForLength(INTERVAL * 20);
+        long length = transcript.length();
+
+        writer.writeResult(result("again"));
+        waitForLength(INTERVAL * 20, length);
+        assertTrue(transcript.length() > length);
+        writer.close();
+    }
+
+    @Test
+    public void onlyFlushesAsResultsAreWrittenUnlessScheduled() throws Exception {
+        TranscriptWriter writer = writer(new FlushPolicy(0, INTERVAL), null);
+        writer.writeResult(result("hello"));
+
+        Thread.sleep(INTERVAL * 4);
+        assertEquals(0, transcript.length());
+        writer.close();
+        assertTrue(transcript.length() > 0);
+    }
+
+    private TranscriptWriter writer(FlushPolicy flushPolicy, FlushPolicy syncPolicy)
+            throws IOException {
+        return new TranscriptWriter(transcript.getPath(), "UTF-8", flushPolicy, false, syncPolicy);
+    }
+
+    private static WordResults result(String word) {
+        WordResults result = new WordResults();
+        result.add(word, 0.0, 0.5, 1.0);
+        return result;
+    }
+
+    private void waitForLength(long timeout) throws InterruptedException {
+        waitForLength(timeout, 0);
+    }
+
+    // Waits up to the given milliseconds for the transcript to grow past the given length.
+    private void waitForLength(long timeout, long length) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        while (transcript.length() <= length && System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+        }
+    }
+}
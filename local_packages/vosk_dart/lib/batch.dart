@@ -0,0 +1,61 @@
+import 'package:vosk_dart/vosk_metrics.dart';
+
+/// A file to transcribe in the background as part of a batch.
+class BatchJob {
+  /// The PCM wav file to transcribe, with 8, 16, 24, or 32 bit samples.
+  ///
+  /// The file may have any sample rate and number of channels, and is
+  /// converted to mono audio at the sample rate of the model as it is read, as
+  /// with files fed to a transcript. Batches only read wav files, not FLAC
+  /// files.
+  final String filePath;
+
+  /// The transcript the results of [filePath] are written to.
+  final String transcriptPath;
+
+  const BatchJob(this.filePath, this.transcriptPath);
+}
+
+/// The progress of all jobs of a batch together.
+class BatchProgress {
+  /// The id of the batch, as returned when it was started.
+  final int batchId;
+
+  /// The number of jobs in the batch.
+  final int jobCount;
+
+  /// The number of jobs whose transcripts are complete.
+  final int completedJobs;
+
+  /// The number of jobs that could not be transcribed.
+  final int failedJobs;
+
+  /// The number of jobs not transcribed because their transcript already
+  /// existed without a checkpoint, as when completed by an earlier batch.
+  final int skippedJobs;
+
+  /// The fraction of all audio in the batch transcribed, from 0.0 to 1.0.
+  final double progress;
+
+  /// Whether the batch was cancelled.
+  final bool cancelled;
+
+  /// Whether no job of the batch is left running. This is the last event of
+  /// the batch.
+  final bool ended;
+
+  /// Latency and throughput of all jobs of the batch together, kept apart
+  /// from the metrics of the instance that started it.
+  final VoskMetrics metrics;
+
+  BatchProgress(Map batchProgress)
+      : batchId = batchProgress['batchId'],
+        jobCount = batchProgress['jobCount'],
+        completedJobs = batchProgress['completedJobs'],
+        failedJobs = batchProgress['failedJobs'],
+        skippedJobs = batchProgress['skippedJobs'],
+        progress = batchProgress['progress'],
+        cancelled = batchProgress['cancelled'],
+        ended = batchProgress['ended'],
+        metrics = VoskMetrics(batchProgress['metrics']);
+}
@@ -1,4 +1,7 @@
+import 'dart:typed_data';
+
 import 'package:flutter/services.dart';
+import 'package:vosk_dart/transcript_event.dart';
 import 'package:vosk_dart/vosk_exceptions.dart';
 
 /// Creates a new Vosk instance on the native side and connections to it.
@@ -13,6 +16,7 @@ class Bridge {
 
   static const _baseMethodChannelName = 'vosk_method_';
   static const _baseEventChannelName = 'vosk_event_';
+  static const _baseAudioChannelName = 'vosk_audio_';
 
   int _id;
 
@@ -20,16 +24,26 @@ class Bridge {
 
   MethodChannel _methodChannel;
   EventChannel _eventChannel;
+  String _audioChannelName;
 
   Stream<dynamic> _eventStream;
 
+  /// Text of the last partial result of each transcript, by transcript path.
+  final Map<String, String> _partials = {};
+
   /// Asks for a new instance, while creating method and event channels for it.
   Bridge() {
     _id = _idCount++;
     _mainMethodChannel.invokeMethod('createNewInstance', _id);
     _methodChannel = MethodChannel(_baseMethodChannelName + _id.toString());
     _eventChannel = EventChannel(_baseEventChannelName + _id.toString());
-    _eventStream = _eventChannel.receiveBroadcastStream();
+    _eventStream = _eventChannel.receiveBroadcastStream().map(_rebuildPartials);
+    _audioChannelName = _baseAudioChannelName + _id.toString();
+  }
+
+  /// Calls the method on the plugin itself rather than on an instance.
+  static Future<dynamic> callMain(String method, [dynamic arguments]) {
+    return _mainMethodChannel.invokeMethod(method, arguments);
   }
 
   /// Calls the method on the connected instance.
@@ -40,15 +54,70 @@ class Bridge {
     return _methodChannel.invokeMethod(method, arguments);
   }
 
+  /// Sends [audio] as is over the audio channel, returning the decoded reply.
+  ///
+  /// Unlike [call], the audio is not encoded by a codec on the way.
+  /// Returns null if native code gives no reply, as for a message without
+  /// audio, and throws a [PlatformException] if it replies with an error, as
+  /// when no transcript is in progress.
+  /// If bridge has been closed, [ClosedInstance] will be thrown.
+  Future<dynamic> sendAudio(Uint8List audio) async {
+    if (_closed) throw ClosedInstance();
+    ByteData reply = await ServicesBinding.instance.defaultBinaryMessenger.send(
+      _audioChannelName,
+      audio.buffer.asByteData(audio.offsetInBytes, audio.lengthInBytes),
+    );
+    if (reply == null) return null;
+    return const StandardMethodCodec().decodeEnvelope(reply);
+  }
+
   /// Returns a broadcast stream for the event channel.
   ///
+  /// Events arrive in batches, as lists of events. Partial results have their
+  /// full text, though native code only sends how it differs.
+  ///
   /// If bridge has been closed, [ClosedInstance] will be thrown.
   Stream<dynamic> get eventStream {
     if (_closed) throw ClosedInstance();
     return _eventStream;
   }
 
-  /// Closes method and event channels while asking for instance to be removed.
+  /// Gives each partial result in [events] its full text and returns them.
+  ///
+  /// Native code sends a partial result as `textPrefix`, the number of
+  /// characters its text shares with the last partial result of the same
+  /// transcript, and `textSuffix`, the text that follows them. The events are
+  /// changed in place, so listeners after the first find them already rebuilt.
+  /// Partial results are forgotten once the final result of their transcript
+  /// arrives, or through [forgetPartials] once it is terminated.
+  List _rebuildPartials(dynamic events) {
+    for (Map event in events) {
+      if (event['resultType'] == ResultType.finalResult.index) {
+        _partials.remove(event['transcriptPath']);
+      }
+      if (!event.containsKey('textPrefix')) continue;
+
+      String transcriptPath = event['transcriptPath'];
+      String previous = _partials[transcriptPath] ?? '';
+      String text = previous.substring(0, event.remove('textPrefix')) +
+          event.remove('textSuffix');
+
+      _partials[transcriptPath] = text;
+      event['text'] = text;
+    }
+    return events;
+  }
+
+  /// Forgets the last partial result of the transcript at [transcriptPath],
+  /// which was terminated and gets no final result.
+  ///
+  /// Native code forgets it as well, so any later partial result of the
+  /// transcript arrives whole.
+  void forgetPartials(String transcriptPath) {
+    _partials.remove(transcriptPath);
+  }
+
+  /// Closes method, event, and audio channels while asking for instance to be removed.
   ///
   /// Once closed, [Bridge] cannot be used. The resources on the instance are
   /// not freed, those most be explicitly called. If already closed, nothing
@@ -0,0 +1,37 @@
+/// What happens to a fed buffer when the queue of buffers waiting to be
+/// transcribed is full.
+///
+/// block: The buffer is held back, and its feed completes once there is room.
+/// At most as many buffers as fit in the queue are held back, beyond which the
+/// oldest waiting buffer is discarded, so feeds should be awaited.
+/// dropOldest: The oldest waiting buffer is discarded.
+/// merge: The buffer is joined with the newest waiting buffer, so they are
+/// transcribed together.
+enum OverflowPolicy { block, dropOldest, merge }
+
+/// How a fed file is split into the buffers given to the recognizer.
+///
+/// live: Buffers of 200 ms of 16 kHz audio, as a live recording would be fed,
+/// so results and progress are posted often.
+/// adaptive: Buffers grow while the device decodes them quickly, up to 64
+/// times larger, for higher throughput with fewer native calls and events.
+/// Each buffer still takes short enough that cancelling, pausing, and other
+/// instances waiting for a thread are not held up for long.
+enum ChunkPolicy { live, adaptive }
+
+/// The state of the queue of buffers waiting to be transcribed.
+class FeedStatus {
+  /// The number of buffers waiting to be transcribed.
+  final int queueDepth;
+
+  /// The audio waiting to be transcribed, or how far transcription is behind.
+  final Duration lag;
+
+  /// The total bytes of audio discarded from the current transcript.
+  final int droppedBytes;
+
+  FeedStatus(Map status)
+      : queueDepth = status['queueDepth'],
+        lag = Duration(microseconds: (status['lag'] * 1000000).round()),
+        droppedBytes = status['droppedBytes'];
+}
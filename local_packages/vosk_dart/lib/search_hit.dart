@@ -0,0 +1,18 @@
+/// A transcript holding words of a search query.
+class SearchHit {
+  final String transcriptPath;
+
+  /// The tf-idf score of the transcript, higher for transcripts holding more
+  /// of the query words, more often, and words fewer transcripts hold.
+  final double score;
+
+  /// Times in seconds the query words start at in the transcript, in order.
+  ///
+  /// Holds up to 32 occurrences of each query word.
+  final List<double> starts;
+
+  SearchHit(Map hit)
+      : transcriptPath = hit['transcriptPath'],
+        score = hit['score'],
+        starts = hit['starts'];
+}
@@ -26,6 +26,10 @@ class TranscriptEvent {
   /// The transcript that is associated with this event.
   final String transcriptPath;
 
+  /// The id of the stream this event belongs to, or null if it belongs to the
+  /// current transcript of the instance.
+  final int streamId;
+
   /// The timestamp of this event.
   ///
   /// Partial results always have a negative timestamp.
@@ -36,21 +40,40 @@ class TranscriptEvent {
   /// The text result so far.
   final String text;
 
+  /// The recognized words of this result.
+  ///
+  /// Partial results have no words. [starts], [ends], and [confidences] hold
+  /// the timing in seconds and confidence of the word at the same index.
+  final List<String> words;
+  final List<double> starts;
+  final List<double> ends;
+  final List<double> confidences;
+
   TranscriptEvent(Map event)
       : resultType = ResultType.values[event['resultType']],
         dataType = DataType.values[event['dataType']],
         progress = event['progress'],
         transcriptPath = event['transcriptPath'],
+        streamId = event['streamId'],
         timestamp = Duration(milliseconds: (event['timestamp'] * 1000).toInt()),
-        text = event['text'];
+        text = event['text'],
+        words = (event['words'] as List).cast<String>(),
+        starts = event['starts'],
+        ends = event['ends'],
+        confidences = event['confidences'];
 
   const TranscriptEvent.empty()
       : resultType = ResultType.empty,
         dataType = DataType.none,
         progress = 0,
         transcriptPath = '',
+        streamId = null,
         timestamp = Duration.zero,
-        text = '';
+        text = '',
+        words = const [],
+        starts = const [],
+        ends = const [],
+        confidences = const [];
 
   @override
   String toString() {
@@ -60,8 +83,10 @@ class TranscriptEvent {
       'dataType': $dataType,
       'progress': $progress,
       'transcriptPath': $transcriptPath,
+      'streamId': $streamId,
       'timestamp': $timestamp,
       'text': $text,
+      'words': $words,
     }
     ''';
   }
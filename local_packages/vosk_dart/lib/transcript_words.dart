@@ -0,0 +1,17 @@
+/// Words read from a range of an indexed transcript.
+class TranscriptWords {
+  /// The words in the order they were transcribed.
+  ///
+  /// [starts], [ends], and [confidences] hold the timing in seconds and
+  /// confidence of the word at the same index.
+  final List<String> words;
+  final List<double> starts;
+  final List<double> ends;
+  final List<double> confidences;
+
+  TranscriptWords(Map range)
+      : words = (range['words'] as List).cast<String>(),
+        starts = range['starts'],
+        ends = range['ends'],
+        confidences = range['confidences'];
+}
@@ -2,9 +2,14 @@ import 'dart:async';
 import 'dart:io';
 import 'dart:typed_data';
 
+import 'package:vosk_dart/batch.dart';
 import 'package:vosk_dart/bridge.dart';
+import 'package:vosk_dart/feed_status.dart';
+import 'package:vosk_dart/search_hit.dart';
 import 'package:vosk_dart/transcript_event.dart';
+import 'package:vosk_dart/transcript_words.dart';
 import 'package:vosk_dart/vosk_exceptions.dart';
+import 'package:vosk_dart/vosk_metrics.dart';
 
 /// Bindings to a native Vosk instance, providing basic functions.
 class VoskInstance {
@@ -20,9 +25,163 @@ class VoskInstance {
   bool get transcriptInProgress => _transcriptInProgress;
   bool _transcriptInProgress = false;
 
+  /// Path of the transcript in progress, if any.
+  String _transcriptPath;
+
+  /// Ids of the streams opened by [openStream] and not yet finished or
+  /// terminated.
+  Set<int> get openStreams => _openStreams.keys.toSet();
+
+  /// Transcript paths of the open streams, by stream id.
+  final Map<int, String> _openStreams = {};
+
+  /// Starts loading the model at [modelPath] before any instance opens it.
+  ///
+  /// Instances opening the same model afterwards share the loaded copy. The
+  /// model stays loaded until [unloadModel] is called.
+  /// Throws a [NonExistentModel] exception if [modelPath] does not point to an
+  /// existing model.
+  static Future<void> preloadModel(String modelPath) async {
+    if (!Directory(modelPath).existsSync()) throw NonExistentModel();
+    await Bridge.callMain('preloadModel', modelPath);
+  }
+
+  /// Releases a model loaded through [preloadModel].
+  ///
+  /// The model is closed once no instance uses it and it does not fit in the
+  /// model cache budget. If the model was not preloaded, nothing happens.
+  static Future<void> unloadModel(String modelPath) {
+    return Bridge.callMain('unloadModel', modelPath);
+  }
+
+  /// Sets how many [bytes] loaded models may take before unused models are
+  /// closed, least recently used first.
+  ///
+  /// Defaults to 0, where models are closed as soon as no instance uses them.
+  static Future<void> setModelCacheBudget(int bytes) {
+    return Bridge.callMain('setModelCacheBudget', bytes);
+  }
+
+  /// Sets how recognizers are kept between transcripts.
+  ///
+  /// Transcripts reuse the recognizers of earlier ones with the same model
+  /// instead of creating new ones. At most [maxIdle] unused recognizers are
+  /// kept, each for at most [idleTimeout]. A [maxIdle] of 0 closes recognizers
+  /// as soon as their transcript ends. Defaults to 2 recognizers for a minute.
+  static Future<void> configureRecognizerPool({
+    int maxIdle = 2,
+    Duration idleTimeout = const Duration(minutes: 1),
+  }) {
+    return Bridge.callMain('configureRecognizerPool', {
+      'maxIdle': maxIdle,
+      'idleTimeout': idleTimeout.inMilliseconds,
+    });
+  }
+
+  /// Sets the model at [modelPath] to be loaded and warmed up whenever the
+  /// plugin is attached, from the next attach on.
+  ///
+  /// The model is loaded at background priority, then a second of synthetic
+  /// audio is decoded with it, so the first transcript starts right away. It
+  /// stays loaded as if passed to [preloadModel]. The setting is kept across
+  /// app launches, and a null [modelPath] turns the warm-up off.
+  static Future<void> configureWarmUp(String modelPath) {
+    return Bridge.callMain('configureWarmUp', modelPath);
+  }
+
+  /// Returns the state and timings of the warm-up started when the plugin was
+  /// attached, or null if no warm-up was configured.
+  static Future<WarmUpReport> getWarmUpReport() async {
+    Map report = await Bridge.callMain('getWarmUpReport');
+    return report == null ? null : WarmUpReport(report);
+  }
+
+  /// Reads the words between [start] and [end] of the transcript at
+  /// [transcriptPath] from its index.
+  ///
+  /// Only transcripts started with `indexed` have an index, which is complete
+  /// once the transcript is finished. Only the parts of the index holding the
+  /// range are read.
+  /// Throws a [NonExistentTranscriptIndex] exception if the transcript has no
+  /// index.
+  static Future<TranscriptWords> readTranscriptRange(
+    String transcriptPath,
+    Duration start,
+    Duration end,
+  ) async {
+    if (!File(transcriptPath + '.idx').existsSync()) {
+      throw NonExistentTranscriptIndex();
+    }
+
+    Map range = await Bridge.callMain(
+      'readTranscriptRange',
+      {
+        'transcriptPath': transcriptPath,
+        'start': start.inMicroseconds / Duration.microsecondsPerSecond,
+        'end': end.inMicroseconds / Duration.microsecondsPerSecond,
+      },
+    );
+    return TranscriptWords(range);
+  }
+
+  /// Rebuilds the transcript at [transcriptPath] from its journal, returning
+  /// the number of results recovered.
+  ///
+  /// Only transcripts started with `journaled` have a journal, which is kept
+  /// only while they are unfinished, as after the app died mid-transcript.
+  /// Results decoded before the last sync of the journal survive power loss;
+  /// later ones survive only the app dying. Returns null if the transcript
+  /// has no journal.
+  static Future<int> recoverTranscript(String transcriptPath) {
+    return Bridge.callMain('recoverTranscript', transcriptPath);
+  }
+
+  /// Returns up to [maxHits] finished transcripts holding any of the words of
+  /// [query], the best matches first.
+  ///
+  /// Transcripts started with `indexed` are added to a search index kept by
+  /// the plugin once finished, replacing any earlier transcript at the same
+  /// path. Terminated transcripts are not added. Words are matched whole and
+  /// regardless of case.
+  static Future<List<SearchHit>> searchTranscripts(
+    String query, {
+    int maxHits = 20,
+  }) async {
+    List hits = await Bridge.callMain(
+      'searchTranscripts',
+      {'query': query, 'maxHits': maxHits},
+    );
+    return hits.map((hit) => SearchHit(hit)).toList();
+  }
+
+  /// Removes the transcript at [transcriptPath] from the search index, as
+  /// when its recording is deleted.
+  ///
+  /// Does nothing if the transcript is not in the index.
+  static Future<void> removeFromSearchIndex(String transcriptPath) {
+    return Bridge.callMain('removeFromSearchIndex', transcriptPath);
+  }
+
   /// Broadcast stream of ongoing transcription events.
-  Stream<TranscriptEvent> get eventStream =>
-      _bridge.eventStream.map((event) => TranscriptEvent(event));
+  ///
+  /// Events arrive from native code in batches, which are flattened here.
+  Stream<TranscriptEvent> get eventStream => _bridge.eventStream
+      .expand((events) => events as List)
+      .where((event) => event.containsKey('resultType'))
+      .map((event) => TranscriptEvent(event));
+
+  /// Broadcast stream of metrics, posted periodically once enabled through
+  /// [configureMetrics].
+  Stream<VoskMetrics> get metricsStream => _bridge.eventStream
+      .expand((events) => events as List)
+      .where((event) => event.containsKey('metrics'))
+      .map((event) => VoskMetrics(event['metrics']));
+
+  /// Broadcast stream of the progress of batches started by [startBatch].
+  Stream<BatchProgress> get batchStream => _bridge.eventStream
+      .expand((events) => events as List)
+      .where((event) => event.containsKey('batch'))
+      .map((event) => BatchProgress(event['batch']));
 
   /// Allocates a single thread.
   ///
@@ -47,6 +206,7 @@ class VoskInstance {
 
   /// Attempts to interrupt and close the existing thread.
   ///
+  /// Fed files are cancelled at their next buffer, even while paused.
   /// If no thread exists, nothing happens.
   /// There is no guarantee that the thread will terminate at request.
   Future<void> terminateThread() async {
@@ -57,6 +217,7 @@ class VoskInstance {
 
   /// Ask open thread to open the model at the given [modelPath].
   ///
+  /// If the model is already loaded by another instance, it is shared.
   /// Throws a [NoOpenThread] exception when called when no thread is open.
   /// Throws a [ModelAlreadyOpened] exception when a model already exists.
   /// Throws a [NonExistentModel] exception if [modelPath] does not point to an
@@ -83,13 +244,58 @@ class VoskInstance {
   /// Starts a new transcript file.
   ///
   /// Subsequent calls to feed files will write output to [transcriptPath].
+  /// Fed buffers hold 16 bit audio at [sampleRate] with [channelCount]
+  /// interleaved channels. Audio is decoded at the sample rate of the model,
+  /// so buffers at another rate or with more channels are resampled and
+  /// downmixed before they reach the recognizer.
+  /// Results are buffered and written out to the file when the buffer fills,
+  /// when the transcript is finished, and additionally every
+  /// [flushEveryResults] results or every [flushInterval] if given.
+  /// If [indexed] is true, a binary index is also written to
+  /// `[transcriptPath].idx`, allowing [readTranscriptRange] to read parts of
+  /// the transcript without reading all of it, and the finished transcript is
+  /// added to the index used by [searchTranscripts].
+  /// If [journaled] is true, each result is also appended to a journal at
+  /// `[transcriptPath].journal` as soon as it is decoded, which is forced to
+  /// storage every [syncEveryResults] results or every [syncInterval],
+  /// whichever comes first. Should the app die before the transcript is
+  /// finished, [recoverTranscript] rebuilds it from the journal. The journal
+  /// is deleted once the transcript is finished.
+  /// At most [queueCapacity] fed buffers wait to be transcribed, beyond which
+  /// [overflowPolicy] decides what happens to further buffers.
+  /// If [skipSilence] is true, long silences are dropped before they reach the
+  /// recognizer, which saves decoding time on recordings with many pauses.
+  /// Results keep the timestamps of the audio as fed. Parallel file feeds are
+  /// not filtered.
+  /// If [grammar] is given, the recognizer only recognizes its phrases, as for
+  /// voice commands or keyword spotting, which decodes much faster and takes
+  /// less memory than the full vocabulary. Include `'[unk]'` to let other
+  /// speech be recognized as unknown rather than as the closest phrase.
+  /// If [words] is false, results carry their text without word timings and
+  /// confidences, and are written to the transcript as a line of text each.
+  /// Recognizers with the same grammar are reused across transcripts.
   /// Throws a [NoOpenThread] exception when called when no thread is open.
   /// Throws a [NoOpenModel] exception when no model is currently opened.
   /// Throws a [TranscriptExists] if the given [transcriptPath] points
   /// to a file that already exists.
   /// Throws a [TranscriptInProgress] exception when called when a transcript
   /// is currently being processed.
-  Future<void> startNewTranscript(String transcriptPath, int sampleRate) async {
+  Future<void> startNewTranscript(
+    String transcriptPath,
+    int sampleRate, {
+    int channelCount = 1,
+    int flushEveryResults = 0,
+    Duration flushInterval = Duration.zero,
+    bool indexed = false,
+    bool journaled = false,
+    int syncEveryResults = 0,
+    Duration syncInterval = const Duration(seconds: 1),
+    int queueCapacity = 64,
+    OverflowPolicy overflowPolicy = OverflowPolicy.block,
+    bool skipSilence = false,
+    List<String> grammar,
+    bool words = true,
+  }) async {
     if (!_threadAllocated) throw NoOpenThread();
     if (!_modelOpened) throw NoOpenModel();
     if (File(transcriptPath).existsSync()) throw TranscriptExists();
@@ -100,10 +306,23 @@ class VoskInstance {
       {
         'transcriptPath': transcriptPath,
         'sampleRate': sampleRate,
+        'channelCount': channelCount,
+        'flushEveryResults': flushEveryResults,
+        'flushInterval': flushInterval.inMilliseconds,
+        'indexed': indexed,
+        'journaled': journaled,
+        'syncEveryResults': syncEveryResults,
+        'syncInterval': syncInterval.inMilliseconds,
+        'queueCapacity': queueCapacity,
+        'overflowPolicy': overflowPolicy.index,
+        'skipSilence': skipSilence,
+        'grammar': grammar,
+        'words': words,
       },
     );
 
     _transcriptInProgress = true;
+    _transcriptPath = transcriptPath;
   }
 
   /// Forcefully closes current transcript file.
@@ -117,7 +336,9 @@ class VoskInstance {
 
     await _bridge.call('terminateTranscript');
 
+    _bridge.forgetPartials(_transcriptPath);
     _transcriptInProgress = false;
+    _transcriptPath = null;
   }
 
   /// Writes final results to transcript file and closes.
@@ -133,47 +354,337 @@ class VoskInstance {
     await _bridge.call('finishTranscript', post);
 
     _transcriptInProgress = false;
+    _transcriptPath = null;
   }
 
   /// Feeds the audio data at [filePath] to the current transcript file.
   ///
+  /// The file may be a PCM wav file with 8, 16, 24, or 32 bit samples, or a
+  /// FLAC file with up to 24 bit samples, which is decoded as it is fed rather
+  /// than expanded to a wav file first. Either may have any sample rate and
+  /// number of channels, and is converted to mono audio at the sample rate of
+  /// the model as it is read. Progress is measured in bytes of the file read.
   /// If [post] is true (default), then the associated events will be posted to
   /// the event stream. Otherwise, no events are posted.
+  /// If [parallel] is true, chunks of the file are transcribed at the same time
+  /// across the available cores. Only result events and progress are posted,
+  /// and it should only be used for transcripts that are fed this one wav
+  /// file, as FLAC files cannot be split into chunks. Transcripts started with
+  /// a [grammar] or without [words] are fed sequentially, as chunks are joined
+  /// by the timings of their words.
+  /// Otherwise the file gives up its thread between buffers while other
+  /// instances wait for one, so live audio on another instance is not held up,
+  /// and is split into buffers as decided by [chunkPolicy].
+  /// Partial results are only taken from the recognizer while the event stream
+  /// is listened to.
+  /// Completes with the id of the feed once it is queued, for use with
+  /// [cancelFeed], [pauseFeed], and [resumeFeed].
   /// Throws a [NoOpenThread] exception when called when no thread is open.
   /// Throws a [NoTranscriptInProgress] exception when called while no
   /// transcript is being processed.
   /// Throws a [NonExistentWavFile] if the given [filePath] points to a
   /// non-existent file.
-  Future<void> feedFile(String filePath, {bool post = true}) {
+  Future<int> feedFile(
+    String filePath, {
+    bool post = true,
+    bool parallel = false,
+    ChunkPolicy chunkPolicy = ChunkPolicy.live,
+  }) async {
     if (!_threadAllocated) throw NoOpenThread();
     if (!_transcriptInProgress) throw NoTranscriptInProgress();
     if (!File(filePath).existsSync()) throw NonExistentWavFile();
 
-    return _bridge.call('feedFile', {'filePath': filePath, 'post': post});
+    return await _bridge.call(
+      'feedFile',
+      {
+        'filePath': filePath,
+        'post': post,
+        'parallel': parallel,
+        'chunkPolicy': chunkPolicy.index,
+      },
+    );
+  }
+
+  /// Stops the file fed with the given [feedId] at its next buffer.
+  ///
+  /// Results of the audio fed so far are kept, and the transcript goes on with
+  /// whatever is fed next. Files are also cancelled by [terminateTranscript]
+  /// and [terminateThread]. If the feed has ended, nothing happens.
+  Future<void> cancelFeed(int feedId) {
+    return _bridge.call('cancelFeed', feedId);
+  }
+
+  /// Pauses the file fed with the given [feedId] at its next buffer.
+  ///
+  /// No thread is held while paused, but everything given to this instance
+  /// afterwards, including [finishTranscript], waits until [resumeFeed] is
+  /// called. Parallel feeds cannot be paused. If the feed has ended, nothing
+  /// happens.
+  Future<void> pauseFeed(int feedId) {
+    return _bridge.call('pauseFeed', feedId);
+  }
+
+  /// Resumes the file fed with the given [feedId] from where it was paused.
+  Future<void> resumeFeed(int feedId) {
+    return _bridge.call('resumeFeed', feedId);
   }
 
   /// Feeds [buffer] to the current transcript file.
   ///
   /// If [post] is true (default), then the associated events will be posted to
   /// the event stream. Otherwise, no events are posted.
+  /// Completes with the status of the queue once [buffer] is queued, which
+  /// is delayed while the queue is full under [OverflowPolicy.block].
+  /// Throws a [NoOpenThread] exception when called when no thread is open.
+  /// Throws a [NoTranscriptInProgress] exception when called while no
+  /// transcript is being processed.
+  Future<FeedStatus> feedBuffer(Uint8List buffer, {bool post = true}) async {
+    if (!_threadAllocated) throw NoOpenThread();
+    if (!_transcriptInProgress) throw NoTranscriptInProgress();
+
+    return FeedStatus(
+      await _bridge.call('feedBuffer', {'buffer': buffer, 'post': post}),
+    );
+  }
+
+  /// Feeds [buffer] to the current transcript file through the audio channel.
+  ///
+  /// Same as [feedBuffer] with [post] true, but the audio is passed to native
+  /// code without being encoded and decoded by the method codec, which is
+  /// preferred for live audio.
+  /// Completes with null if [buffer] is empty, as nothing is fed.
   /// Throws a [NoOpenThread] exception when called when no thread is open.
   /// Throws a [NoTranscriptInProgress] exception when called while no
   /// transcript is being processed.
-  Future<void> feedBuffer(Uint8List buffer, {bool post = true}) {
+  Future<FeedStatus> feedAudio(Uint8List buffer) async {
     if (!_threadAllocated) throw NoOpenThread();
     if (!_transcriptInProgress) throw NoTranscriptInProgress();
+    if (buffer.isEmpty) return null;
+
+    Map status = await _bridge.sendAudio(buffer);
+    return status == null ? null : FeedStatus(status);
+  }
+
+  /// Opens a stream transcribing into [transcriptPath] next to the current
+  /// transcript, returning the id of the stream.
+  ///
+  /// Streams let one instance transcribe several audio sources at once, such
+  /// as the channels of a meeting, sharing its model. Each stream has its own
+  /// recognizer and runs on its own, so streams are transcribed at the same
+  /// time over the threads shared by all instances. Options are the same as
+  /// for [startNewTranscript]. Events of a stream carry its id as
+  /// [TranscriptEvent.streamId]. The stream stays open until [finishStream] or
+  /// [terminateStream] is called, even if the model is closed meanwhile, and
+  /// is terminated by [closeResources].
+  /// Throws a [NoOpenModel] exception when no model is currently opened.
+  /// Throws a [TranscriptExists] if the given [transcriptPath] points
+  /// to a file that already exists.
+  Future<int> openStream(
+    String transcriptPath,
+    int sampleRate, {
+    int channelCount = 1,
+    int flushEveryResults = 0,
+    Duration flushInterval = Duration.zero,
+    bool indexed = false,
+    bool journaled = false,
+    int syncEveryResults = 0,
+    Duration syncInterval = const Duration(seconds: 1),
+    int queueCapacity = 64,
+    OverflowPolicy overflowPolicy = OverflowPolicy.block,
+    bool skipSilence = false,
+    List<String> grammar,
+    bool words = true,
+  }) async {
+    if (!_modelOpened) throw NoOpenModel();
+    if (File(transcriptPath).existsSync()) throw TranscriptExists();
+
+    int streamId = await _bridge.call(
+      'openStream',
+      {
+        'transcriptPath': transcriptPath,
+        'sampleRate': sampleRate,
+        'channelCount': channelCount,
+        'flushEveryResults': flushEveryResults,
+        'flushInterval': flushInterval.inMilliseconds,
+        'indexed': indexed,
+        'journaled': journaled,
+        'syncEveryResults': syncEveryResults,
+        'syncInterval': syncInterval.inMilliseconds,
+        'queueCapacity': queueCapacity,
+        'overflowPolicy': overflowPolicy.index,
+        'skipSilence': skipSilence,
+        'grammar': grammar,
+        'words': words,
+      },
+    );
+
+    _openStreams[streamId] = transcriptPath;
+    return streamId;
+  }
+
+  /// Feeds [buffer] to the stream with the given [streamId], as with
+  /// [feedBuffer].
+  /// Throws a [NonExistentStream] exception if the stream is not open.
+  Future<FeedStatus> feedStreamBuffer(
+    int streamId,
+    Uint8List buffer, {
+    bool post = true,
+  }) async {
+    if (!_openStreams.containsKey(streamId)) throw NonExistentStream();
+
+    return FeedStatus(
+      await _bridge.call(
+        'feedBuffer',
+        {'streamId': streamId, 'buffer': buffer, 'post': post},
+      ),
+    );
+  }
+
+  /// Feeds the audio data at [filePath] to the stream with the given
+  /// [streamId], as with [feedFile], returning the id of the feed.
+  ///
+  /// Files fed to streams are never split into parallel chunks.
+  /// Throws a [NonExistentStream] exception if the stream is not open.
+  /// Throws a [NonExistentWavFile] if the given [filePath] points to a
+  /// non-existent file.
+  Future<int> feedStreamFile(
+    int streamId,
+    String filePath, {
+    bool post = true,
+    ChunkPolicy chunkPolicy = ChunkPolicy.live,
+  }) async {
+    if (!_openStreams.containsKey(streamId)) throw NonExistentStream();
+    if (!File(filePath).existsSync()) throw NonExistentWavFile();
+
+    return await _bridge.call(
+      'feedStreamFile',
+      {
+        'streamId': streamId,
+        'filePath': filePath,
+        'post': post,
+        'chunkPolicy': chunkPolicy.index,
+      },
+    );
+  }
 
-    return _bridge.call('feedBuffer', {'buffer': buffer, 'post': post});
+  /// Finishes the stream with the given [streamId], writing and posting its
+  /// remaining results once what was fed to it is transcribed.
+  ///
+  /// If [post] is true (default), then the final events will be posted to the
+  /// event stream. If the stream is not open, nothing happens.
+  Future<void> finishStream(int streamId, {bool post = true}) async {
+    if (_openStreams.remove(streamId) == null) return;
+
+    await _bridge.call('finishStream', {'streamId': streamId, 'post': post});
+  }
+
+  /// Forcefully closes the stream with the given [streamId], cancelling the
+  /// files fed to it.
+  ///
+  /// The transcript file is not deleted. If the stream is not open, nothing
+  /// happens.
+  Future<void> terminateStream(int streamId) async {
+    String transcriptPath = _openStreams.remove(streamId);
+    if (transcriptPath == null) return;
+
+    await _bridge.call('terminateStream', streamId);
+    _bridge.forgetPartials(transcriptPath);
+  }
+
+  /// Transcribes each of [jobs] in the background with the open model,
+  /// returning the id of the batch.
+  ///
+  /// Jobs run at the same time across the available cores, each on its own
+  /// thread of the given [priority], where lower values run first. Transcripts
+  /// fed through this instance always run ahead of batches, so live audio is
+  /// not held up by imports. Progress of the whole batch is posted to
+  /// [batchStream]. If [skipSilence] is true, long silences are dropped before
+  /// they reach the recognizer, as with [startNewTranscript].
+  /// Jobs save checkpoints as they go and when cancelled. Starting a batch
+  /// with the same jobs again, even after the app was restarted, resumes
+  /// unfinished jobs from their checkpoints and skips completed ones. Any job
+  /// whose transcript already exists without a checkpoint is skipped and
+  /// counted in [BatchProgress.skippedJobs], so an existing file is never
+  /// overwritten.
+  /// Throws a [NoOpenThread] exception when called when no thread is open.
+  /// Throws a [NoOpenModel] exception when no model is currently opened.
+  /// Throws a [NonExistentWavFile] if the file of a job does not exist.
+  Future<int> startBatch(
+    List<BatchJob> jobs, {
+    int priority = 1,
+    bool skipSilence = false,
+  }) {
+    if (!_threadAllocated) throw NoOpenThread();
+    if (!_modelOpened) throw NoOpenModel();
+    for (BatchJob job in jobs) {
+      if (!File(job.filePath).existsSync()) throw NonExistentWavFile();
+    }
+
+    return _bridge.call(
+      'startBatch',
+      {
+        'filePaths': jobs.map((job) => job.filePath).toList(),
+        'transcriptPaths': jobs.map((job) => job.transcriptPath).toList(),
+        'priority': priority,
+        'skipSilence': skipSilence,
+      },
+    );
+  }
+
+  /// Stops the batch with the given [batchId], keeping checkpoints of its
+  /// unfinished jobs so that it can be resumed by [startBatch].
+  ///
+  /// If the batch has already ended, nothing happens.
+  Future<void> cancelBatch(int batchId) {
+    return _bridge.call('cancelBatch', batchId);
+  }
+
+  /// Sets how events are grouped before being sent from native code.
+  ///
+  /// An event waits at most [maxLatency] before it is sent, and at most
+  /// [maxBatchSize] events are sent together. Consecutive partial results are
+  /// merged while waiting, so only the latest is received, and a partial result
+  /// repeating the last one is not received at all. A [maxBatchSize] of 1 sends
+  /// every event on its own. Defaults to 50 milliseconds and 32 events.
+  Future<void> configureEvents({
+    Duration maxLatency = const Duration(milliseconds: 50),
+    int maxBatchSize = 32,
+  }) {
+    return _bridge.call(
+      'configureEvents',
+      {
+        'maxLatency': maxLatency.inMilliseconds,
+        'maxBatchSize': maxBatchSize,
+      },
+    );
+  }
+
+  /// Returns the latency of each stage of transcription so far, along with the
+  /// throughput of the current transcript and of the last file fed.
+  Future<VoskMetrics> getMetrics() async {
+    return VoskMetrics(await _bridge.call('getMetrics'));
+  }
+
+  /// Posts metrics to [metricsStream] every [interval].
+  ///
+  /// An [interval] of zero (default) stops posting metrics.
+  Future<void> configureMetrics({Duration interval = Duration.zero}) {
+    return _bridge.call('configureMetrics', interval.inMilliseconds);
   }
 
   /// Closes resources and any associated connections.
   ///
   /// If [force] is false (default), will wait for any existing tasks to finish
   /// before resources are closed.
-  /// If [force] is true, will attempt to halt any tasks then close resources.
+  /// If [force] is true, will attempt to halt any tasks then close resources,
+  /// cancelling any running batches. Open streams are terminated.
   Future<void> closeResources({bool force = false}) async {
     await _bridge.call('closeResources', force);
+    _openStreams.values.forEach(_bridge.forgetPartials);
+    _openStreams.clear();
+    if (_transcriptInProgress) _bridge.forgetPartials(_transcriptPath);
     _transcriptInProgress = false;
+    _transcriptPath = null;
     _modelOpened = false;
     _threadAllocated = false;
   }
@@ -47,3 +47,13 @@ class NoTranscriptInProgress implements Exception {
   final String message;
   NoTranscriptInProgress([this.message]);
 }
+
+class NonExistentTranscriptIndex implements Exception {
+  final String message;
+  NonExistentTranscriptIndex([this.message]);
+}
+
+class NonExistentStream implements Exception {
+  final String message;
+  NonExistentStream([this.message]);
+}
@@ -0,0 +1,79 @@
+/// Distribution of the durations of a stage of transcription.
+class StageLatency {
+  /// The number of durations recorded.
+  final int count;
+
+  final Duration mean;
+  final Duration p50;
+  final Duration p90;
+  final Duration p99;
+  final Duration max;
+
+  StageLatency(Map latency)
+      : count = latency['count'],
+        mean = _fromMilliseconds(latency['mean']),
+        p50 = _fromMilliseconds(latency['p50']),
+        p90 = _fromMilliseconds(latency['p90']),
+        p99 = _fromMilliseconds(latency['p99']),
+        max = _fromMilliseconds(latency['max']);
+
+  static Duration _fromMilliseconds(double milliseconds) =>
+      Duration(microseconds: (milliseconds * 1000).round());
+}
+
+/// Latency and throughput of the native side of an instance.
+///
+/// Percentiles are accurate to within an eighth of their value.
+class VoskMetrics {
+  /// Time from a feed or task being given until it starts being processed.
+  final StageLatency queueWait;
+
+  /// Time taken by the recognizer to accept each piece of audio.
+  final StageLatency accept;
+
+  /// Time taken to parse each recognizer result.
+  final StageLatency parse;
+
+  /// Time taken to write each result to its transcript.
+  final StageLatency write;
+
+  /// Time from an event being posted until it is sent to dart.
+  final StageLatency post;
+
+  /// Time spent processing divided by the duration of audio processed in the
+  /// current transcript. Values below 1 are faster than real time.
+  final double realTimeFactor;
+
+  /// Bytes of audio processed per second by the last file fed.
+  final double fileBytesPerSecond;
+
+  VoskMetrics(Map metrics)
+      : queueWait = StageLatency(metrics['queueWait']),
+        accept = StageLatency(metrics['accept']),
+        parse = StageLatency(metrics['parse']),
+        write = StageLatency(metrics['write']),
+        post = StageLatency(metrics['post']),
+        realTimeFactor = metrics['realTimeFactor'],
+        fileBytesPerSecond = metrics['fileBytesPerSecond'];
+}
+
+enum WarmUpState { loading, warmingUp, ready, failed }
+
+/// State and timings of the model warm-up set through
+/// `VoskInstance.configureWarmUp`.
+class WarmUpReport {
+  final String modelPath;
+  final WarmUpState state;
+
+  /// Time taken to load the model, once loaded.
+  final Duration loadTime;
+
+  /// Time taken to decode the synthetic audio, once ready.
+  final Duration warmUpTime;
+
+  WarmUpReport(Map report)
+      : modelPath = report['modelPath'],
+        state = WarmUpState.values[report['state']],
+        loadTime = StageLatency._fromMilliseconds(report['loadTime']),
+        warmUpTime = StageLatency._fromMilliseconds(report['warmUpTime']);
+}
@@ -1,23 +1,86 @@
 import 'package:flutter/services.dart';
 import 'package:flutter_test/flutter_test.dart';
-import 'package:vosk_dart/vosk_dart.dart';
+import 'package:vosk_dart/bridge.dart';
+import 'package:vosk_dart/transcript_event.dart';
 
 void main() {
-  const MethodChannel channel = MethodChannel('vosk_dart');
+  const MethodChannel mainChannel = MethodChannel('vosk_main');
 
   TestWidgetsFlutterBinding.ensureInitialized();
 
+  Bridge bridge;
+  String eventChannelName;
+  List events;
+
   setUp(() {
-    channel.setMockMethodCallHandler((MethodCall methodCall) async {
-      return '42';
+    int id;
+    mainChannel.setMockMethodCallHandler((MethodCall methodCall) async {
+      if (methodCall.method == 'createNewInstance') id = methodCall.arguments;
+      return null;
     });
+
+    bridge = Bridge();
+    eventChannelName = 'vosk_event_$id';
+    MethodChannel(eventChannelName)
+        .setMockMethodCallHandler((MethodCall methodCall) async => null);
+
+    events = [];
+    bridge.eventStream.listen((batch) => events.addAll(batch));
   });
 
   tearDown(() {
-    channel.setMockMethodCallHandler(null);
+    MethodChannel(eventChannelName).setMockMethodCallHandler(null);
+    mainChannel.setMockMethodCallHandler(null);
+  });
+
+  /// Sends a batch of [batch] events as native code would, and waits for the
+  /// listener to get it.
+  Future<void> send(List batch) async {
+    await ServicesBinding.instance.defaultBinaryMessenger.handlePlatformMessage(
+      eventChannelName,
+      const StandardMethodCodec().encodeSuccessEnvelope(batch),
+      (ByteData reply) {},
+    );
+    await pumpEventQueue();
+  }
+
+  Map partial(String transcriptPath, int textPrefix, String textSuffix) {
+    return {
+      'resultType': ResultType.partial.index,
+      'transcriptPath': transcriptPath,
+      'textPrefix': textPrefix,
+      'textSuffix': textSuffix,
+    };
+  }
+
+  Map finalResult(String transcriptPath) {
+    return {
+      'resultType': ResultType.finalResult.index,
+      'transcriptPath': transcriptPath,
+      'text': 'done',
+    };
+  }
+
+  List<String> texts() =>
+      events.map((event) => event['text'] as String).toList();
+
+  test('rebuilds partial results from their differences', () async {
+    await send([partial('a', 0, 'hello'), partial('b', 0, 'other')]);
+    await send([partial('a', 5, ' world')]);
+    await send([partial('a', 6, 'there'), partial('b', 5, 's')]);
+
+    expect(texts(), ['hello', 'other', 'hello world', 'hello there', 'others']);
+    expect(events.any((event) => event.containsKey('textPrefix')), false);
   });
 
-  test('getPlatformVersion', () async {
-    expect(await VoskDart.platformVersion, '42');
+  test('forgets partial results once their transcript ends', () async {
+    await send([partial('a', 0, 'hello'), finalResult('a')]);
+    await send([partial('a', 0, 'next')]);
+    await send([partial('b', 0, 'terminated')]);
+
+    bridge.forgetPartials('b');
+    await send([partial('b', 0, 'again')]);
+
+    expect(texts(), ['hello', 'done', 'next', 'terminated', 'again']);
   });
 }